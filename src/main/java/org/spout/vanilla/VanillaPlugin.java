@@ -62,6 +62,7 @@ import org.spout.api.plugin.PluginLogger;
 import org.spout.api.plugin.ServiceManager;
 import org.spout.api.plugin.services.ProtectionService;
 import org.spout.api.protocol.Protocol;
+import org.spout.api.scheduler.TaskPriority;
 import org.spout.api.util.FlatIterator;
 
 import org.spout.vanilla.command.AdministrationCommands;
@@ -86,17 +87,25 @@ import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.enchantment.VanillaEnchantments;
 import org.spout.vanilla.protocol.LANThread;
 import org.spout.vanilla.protocol.VanillaProtocol;
+import org.spout.vanilla.protocol.codec.world.chunk.ChunkCompression;
+import org.spout.vanilla.protocol.codec.world.chunk.ChunkCompressionPool;
+import org.spout.vanilla.protocol.codec.world.chunk.EncodedChunkCache;
 import org.spout.vanilla.protocol.rcon.RemoteConnectionCore;
 import org.spout.vanilla.protocol.rcon.RemoteConnectionServer;
 import org.spout.vanilla.scoreboard.ScoreboardListener;
 import org.spout.vanilla.service.VanillaProtectionService;
 import org.spout.vanilla.service.protection.SpawnProtection;
+import org.spout.vanilla.util.explosion.ExplosionModels;
+import org.spout.vanilla.util.thread.RegionPregenerator;
 import org.spout.vanilla.util.thread.SpawnLoader;
+import org.spout.vanilla.world.RandomTickScheduler;
 import org.spout.vanilla.world.generator.VanillaGenerator;
 import org.spout.vanilla.world.generator.VanillaGenerators;
 import org.spout.vanilla.world.generator.nether.NetherGenerator;
 import org.spout.vanilla.world.generator.skylands.SkylandsGenerator;
 import org.spout.vanilla.world.generator.theend.TheEndGenerator;
+import org.spout.vanilla.world.lighting.BulkLightingPool;
+import org.spout.vanilla.world.lighting.LightingStatistics;
 import org.spout.vanilla.world.lighting.VanillaLighting;
 
 public class VanillaPlugin extends CommonPlugin {
@@ -105,6 +114,7 @@ public class VanillaPlugin extends CommonPlugin {
 	protected static VanillaPlugin instance;
 	private VanillaConfiguration config;
 	private RemoteConnectionCore rcon;
+	private final RandomTickScheduler randomTicks = new RandomTickScheduler();
 	//Client only
 	//TODO Remove, seriously not secure.
 	private String username = "";
@@ -112,6 +122,11 @@ public class VanillaPlugin extends CommonPlugin {
 
 	@Override
 	public void onDisable() {
+		ChunkCompressionPool.stop();
+		BulkLightingPool.stop();
+		RegionPregenerator.stopAll();
+		ExplosionModels.BATCHER.setEnabled(false);
+		randomTicks.setEnabled(false);
 		instance = null;
 		getLogger().info("disabled");
 	}
@@ -170,6 +185,24 @@ public class VanillaPlugin extends CommonPlugin {
 		//Configuration
 		VanillaBlockMaterial.REDSTONE_POWER_MAX = (short) VanillaConfiguration.REDSTONE_MAX_RANGE.getInt();
 		VanillaBlockMaterial.REDSTONE_POWER_MIN = (short) VanillaConfiguration.REDSTONE_MIN_RANGE.getInt();
+		ChunkCompression.setCompressionLevel(VanillaConfiguration.CHUNK_COMPRESSION_LEVEL.getInt());
+		EncodedChunkCache.setMaxSize((long) VanillaConfiguration.ENCODED_CHUNK_CACHE_SIZE.getInt() << 10);
+		ChunkCompressionPool.start(VanillaConfiguration.CHUNK_COMPRESSION_THREADS.getInt(), VanillaConfiguration.CHUNK_COMPRESSION_MAX_QUEUED.getInt());
+		BulkLightingPool.start(VanillaConfiguration.LIGHTING_BULK_THREADS.getInt());
+		LightingStatistics.setEnabled(VanillaConfiguration.LIGHTING_STATISTICS.getBoolean());
+		ExplosionModels.BATCHER.setMaxExplosionsPerTick(VanillaConfiguration.EXPLOSION_BATCH_LIMIT.getInt());
+		if (VanillaConfiguration.EXPLOSION_BATCHING.getBoolean()) {
+			getEngine().getScheduler().scheduleSyncRepeatingTask(this, ExplosionModels.BATCHER, 0, 50, TaskPriority.NORMAL);
+			ExplosionModels.BATCHER.setEnabled(true);
+		}
+		randomTicks.setRadius(VanillaConfiguration.RANDOM_TICK_RADIUS.getInt());
+		randomTicks.setBlocksPerSection(VanillaConfiguration.RANDOM_TICKS_PER_SECTION.getInt());
+		randomTicks.setRescanInterval(VanillaConfiguration.RANDOM_TICK_RESCAN.getInt());
+		// Growth, spreading and decay only happen through random ticks, so they can not be turned off
+		if (getEngine().getPlatform() == Platform.SERVER) {
+			getEngine().getScheduler().scheduleSyncRepeatingTask(this, randomTicks, 0, 50, TaskPriority.NORMAL);
+			randomTicks.setEnabled(true);
+		}
 
 		//TODO: Remove this check when the null world bug is fixed
 		for (World world : getEngine().getWorlds()) {
@@ -253,7 +286,7 @@ public class VanillaPlugin extends CommonPlugin {
 
 		final int radius = VanillaConfiguration.SPAWN_RADIUS.getInt();
 		final int protectionRadius = VanillaConfiguration.SPAWN_PROTECTION_RADIUS.getInt();
-		SpawnLoader loader = new SpawnLoader(1);
+		SpawnLoader loader = new SpawnLoader(VanillaConfiguration.GENERATION_THREADS.getInt());
 
 		if (worlds.isEmpty()) {
 			return;
@@ -341,6 +374,14 @@ public class VanillaPlugin extends CommonPlugin {
 		return config;
 	}
 
+	/**
+	 * Gets the scheduler updating the random tickable blocks near players
+	 * @return the random tick scheduler
+	 */
+	public RandomTickScheduler getRandomTickScheduler() {
+		return randomTicks;
+	}
+
 	public ChatArguments getPrefix() {
 		return ((PluginLogger) getLogger()).getTag();
 	}
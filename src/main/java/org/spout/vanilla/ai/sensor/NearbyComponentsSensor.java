@@ -28,13 +28,18 @@ package org.spout.vanilla.ai.sensor;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import org.spout.api.ai.Sensor;
 import org.spout.api.ai.goap.PlannerAgent;
 import org.spout.api.ai.goap.WorldState;
 import org.spout.api.component.type.EntityComponent;
 import org.spout.api.entity.Entity;
+import org.spout.api.geo.discrete.Point;
+
+import org.spout.vanilla.world.EntityIndex;
 
 /**
  * Simple Sensor that detects Entities with a specified Component nearby.
@@ -45,36 +50,57 @@ public class NearbyComponentsSensor implements Sensor {
 	private final PlannerAgent agent;
 	private final WorldState state;
 	private final List<Class<? extends EntityComponent>> classes;
+	private final boolean indexed;
+	private final List<Entity> nearby = new ArrayList<Entity>();
+	private final Set<Entity> added = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
 	private int radius;
 
 	public NearbyComponentsSensor(PlannerAgent agent, Class<? extends EntityComponent>... classes) {
 		this.agent = agent;
 		this.state = WorldState.createEmptyState();
 		this.classes = new ArrayList<Class<? extends EntityComponent>>();
+		boolean indexed = true;
 		for (Class<? extends EntityComponent> clazz : classes) {
 			this.classes.add(clazz);
+			indexed &= EntityIndex.isIndexed(clazz);
 		}
+		this.indexed = indexed;
 	}
 
 	@Override
 	public WorldState generateState() {
-		ArrayList<Entity> entities = new ArrayList<Entity>();
-		for (Entity entity : agent.getEntity().getWorld().getNearbyEntities(agent.getEntity(), radius)) {
-			boolean hasClass = false;
-			for (Class clazz : classes) {
-				if (entity.get(clazz) != null) {
-					hasClass = true;
-					break;
+		final Entity owner = agent.getEntity();
+		nearby.clear();
+		if (indexed) {
+			final EntityIndex index = EntityIndex.get(owner.getWorld());
+			final Point position = owner.getScene().getPosition();
+			for (Class<? extends EntityComponent> clazz : classes) {
+				final int start = nearby.size();
+				index.getNearby(clazz, position, radius, owner, nearby);
+				// Entities having more than one of the components are only added once
+				int size = start;
+				for (int i = start; i < nearby.size(); i++) {
+					final Entity entity = nearby.get(i);
+					if (added.add(entity)) {
+						nearby.set(size++, entity);
+					}
 				}
+				nearby.subList(size, nearby.size()).clear();
 			}
-			if (!hasClass) {
-				continue;
+			added.clear();
+		} else {
+			for (Entity entity : owner.getWorld().getNearbyEntities(owner, radius)) {
+				for (Class clazz : classes) {
+					if (entity.get(clazz) != null) {
+						nearby.add(entity);
+						break;
+					}
+				}
 			}
-			entities.add(entity);
 		}
-		boolean found = entities.size() > 0;
+		boolean found = nearby.size() > 0;
 		state.put("hasNearbyEntities", found);
-		state.put("entities", found ? entities : Collections.emptyList());
+		state.put("entities", found ? new ArrayList<Entity>(nearby) : Collections.emptyList());
 		return state;
 	}
 
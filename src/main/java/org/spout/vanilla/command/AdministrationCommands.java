@@ -26,6 +26,8 @@
  */
 package org.spout.vanilla.command;
 
+import java.io.File;
+
 import gnu.trove.iterator.TLongIterator;
 import gnu.trove.list.linked.TLongLinkedList;
 
@@ -40,15 +42,18 @@ import org.spout.api.command.annotated.Command;
 import org.spout.api.command.annotated.CommandPermissions;
 import org.spout.api.entity.Player;
 import org.spout.api.exception.CommandException;
+import org.spout.api.exception.ConfigurationException;
 import org.spout.api.generator.biome.Biome;
 import org.spout.api.generator.biome.BiomeGenerator;
 import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.geo.discrete.Point;
 import org.spout.api.inventory.Inventory;
 import org.spout.api.inventory.ItemStack;
 import org.spout.api.material.Material;
 import org.spout.api.scheduler.TaskPriority;
 import org.spout.api.util.concurrent.AtomicFloat;
+import org.spout.api.util.config.yaml.YamlConfiguration;
 
 import org.spout.vanilla.VanillaPlugin;
 import org.spout.vanilla.component.entity.inventory.PlayerInventory;
@@ -63,6 +68,20 @@ import org.spout.vanilla.data.configuration.OpConfiguration;
 import org.spout.vanilla.data.configuration.VanillaConfiguration;
 import org.spout.vanilla.event.cause.HealthChangeCause;
 import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.protocol.VanillaProtocol;
+import org.spout.vanilla.protocol.codec.world.chunk.ChunkBulkCodec;
+import org.spout.vanilla.protocol.codec.world.chunk.ChunkCompressionPool;
+import org.spout.vanilla.protocol.codec.world.chunk.EncodedChunkCache;
+import org.spout.vanilla.protocol.handler.world.chunk.ChunkSectionLoader;
+import org.spout.vanilla.protocol.netcache.ChunkNetCache;
+import org.spout.vanilla.util.thread.RegionPregenerator;
+import org.spout.vanilla.world.RandomTickScheduler;
+import org.spout.vanilla.world.generator.VanillaGenerators;
+import org.spout.vanilla.world.generator.normal.BiomeColumnCache;
+import org.spout.vanilla.world.generator.normal.populator.CarverPopulator;
+import org.spout.vanilla.world.lighting.LightingStatistics;
+import org.spout.vanilla.world.lighting.VanillaLighting;
+import org.spout.vanilla.world.lighting.VanillaLightingManager;
 
 public class AdministrationCommands {
 	private final VanillaPlugin plugin;
@@ -513,6 +532,126 @@ public class AdministrationCommands {
 	public void getTPS(CommandContext args, CommandSource source) {
 		source.sendMessage("TPS: " + tpsMonitor.getTPS());
 		source.sendMessage("Average TPS: " + tpsMonitor.getAvgTPS());
+		RandomTickScheduler randomTicks = plugin.getRandomTickScheduler();
+		if (randomTicks.isEnabled()) {
+			long sections = randomTicks.getSectionsTicked();
+			source.sendMessage("Random ticks: " + sections + "/" + (sections + randomTicks.getSectionsSkipped()) + " sections ticked, " + randomTicks.getBlocksTicked() + " blocks updated, " + randomTicks.getScans() + " scans");
+		}
+	}
+
+	@Command(aliases = {"netstats"}, usage = "", desc = "Print out chunk network statistics", min = 0, max = 0)
+	@CommandPermissions("vanilla.command.netstats")
+	public void getNetStats(CommandContext args, CommandSource source) {
+		long hits = EncodedChunkCache.getHits();
+		long lookups = hits + EncodedChunkCache.getMisses();
+		source.sendMessage("Chunk cache: " + hits + "/" + lookups + " hits, " + EncodedChunkCache.getEvictions() + " evictions, " + EncodedChunkCache.getInvalidations() + " invalidations, " + EncodedChunkCache.getBypassed() + " sent once, " + (EncodedChunkCache.getSize() >> 10) + " KiB");
+		source.sendMessage("Bulk chunks (not cached): " + ChunkBulkCodec.getColumnsSent() + " columns in " + ChunkBulkCodec.getMessagesSent() + " messages, " + (ChunkBulkCodec.getUncompressedBytes() >> 10) + " KiB compressed to " + (ChunkBulkCodec.getCompressedBytes() >> 10) + " KiB, " + ChunkBulkCodec.getHeaderBytesSaved() + " header bytes saved");
+		source.sendMessage("Compression pool: " + ChunkCompressionPool.getQueueDepth() + " queued, " + ChunkCompressionPool.getCompleted() + " completed, " + ChunkCompressionPool.getRejected() + " rejected, " + String.format("%.2f ms queued, %.2f ms compressing, %.2f ms max latency", ChunkCompressionPool.getAverageQueueTime(), ChunkCompressionPool.getAverageCompressTime(), ChunkCompressionPool.getMaxLatency()));
+		source.sendMessage("Client sections: " + ChunkSectionLoader.getSections() + " applied, " + String.format("%.1f sections/s", ChunkSectionLoader.getSectionsPerSecond()));
+		if (getEngine() instanceof Server) {
+			int sessions = 0;
+			long memory = 0;
+			for (Player player : ((Server) getEngine()).getOnlinePlayers()) {
+				ChunkNetCache netCache = player.getSession().getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE);
+				if (netCache != null && netCache.isCacheEnabled()) {
+					sessions++;
+					memory += netCache.getMemoryUsage();
+				}
+			}
+			source.sendMessage("Net cache: " + sessions + " sessions, " + (memory >> 10) + " KiB");
+		}
+	}
+
+	@Command(aliases = {"genstats"}, usage = "", desc = "Print out world generation statistics", min = 0, max = 0)
+	@CommandPermissions("vanilla.command.genstats")
+	public void getGenStats(CommandContext args, CommandSource source) {
+		BiomeColumnCache columns = VanillaGenerators.NORMAL.getColumnCache();
+		long biomeHits = columns.getBiomeHits();
+		long elevationHits = columns.getElevationHits();
+		source.sendMessage("Column cache: " + biomeHits + "/" + (biomeHits + columns.getBiomeMisses()) + " biome hits, " + elevationHits + "/" + (elevationHits + columns.getElevationMisses()) + " elevation hits");
+		long reused = CarverPopulator.getReused();
+		source.sendMessage("Carver plans: " + reused + "/" + (reused + CarverPopulator.getSimulated()) + " reused, " + CarverPopulator.getReplayed() + " replayed, " + CarverPopulator.getSkipped() + " out of reach");
+	}
+
+	@Command(aliases = {"pregen"}, usage = "<world> [radius|stop] [threads] [spiral|region]", desc = "Pre-generate, stop pre-generating or print the progress of the area around the spawn of a world", min = 1, max = 4)
+	@CommandPermissions("vanilla.command.pregen")
+	public void pregen(CommandContext args, CommandSource source) throws CommandException {
+		World world = getEngine().getWorld(args.getString(0));
+		if (world == null) {
+			throw new CommandException("Invalid world '" + args.getString(0) + "'.");
+		}
+		RegionPregenerator pregenerator = RegionPregenerator.get(world);
+		if (args.length() == 1) {
+			source.sendMessage(pregenerator == null ? "No pre-generation running in " + world.getName() : pregenerator.getStatus());
+			return;
+		} else if (args.getString(1).equalsIgnoreCase("stop")) {
+			if (pregenerator == null) {
+				throw new CommandException("No pre-generation running in " + world.getName());
+			}
+			pregenerator.stop();
+			source.sendMessage("Stopping the pre-generation of " + world.getName() + ", the progress is saved once the workers finished");
+			return;
+		} else if (!args.isInteger(1) || args.getInteger(1) <= 0 || args.getInteger(1) > RegionPregenerator.MAX_RADIUS) {
+			throw new CommandException("The radius must be between 1 and " + RegionPregenerator.MAX_RADIUS + " chunks.");
+		}
+		int threads = args.length() > 2 ? args.getInteger(2) : VanillaConfiguration.GENERATION_THREADS.getInt();
+		if (threads <= 0) {
+			throw new CommandException("The number of threads must be positive.");
+		}
+		RegionPregenerator.Order order = RegionPregenerator.Order.SPIRAL;
+		if (args.length() > 3) {
+			order = RegionPregenerator.Order.get(args.getString(3));
+			if (order == null) {
+				throw new CommandException("Unknown order '" + args.getString(3) + "', expected spiral or region.");
+			}
+		}
+		Point spawn = world.getSpawnPoint().getPosition();
+		File checkpoint = new File(new File(plugin.getDataFolder(), "pregen"), world.getName() + ".yml");
+		pregenerator = new RegionPregenerator(world, spawn.getBlockX() >> Chunk.BLOCKS.BITS, spawn.getBlockZ() >> Chunk.BLOCKS.BITS, args.getInteger(1), order, checkpoint);
+		pregenerator.start(threads, VanillaConfiguration.GENERATION_MIN_TPS.getFloat());
+		source.sendMessage(pregenerator.getStatus());
+	}
+
+	@Command(aliases = {"lightstats"}, usage = "[on|off|reset|dump]", desc = "Print out, toggle, reset or dump lighting statistics", min = 0, max = 1)
+	@CommandPermissions("vanilla.command.lightstats")
+	public void getLightStats(CommandContext args, CommandSource source) throws CommandException {
+		VanillaLightingManager[] managers = {VanillaLighting.SKY_LIGHT, VanillaLighting.BLOCK_LIGHT};
+		String action = args.length() == 0 ? "" : args.getString(0).toLowerCase();
+		if (action.equals("on") || action.equals("off")) {
+			LightingStatistics.setEnabled(action.equals("on"));
+			source.sendMessage("Lighting statistics " + (LightingStatistics.isEnabled() ? "enabled" : "disabled"));
+		} else if (action.equals("reset")) {
+			for (VanillaLightingManager manager : managers) {
+				manager.getStatistics().reset();
+			}
+			source.sendMessage("Lighting statistics reset");
+		} else if (action.equals("dump")) {
+			YamlConfiguration dump = new YamlConfiguration(new File(plugin.getDataFolder(), "lightstats.yml"));
+			dump.getNode("enabled").setValue(LightingStatistics.isEnabled());
+			dump.getNode("time").setValue(System.currentTimeMillis());
+			for (VanillaLightingManager manager : managers) {
+				manager.getStatistics().write(dump.getNode("managers", manager.getName()));
+			}
+			try {
+				dump.save();
+			} catch (ConfigurationException e) {
+				throw new CommandException("Unable to write lightstats.yml: " + e.getMessage());
+			}
+			source.sendMessage("Lighting statistics written to lightstats.yml");
+		} else if (!action.isEmpty()) {
+			throw new CommandException("Unknown action '" + action + "', expected on, off, reset or dump.");
+		} else {
+			if (!LightingStatistics.isEnabled()) {
+				source.sendMessage("Lighting statistics are disabled, enable them with /lightstats on");
+			}
+			for (VanillaLightingManager manager : managers) {
+				LightingStatistics stats = manager.getStatistics();
+				LightingStatistics.Counter incremental = stats.getIncremental();
+				LightingStatistics.Counter bulk = stats.getBulk();
+				source.sendMessage(manager.getName() + " incremental: " + incremental.getCalls() + " calls, " + incremental.getBlocks() + " blocks, " + stats.getFifoHighWater() + " max queued, " + String.format("%.2f ms total, %.3f ms p50, %.3f ms p99, %.2f ms max", incremental.getTotalTime(), incremental.getPercentile(0.5), incremental.getPercentile(0.99), incremental.getMaxTime()));
+				source.sendMessage(manager.getName() + " bulk: " + bulk.getCalls() + " calls, " + bulk.getBlocks() + " blocks, " + String.format("%.2f ms total, %.3f ms p50, %.3f ms p99, %.2f ms max", bulk.getTotalTime(), bulk.getPercentile(0.5), bulk.getPercentile(0.99), bulk.getMaxTime()));
+			}
+		}
 	}
 
 	private static class TicksPerSecondMonitor implements Runnable, TPSMonitor {
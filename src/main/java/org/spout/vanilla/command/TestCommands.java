@@ -26,8 +26,11 @@
  */
 package org.spout.vanilla.command;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.spout.api.Client;
 import org.spout.api.Engine;
@@ -59,6 +62,7 @@ import org.spout.api.math.Vector3;
 import org.spout.api.protocol.NetworkSynchronizer;
 import org.spout.api.protocol.event.ProtocolEvent;
 import org.spout.api.util.BlockIterator;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.VanillaPlugin;
 import org.spout.vanilla.component.block.material.chest.Chest;
@@ -111,6 +115,7 @@ import org.spout.vanilla.world.generator.normal.object.tree.BigTreeObject;
 import org.spout.vanilla.world.generator.object.RandomizableObject;
 import org.spout.vanilla.world.generator.object.VanillaObjects;
 import org.spout.vanilla.world.lighting.LightingVerification;
+import org.spout.vanilla.world.lighting.VanillaLighting;
 
 public class TestCommands {
 	private final VanillaPlugin plugin;
@@ -216,6 +221,49 @@ public class TestCommands {
 		LightingVerification.checkAll(p.getWorld(), true);
 	}
 	
+	@Command(aliases = "bulklight", usage = "", desc = "Compares the bulk light initialization of the chunks around you with the sequential engine", max = 0)
+	@CommandPermissions("vanilla.command.debug")
+	public void bulkLight(CommandContext args, CommandSource source) throws CommandException {
+		if (!(source instanceof Player)) {
+			throw new CommandException("You must be a player to test lighting.");
+		}
+		Player p = (Player) source;
+		Chunk center = p.getChunk();
+		World world = p.getWorld();
+		int size = Chunk.BLOCKS.SIZE;
+		int baseX = (center.getX() - 1) << Chunk.BLOCKS.BITS;
+		int baseY = (center.getY() - 1) << Chunk.BLOCKS.BITS;
+		int baseZ = (center.getZ() - 1) << Chunk.BLOCKS.BITS;
+		CuboidBlockMaterialBuffer buffer = new CuboidBlockMaterialBuffer(baseX, baseY, baseZ, size * 3, size * 3, size * 3);
+		for (int cx = 0; cx < 3; cx++) {
+			for (int cy = 0; cy < 3; cy++) {
+				for (int cz = 0; cz < 3; cz++) {
+					Chunk c = world.getChunk(center.getX() - 1 + cx, center.getY() - 1 + cy, center.getZ() - 1 + cz, LoadOption.LOAD_ONLY);
+					if (c == null) {
+						throw new CommandException("The chunks around you must be loaded.");
+					}
+					CuboidBlockMaterialBuffer chunk = c.getCuboid(false);
+					for (int x = c.getBlockX(); x < c.getBlockX() + size; x++) {
+						for (int y = c.getBlockY(); y < c.getBlockY() + size; y++) {
+							for (int z = c.getBlockZ(); z < c.getBlockZ() + size; z++) {
+								buffer.set(x, y, z, chunk.getId(x, y, z), chunk.getData(x, y, z));
+							}
+						}
+					}
+				}
+			}
+		}
+		int[][] height = new int[size * 3][size * 3];
+		for (int x = 0; x < height.length; x++) {
+			for (int z = 0; z < height[x].length; z++) {
+				height[x][z] = world.getSurfaceHeight(baseX + x, baseZ + z);
+			}
+		}
+		boolean failure = LightingVerification.checkBulkInitialize(VanillaLighting.SKY_LIGHT, buffer, height);
+		failure |= LightingVerification.checkBulkInitialize(VanillaLighting.BLOCK_LIGHT, buffer, height);
+		source.sendMessage(failure ? "Bulk light differs from the sequential engine, see the log" : "Bulk light matches the sequential engine");
+	}
+	
 	@Command(aliases = "checkheight", usage = "", desc = "Finds surface height of current column", max = 0)
 	@CommandPermissions("vanilla.command.debug")
 	public void targetHeight(CommandContext args, CommandSource source) throws CommandException {
@@ -525,7 +573,7 @@ public class TestCommands {
 		hunger.setPoisoned(Boolean.valueOf(args.getString(1)));
 	}
 
-	@Command(aliases = {"explode"}, usage = "<explode>", desc = "Create an explosion")
+	@Command(aliases = {"explode"}, usage = "[count] [threads]", desc = "Create an explosion, or measure the explosions per second of count explosions around you without changing any block", min = 0, max = 2)
 	@CommandPermissions("vanilla.command.debug")
 	public void explode(CommandContext args, CommandSource source) throws CommandException {
 		if (!(source instanceof Player)) {
@@ -533,9 +581,50 @@ public class TestCommands {
 		}
 
 		Entity entity = (Player) source;
-		Point position = entity.getScene().getPosition();
+		final Point position = entity.getScene().getPosition();
+
+		if (args.length() == 0) {
+			ExplosionModels.SPHERICAL.execute(position, 4.0f);
+			return;
+		}
 
-		ExplosionModels.SPHERICAL.execute(position, 4.0f);
+		final int count = args.getInteger(0);
+		final int threadCount = args.length() > 1 ? args.getInteger(1) : 1;
+		if (count <= 0 || threadCount <= 0) {
+			throw new CommandException("The count and threads must be positive");
+		}
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicLong blocks = new AtomicLong();
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread("Explosion benchmark #" + (i + 1)) {
+				@Override
+				public void run() {
+					List<Block> destroyed = new ArrayList<Block>();
+					int index;
+					while ((index = next.getAndIncrement()) < count) {
+						// Spread the explosions over a 64x64 area so the threads work in different places
+						Point point = position.add(new Vector3((index & 7) * 8 - 32, 0, ((index >> 3) & 7) * 8 - 32));
+						destroyed.clear();
+						ExplosionModels.SPHERICAL.getBlocksToDestroy(point, 4.0f, destroyed);
+						blocks.addAndGet(destroyed.size());
+					}
+				}
+			};
+		}
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new CommandException("Interrupted while waiting for the explosions");
+		}
+		double seconds = (System.nanoTime() - start) / 1000000000D;
+		source.sendMessage(count + " explosions on " + threadCount + " threads in " + String.format("%.3f s, %.1f explosions/s, ", seconds, count / seconds) + (blocks.get() / count) + " blocks per explosion");
 	}
 
 	@Command(aliases = {"object", "obj"}, usage = "<name>", flags = "f", desc = "Spawn a WorldGeneratorObject at your location. Use -f to ignore canPlace check", min = 1, max = 2)
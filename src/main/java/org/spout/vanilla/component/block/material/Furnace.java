@@ -35,6 +35,7 @@ import org.spout.api.inventory.ItemStack;
 import org.spout.vanilla.VanillaPlugin;
 import org.spout.vanilla.component.block.ViewedBlockComponent;
 import org.spout.vanilla.component.entity.inventory.WindowHolder;
+import org.spout.vanilla.data.CachedData;
 import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.event.block.FurnaceBurnEvent;
 import org.spout.vanilla.event.block.FurnaceSmeltEvent;
@@ -53,13 +54,18 @@ import org.spout.vanilla.material.VanillaMaterials;
 public class Furnace extends ViewedBlockComponent implements Container {
 	public final float MAX_FUEL_INCREMENT = 12.5f;
 	public final float MAX_SMELT_TIME_INCREMENT = 9f;
+	private final CachedData state = new CachedData(this);
+	private final CachedData.FloatField maxSmeltTime = state.newFloat(VanillaData.MAX_SMELT_TIME);
+	private final CachedData.FloatField smeltTime = state.newFloat(VanillaData.SMELT_TIME);
+	private final CachedData.FloatField maxFuel = state.newFloat(VanillaData.MAX_FURNACE_FUEL);
+	private final CachedData.FloatField fuel = state.newFloat(VanillaData.FURNACE_FUEL);
 
 	/**
 	 * Retrieve the maximum time to smelt something.
 	 * @return The maximum time to smelt.
 	 */
 	public float getMaxSmeltTime() {
-		return getData().get(VanillaData.MAX_SMELT_TIME);
+		return maxSmeltTime.get();
 	}
 
 	/**
@@ -67,7 +73,7 @@ public class Furnace extends ViewedBlockComponent implements Container {
 	 * @param maxSmeltTime The maximum time to smelt.
 	 */
 	public void setMaxSmeltTime(float maxSmeltTime) {
-		getData().put(VanillaData.MAX_SMELT_TIME, maxSmeltTime);
+		this.maxSmeltTime.set(maxSmeltTime);
 	}
 
 	/**
@@ -75,18 +81,16 @@ public class Furnace extends ViewedBlockComponent implements Container {
 	 * @return The current smelting time.
 	 */
 	public float getSmeltTime() {
-		return getData().get(VanillaData.SMELT_TIME);
+		return smeltTime.get();
 	}
 
 	/**
-	 * Sets the current smelting time.
+	 * Sets the current smelting time.<br>
+	 * Viewers are updated at the end of the tick.
 	 * @param smeltTime The current smelting time.
 	 */
 	public void setSmeltTime(float smeltTime) {
-		getData().put(VanillaData.SMELT_TIME, smeltTime);
-		for (Player player : viewers) {
-			updateProgressArrow(player);
-		}
+		this.smeltTime.set(smeltTime);
 	}
 
 	private void updateProgressArrow(Player player) {
@@ -107,7 +111,7 @@ public class Furnace extends ViewedBlockComponent implements Container {
 	 */
 	//TODO: Better description anyone?
 	public float getMaxFuel() {
-		return getData().get(VanillaData.MAX_FURNACE_FUEL);
+		return maxFuel.get();
 	}
 
 	/**
@@ -115,7 +119,7 @@ public class Furnace extends ViewedBlockComponent implements Container {
 	 * @param maxFuel The maximum amount of fuel.
 	 */
 	public void setMaxFuel(float maxFuel) {
-		getData().put(VanillaData.MAX_FURNACE_FUEL, maxFuel);
+		this.maxFuel.set(maxFuel);
 	}
 
 	/**
@@ -123,18 +127,16 @@ public class Furnace extends ViewedBlockComponent implements Container {
 	 * @return The current amount of fuel.
 	 */
 	public float getFuel() {
-		return getData().get(VanillaData.FURNACE_FUEL);
+		return fuel.get();
 	}
 
 	/**
-	 * Set the current amount of fuel in this furnace.
+	 * Set the current amount of fuel in this furnace.<br>
+	 * Viewers are updated at the end of the tick.
 	 * @param fuel The current amount of fuel.
 	 */
 	public void setFuel(float fuel) {
-		getData().put(VanillaData.FURNACE_FUEL, fuel);
-		for (Player player : viewers) {
-			updateFireIcon(player);
-		}
+		this.fuel.set(fuel);
 	}
 
 	private void updateFireIcon(Player player) {
@@ -195,6 +197,29 @@ public class Furnace extends ViewedBlockComponent implements Container {
 
 	@Override
 	public void onTick(float dt) {
+		burn(dt);
+		// Send the changes made during the tick once
+		final boolean smeltChanged = smeltTime.clearDirty();
+		final boolean fuelChanged = fuel.clearDirty();
+		if (smeltChanged || fuelChanged) {
+			for (Player player : viewers) {
+				if (smeltChanged) {
+					updateProgressArrow(player);
+				}
+				if (fuelChanged) {
+					updateFireIcon(player);
+				}
+			}
+		}
+		state.flush();
+	}
+
+	@Override
+	public void onDetached() {
+		state.flush();
+	}
+
+	private void burn(float dt) {
 		final float fuel = getFuel();
 		final FurnaceInventory inventory = getInventory();
 
@@ -34,6 +34,7 @@ import org.spout.api.geo.LoadOption;
 import org.spout.api.geo.discrete.Point;
 
 import org.spout.vanilla.component.block.VanillaBlockComponent;
+import org.spout.vanilla.data.CachedData;
 import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.protocol.entity.creature.CreatureType;
@@ -43,6 +44,16 @@ import org.spout.vanilla.protocol.entity.creature.CreatureType;
  */
 public class MonsterSpawner extends VanillaBlockComponent {
 	private final Random random = new Random();
+	private final CachedData state = new CachedData(this);
+	private final CachedData.IntField minSpawnDelay = state.newInt(VanillaData.MIN_SPAWN_DELAY);
+	private final CachedData.IntField maxSpawnDelay = state.newInt(VanillaData.MAX_SPAWN_DELAY);
+	private final CachedData.IntField maxCreatures = state.newInt(VanillaData.MAX_CREATURES);
+	private final CachedData.IntField creatureSearchRange = state.newInt(VanillaData.CREATURE_SEARCH_RANGE);
+	private final CachedData.FloatField spawnRange = state.newFloat(VanillaData.SPAWN_RANGE);
+	private final CachedData.IntField spawnCount = state.newInt(VanillaData.SPAWN_COUNT);
+	private final CachedData.IntField creatureType = state.newInt(VanillaData.CREATURE_TYPE);
+	private final CachedData.IntField radius = state.newInt(VanillaData.RADIUS);
+	private final CachedData.FloatField spawnDelay = state.newFloat(VanillaData.SPAWN_DELAY);
 
 	@Override
 	public void onAttached() {
@@ -60,6 +71,12 @@ public class MonsterSpawner extends VanillaBlockComponent {
 		} else {
 			resetSpawnDelay();
 		}
+		state.flush();
+	}
+
+	@Override
+	public void onDetached() {
+		state.flush();
 	}
 
 	@Override
@@ -72,7 +89,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param delay in seconds
 	 */
 	public void setMinSpawnDelay(int delay) {
-		getData().put(VanillaData.MIN_SPAWN_DELAY, delay);
+		minSpawnDelay.set(delay);
 	}
 
 	/**
@@ -80,7 +97,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return delay in seconds
 	 */
 	public int getMinSpawnDelay() {
-		return getData().get(VanillaData.MIN_SPAWN_DELAY);
+		return minSpawnDelay.get();
 	}
 
 	/**
@@ -88,7 +105,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param delay in seconds
 	 */
 	public void setMaxSpawnDelay(int delay) {
-		getData().put(VanillaData.MAX_SPAWN_DELAY, delay);
+		maxSpawnDelay.set(delay);
 	}
 
 	/**
@@ -96,7 +113,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return delay in seconds
 	 */
 	public int getMaxSpawnDelay() {
-		return getData().get(VanillaData.MAX_SPAWN_DELAY);
+		return maxSpawnDelay.get();
 	}
 
 	/**
@@ -105,7 +122,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param maxCreatures maximum amount of creatures that can spawn
 	 */
 	public void setMaxCreatures(int maxCreatures) {
-		getData().put(VanillaData.MAX_CREATURES, maxCreatures);
+		this.maxCreatures.set(maxCreatures);
 	}
 
 	/**
@@ -114,7 +131,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return maximum amount of creatures that can spawn
 	 */
 	public int getMaxCreatures() {
-		return getData().get(VanillaData.MAX_CREATURES);
+		return maxCreatures.get();
 	}
 
 	/**
@@ -122,7 +139,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param range to search for creatures in
 	 */
 	public void setCreatureSearchRange(int range) {
-		getData().put(VanillaData.CREATURE_SEARCH_RANGE, range);
+		creatureSearchRange.set(range);
 	}
 
 	/**
@@ -130,7 +147,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return range to search for creatures in
 	 */
 	public int getCreatureSearchRange() {
-		return getData().get(VanillaData.CREATURE_SEARCH_RANGE);
+		return creatureSearchRange.get();
 	}
 
 	/**
@@ -138,7 +155,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param spawnRange of spawner
 	 */
 	public void setSpawnRange(float spawnRange) {
-		getData().put(VanillaData.SPAWN_RANGE, spawnRange);
+		this.spawnRange.set(spawnRange);
 	}
 
 	/**
@@ -146,7 +163,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return range from the spawner
 	 */
 	public float getSpawnRange() {
-		return getData().get(VanillaData.SPAWN_RANGE);
+		return spawnRange.get();
 	}
 
 	/**
@@ -155,7 +172,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param spawnCount how many entities to try and spawn
 	 */
 	public void setSpawnCount(int spawnCount) {
-		getData().put(VanillaData.SPAWN_COUNT, spawnCount);
+		this.spawnCount.set(spawnCount);
 	}
 
 	/**
@@ -164,7 +181,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return how many entities to spawn
 	 */
 	public int getSpawnCount() {
-		return getData().get(VanillaData.SPAWN_COUNT);
+		return spawnCount.get();
 	}
 
 	/**
@@ -208,7 +225,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param type to spawn
 	 */
 	public void setCreatureType(CreatureType type) {
-		getData().put(VanillaData.CREATURE_TYPE, type.getId());
+		creatureType.set(type.getId());
 		sendData();
 	}
 
@@ -217,7 +234,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return creature to spawn
 	 */
 	public CreatureType getCreatureType() {
-		return CreatureType.get(getData().get(VanillaData.CREATURE_TYPE));
+		return CreatureType.get(creatureType.get());
 	}
 
 	/**
@@ -226,7 +243,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param radius to search for players in
 	 */
 	public void setRadius(int radius) {
-		getData().put(VanillaData.RADIUS, radius);
+		this.radius.set(radius);
 	}
 
 	/**
@@ -235,7 +252,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return radius to search for players in
 	 */
 	public int getRadius() {
-		return getData().get(VanillaData.RADIUS);
+		return radius.get();
 	}
 
 	/**
@@ -253,7 +270,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @return time, in seconds, until next spawn
 	 */
 	public float getSpawnDelay() {
-		return getData().get(VanillaData.SPAWN_DELAY);
+		return spawnDelay.get();
 	}
 
 	/**
@@ -262,7 +279,7 @@ public class MonsterSpawner extends VanillaBlockComponent {
 	 * @param spawnDelay in seconds
 	 */
 	public void setSpawnDelay(float spawnDelay) {
-		getData().put(VanillaData.SPAWN_DELAY, spawnDelay);
+		this.spawnDelay.set(spawnDelay);
 	}
 
 	/**
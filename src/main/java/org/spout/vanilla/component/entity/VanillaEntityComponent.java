@@ -31,6 +31,7 @@ import java.util.Arrays;
 import org.spout.api.component.type.EntityComponent;
 import org.spout.api.util.Parameter;
 
+import org.spout.vanilla.component.entity.misc.EntityIndexer;
 import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.event.entity.EntityMetaChangeEvent;
 
@@ -40,6 +41,7 @@ public class VanillaEntityComponent extends EntityComponent {
 		//Tracks the number of times this component has been attached (i.e how many times it's been saved, then loaded. 1 = fresh entity)
 		getOwner().getData().put(VanillaData.ATTACHED_COUNT, getAttachedCount() + 1);
 		getOwner().setSavable(true);
+		getOwner().add(EntityIndexer.class);
 	}
 
 	public boolean isStatic() {
@@ -0,0 +1,93 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.component.entity.misc;
+
+import org.spout.api.component.type.EntityComponent;
+import org.spout.api.geo.World;
+import org.spout.api.geo.discrete.Point;
+
+import org.spout.vanilla.world.EntityIndex;
+
+/**
+ * Component keeping the entity in the {@link EntityIndex} of its world up to date as it moves
+ */
+public class EntityIndexer extends EntityComponent {
+	// Components are rarely added or removed, so the buckets are only checked every second
+	private static final int BUCKET_CHECK_INTERVAL = 20;
+	private EntityIndex index = null;
+	private World world = null;
+	private long cell = 0;
+	private int buckets = 0;
+	private int ticks = 0;
+	private volatile float x, y, z;
+
+	public float getX() {
+		return x;
+	}
+
+	public float getY() {
+		return y;
+	}
+
+	public float getZ() {
+		return z;
+	}
+
+	@Override
+	public void onTick(float dt) {
+		final Point position = getOwner().getScene().getPosition();
+		x = position.getX();
+		y = position.getY();
+		z = position.getZ();
+		int buckets = this.buckets;
+		if (ticks-- <= 0) {
+			ticks = BUCKET_CHECK_INTERVAL;
+			buckets = EntityIndex.getBuckets(getOwner());
+		}
+		final long cell = EntityIndex.getCell(x, y, z);
+		final World world = position.getWorld();
+		if (cell != this.cell || buckets != this.buckets || world != this.world) {
+			if (index != null) {
+				index.remove(this, this.cell, this.buckets);
+			}
+			index = EntityIndex.get(world);
+			index.add(this, cell, buckets);
+			this.world = world;
+			this.cell = cell;
+			this.buckets = buckets;
+		}
+	}
+
+	@Override
+	public void onDetached() {
+		if (index != null) {
+			index.remove(this, cell, buckets);
+			index = null;
+			world = null;
+		}
+	}
+}
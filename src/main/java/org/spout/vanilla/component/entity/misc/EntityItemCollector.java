@@ -27,6 +27,7 @@
 package org.spout.vanilla.component.entity.misc;
 
 import javax.tools.Tool;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.spout.api.component.type.EntityComponent;
@@ -42,13 +43,14 @@ import org.spout.vanilla.inventory.entity.ArmorInventory;
 import org.spout.vanilla.inventory.entity.EntityQuickbarInventory;
 import org.spout.vanilla.material.item.VanillaItemMaterial;
 import org.spout.vanilla.material.item.armor.Armor;
+import org.spout.vanilla.world.EntityIndex;
 
 /**
  * Component that adds a detector to resources.entities to scan for and pickup items.
  */
 public class EntityItemCollector extends EntityComponent {
 	private final int DISTANCE = VanillaConfiguration.ITEM_PICKUP_RANGE.getInt();
-	private List<Entity> nearbyEntities;
+	private final List<Entity> nearbyEntities = new ArrayList<Entity>();
 	private int wait = 0;
 
 	@Override
@@ -65,7 +67,8 @@ public class EntityItemCollector extends EntityComponent {
 				return false;
 			}
 		}
-		nearbyEntities = getOwner().getWorld().getNearbyEntities(getOwner(), DISTANCE);
+		nearbyEntities.clear();
+		EntityIndex.get(getOwner().getWorld()).getNearby(Item.class, getOwner().getScene().getPosition(), DISTANCE, getOwner(), nearbyEntities);
 		return !nearbyEntities.isEmpty();
 	}
 
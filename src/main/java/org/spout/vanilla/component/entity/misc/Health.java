@@ -53,6 +53,7 @@ import org.spout.vanilla.component.entity.player.HUD;
 import org.spout.vanilla.component.entity.substance.Item;
 import org.spout.vanilla.component.entity.substance.XPOrb;
 import org.spout.vanilla.data.Animation;
+import org.spout.vanilla.data.CachedData;
 import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.data.VanillaRenderMaterials;
 import org.spout.vanilla.data.configuration.VanillaConfiguration;
@@ -81,6 +82,12 @@ public class Health extends EntityComponent {
 	protected Object lastDamager;
 	protected static final float SCALE = 0.75f; // TODO: Apply directly from engine
 	private static final float START_X = -0.71f * SCALE;
+	// State
+	private final CachedData state = new CachedData(this);
+	private final CachedData.IntField health = state.newInt(VanillaData.HEALTH);
+	private final CachedData.IntField maxHealth = state.newInt(VanillaData.MAX_HEALTH);
+	private final CachedData.IntField deathTicks = state.newInt(VanillaData.DEATH_TICKS);
+	private final CachedData.BooleanField deathAnimation = state.newBoolean(VanillaData.HAS_DEATH_ANIMATION);
 	// Client only
 	private Widget hearts;
 	private boolean animateHearts;
@@ -133,6 +140,9 @@ public class Health extends EntityComponent {
 		switch (getEngine().getPlatform()) {
 			case PROXY:
 			case SERVER:
+				if (health.clearDirty()) {
+					sendHealth();
+				}
 				if (isDying()) {
 					setDeathTicks(getDeathTicks() - 1);
 					if (getDeathTicks() <= 0) {
@@ -149,7 +159,7 @@ public class Health extends EntityComponent {
 				break;
 			case CLIENT:
 				if (!(getOwner() instanceof Player)) {
-					return;
+					break;
 				}
 				java.util.List<RenderPart> heartParts = hearts.get(RenderPartsHolderComponent.class).getRenderPartPacks().get(0).getRenderParts();
 				if (animateHearts) {
@@ -206,6 +216,12 @@ public class Health extends EntityComponent {
 				}
 				break;
 		}
+		state.flush();
+	}
+
+	@Override
+	public void onDetached() {
+		state.flush();
 	}
 
 	/**
@@ -299,7 +315,7 @@ public class Health extends EntityComponent {
 	 * @return the maximum health
 	 */
 	public int getMaxHealth() {
-		return getData().get(VanillaData.MAX_HEALTH);
+		return maxHealth.get();
 	}
 
 	/**
@@ -307,7 +323,7 @@ public class Health extends EntityComponent {
 	 * @param maxHealth to set to
 	 */
 	public void setMaxHealth(int maxHealth) {
-		getData().put(VanillaData.MAX_HEALTH, maxHealth);
+		this.maxHealth.set(maxHealth);
 	}
 
 	/**
@@ -316,8 +332,9 @@ public class Health extends EntityComponent {
 	 */
 	public void setSpawnHealth(int maxHealth) {
 		this.setMaxHealth(maxHealth);
-		//Do not call setHealth yet, network has not been initialized if loading from file
-		getData().put(VanillaData.HEALTH, maxHealth);
+		//Do not send the health yet, network has not been initialized if loading from file
+		health.set(maxHealth);
+		health.clearDirty();
 	}
 
 	/**
@@ -325,11 +342,12 @@ public class Health extends EntityComponent {
 	 * @return the health value
 	 */
 	public int getHealth() {
-		return getData().get(VanillaData.HEALTH);
+		return health.get();
 	}
 
 	/**
-	 * Sets the current health value for this entity
+	 * Sets the current health value for this entity<br>
+	 * Clients are updated on the next tick, once for all changes made during the tick.
 	 * @param health hitpoints value to set to
 	 * @param cause of the change
 	 */
@@ -338,19 +356,28 @@ public class Health extends EntityComponent {
 		getEngine().getEventManager().callEvent(event);
 		if (!event.isCancelled()) {
 			if (getHealth() + event.getChange() > getMaxHealth()) {
-				getData().put(VanillaData.HEALTH, getMaxHealth());
+				this.health.set(getMaxHealth());
 			} else {
-				getData().put(VanillaData.HEALTH, getHealth() + event.getChange());
+				this.health.set(getHealth() + event.getChange());
 			}
 		}
+	}
+
+	/**
+	 * Sends the health to the clients on the next tick, along with the hunger for players
+	 */
+	public void updateClient() {
+		health.markDirty();
+	}
 
+	private void sendHealth() {
 		// Special cases
 		Entity owner = getOwner();
 		if (owner instanceof Player) {
-			owner.getNetwork().callProtocolEvent(new PlayerHealthEvent((Player) getOwner()));
+			owner.getNetwork().callProtocolEvent(new PlayerHealthEvent((Player) owner));
 		} else if (owner instanceof EnderDragon || owner instanceof Wither) {
 			java.util.List<Parameter<?>> params = new ArrayList<Parameter<?>>(1);
-			params.add(new Parameter<Short>(Parameter.TYPE_SHORT, 16, (short) health));
+			params.add(new Parameter<Short>(Parameter.TYPE_SHORT, 16, (short) getHealth()));
 			owner.getNetwork().callProtocolEvent(new EntityMetaChangeEvent(owner, params));
 		}
 	}
@@ -405,7 +432,7 @@ public class Health extends EntityComponent {
 	 * @return The death ticks amount
 	 */
 	public int getDeathTicks() {
-		return getData().get(VanillaData.DEATH_TICKS);
+		return this.deathTicks.get();
 	}
 
 	/**
@@ -416,7 +443,7 @@ public class Health extends EntityComponent {
 		if (deathTicks > DEATH_TIME_TICKS) {
 			deathTicks = DEATH_TIME_TICKS;
 		}
-		getData().put(VanillaData.DEATH_TICKS, deathTicks);
+		this.deathTicks.set(deathTicks);
 	}
 
 	/**
@@ -477,7 +504,7 @@ public class Health extends EntityComponent {
 	 * @return true if animated death
 	 */
 	public boolean hasDeathAnimation() {
-		return getData().get(VanillaData.HAS_DEATH_ANIMATION);
+		return deathAnimation.get();
 	}
 
 	/**
@@ -485,7 +512,7 @@ public class Health extends EntityComponent {
 	 * @param hasDeathAnimation
 	 */
 	public void setDeathAnimation(boolean hasDeathAnimation) {
-		getData().put(VanillaData.HAS_DEATH_ANIMATION, hasDeathAnimation);
+		deathAnimation.set(hasDeathAnimation);
 	}
 
 	/**
@@ -36,11 +36,11 @@ import org.spout.api.inventory.Slot;
 
 import org.spout.vanilla.component.entity.living.Human;
 import org.spout.vanilla.component.entity.player.HUD;
+import org.spout.vanilla.data.CachedData;
 import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.event.cause.DamageCause.DamageType;
 import org.spout.vanilla.event.cause.HealCause;
 import org.spout.vanilla.event.cause.NullDamageCause;
-import org.spout.vanilla.event.player.network.PlayerHealthEvent;
 import org.spout.vanilla.material.block.liquid.Water;
 import org.spout.vanilla.material.item.Food;
 import org.spout.vanilla.material.item.potion.PotionItem;
@@ -60,6 +60,12 @@ public class Hunger extends EntityComponent {
 	private Point lastPos;
 	private float fx;
 	private float bx;
+	// State
+	private final CachedData state = new CachedData(this);
+	private final CachedData.IntField hunger = state.newInt(VanillaData.HUNGER);
+	private final CachedData.FloatField foodSaturation = state.newFloat(VanillaData.FOOD_SATURATION);
+	private final CachedData.FloatField exhaustion = state.newFloat(VanillaData.EXHAUSTION);
+	private final CachedData.BooleanField poisoned = state.newBoolean(VanillaData.POISONED);
 
 	@Override
 	public void onAttached() {
@@ -142,7 +148,7 @@ public class Hunger extends EntityComponent {
 				final Point pos = getOwner().getScene().getPosition();
 				if (lastPos == null) {
 					lastPos = pos;
-					return;
+					break;
 				}
 
 				float exhaustion = getExhaustion();
@@ -198,7 +204,7 @@ public class Hunger extends EntityComponent {
 
 			case CLIENT:
 				if (!(getOwner() instanceof Player)) {
-					return;
+					break;
 				}
 
 				HUD HUD = getOwner().get(org.spout.vanilla.component.entity.player.HUD.class);
@@ -206,6 +212,12 @@ public class Hunger extends EntityComponent {
 
 				break;
 		}
+		state.flush();
+	}
+
+	@Override
+	public void onDetached() {
+		state.flush();
 	}
 
 	/**
@@ -213,7 +225,7 @@ public class Hunger extends EntityComponent {
 	 * @return The hunger level.
 	 */
 	public int getHunger() {
-		return getData().get(VanillaData.HUNGER);
+		return hunger.get();
 	}
 
 	// Need to confirm what fx/bx equals to rename methods propertly
@@ -231,7 +243,7 @@ public class Hunger extends EntityComponent {
 	 * @param hunger The hunger level of the entity
 	 */
 	public void setHunger(int hunger) {
-		getData().put(VanillaData.HUNGER, Math.min(hunger, 20));
+		this.hunger.set(Math.min(hunger, 20));
 		reload();
 		if (getOwner().getEngine() instanceof Client) {
 			//render(52, 16);
@@ -246,7 +258,7 @@ public class Hunger extends EntityComponent {
 	 * @return The food saturation value.
 	 */
 	public float getFoodSaturation() {
-		return getData().get(VanillaData.FOOD_SATURATION);
+		return foodSaturation.get();
 	}
 
 	/**
@@ -255,7 +267,7 @@ public class Hunger extends EntityComponent {
 	 * @param foodSaturation The food saturation value.
 	 */
 	public void setFoodSaturation(float foodSaturation) {
-		getData().put(VanillaData.FOOD_SATURATION, Math.min(foodSaturation, getHunger()));
+		this.foodSaturation.set(Math.min(foodSaturation, getHunger()));
 		reload();
 	}
 
@@ -264,7 +276,7 @@ public class Hunger extends EntityComponent {
 	 * @return The exhaustion value.
 	 */
 	public float getExhaustion() {
-		return getData().get(VanillaData.EXHAUSTION);
+		return exhaustion.get();
 	}
 
 	/**
@@ -272,7 +284,7 @@ public class Hunger extends EntityComponent {
 	 * @param exhaustion The exhaustion value.
 	 */
 	public void setExhaustion(float exhaustion) {
-		getData().put(VanillaData.EXHAUSTION, exhaustion);
+		this.exhaustion.set(exhaustion);
 	}
 
 	/**
@@ -280,7 +292,7 @@ public class Hunger extends EntityComponent {
 	 * @return True if the entity is poisoned else false
 	 */
 	public boolean isPoisoned() {
-		return getData().get(VanillaData.POISONED);
+		return poisoned.get();
 	}
 
 	/**
@@ -288,7 +300,7 @@ public class Hunger extends EntityComponent {
 	 * @param poisoned True if he is poisoned else false
 	 */
 	public void setPoisoned(boolean poisoned) {
-		getData().put(VanillaData.POISONED, poisoned);
+		this.poisoned.set(poisoned);
 		if (getOwner().getEngine() instanceof Client) {
 			if (poisoned) {
 				fx = 88;
@@ -305,9 +317,12 @@ public class Hunger extends EntityComponent {
 		return (Player) getOwner();
 	}
 
+	/**
+	 * Sends the hunger and food saturation to the client on the next tick
+	 */
 	public void reload() {
 		if (getOwner().getEngine() instanceof Server) {
-			getPlayer().getNetworkSynchronizer().callProtocolEvent(new PlayerHealthEvent(getPlayer()));
+			human.getHealth().updateClient();
 		}
 	}
 
@@ -33,8 +33,7 @@ import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.protocol.entity.object.ObjectEntityProtocol;
 import org.spout.vanilla.protocol.entity.object.ObjectType;
-import org.spout.vanilla.util.explosion.ExplosionModel;
-import org.spout.vanilla.util.explosion.ExplosionModelSpherical;
+import org.spout.vanilla.util.explosion.ExplosionModels;
 
 public class Tnt extends Substance {
 	private Entity holder;
@@ -80,8 +79,7 @@ public class Tnt extends Substance {
 	public void onTick(float dt) {
 		pulse(dt);
 		if (getFuse() <= 0) {
-			ExplosionModel explosion = new ExplosionModelSpherical();
-			explosion.execute(holder.getScene().getPosition(), getExplosionSize(), makesFire(), VanillaMaterials.TNT.toCause(holder.getScene().getPosition()));
+			ExplosionModels.BATCHER.execute(ExplosionModels.SPHERICAL, holder.getScene().getPosition(), getExplosionSize(), makesFire(), VanillaMaterials.TNT.toCause(holder.getScene().getPosition()));
 			holder.remove();
 		}
 	}
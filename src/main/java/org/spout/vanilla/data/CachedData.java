@@ -0,0 +1,245 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spout.api.component.Component;
+import org.spout.api.map.DefaultedKey;
+
+/**
+ * Keeps values of a component's datatable in primitive fields<br>
+ * A value is read from the datatable on first use, so reading it never boxes.
+ * Changes only update the field and are written back to the datatable by {@link #flush()}, which components call at the end of their tick,
+ * so a value set several times in a tick is boxed and put once. A value that changes every tick is still put once per tick.
+ * The datatable stays the saved copy, which is why values must not be put in it directly once cached.<br>
+ * Every field owns a bit of a dirty mask, set on each change, which components use to send updates to clients once per tick.
+ */
+public class CachedData {
+	private final Component component;
+	private final AtomicLong dirty = new AtomicLong();
+	private final AtomicLong unsaved = new AtomicLong();
+	private final List<Field<?>> fields = new ArrayList<Field<?>>();
+
+	public CachedData(Component component) {
+		this.component = component;
+	}
+
+	public IntField newInt(DefaultedKey<Integer> key) {
+		return new IntField(key);
+	}
+
+	public FloatField newFloat(DefaultedKey<Float> key) {
+		return new FloatField(key);
+	}
+
+	public BooleanField newBoolean(DefaultedKey<Boolean> key) {
+		return new BooleanField(key);
+	}
+
+	/**
+	 * Gets whether any field changed since its dirty bit was last cleared
+	 * @return true if dirty
+	 */
+	public boolean isDirty() {
+		return dirty.get() != 0;
+	}
+
+	/**
+	 * Writes the fields changed since the last flush back to the datatable<br>
+	 * Call it at the end of the component's tick and when the component is detached.
+	 */
+	public void flush() {
+		final long mask = unsaved.getAndSet(0);
+		if (mask == 0) {
+			return;
+		}
+		for (Field<?> field : fields) {
+			if ((mask & field.bit) != 0) {
+				field.save();
+			}
+		}
+	}
+
+	public abstract class Field<T> {
+		protected final DefaultedKey<T> key;
+		protected volatile boolean loaded = false;
+		private final long bit;
+
+		private Field(DefaultedKey<T> key) {
+			if (fields.size() >= Long.SIZE) {
+				throw new IllegalStateException("A component can not cache more than " + Long.SIZE + " values");
+			}
+			this.key = key;
+			this.bit = 1L << fields.size();
+			fields.add(this);
+		}
+
+		/**
+		 * Gets whether the value changed since the dirty bit was last cleared
+		 * @return true if dirty
+		 */
+		public boolean isDirty() {
+			return (dirty.get() & bit) != 0;
+		}
+
+		/**
+		 * Sets the dirty bit, without changing the value
+		 */
+		public void markDirty() {
+			long mask;
+			while (((mask = dirty.get()) & bit) == 0 && !dirty.compareAndSet(mask, mask | bit)) {
+			}
+		}
+
+		/**
+		 * Clears the dirty bit
+		 * @return true if the bit was set
+		 */
+		public boolean clearDirty() {
+			long mask;
+			while (((mask = dirty.get()) & bit) != 0) {
+				if (dirty.compareAndSet(mask, mask & ~bit)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		protected T load() {
+			return component.getData().get(key);
+		}
+
+		/**
+		 * Marks the value as changed, it is put in the datatable on the next flush
+		 */
+		protected void store() {
+			markDirty();
+			long mask;
+			while (((mask = unsaved.get()) & bit) == 0 && !unsaved.compareAndSet(mask, mask | bit)) {
+			}
+		}
+
+		private void save() {
+			component.getData().put(key, getValue());
+		}
+
+		protected abstract T getValue();
+	}
+
+	public final class IntField extends Field<Integer> {
+		private volatile int value;
+
+		private IntField(DefaultedKey<Integer> key) {
+			super(key);
+		}
+
+		@Override
+		protected Integer getValue() {
+			return value;
+		}
+
+		public int get() {
+			if (!loaded) {
+				value = load();
+				loaded = true;
+			}
+			return value;
+		}
+
+		public void set(int value) {
+			if (loaded && this.value == value) {
+				return;
+			}
+			this.value = value;
+			loaded = true;
+			store();
+		}
+	}
+
+	public final class FloatField extends Field<Float> {
+		private volatile float value;
+
+		private FloatField(DefaultedKey<Float> key) {
+			super(key);
+		}
+
+		@Override
+		protected Float getValue() {
+			return value;
+		}
+
+		public float get() {
+			if (!loaded) {
+				value = load();
+				loaded = true;
+			}
+			return value;
+		}
+
+		public void set(float value) {
+			if (loaded && this.value == value) {
+				return;
+			}
+			this.value = value;
+			loaded = true;
+			store();
+		}
+	}
+
+	public final class BooleanField extends Field<Boolean> {
+		private volatile boolean value;
+
+		private BooleanField(DefaultedKey<Boolean> key) {
+			super(key);
+		}
+
+		@Override
+		protected Boolean getValue() {
+			return value;
+		}
+
+		public boolean get() {
+			if (!loaded) {
+				value = load();
+				loaded = true;
+			}
+			return value;
+		}
+
+		public void set(boolean value) {
+			if (loaded && this.value == value) {
+				return;
+			}
+			this.value = value;
+			loaded = true;
+			store();
+		}
+	}
+}
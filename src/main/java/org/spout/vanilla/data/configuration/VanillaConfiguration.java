@@ -62,6 +62,11 @@ public class VanillaConfiguration extends ConfigurationHolderConfiguration {
 	public static final ConfigurationHolder LAVA_DELAY = new ConfigurationHolder(1500, "physics", "lava", "delay");
 	public static final ConfigurationHolder WATER_PHYSICS = new ConfigurationHolder(true, "physics", "water", "enabled");
 	public static final ConfigurationHolder WATER_DELAY = new ConfigurationHolder(250, "physics", "water", "delay");
+	public static final ConfigurationHolder EXPLOSION_BATCHING = new ConfigurationHolder(true, "physics", "explosions", "batching");
+	public static final ConfigurationHolder EXPLOSION_BATCH_LIMIT = new ConfigurationHolder(256, "physics", "explosions", "per-tick");
+	public static final ConfigurationHolder RANDOM_TICK_RADIUS = new ConfigurationHolder(7, "physics", "random-ticks", "radius");
+	public static final ConfigurationHolder RANDOM_TICKS_PER_SECTION = new ConfigurationHolder(3, "physics", "random-ticks", "per-section");
+	public static final ConfigurationHolder RANDOM_TICK_RESCAN = new ConfigurationHolder(200, "physics", "random-ticks", "rescan-interval");
 	// Player
 	public static final ConfigurationHolder PLAYER_PVP_ENABLED = new ConfigurationHolder(true, "player", "pvp-enabled");
 	public static final ConfigurationHolder PLAYER_SURVIVAL_ENABLE_HEALTH = new ConfigurationHolder(true, "player", "survival", "enable-health");
@@ -85,6 +90,23 @@ public class VanillaConfiguration extends ConfigurationHolderConfiguration {
 	public static final ConfigurationHolder ENCRYPT_STREAM_WRAPPER = new ConfigurationHolder("CFB8", "encrypt", "stream-wrapper");
 	// Chunk Cache
 	public static final ConfigurationHolder USE_CHUNK_CACHE = new ConfigurationHolder(true, "cache", "chunks");
+	public static final ConfigurationHolder CHUNK_CACHE_CAPACITY = new ConfigurationHolder(32768, "cache", "chunk-capacity");
+	// Network
+	public static final ConfigurationHolder CHUNK_COMPRESSION_LEVEL = new ConfigurationHolder(1, "network", "chunk-compression-level");
+	public static final ConfigurationHolder ENCODED_CHUNK_CACHE_SIZE = new ConfigurationHolder(32768, "network", "encoded-chunk-cache-size");
+	public static final ConfigurationHolder CHUNK_BULK_ENABLED = new ConfigurationHolder(true, "network", "chunk-bulk", "enabled");
+	public static final ConfigurationHolder CHUNK_BULK_MAX_COLUMNS = new ConfigurationHolder(10, "network", "chunk-bulk", "max-columns");
+	public static final ConfigurationHolder CHUNK_BULK_MAX_BYTES = new ConfigurationHolder(1048576, "network", "chunk-bulk", "max-bytes");
+	public static final ConfigurationHolder CHUNK_COMPRESSION_THREADS = new ConfigurationHolder(2, "network", "chunk-compression", "threads");
+	public static final ConfigurationHolder CHUNK_COMPRESSION_MAX_QUEUED = new ConfigurationHolder(256, "network", "chunk-compression", "max-queued");
+	public static final ConfigurationHolder CHUNK_COMPRESSION_SESSION_LIMIT = new ConfigurationHolder(8, "network", "chunk-compression", "session-limit");
+	public static final ConfigurationHolder BLOCK_CHANGE_SECTION_THRESHOLD = new ConfigurationHolder(128, "network", "block-changes", "section-threshold");
+	// Lighting
+	public static final ConfigurationHolder LIGHTING_BULK_THREADS = new ConfigurationHolder(2, "lighting", "bulk-threads");
+	public static final ConfigurationHolder LIGHTING_STATISTICS = new ConfigurationHolder(false, "lighting", "statistics");
+	// Generation
+	public static final ConfigurationHolder GENERATION_THREADS = new ConfigurationHolder(2, "generation", "threads");
+	public static final ConfigurationHolder GENERATION_MIN_TPS = new ConfigurationHolder(15, "generation", "pregen-min-tps");
 	// sub-configs
 	public static final OpConfiguration OPS = new OpConfiguration(VanillaPlugin.getInstance().getDataFolder());
 	public static final WorldConfiguration WORLDS = new WorldConfiguration(VanillaPlugin.getInstance().getDataFolder());
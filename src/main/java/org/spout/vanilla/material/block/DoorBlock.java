@@ -156,10 +156,27 @@ public abstract class DoorBlock extends GroundAttachable implements Directional,
 	}
 
 	public void create(Block bottomHalf, Block topHalf, BlockFace facing, boolean hingeLeft, boolean opened) {
-		topHalf.setMaterial(this, hingeLeft ? (short) 9 : (short) 8);
-		int bottomData = opened ? 0x4 : 0x0;
-		bottomData += BlockFaces.NESW.indexOf(facing, 0);
-		bottomHalf.setMaterial(this, bottomData);
+		topHalf.setMaterial(this, getTopData(hingeLeft));
+		bottomHalf.setMaterial(this, getBottomData(facing, opened));
+	}
+
+	/**
+	 * Gets the data of the top half of a door, for doors written without going through a block
+	 * @param hingeLeft whether the hinge is on the left
+	 * @return the data
+	 */
+	public short getTopData(boolean hingeLeft) {
+		return hingeLeft ? (short) 9 : (short) 8;
+	}
+
+	/**
+	 * Gets the data of the bottom half of a door, for doors written without going through a block
+	 * @param facing of the door
+	 * @param opened whether the door is open
+	 * @return the data
+	 */
+	public short getBottomData(BlockFace facing, boolean opened) {
+		return (short) ((opened ? 0x4 : 0x0) + BlockFaces.NESW.indexOf(facing, 0));
 	}
 
 	private boolean isDoorBlock(Block bottomBlock) {
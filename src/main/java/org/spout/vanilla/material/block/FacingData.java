@@ -24,38 +24,27 @@
  * License and see <http://spout.in/licensev1> for the full license, including
  * the MIT license.
  */
-package org.spout.vanilla.util.explosion;
+package org.spout.vanilla.material.block;
 
-import java.util.HashSet;
-import java.util.Set;
+import org.spout.api.material.block.BlockFace;
 
 /**
- * Contains live information of a single element in the chain of the explosion layers
+ * Defines a block material storing the face it is turned to in its data, so it can be turned without going through a block<br>
+ * This is the facing of {@link Directional} materials and the attached face of attachable materials.
  */
-public class ExplosionSlot {
-	public ExplosionSlot(final ExplosionBlockSlot block) {
-		this.block = block;
-	}
-
-	public final ExplosionBlockSlot block;
-	private Set<ExplosionSlot> nextSet = new HashSet<ExplosionSlot>();
-	public ExplosionSlot[] next;
-	public float sourcedamage = 0;
-
+public interface FacingData {
 	/**
-	 * Adds the next linked block slot to the chain
-	 * @param next slot to add
+	 * Gets the face stored in the data
+	 * @param data of the block
+	 * @return the face
 	 */
-	public void addNext(ExplosionSlot next) {
-		this.nextSet.add(next);
-	}
+	public BlockFace getFacing(short data);
 
 	/**
-	 * Transfers all next slots previously added to the next array
-	 * After this is called you can no longer add new 'next' slots
+	 * Gets the data of the block turned to a face
+	 * @param data of the block
+	 * @param facing to turn to
+	 * @return the new data
 	 */
-	public void finish() {
-		this.next = this.nextSet.toArray(new ExplosionSlot[0]);
-		this.nextSet = null;
-	}
+	public short getFacingData(short data, BlockFace facing);
 }
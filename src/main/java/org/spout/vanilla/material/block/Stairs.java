@@ -36,7 +36,7 @@ import org.spout.api.util.bytebit.ByteBitSet;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.util.PlayerUtil;
 
-public abstract class Stairs extends VanillaBlockMaterial implements Directional {
+public abstract class Stairs extends VanillaBlockMaterial implements Directional, FacingData {
 	private final ByteBitSet[] occlusion;
 
 	public Stairs(String name, int id, String model) {
@@ -76,6 +76,16 @@ public abstract class Stairs extends VanillaBlockMaterial implements Directional
 		block.setDataField(0x3, BlockFaces.NSEW.indexOf(facing, 0));
 	}
 
+	@Override
+	public BlockFace getFacing(short data) {
+		return BlockFaces.NSEW.get(data & 0x3);
+	}
+
+	@Override
+	public short getFacingData(short data, BlockFace facing) {
+		return (short) (data & ~0x3 | BlockFaces.NSEW.indexOf(facing, 0));
+	}
+
 	@Override
 	public void onPlacement(Block block, short data, BlockFace against, Vector3 clickedPos, boolean isClickedBlock, Cause<?> cause) {
 		super.onPlacement(block, data, against, clickedPos, isClickedBlock, cause);
@@ -49,8 +49,7 @@ import org.spout.vanilla.material.InitializableMaterial;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.util.PlayerUtil;
-import org.spout.vanilla.util.explosion.ExplosionModel;
-import org.spout.vanilla.util.explosion.ExplosionModelSpherical;
+import org.spout.vanilla.util.explosion.ExplosionModels;
 import org.spout.vanilla.world.generator.nether.NetherGenerator;
 
 public class BedBlock extends VanillaBlockMaterial implements InitializableMaterial {
@@ -160,8 +159,7 @@ public class BedBlock extends VanillaBlockMaterial implements InitializableMater
 	public void create(Block footBlock, BlockFace facing) {
 		Block headBlock = footBlock.translate(facing);
 		if (headBlock.getWorld().getGenerator() instanceof NetherGenerator) {
-			ExplosionModel explosion = new ExplosionModelSpherical();
-			explosion.execute(headBlock.getPosition(), NETHER_EXPLOSION_SIZE, true, toCause(footBlock));
+			ExplosionModels.SPHERICAL.execute(headBlock.getPosition(), NETHER_EXPLOSION_SIZE, true, toCause(footBlock));
 		} else {
 			footBlock.setMaterial(this, 0x0, toCause(footBlock));
 			headBlock.setMaterial(this, 0x8, toCause(footBlock));
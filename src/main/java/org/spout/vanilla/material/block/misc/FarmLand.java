@@ -30,7 +30,6 @@ import org.spout.api.entity.Entity;
 import org.spout.api.event.player.PlayerInteractEvent.Action;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.inventory.Slot;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.range.CuboidEffectRange;
 import org.spout.api.material.range.EffectRange;
@@ -39,13 +38,14 @@ import org.spout.api.math.IntVector3;
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
 import org.spout.vanilla.data.tool.ToolType;
 import org.spout.vanilla.material.InitializableMaterial;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Crop;
 import org.spout.vanilla.material.block.liquid.Water;
 import org.spout.vanilla.util.PlayerUtil;
 
-public class FarmLand extends VanillaBlockMaterial implements InitializableMaterial, DynamicMaterial {
+public class FarmLand extends VanillaBlockMaterial implements InitializableMaterial, RandomTickable {
 	private static final EffectRange WATER_CHECK_RANGE = new CuboidEffectRange(-4, 0, -4, 4, 1, 4);
 	private static final EffectRange CROP_CHECK_RANGE = new CuboidEffectRange(-1, 1, -1, 1, 1, 1);
 
@@ -100,27 +100,12 @@ public class FarmLand extends VanillaBlockMaterial implements InitializableMater
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.NEIGHBORS;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		//TODO : Delay before return to dirt ?
-		b.dynamicUpdate(30000 + currentTime, true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		if (VanillaBlockMaterial.isRaining(block) || hasWaterNearby(block)) {
 			block.setData(7);
-			//TODO : Delay before return to dirt ?
-			block.dynamicUpdate(updateTime + 30000, true);
 		} else if (this.isWet(block)) {
 			// gradually reduce wet state
 			block.setData(block.getData() - 1);
-			//TODO : Delay before return to dirt ?
-			block.dynamicUpdate(updateTime + 30000, true);
 		} else if (!hasCropsNearby(block)) {
 			// not wet and has no crops connecting to this farm land, turn this block into dirt
 			block.setMaterial(VanillaMaterials.DIRT);
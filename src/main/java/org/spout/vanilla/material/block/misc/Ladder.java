@@ -32,9 +32,10 @@ import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
+import org.spout.vanilla.material.block.FacingData;
 import org.spout.vanilla.material.block.attachable.AbstractAttachable;
 
-public class Ladder extends AbstractAttachable {
+public class Ladder extends AbstractAttachable implements FacingData {
 	public Ladder(String name, int id) {
 		super(name, id, VanillaMaterialModels.LADDER);
 		this.setAttachable(BlockFaces.WESN).setHardness(0.4F).setResistance(0.7F).setTransparent();
@@ -42,11 +43,21 @@ public class Ladder extends AbstractAttachable {
 
 	@Override
 	public void setAttachedFace(Block block, BlockFace attachedFace, Cause<?> cause) {
-		block.setData((short) (BlockFaces.WESN.indexOf(attachedFace, 0) + 2), cause);
+		block.setData(getFacingData(block.getData(), attachedFace), cause);
 	}
 
 	@Override
 	public BlockFace getAttachedFace(short data) {
 		return BlockFaces.WESN.get(data - 2);
 	}
+
+	@Override
+	public BlockFace getFacing(short data) {
+		return getAttachedFace(data);
+	}
+
+	@Override
+	public short getFacingData(short data, BlockFace facing) {
+		return (short) (BlockFaces.WESN.indexOf(facing, 0) + 2);
+	}
 }
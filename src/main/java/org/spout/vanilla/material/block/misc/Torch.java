@@ -28,14 +28,17 @@ package org.spout.vanilla.material.block.misc;
 
 import org.spout.api.event.Cause;
 import org.spout.api.geo.cuboid.Block;
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 
+import org.spout.vanilla.material.VanillaBlockMaterial;
+import org.spout.vanilla.material.block.FacingData;
 import org.spout.vanilla.material.block.attachable.AbstractAttachable;
 import org.spout.vanilla.material.block.attachable.PointAttachable;
 import org.spout.vanilla.util.resources.ModelUtil;
 
-public class Torch extends AbstractAttachable implements PointAttachable {
+public class Torch extends AbstractAttachable implements PointAttachable, FacingData {
 	public Torch(short dataMask, String name, int id, String model) {
 		super(dataMask, name, id, model);
 		this.setAttachable(BlockFaces.NSEWB).setLiquidObstacle(false).setHardness(0.0F).setResistance(0.0F).setTransparent();
@@ -56,7 +59,7 @@ public class Torch extends AbstractAttachable implements PointAttachable {
 
 	@Override
 	public void setAttachedFace(Block block, BlockFace attachedFace, Cause<?> cause) {
-		block.setData((short) (BlockFaces.NSEWB.indexOf(attachedFace, 4) + 1), cause);
+		block.setData(getFacingData(block.getData(), attachedFace), cause);
 	}
 
 	@Override
@@ -64,6 +67,34 @@ public class Torch extends AbstractAttachable implements PointAttachable {
 		return BlockFaces.NSEWB.get(data - 1, BlockFace.BOTTOM);
 	}
 
+	/**
+	 * Checks if a torch can be attached to a face of a block material, for torches placed without going through a block
+	 * @param material to attach to
+	 * @param face of the material to attach to
+	 * @return if a torch can be attached
+	 */
+	public boolean canAttachTo(BlockMaterial material, BlockFace face) {
+		if (!this.isAttachable(face.getOpposite()) || !(material instanceof VanillaBlockMaterial)) {
+			return false;
+		}
+		return ((VanillaBlockMaterial) material).canSupport(this, face);
+	}
+
+	@Override
+	public boolean canAttachTo(Block block, BlockFace face) {
+		return this.canAttachTo(block.getMaterial(), face);
+	}
+
+	@Override
+	public BlockFace getFacing(short data) {
+		return getAttachedFace(data);
+	}
+
+	@Override
+	public short getFacingData(short data, BlockFace facing) {
+		return (short) (BlockFaces.NSEWB.indexOf(facing, 4) + 1);
+	}
+
 	@Override
 	public byte getLightLevel(short data) {
 		return 14;
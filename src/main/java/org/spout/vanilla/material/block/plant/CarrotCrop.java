@@ -33,15 +33,14 @@ import org.spout.api.entity.Entity;
 import org.spout.api.event.player.PlayerInteractEvent.Action;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.inventory.Slot;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.Material;
 import org.spout.api.material.block.BlockFace;
-import org.spout.api.material.range.EffectRange;
 import org.spout.api.math.GenericMath;
 import org.spout.api.util.flag.Flag;
 
 import org.spout.vanilla.data.drops.flag.BlockFlags;
 import org.spout.vanilla.material.InitializableMaterial;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Crop;
@@ -51,7 +50,7 @@ import org.spout.vanilla.material.item.misc.Dye;
 import org.spout.vanilla.util.PlayerUtil;
 import org.spout.vanilla.world.lighting.VanillaLighting;
 
-public class CarrotCrop extends GroundAttachable implements Growing, Crop, DynamicMaterial, InitializableMaterial {
+public class CarrotCrop extends GroundAttachable implements Growing, Crop, RandomTickable, InitializableMaterial {
 	public CarrotCrop(String name, int id) {
 		super(name, id, null);
 		this.setResistance(0.0F).setHardness(0.0F).setTransparent();
@@ -129,18 +128,7 @@ public class CarrotCrop extends GroundAttachable implements Growing, Crop, Dynam
 	// TODO: Trampling
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS_AND_ABOVE;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		//TODO : delay before update
-		b.dynamicUpdate(currentTime + 30000, true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		if (!this.isFullyGrown(block)) {
 			if (VanillaLighting.getLight(block.translate(BlockFace.TOP)) >= this.getMinimumLightToGrow()) {
 				// Grow using a calculated chance of growing
@@ -150,8 +138,6 @@ public class CarrotCrop extends GroundAttachable implements Growing, Crop, Dynam
 					this.setGrowthStage(block, this.getGrowthStage(block) + 1);
 				}
 			}
-			//TODO : delay before update
-			block.dynamicUpdate(updateTime + 30000, true);
 		}
 	}
 }
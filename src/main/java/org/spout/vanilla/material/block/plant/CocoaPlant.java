@@ -43,13 +43,14 @@ import org.spout.api.util.flag.Flag;
 
 import org.spout.vanilla.data.drops.flag.BlockFlags;
 import org.spout.vanilla.material.InitializableMaterial;
+import org.spout.vanilla.material.block.FacingData;
 import org.spout.vanilla.material.block.Growing;
 import org.spout.vanilla.material.block.attachable.AbstractAttachable;
 import org.spout.vanilla.material.block.solid.Log;
 import org.spout.vanilla.material.item.misc.Dye;
 import org.spout.vanilla.util.PlayerUtil;
 
-public class CocoaPlant extends AbstractAttachable implements Plant, Growing, DynamicMaterial, InitializableMaterial {
+public class CocoaPlant extends AbstractAttachable implements Plant, Growing, DynamicMaterial, InitializableMaterial, FacingData {
 	private static final int DIRECTION_MASK = 0x3;
 	private static final int GROWTH_MASK = 0xC;
 
@@ -80,6 +81,16 @@ public class CocoaPlant extends AbstractAttachable implements Plant, Growing, Dy
 		return BlockFaces.WNES.get(data & DIRECTION_MASK);
 	}
 
+	@Override
+	public BlockFace getFacing(short data) {
+		return getAttachedFace(data);
+	}
+
+	@Override
+	public short getFacingData(short data, BlockFace facing) {
+		return (short) (data & ~DIRECTION_MASK | BlockFaces.WNES.indexOf(facing, 0));
+	}
+
 	@Override
 	public int getMinimumLightToGrow() {
 		return 0;
@@ -108,6 +119,16 @@ public class CocoaPlant extends AbstractAttachable implements Plant, Growing, Dy
 		block.setDataField(GROWTH_MASK, stage);
 	}
 
+	/**
+	 * Gets the data of a cocoa plant at a growth stage, for plants written without going through a block
+	 * @param data of the plant
+	 * @param stage to set
+	 * @return the new data
+	 */
+	public short getGrowthStageData(short data, int stage) {
+		return (short) (data & ~GROWTH_MASK | stage << Integer.numberOfTrailingZeros(GROWTH_MASK) & GROWTH_MASK);
+	}
+
 	@Override
 	public boolean isFullyGrown(Block block) {
 		return getGrowthStage(block) >= 2;
@@ -30,21 +30,20 @@ import java.util.Random;
 import java.util.Set;
 
 import org.spout.api.geo.cuboid.Block;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.Material;
 import org.spout.api.material.block.BlockFace;
-import org.spout.api.material.range.EffectRange;
 import org.spout.api.math.GenericMath;
 import org.spout.api.util.flag.Flag;
 
 import org.spout.vanilla.data.drops.flag.BlockFlags;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Growing;
 import org.spout.vanilla.material.block.attachable.GroundAttachable;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.lighting.VanillaLighting;
 
-public class NetherWartBlock extends GroundAttachable implements Plant, Growing, DynamicMaterial {
+public class NetherWartBlock extends GroundAttachable implements Plant, Growing, RandomTickable {
 	public NetherWartBlock(String name, int id) {
 		super(name, id, null);
 		this.setLiquidObstacle(false);
@@ -101,39 +100,18 @@ public class NetherWartBlock extends GroundAttachable implements Plant, Growing,
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS_AND_NEIGHBORS;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		//TODO : Delay before first grow
-		b.dynamicUpdate(getGrowthTime(b) + currentTime, true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		if (this.isFullyGrown(block) || block.getBiomeType() != VanillaBiomes.NETHERRACK) {
 			return;
 		}
 		final Random rand = GenericMath.getRandom();
 		if (rand.nextInt(10) != 0) {
-			//TODO : Delay before first grow
-			block.dynamicUpdate(updateTime + getGrowthTime(block), true);
 			return;
 		}
 		int minLight = this.getMinimumLightToGrow();
 		if (minLight > 0 && VanillaLighting.getLight(block.translate(BlockFace.TOP)) < minLight) {
-			//TODO : Delay before first grow
-			block.dynamicUpdate(updateTime + 10000, true);
 			return;
 		}
 		this.setGrowthStage(block, this.getGrowthStage(block) + 1);
-		//TODO : Delay before first grow
-		block.dynamicUpdate(updateTime + getGrowthTime(block), true);
-	}
-
-	private long getGrowthTime(Block block) {
-		return 120000L + GenericMath.getRandom().nextInt(120000);
 	}
 }
@@ -32,13 +32,12 @@ import org.spout.api.event.player.PlayerInteractEvent.Action;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.inventory.Slot;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.Material;
 import org.spout.api.material.block.BlockFace;
-import org.spout.api.material.range.EffectRange;
 import org.spout.api.math.GenericMath;
 
 import org.spout.vanilla.material.Fuel;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Growing;
 import org.spout.vanilla.material.block.Spreading;
@@ -48,7 +47,7 @@ import org.spout.vanilla.material.item.misc.Dye;
 import org.spout.vanilla.util.PlayerUtil;
 import org.spout.vanilla.world.generator.normal.object.tree.TreeObject;
 
-public class Sapling extends GroundAttachable implements Growing, Spreading, Plant, Fuel, DynamicMaterial {
+public class Sapling extends GroundAttachable implements Growing, Spreading, Plant, Fuel, RandomTickable {
 	public static final Sapling DEFAULT = new Sapling("Sapling");
 	public static final Sapling SPRUCE = new Sapling("Spruce Sapling", 1, DEFAULT);
 	public static final Sapling BIRCH = new Sapling("Birch Sapling", 2, DEFAULT);
@@ -142,25 +141,15 @@ public class Sapling extends GroundAttachable implements Growing, Spreading, Pla
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		b.dynamicUpdate(currentTime + getGrowthTime(b), true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block b, long updateTime, int data) {
-		short oldData = b.getData();
-		b.setMaterial(Log.DEFAULT);
-		b.setData(oldData & dataMask);
-		b.setDataBits(Log.aliveMask);
-	}
-
-	private long getGrowthTime(Block block) {
-		return 240000L + GenericMath.getRandom().nextInt(240000);
+	public void onRandomTick(Block block) {
+		// Saplings take a few minutes on average before turning into a growing log
+		if (GenericMath.getRandom().nextInt(5) != 0) {
+			return;
+		}
+		short oldData = block.getData();
+		block.setMaterial(Log.DEFAULT);
+		block.setData(oldData & dataMask);
+		block.setDataBits(Log.aliveMask);
 	}
 
 	@Override
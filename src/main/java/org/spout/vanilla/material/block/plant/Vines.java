@@ -34,7 +34,6 @@ import org.spout.api.event.Cause;
 import org.spout.api.event.cause.EntityCause;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.CuboidEffectRange;
@@ -49,6 +48,7 @@ import org.spout.vanilla.component.entity.misc.Head;
 import org.spout.vanilla.data.drops.flag.ToolTypeFlags;
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
 import org.spout.vanilla.material.Burnable;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Spreading;
@@ -56,7 +56,7 @@ import org.spout.vanilla.protocol.VanillaNetworkSynchronizer;
 import org.spout.vanilla.render.VanillaEffects;
 import org.spout.vanilla.world.lighting.VanillaLighting;
 
-public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Burnable, DynamicMaterial {
+public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Burnable, RandomTickable {
 	private static final EffectRange VINE_RANGE = new CuboidEffectRange(-4, -1, -4, 4, 1, 4);
 	private static final int MAX_PER_GROUP = 5;
 
@@ -111,6 +111,17 @@ public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Bur
 		block.setDataBits(getMask(face), attached);
 	}
 
+	/**
+	 * Gets the data of vines with a certain face attached or not, for vines written without going through a block
+	 * @param data of the vines
+	 * @param face to attach to
+	 * @param attached whether or not to attach
+	 * @return the new data
+	 */
+	public short getFaceAttachedData(short data, BlockFace face, boolean attached) {
+		return (short) (attached ? data | getMask(face) : data & ~getMask(face));
+	}
+
 	@Override
 	public boolean hasPhysics() {
 		return true;
@@ -241,18 +252,7 @@ public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Bur
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS_AND_NEIGHBORS;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		//TODO : Delay before first grow
-		b.dynamicUpdate(10000 + currentTime, true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		final Random rand = GenericMath.getRandom();
 		if (rand.nextInt(4) != 0) {
 			return;
@@ -365,7 +365,5 @@ public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Bur
 				below.setDataBits(randomData);
 			}
 		}
-
-		block.dynamicUpdate(updateTime + 10000, true);
 	}
 }
@@ -33,15 +33,14 @@ import org.spout.api.entity.Entity;
 import org.spout.api.event.player.PlayerInteractEvent.Action;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.inventory.Slot;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.Material;
 import org.spout.api.material.block.BlockFace;
-import org.spout.api.material.range.EffectRange;
 import org.spout.api.math.GenericMath;
 import org.spout.api.util.flag.Flag;
 
 import org.spout.vanilla.data.drops.flag.BlockFlags;
 import org.spout.vanilla.material.InitializableMaterial;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Crop;
@@ -51,7 +50,7 @@ import org.spout.vanilla.material.item.misc.Dye;
 import org.spout.vanilla.util.PlayerUtil;
 import org.spout.vanilla.world.lighting.VanillaLighting;
 
-public class WheatCrop extends GroundAttachable implements Growing, Crop, DynamicMaterial, InitializableMaterial {
+public class WheatCrop extends GroundAttachable implements Growing, Crop, RandomTickable, InitializableMaterial {
 	public WheatCrop(String name, int id) {
 		super(name, id, null);
 		this.setResistance(0.0F).setHardness(0.0F).setTransparent();
@@ -134,17 +133,7 @@ public class WheatCrop extends GroundAttachable implements Growing, Crop, Dynami
 	// TODO: Trampling
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS_AND_ABOVE;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		b.dynamicUpdate(currentTime + getGrowthTime(b), true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		if (!this.isFullyGrown(block)) {
 			if (VanillaLighting.getLight(block.translate(BlockFace.TOP)) >= this.getMinimumLightToGrow()) {
 				// Grow using a calculated chance of growing
@@ -154,11 +143,6 @@ public class WheatCrop extends GroundAttachable implements Growing, Crop, Dynami
 					this.setGrowthStage(block, this.getGrowthStage(block) + 1);
 				}
 			}
-			block.dynamicUpdate(updateTime + getGrowthTime(block), true);
 		}
 	}
-
-	private long getGrowthTime(Block block) {
-		return 20000L + GenericMath.getRandom().nextInt(60000);
-	}
 }
@@ -33,7 +33,6 @@ import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.CubicEffectRange;
 import org.spout.api.material.range.EffectRange;
-import org.spout.api.math.GenericMath;
 
 import org.spout.vanilla.component.entity.living.Human;
 import org.spout.vanilla.data.Climate;
@@ -115,8 +114,8 @@ public class Ice extends SpreadingSolid implements InitializableMaterial {
 	}
 
 	@Override
-	public long getSpreadingTime(Block b) {
-		return 120000L + GenericMath.getRandom().nextInt(60000) * 5;
+	public int getSpreadingChance(Block block) {
+		return 4;
 	}
 
 	@Override
@@ -56,12 +56,13 @@ import org.spout.vanilla.material.Fuel;
 import org.spout.vanilla.material.TimedCraftable;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Directional;
+import org.spout.vanilla.material.block.FacingData;
 import org.spout.vanilla.material.block.Solid;
 import org.spout.vanilla.material.block.component.FurnaceBlock;
 import org.spout.vanilla.material.block.plant.Sapling;
 import org.spout.vanilla.material.item.misc.Coal;
 
-public class Log extends Solid implements DynamicMaterial, Fuel, TimedCraftable, Burnable, Directional {
+public class Log extends Solid implements DynamicMaterial, Fuel, TimedCraftable, Burnable, Directional, FacingData {
 	private static final BlockFaces DIRECTION_OPPOS = new BlockFaces(BlockFace.BOTTOM, BlockFace.NORTH, BlockFace.EAST);
 	private static final BlockFaces DIRECTION_FACES = new BlockFaces(BlockFace.TOP, BlockFace.SOUTH, BlockFace.WEST, BlockFace.THIS);
 	private static final short dataMask = 0x0003;
@@ -150,6 +151,19 @@ public class Log extends Solid implements DynamicMaterial, Fuel, TimedCraftable,
 		block.setDataField(directionMask, DIRECTION_FACES.indexOf(facing, 0));
 	}
 
+	@Override
+	public BlockFace getFacing(short data) {
+		return DIRECTION_FACES.get((data & directionMask) >> Integer.numberOfTrailingZeros(directionMask));
+	}
+
+	@Override
+	public short getFacingData(short data, BlockFace facing) {
+		if (DIRECTION_OPPOS.contains(facing)) {
+			facing = facing.getOpposite();
+		}
+		return (short) (data & ~directionMask | DIRECTION_FACES.indexOf(facing, 0) << Integer.numberOfTrailingZeros(directionMask) & directionMask);
+	}
+
 	@Override
 	public boolean onDestroy(Block block, Cause<?> cause) {
 		if (super.onDestroy(block, cause)) {
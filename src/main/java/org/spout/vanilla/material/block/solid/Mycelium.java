@@ -28,7 +28,6 @@ package org.spout.vanilla.material.block.solid;
 
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.block.BlockFace;
-import org.spout.api.math.GenericMath;
 
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
 import org.spout.vanilla.data.tool.ToolType;
@@ -63,7 +62,7 @@ public class Mycelium extends SpreadingSolid implements InitializableMaterial {
 	}
 
 	@Override
-	public long getSpreadingTime(Block b) {
-		return 120000L + GenericMath.getRandom().nextInt(60000) * 5;
+	public int getSpreadingChance(Block block) {
+		return 4;
 	}
 }
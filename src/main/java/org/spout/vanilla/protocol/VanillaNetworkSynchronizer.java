@@ -28,9 +28,16 @@ package org.spout.vanilla.protocol;
 
 import static org.spout.vanilla.material.VanillaMaterials.getMinecraftData;
 import static org.spout.vanilla.material.VanillaMaterials.getMinecraftId;
+import gnu.trove.iterator.TLongIntIterator;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.TIntSet;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -122,6 +129,8 @@ import org.spout.vanilla.event.world.WeatherChangeEvent;
 import org.spout.vanilla.inventory.window.DefaultWindow;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.component.TileMaterial;
+import org.spout.vanilla.protocol.codec.world.chunk.ChunkCompressionPool;
+import org.spout.vanilla.protocol.codec.world.chunk.EncodedChunkCache;
 import org.spout.vanilla.protocol.container.VanillaContainer;
 import org.spout.vanilla.protocol.entity.player.ExperienceChangeEvent;
 import org.spout.vanilla.protocol.msg.VanillaBlockDataChannelMessage;
@@ -161,9 +170,12 @@ import org.spout.vanilla.protocol.msg.world.ExplosionMessage;
 import org.spout.vanilla.protocol.msg.world.SoundEffectMessage;
 import org.spout.vanilla.protocol.msg.world.block.BlockActionMessage;
 import org.spout.vanilla.protocol.msg.world.block.BlockBreakAnimationMessage;
+import org.spout.vanilla.protocol.msg.world.block.BlockBulkMessage;
 import org.spout.vanilla.protocol.msg.world.block.BlockChangeMessage;
 import org.spout.vanilla.protocol.msg.world.block.SignMessage;
+import org.spout.vanilla.protocol.msg.world.chunk.ChunkBulkMessage;
 import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
+import org.spout.vanilla.protocol.netcache.ChunkNetCache;
 import org.spout.vanilla.protocol.reposition.VanillaRepositionManager;
 import org.spout.vanilla.scoreboard.Objective;
 import org.spout.vanilla.scoreboard.Team;
@@ -190,6 +202,30 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 	private int stepY = 160;
 	private int offsetY = 0;
 	private final VanillaRepositionManager vpm = new VanillaRepositionManager();
+	private final boolean bulkColumns;
+	private final int bulkMaxColumns;
+	private final int bulkMaxBytes;
+	private final Object pendingColumnLock = new Object();
+	private final TIntArrayList pendingX = new TIntArrayList();
+	private final TIntArrayList pendingZ = new TIntArrayList();
+	private final List<byte[][]> pendingData = new ArrayList<byte[][]>();
+	private final List<byte[]> pendingBiomeData = new ArrayList<byte[]>();
+	private final List<ProtocolEvent> pendingEvents = new ArrayList<ProtocolEvent>();
+	private int pendingBytes = 0;
+	private final int maxTasksInFlight;
+	private final ArrayDeque<Object> outbound = new ArrayDeque<Object>();
+	private volatile int tasksInFlight = 0;
+	private final Object outboundSendLock = new Object();
+	private boolean outboundSending = false;
+	private final Runnable sendCompressed = new Runnable() {
+		@Override
+		public void run() {
+			drainOutbound(false);
+		}
+	};
+	private final int sectionChangeThreshold;
+	private final Object blockChangeLock = new Object();
+	private TLongObjectHashMap<ColumnChanges> blockChanges = new TLongObjectHashMap<ColumnChanges>();
 
 	static {
 		int i = 0;
@@ -217,6 +253,11 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		super(session, 2);
 		registerProtocolEvents(this);
 		chunkInit = ChunkInit.getChunkInit(VanillaConfiguration.CHUNK_INIT.getString("client"));
+		bulkColumns = VanillaConfiguration.CHUNK_BULK_ENABLED.getBoolean();
+		bulkMaxColumns = Math.max(1, VanillaConfiguration.CHUNK_BULK_MAX_COLUMNS.getInt());
+		bulkMaxBytes = VanillaConfiguration.CHUNK_BULK_MAX_BYTES.getInt();
+		maxTasksInFlight = Math.max(1, VanillaConfiguration.CHUNK_COMPRESSION_SESSION_LIMIT.getInt());
+		sectionChangeThreshold = VanillaConfiguration.BLOCK_CHANGE_SECTION_THRESHOLD.getInt();
 		setRepositionManager(vpm);
 	}
 
@@ -315,6 +356,9 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 
 	@Override
 	protected boolean canSendChunk(Chunk c) {
+		if (tasksInFlight >= maxTasksInFlight) {
+			return false;
+		}
 		if (activeChunks.contains(c.getX(), c.getZ())) {
 			return true;
 		}
@@ -374,20 +418,26 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 				}
 			}
 
-			ChunkDataMessage CCMsg = new ChunkDataMessage(x, z, true, new boolean[16], packetChunkData, biomeData, player.getSession(), getRepositionManager());
-			player.getSession().send(false, CCMsg);
+			if (bulkColumns) {
+				queueColumn(x, z, packetChunkData, biomeData);
+			} else {
+				ChunkDataMessage CCMsg = new ChunkDataMessage(x, z, true, new boolean[16], packetChunkData, biomeData, player.getSession(), getRepositionManager());
+				sendChunkData(CCMsg, x, z);
+			}
 
 			chunks = chunkInit.getChunks(c);
 		}
 
 		if (chunks == null || !chunks.contains(c)) {
+			// Single sections must not reach the client before their column
+			flushColumns();
 
 			byte[] fullChunkData = ChunkInit.getChunkFullData(c, events);
 
 			byte[][] packetChunkData = new byte[16][];
 			packetChunkData[cY] = fullChunkData;
 			ChunkDataMessage CCMsg = new ChunkDataMessage(x, z, false, new boolean[16], packetChunkData, null, player.getSession(), getRepositionManager());
-			player.getSession().send(false, CCMsg);
+			sendChunkData(CCMsg, x, z);
 
 			if (chunks == null) {
 				chunks = new ArrayList<Chunk>(1);
@@ -395,6 +445,16 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 			chunks.add(c);
 		}
 
+		synchronized (pendingColumnLock) {
+			// Tile updates must not reach the client before their column
+			if (!pendingX.isEmpty()) {
+				pendingEvents.addAll(events);
+				return chunks;
+			} else if (isOutboundPending()) {
+				outbound.addAll(events);
+				return chunks;
+			}
+		}
 		for (ProtocolEvent e : events) {
 			this.callProtocolEvent(e);
 		}
@@ -402,6 +462,189 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		return chunks;
 	}
 
+	private void queueColumn(int x, int z, byte[][] data, byte[] biomeData) {
+		int size = biomeData.length;
+		for (byte[] section : data) {
+			if (section != null) {
+				size += section.length;
+			}
+		}
+		boolean full;
+		synchronized (pendingColumnLock) {
+			if (!pendingX.isEmpty() && pendingBytes + size > bulkMaxBytes) {
+				sendPendingColumns();
+			}
+			pendingX.add(x);
+			pendingZ.add(z);
+			pendingData.add(data);
+			pendingBiomeData.add(biomeData);
+			pendingBytes += size;
+			full = pendingX.size() >= bulkMaxColumns;
+		}
+		if (full) {
+			flushColumns();
+		}
+	}
+
+	/**
+	 * Sends the columns queued for bulk sending, followed by the protocol events of their chunks
+	 */
+	private void flushColumns() {
+		List<ProtocolEvent> events;
+		synchronized (pendingColumnLock) {
+			if (pendingX.isEmpty()) {
+				return;
+			}
+			sendPendingColumns();
+			if (isOutboundPending()) {
+				outbound.addAll(pendingEvents);
+				pendingEvents.clear();
+				return;
+			}
+			events = new ArrayList<ProtocolEvent>(pendingEvents);
+			pendingEvents.clear();
+		}
+		for (ProtocolEvent e : events) {
+			this.callProtocolEvent(e);
+		}
+	}
+
+	private void sendPendingColumns() {
+		final int count = pendingX.size();
+		boolean[][] hasAdditionalData = new boolean[count][];
+		for (int i = 0; i < count; i++) {
+			hasAdditionalData[i] = new boolean[16];
+		}
+		byte[][][] data = pendingData.toArray(new byte[count][][]);
+		byte[][] biomeData = pendingBiomeData.toArray(new byte[count][]);
+		ChunkBulkMessage CBMsg = new ChunkBulkMessage(pendingX.toArray(), pendingZ.toArray(), hasAdditionalData, data, biomeData, getRepositionManager());
+		ChunkCompressionPool.Task task = ChunkCompressionPool.submit(CBMsg, getPendingColumnsPriority(), sendCompressed);
+		if (task != null) {
+			outbound.add(task);
+			tasksInFlight++;
+		} else if (!isOutboundPending()) {
+			session.send(false, CBMsg);
+		} else {
+			outbound.add(CBMsg);
+		}
+		pendingX.clear();
+		pendingZ.clear();
+		pendingData.clear();
+		pendingBiomeData.clear();
+		pendingBytes = 0;
+	}
+
+	/**
+	 * Gets the squared distance of the nearest pending column to the player, in chunks
+	 */
+	private int getPendingColumnsPriority() {
+		int priority = Integer.MAX_VALUE;
+		for (int i = 0; i < pendingX.size(); i++) {
+			priority = Math.min(priority, getColumnPriority(pendingX.get(i), pendingZ.get(i)));
+		}
+		return priority;
+	}
+
+	/**
+	 * Gets the squared distance of a column to the player, in chunks
+	 */
+	private int getColumnPriority(int x, int z) {
+		Point position = player.getScene().getPosition();
+		int dx = x - position.getChunkX();
+		int dz = z - position.getChunkZ();
+		return dx * dx + dz * dz;
+	}
+
+	/**
+	 * Sends chunk data behind the data still being compressed, compressing it on the pool unless the session uses the net cache
+	 */
+	private void sendChunkData(ChunkDataMessage message, int x, int z) {
+		ChunkNetCache netCache = session.getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE);
+		// The net cache has to see the columns in the order they are sent
+		boolean pooled = netCache == null || !netCache.isCacheEnabled();
+		synchronized (pendingColumnLock) {
+			ChunkCompressionPool.Task task = pooled ? ChunkCompressionPool.submit(message, getColumnPriority(x, z), sendCompressed) : null;
+			if (task != null) {
+				outbound.add(task);
+				tasksInFlight++;
+			} else if (!isOutboundPending()) {
+				session.send(false, message);
+			} else {
+				outbound.add(message);
+			}
+		}
+	}
+
+	/**
+	 * Sends a message which must not overtake the chunk data still being compressed
+	 */
+	private void sendOrdered(Message message) {
+		synchronized (pendingColumnLock) {
+			if (!isOutboundPending()) {
+				session.send(false, message);
+			} else {
+				outbound.add(message);
+			}
+		}
+	}
+
+	/**
+	 * Gets whether messages are queued or being sent behind chunk data, which new messages must not overtake
+	 */
+	private boolean isOutboundPending() {
+		return outboundSending || !outbound.isEmpty();
+	}
+
+	/**
+	 * Sends the compressed chunk data that is ready, followed by the messages and events queued behind it<br>
+	 * Workers drain as soon as their task completed, but leave the events for the tick to call.
+	 * The ready entries are taken out under the column lock and sent after releasing it, drains are serialized by the send lock to keep their order.
+	 * @param events whether the queued events are called
+	 */
+	private void drainOutbound(boolean events) {
+		synchronized (outboundSendLock) {
+			final List<Object> ready = new ArrayList<Object>();
+			try {
+				while (true) {
+					synchronized (pendingColumnLock) {
+						Object next;
+						while ((next = outbound.peek()) != null) {
+							if (next instanceof ChunkCompressionPool.Task) {
+								ChunkCompressionPool.Task task = (ChunkCompressionPool.Task) next;
+								if (!task.isDone()) {
+									break;
+								}
+								ready.add(task.getMessage());
+								tasksInFlight--;
+							} else if (next instanceof Message || events) {
+								ready.add(next);
+							} else {
+								break;
+							}
+							outbound.poll();
+						}
+						if (ready.isEmpty()) {
+							return;
+						}
+						outboundSending = true;
+					}
+					for (Object next : ready) {
+						if (next instanceof Message) {
+							session.send(false, (Message) next);
+						} else {
+							this.callProtocolEvent((ProtocolEvent) next);
+						}
+					}
+					ready.clear();
+				}
+			} finally {
+				synchronized (pendingColumnLock) {
+					outboundSending = false;
+				}
+			}
+		}
+	}
+
 	public void sendPosition() {
 		sendPosition(player.getScene().getPosition(), player.getScene().getRotation());
 	}
@@ -489,6 +732,20 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 	@Override
 	protected void resetChunks() {
 		super.resetChunks();
+		synchronized (pendingColumnLock) {
+			pendingX.clear();
+			pendingZ.clear();
+			pendingData.clear();
+			pendingBiomeData.clear();
+			pendingEvents.clear();
+			pendingBytes = 0;
+			// Data still being compressed belongs to the previous world or position
+			outbound.clear();
+			tasksInFlight = 0;
+		}
+		synchronized (blockChangeLock) {
+			blockChanges.clear();
+		}
 		this.emptyColumns.clear();
 		this.activeChunks.clear();
 		this.initializedChunks.clear();
@@ -526,11 +783,17 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		}
 
 		super.finalizeTick();
+		flushColumns();
+		flushBlockChanges();
+		drainOutbound(true);
 	}
 
 	@Override
 	public void preSnapshot() {
 		super.preSnapshot();
+		flushColumns();
+		flushBlockChanges();
+		drainOutbound(true);
 
 		Long key;
 		while ((key = this.emptyColumns.poll()) != null) {
@@ -540,19 +803,120 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 			if (column != null && column.isEmpty()) {
 				column = initializedChunks.remove(x, z);
 				activeChunks.remove(x, z);
-				session.send(false, new ChunkDataMessage(x, z, true, null, null, null, true, player.getSession(), getRepositionManager()));
+				sendOrdered(new ChunkDataMessage(x, z, true, null, null, null, true, player.getSession(), getRepositionManager()));
 			}
 		}
 	}
 
 	@Override
 	public void updateBlock(Chunk chunk, int x, int y, int z, BlockMaterial material, short data) {
-		short id = getMinecraftId(material);
-		x += chunk.getBlockX();
-		y += chunk.getBlockY();
-		z += chunk.getBlockZ();
-		BlockChangeMessage BCM = new BlockChangeMessage(x, y, z, id, getMinecraftData(material, data), getRepositionManager());
-		session.send(false, BCM);
+		int id = getMinecraftId(material) << 4 | getMinecraftData(material, data) & 0xF;
+		synchronized (blockChangeLock) {
+			long key = IntPairHashed.key(chunk.getX(), chunk.getZ());
+			ColumnChanges column = blockChanges.get(key);
+			if (column == null) {
+				column = new ColumnChanges();
+				blockChanges.put(key, column);
+			}
+			column.add(chunk, x, y + chunk.getBlockY(), z, id);
+		}
+	}
+
+	/**
+	 * Sends the block changes of the tick, choosing the cheapest encoding per column<br>
+	 * A single change is sent on its own, multiple changes as a multi block change,
+	 * and columns with more than the section threshold of changes per modified section get the modified sections resent.
+	 */
+	private void flushBlockChanges() {
+		TLongObjectHashMap<ColumnChanges> changes;
+		synchronized (blockChangeLock) {
+			if (blockChanges.isEmpty()) {
+				return;
+			}
+			changes = blockChanges;
+			blockChanges = new TLongObjectHashMap<ColumnChanges>();
+		}
+		RepositionManager rm = getRepositionManager();
+		TLongObjectIterator<ColumnChanges> iter = changes.iterator();
+		while (iter.hasNext()) {
+			iter.advance();
+			int x = IntPairHashed.key1(iter.key());
+			int z = IntPairHashed.key2(iter.key());
+			ColumnChanges column = iter.value();
+			int count = column.blocks.size();
+			if (count == 1) {
+				TLongIntIterator block = column.blocks.iterator();
+				block.advance();
+				long position = block.key();
+				int id = block.value();
+				int bx = (x << Chunk.BLOCKS.BITS) + (int) (position >> 4 & Chunk.BLOCKS.MASK);
+				int bz = (z << Chunk.BLOCKS.BITS) + (int) (position & Chunk.BLOCKS.MASK);
+				sendOrdered(new BlockChangeMessage(bx, (int) (position >> 8), bz, (short) (id >> 4), id & 0xF, rm));
+			} else if (sectionChangeThreshold <= 0 || count <= sectionChangeThreshold * column.chunks.size()) {
+				sendBlockBulk(x, z, column, rm);
+			} else {
+				sendSections(x, z, column, rm);
+			}
+			EncodedChunkCache.invalidate(column.chunks.get(0).getWorld().getName(), rm.convertChunkX(x), rm.convertChunkZ(z));
+		}
+	}
+
+	private void sendBlockBulk(int x, int z, ColumnChanges column, RepositionManager rm) {
+		short[] coordinates = new short[column.blocks.size() * 3];
+		short[] types = new short[column.blocks.size()];
+		byte[] metadata = new byte[column.blocks.size()];
+		int count = 0;
+		TLongIntIterator block = column.blocks.iterator();
+		while (block.hasNext()) {
+			block.advance();
+			long position = block.key();
+			int y = (int) (position >> 8);
+			int clientY = rm.convertY(y);
+			if (clientY < 0 || clientY >= WORLD_HEIGHT) {
+				continue;
+			}
+			coordinates[count * 3] = (short) (position >> 4 & Chunk.BLOCKS.MASK);
+			coordinates[count * 3 + 1] = (short) y;
+			coordinates[count * 3 + 2] = (short) (position & Chunk.BLOCKS.MASK);
+			types[count] = (short) (block.value() >> 4);
+			metadata[count] = (byte) (block.value() & 0xF);
+			count++;
+		}
+		if (count == 0) {
+			return;
+		} else if (count < types.length) {
+			coordinates = Arrays.copyOf(coordinates, count * 3);
+			types = Arrays.copyOf(types, count);
+			metadata = Arrays.copyOf(metadata, count);
+		}
+		sendOrdered(new BlockBulkMessage(x, z, coordinates, types, metadata, rm));
+	}
+
+	private void sendSections(int x, int z, ColumnChanges column, RepositionManager rm) {
+		byte[][] packetChunkData = new byte[16][];
+		List<ProtocolEvent> events = new ArrayList<ProtocolEvent>();
+		boolean empty = true;
+		for (Chunk chunk : column.chunks) {
+			int cY = rm.convertChunkY(chunk.getY());
+			if (cY < 0 || cY >= WORLD_HEIGHT >> Chunk.BLOCKS.BITS || !chunk.isLoaded()) {
+				continue;
+			}
+			packetChunkData[cY] = ChunkInit.getChunkFullData(chunk, events);
+			empty = false;
+		}
+		if (empty) {
+			return;
+		}
+		sendChunkData(new ChunkDataMessage(x, z, false, new boolean[16], packetChunkData, null, player.getSession(), rm), x, z);
+		synchronized (pendingColumnLock) {
+			if (isOutboundPending()) {
+				outbound.addAll(events);
+				return;
+			}
+		}
+		for (ProtocolEvent e : events) {
+			this.callProtocolEvent(e);
+		}
 	}
 
 	@Override
@@ -994,4 +1358,20 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 			return false;
 		}
 	}
+
+	/**
+	 * The blocks of a column changed during a tick, with the chunks they belong to
+	 */
+	private static final class ColumnChanges {
+		// Keyed by y << 8 | x << 4 | z, holding id << 4 | data, so only the last change of a block is kept
+		private final TLongIntHashMap blocks = new TLongIntHashMap();
+		private final List<Chunk> chunks = new ArrayList<Chunk>(1);
+
+		private void add(Chunk chunk, int x, int y, int z, int id) {
+			blocks.put((long) y << 8 | x << 4 | z, id);
+			if (!chunks.contains(chunk)) {
+				chunks.add(chunk);
+			}
+		}
+	}
 }
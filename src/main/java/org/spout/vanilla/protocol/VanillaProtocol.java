@@ -48,6 +48,7 @@ import org.spout.api.protocol.Session;
 import org.spout.api.util.Named;
 
 import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.protocol.handler.player.pos.MovementState;
 import org.spout.vanilla.protocol.msg.ServerPluginMessage;
 import org.spout.vanilla.protocol.msg.player.PlayerChatMessage;
 import org.spout.vanilla.protocol.msg.player.conn.PlayerHandshakeMessage;
@@ -71,6 +72,7 @@ public class VanillaProtocol extends Protocol {
 	public final static DefaultedKey<String> HANDSHAKE_USERNAME = new DefaultedKeyImpl<String>("handshake_username", "");
 	public final static DefaultedKey<Long> LOGIN_TIME = new DefaultedKeyImpl<Long>("handshake_time", -1L);
 	public final static DefaultedKey<ChunkNetCache> CHUNK_NET_CACHE = new DefaultedKeyImpl<ChunkNetCache>("chunk_net_cache", (ChunkNetCache) null);
+	public final static DefaultedKey<MovementState> MOVEMENT_STATE = new DefaultedKeyImpl<MovementState>("movement_state", (MovementState) null);
 	public static final DefaultedKey<ArrayList<String>> REGISTERED_CUSTOM_PACKETS = new DefaultedKey<ArrayList<String>>() {
 		private final List<String> defaultRestricted = Arrays.asList("REGISTER", "UNREGISTER");
 
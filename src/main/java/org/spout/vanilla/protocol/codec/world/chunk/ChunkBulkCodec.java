@@ -27,9 +27,7 @@
 package org.spout.vanilla.protocol.codec.world.chunk;
 
 import java.io.IOException;
-import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -41,7 +39,14 @@ import org.spout.api.protocol.reposition.NullRepositionManager;
 import org.spout.vanilla.protocol.msg.world.chunk.ChunkBulkMessage;
 
 public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
-	private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+	private static final int INITIAL_BUFFER_SIZE = 16384;
+	private static final int CHUNK_DATA_HEADER_SIZE = 1 + 4 + 4 + 1 + 2 + 2 + 4;
+	private static final int BULK_COLUMN_HEADER_SIZE = 4 + 4 + 2 + 2;
+	private static final AtomicLong messagesSent = new AtomicLong();
+	private static final AtomicLong columnsSent = new AtomicLong();
+	private static final AtomicLong uncompressedBytes = new AtomicLong();
+	private static final AtomicLong compressedBytes = new AtomicLong();
+	private static final AtomicLong headerBytesSaved = new AtomicLong();
 
 	public ChunkBulkCodec() {
 		super(ChunkBulkMessage.class, 0x38);
@@ -52,10 +57,9 @@ public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
 		int length = buffer.readShort() & 0xFFFF;
 
 		int compressed = buffer.readInt();
-
-		byte[] compressedDataFlat = new byte[compressed];
-
-		buffer.readBytes(compressedDataFlat);
+		buffer.readByte(); // Sky light sent, always sent by Vanilla
+		int compressedIndex = buffer.readerIndex();
+		buffer.skipBytes(compressed);
 
 		int[] x = new int[length];
 		int[] z = new int[length];
@@ -73,45 +77,26 @@ public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
 		}
 
 		int flatLength = 0;
-
 		for (int i = 0; i < length; i++) {
-			byte[][] columnData = data[i];
-			for (int j = 0; j < columnData.length; j++) {
-				flatLength += columnData[j].length;
-			}
-			flatLength += biomeData[i].length;
+			flatLength += getColumnLength(data[i], biomeData[i]);
 		}
 
-		byte[] uncompressedDataFlat = new byte[flatLength];
-
-		Inflater inflater = new Inflater();
-		inflater.setInput(compressedDataFlat);
-		inflater.getRemaining();
-		try {
-			int uncompressed = inflater.inflate(uncompressedDataFlat);
-			if (uncompressed == 0) {
-				throw new IOException("Not all bytes uncompressed.");
-			} else if (uncompressed != uncompressedDataFlat.length) {
-				throw new IOException("Wrong length for compressed data");
-			}
-		} catch (DataFormatException e) {
-			e.printStackTrace();
-			throw new IOException("Bad compressed data.");
-		} finally {
-			inflater.end();
+		byte[] uncompressedDataFlat = ChunkCompression.getScratch(flatLength);
+		int dataEnd = buffer.readerIndex();
+		buffer.readerIndex(compressedIndex);
+		int uncompressed = ChunkCompression.inflate(buffer, compressed, uncompressedDataFlat, flatLength);
+		buffer.readerIndex(dataEnd);
+		if (uncompressed == 0) {
+			throw new IOException("Not all bytes uncompressed.");
+		} else if (uncompressed != flatLength) {
+			throw new IOException("Wrong length for compressed data");
 		}
 
 		int pos = 0;
 		for (int i = 0; i < length; i++) {
-			byte[][] columnData = data[i];
-			for (int j = 0; j < columnData.length; j++) {
-				int l = columnData[j].length;
-				System.arraycopy(uncompressedDataFlat, pos, columnData[j], 0, l);
-				pos += l;
-			}
-			int l = biomeData[i].length;
-			System.arraycopy(uncompressedDataFlat, pos, biomeData[i], 0, l);
-			pos += l;
+			int columnLength = getColumnLength(data[i], biomeData[i]);
+			ChunkDataCodec.readColumnData(uncompressedDataFlat, pos, data[i], biomeData[i]);
+			pos += columnLength;
 		}
 
 		if (pos != flatLength) {
@@ -123,71 +108,126 @@ public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
 
 	@Override
 	public ChannelBuffer encode(ChunkBulkMessage message) throws IOException {
-		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(INITIAL_BUFFER_SIZE);
 
 		int length = message.getX().length;
 		buffer.writeShort(length);
 
+		byte[] compressedData = message.getCompressedData();
+		if (compressedData != null) {
+			buffer.writeInt(compressedData.length);
+			buffer.writeByte(1); // Sky light sent
+			buffer.writeBytes(compressedData);
+		} else {
+			int lengthIndex = buffer.writerIndex();
+			buffer.writeInt(0);
+			buffer.writeByte(1); // Sky light sent
+			buffer.setInt(lengthIndex, compress(message, buffer));
+		}
+
+		for (int i = 0; i < length; i++) {
+			buffer.writeInt(message.getX()[i]);
+			buffer.writeInt(message.getZ()[i]);
+			buffer.writeShort(byteByteArrayToShort(message.getData()[i]));
+			buffer.writeShort(booleanArrayToShort(message.hasAdditionalData()[i]));
+		}
+
+		messagesSent.incrementAndGet();
+		columnsSent.addAndGet(length);
+		// Every column beyond the first would otherwise have needed its own chunk data packet header
+		headerBytesSaved.addAndGet(Math.max(0, length - 1) * (CHUNK_DATA_HEADER_SIZE - BULK_COLUMN_HEADER_SIZE));
+
+		return buffer;
+	}
+
+	/**
+	 * Compresses the column data of a message, so that it can be done ahead of encoding<br>
+	 * All columns form a single deflate stream, so the per column payloads of the {@link EncodedChunkCache} can not be reused here.
+	 * @param message to compress
+	 * @return the compressed data
+	 * @throws IOException if the data could not be compressed
+	 */
+	public static byte[] compress(ChunkBulkMessage message) throws IOException {
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(INITIAL_BUFFER_SIZE);
+		int compressed = compress(message, buffer);
+		byte[] compressedData = new byte[compressed];
+		buffer.getBytes(0, compressedData);
+		return compressedData;
+	}
+
+	private static int compress(ChunkBulkMessage message, ChannelBuffer buffer) throws IOException {
+		int length = message.getX().length;
 		int dataLength = 0;
 		byte[][][] uncompressedData = message.getData();
 		byte[][] biomeData = message.getBiomeData();
 		for (int i = 0; i < length; i++) {
-			byte[][] uncompressedColumnData = uncompressedData[i];
-			for (int j = 0; j < uncompressedColumnData.length; j++) {
-				byte[] uncompressedChunkData = uncompressedColumnData[j];
-				if (uncompressedChunkData != null) {
-					dataLength += uncompressedChunkData.length;
-				}
-			}
-			dataLength += biomeData[i].length;
+			dataLength += getColumnLength(uncompressedData[i], biomeData[i]);
 		}
 
-		byte[] uncompressedDataFlat = new byte[dataLength];
+		byte[] uncompressedDataFlat = ChunkCompression.getScratch(dataLength);
 		int pos = 0;
 		for (int i = 0; i < length; i++) {
-			byte[][] uncompressedColumnData = uncompressedData[i];
-			for (int j = 0; j < uncompressedColumnData.length; j++) {
-				byte[] uncompressedChunkData = uncompressedColumnData[j];
-				if (uncompressedChunkData != null) {
-					int copyLength = uncompressedChunkData.length;
-					System.arraycopy(uncompressedChunkData, 0, uncompressedDataFlat, pos, copyLength);
-					pos += copyLength;
-				}
-			}
-			System.arraycopy(biomeData[i], 0, uncompressedDataFlat, pos, biomeData[i].length);
-			pos += biomeData[i].length;
+			pos = ChunkDataCodec.writeColumnData(uncompressedData[i], biomeData[i], uncompressedDataFlat, pos, getColumnLength(uncompressedData[i], biomeData[i]));
 		}
 
 		if (pos != dataLength) {
 			throw new IllegalStateException("Flat data length miscalculated");
 		}
 
-		Deflater deflater = new Deflater(COMPRESSION_LEVEL);
-		deflater.setInput(uncompressedDataFlat);
-		deflater.finish();
+		int compressed = ChunkCompression.deflate(uncompressedDataFlat, 0, dataLength, buffer);
+		uncompressedBytes.addAndGet(dataLength);
+		compressedBytes.addAndGet(compressed);
+		return compressed;
+	}
 
-		byte[] compressedDataFlat = new byte[uncompressedDataFlat.length + 1024];
+	/**
+	 * Gets the number of bulk messages encoded
+	 * @return the message count
+	 */
+	public static long getMessagesSent() {
+		return messagesSent.get();
+	}
 
-		int compressed = deflater.deflate(compressedDataFlat);
-		try {
-			if (compressed == 0) {
-				throw new IOException("Not all bytes compressed.");
-			}
-		} finally {
-			deflater.end();
-		}
+	/**
+	 * Gets the number of columns encoded in bulk messages
+	 * @return the column count
+	 */
+	public static long getColumnsSent() {
+		return columnsSent.get();
+	}
 
-		buffer.writeInt(compressed);
-		buffer.writeBytes(compressedDataFlat, 0, compressed);
+	/**
+	 * Gets the total size of the column data before compression
+	 * @return the size in bytes
+	 */
+	public static long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
 
-		for (int i = 0; i < length; i++) {
-			buffer.writeInt(message.getX()[i]);
-			buffer.writeInt(message.getZ()[i]);
-			buffer.writeShort(byteByteArrayToShort(message.getData()[i]));
-			buffer.writeShort(booleanArrayToShort(message.hasAdditionalData()[i]));
-		}
+	/**
+	 * Gets the total size of the column data after compression
+	 * @return the size in bytes
+	 */
+	public static long getCompressedBytes() {
+		return compressedBytes.get();
+	}
 
-		return buffer;
+	/**
+	 * Gets the packet header bytes saved compared to sending one chunk data message per column
+	 * @return the size in bytes
+	 */
+	public static long getHeaderBytesSaved() {
+		return headerBytesSaved.get();
+	}
+
+	private static int getColumnLength(byte[][] columnData, byte[] biomeData) {
+		int length = biomeData.length;
+		for (int j = 0; j < columnData.length; j++) {
+			if (columnData[j] != null) {
+				length += columnData[j].length;
+			}
+		}
+		return length;
 	}
 
 	private static short booleanArrayToShort(boolean[] array) {
@@ -0,0 +1,197 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.codec.world.chunk;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+
+/**
+ * Per-thread pool of compressors and scratch buffers used by the chunk codecs.<br>
+ * Codecs run on the network threads, which are long-lived, so each thread keeps a single
+ * {@link Deflater}, {@link Inflater} and a growable scratch array for the lifetime of the thread.
+ */
+public final class ChunkCompression {
+	private static final int MIN_OUTPUT_STEP = 512;
+	private static volatile int compressionLevel = Deflater.BEST_SPEED;
+	private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(compressionLevel);
+		}
+	};
+	private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater();
+		}
+	};
+	private static final ThreadLocal<byte[][]> SCRATCH = new ThreadLocal<byte[][]>() {
+		@Override
+		protected byte[][] initialValue() {
+			return new byte[1][];
+		}
+	};
+
+	private ChunkCompression() {
+	}
+
+	/**
+	 * Gets the zlib compression level used for chunk data
+	 * @return the compression level
+	 */
+	public static int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Sets the zlib compression level used for chunk data, between 0 (none) and 9 (best)
+	 * @param level of compression
+	 */
+	public static void setCompressionLevel(int level) {
+		if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Compression level must be between " + Deflater.NO_COMPRESSION + " and " + Deflater.BEST_COMPRESSION);
+		}
+		compressionLevel = level;
+	}
+
+	/**
+	 * Gets the scratch array of the current thread, growing it if it is smaller than the size requested<br>
+	 * The array is shared by all codecs on the thread and may be longer than requested.
+	 * @param size the minimum size of the array
+	 * @return the scratch array
+	 */
+	public static byte[] getScratch(int size) {
+		byte[][] holder = SCRATCH.get();
+		byte[] scratch = holder[0];
+		if (scratch == null || scratch.length < size) {
+			scratch = new byte[size + (size >> 3)];
+			holder[0] = scratch;
+		}
+		return scratch;
+	}
+
+	/**
+	 * Deflates the data and writes it straight into the buffer, prefixed by the compressed length as an int
+	 * @param data to compress
+	 * @param off of the first byte to compress
+	 * @param len of the data to compress
+	 * @param buffer to write to
+	 * @return the number of compressed bytes written, excluding the length prefix
+	 * @throws IOException if no data could be compressed
+	 */
+	public static int writeDeflated(byte[] data, int off, int len, ChannelBuffer buffer) throws IOException {
+		final int lengthIndex = buffer.writerIndex();
+		buffer.writeInt(0);
+		final int compressed = deflate(data, off, len, buffer);
+		buffer.setInt(lengthIndex, compressed);
+		return compressed;
+	}
+
+	/**
+	 * Deflates the data and writes it straight into the buffer
+	 * @param data to compress
+	 * @param off of the first byte to compress
+	 * @param len of the data to compress
+	 * @param buffer to write to
+	 * @return the number of compressed bytes written
+	 * @throws IOException if no data could be compressed
+	 */
+	public static int deflate(byte[] data, int off, int len, ChannelBuffer buffer) throws IOException {
+		final Deflater deflater = DEFLATER.get();
+		deflater.reset();
+		deflater.setLevel(compressionLevel);
+		deflater.setInput(data, off, len);
+		deflater.finish();
+
+		final int start = buffer.writerIndex();
+		final int step = Math.max(MIN_OUTPUT_STEP, len >> 2);
+		byte[] output = null;
+		while (!deflater.finished()) {
+			buffer.ensureWritableBytes(step);
+			if (buffer.hasArray()) {
+				int written = deflater.deflate(buffer.array(), buffer.arrayOffset() + buffer.writerIndex(), buffer.writableBytes());
+				buffer.writerIndex(buffer.writerIndex() + written);
+			} else {
+				// The scratch array may be the input, so direct buffers get their own output array
+				if (output == null) {
+					output = new byte[step];
+				}
+				int written = deflater.deflate(output, 0, step);
+				buffer.writeBytes(output, 0, written);
+			}
+		}
+		deflater.reset();
+
+		final int compressed = buffer.writerIndex() - start;
+		if (compressed == 0) {
+			throw new IOException("No compressed data found");
+		}
+		return compressed;
+	}
+
+	/**
+	 * Inflates the next compressedSize bytes of the buffer into the target array
+	 * @param buffer to read the compressed data from
+	 * @param compressedSize of the data in the buffer
+	 * @param target to inflate into
+	 * @param len of the expected uncompressed data
+	 * @return the number of bytes inflated
+	 * @throws IOException if the compressed data is invalid
+	 */
+	public static int inflate(ChannelBuffer buffer, int compressedSize, byte[] target, int len) throws IOException {
+		final Inflater inflater = INFLATER.get();
+		inflater.reset();
+		if (buffer.hasArray()) {
+			inflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), compressedSize);
+			buffer.skipBytes(compressedSize);
+		} else {
+			byte[] compressedData = new byte[compressedSize];
+			buffer.readBytes(compressedData);
+			inflater.setInput(compressedData);
+		}
+
+		int index = 0;
+		try {
+			while (index < len) {
+				int uncompressed = inflater.inflate(target, index, len - index);
+				index += uncompressed;
+				if (uncompressed == 0) {
+					break;
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Bad compressed data.", e);
+		} finally {
+			inflater.reset();
+		}
+		return index;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.codec.world.chunk;
+
+import java.io.IOException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.spout.api.Spout;
+import org.spout.api.protocol.Message;
+
+import org.spout.vanilla.protocol.msg.world.chunk.ChunkBulkMessage;
+import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
+
+/**
+ * Bounded pool of worker threads compressing chunk data and chunk bulk messages ahead of encoding<br>
+ * Tasks with the lowest priority value run first, so callers use the distance of the columns to the player.
+ * The callback of a task is run by the worker as soon as the task completed, so the message can be sent without waiting for the next tick.
+ */
+public final class ChunkCompressionPool {
+	private static final AtomicLong sequence = new AtomicLong();
+	private static final AtomicInteger queued = new AtomicInteger();
+	private static final AtomicLong completed = new AtomicLong();
+	private static final AtomicLong rejected = new AtomicLong();
+	private static final AtomicLong failed = new AtomicLong();
+	private static final AtomicLong queueNanos = new AtomicLong();
+	private static final AtomicLong compressNanos = new AtomicLong();
+	private static final AtomicLong maxLatencyNanos = new AtomicLong();
+	private static volatile ThreadPoolExecutor executor = null;
+	private static volatile int maxQueued = 0;
+
+	private ChunkCompressionPool() {
+	}
+
+	/**
+	 * Starts the worker threads, replacing any running pool
+	 * @param threads to compress with, 0 disables the pool
+	 * @param maxQueued tasks before new tasks are rejected
+	 */
+	public static synchronized void start(int threads, int maxQueued) {
+		stop();
+		if (threads <= 0) {
+			return;
+		}
+		ChunkCompressionPool.maxQueued = maxQueued;
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Vanilla chunk compressor #" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Stops the worker threads, tasks already queued are still completed
+	 */
+	public static synchronized void stop() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Gets whether the pool is running
+	 * @return true if running
+	 */
+	public static boolean isEnabled() {
+		return executor != null;
+	}
+
+	/**
+	 * Queues a bulk message for compression
+	 * @param message to compress
+	 * @param priority of the task, lower runs first
+	 * @param callback run once the task completed, can be null
+	 * @return the task, or null if the pool is not running or full, in which case the codec compresses the message
+	 */
+	public static Task submit(ChunkBulkMessage message, int priority, Runnable callback) {
+		return submit((Message) message, priority, callback);
+	}
+
+	/**
+	 * Queues a chunk data message for compression, which must not be sent to a session using the net cache
+	 * @param message to compress
+	 * @param priority of the task, lower runs first
+	 * @param callback run once the task completed, can be null
+	 * @return the task, or null if the pool is not running or full, in which case the codec compresses the message
+	 */
+	public static Task submit(ChunkDataMessage message, int priority, Runnable callback) {
+		return submit((Message) message, priority, callback);
+	}
+
+	private static Task submit(Message message, int priority, Runnable callback) {
+		ThreadPoolExecutor executor = ChunkCompressionPool.executor;
+		if (executor == null) {
+			return null;
+		} else if (queued.get() >= maxQueued) {
+			rejected.incrementAndGet();
+			return null;
+		}
+		Task task = new Task(message, priority, callback);
+		queued.incrementAndGet();
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			queued.decrementAndGet();
+			rejected.incrementAndGet();
+			return null;
+		}
+		return task;
+	}
+
+	public static int getQueueDepth() {
+		return queued.get();
+	}
+
+	public static long getCompleted() {
+		return completed.get();
+	}
+
+	public static long getRejected() {
+		return rejected.get();
+	}
+
+	public static long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Gets the average time tasks waited in the queue
+	 * @return the time in milliseconds
+	 */
+	public static double getAverageQueueTime() {
+		long count = completed.get();
+		return count == 0 ? 0 : queueNanos.get() / (count * 1000000D);
+	}
+
+	/**
+	 * Gets the average time spent compressing a task
+	 * @return the time in milliseconds
+	 */
+	public static double getAverageCompressTime() {
+		long count = completed.get();
+		return count == 0 ? 0 : compressNanos.get() / (count * 1000000D);
+	}
+
+	/**
+	 * Gets the longest time between submitting a task and its completion
+	 * @return the time in milliseconds
+	 */
+	public static double getMaxLatency() {
+		return maxLatencyNanos.get() / 1000000D;
+	}
+
+	public static final class Task implements Runnable, Comparable<Task> {
+		private final Message message;
+		private final int priority;
+		private final Runnable callback;
+		private final long order = sequence.incrementAndGet();
+		private final long submitted = System.nanoTime();
+		private volatile Message result = null;
+
+		private Task(Message message, int priority, Runnable callback) {
+			this.message = message;
+			this.priority = priority;
+			this.callback = callback;
+		}
+
+		@Override
+		public void run() {
+			final long start = System.nanoTime();
+			Message compressed;
+			try {
+				compressed = compress(message);
+			} catch (Throwable t) {
+				Spout.getLogger().log(Level.WARNING, "Unable to compress chunk data ahead of encoding", t);
+				failed.incrementAndGet();
+				compressed = message;
+			}
+			final long end = System.nanoTime();
+			queueNanos.addAndGet(start - submitted);
+			compressNanos.addAndGet(end - start);
+			long latency = end - submitted;
+			long max;
+			while (latency > (max = maxLatencyNanos.get()) && !maxLatencyNanos.compareAndSet(max, latency)) {
+			}
+			completed.incrementAndGet();
+			queued.decrementAndGet();
+			result = compressed;
+			if (callback != null) {
+				try {
+					callback.run();
+				} catch (Throwable t) {
+					Spout.getLogger().log(Level.WARNING, "Unable to send compressed chunk data", t);
+				}
+			}
+		}
+
+		private static Message compress(Message message) throws IOException {
+			if (message instanceof ChunkBulkMessage) {
+				final ChunkBulkMessage bulk = (ChunkBulkMessage) message;
+				return bulk.withCompressedData(ChunkBulkCodec.compress(bulk));
+			}
+			final ChunkDataMessage chunk = (ChunkDataMessage) message;
+			return chunk.withCompressedData(ChunkDataCodec.compress(chunk));
+		}
+
+		/**
+		 * Gets whether the task completed
+		 * @return true if completed
+		 */
+		public boolean isDone() {
+			return result != null;
+		}
+
+		/**
+		 * Gets the message to send, once the task completed
+		 * @return the compressed message, or the original message if compression failed
+		 */
+		public Message getMessage() {
+			return result;
+		}
+
+		@Override
+		public int compareTo(Task other) {
+			if (priority != other.priority) {
+				return priority < other.priority ? -1 : 1;
+			}
+			return order < other.order ? -1 : (order == other.order ? 0 : 1);
+		}
+	}
+}
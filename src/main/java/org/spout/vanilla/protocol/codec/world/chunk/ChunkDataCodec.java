@@ -27,23 +27,21 @@
 package org.spout.vanilla.protocol.codec.world.chunk;
 
 import java.io.IOException;
-import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
+import java.util.Arrays;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 
 import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.protocol.MessageCodec;
-import org.spout.api.protocol.Session;
 import org.spout.api.protocol.reposition.NullRepositionManager;
 
 import org.spout.vanilla.protocol.VanillaProtocol;
 import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
+import org.spout.vanilla.protocol.netcache.ChunkNetCache;
 
 public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
-	private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+	private static final int INITIAL_BUFFER_SIZE = 4096;
 	private static final int MAX_SECTIONS = 16;
 	private final byte[] UNLOAD_COMPRESSED = {0x78, (byte) 0x9C, 0x63, 0x64, 0x1C, (byte) 0xD9, 0x00, 0x00, (byte) 0x81, (byte) 0x80, 0x01, 0x01}; //Fake compressed data, client expects this when unloading
 
@@ -60,8 +58,6 @@ public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
 		short primaryBitMap = buffer.readShort();
 		short addBitMap = buffer.readShort();
 		int compressedSize = buffer.readInt();
-		byte[] compressedData = new byte[compressedSize];
-		buffer.readBytes(compressedData);
 
 		boolean[] hasAdditionalData = new boolean[MAX_SECTIONS];
 		byte[][] data = new byte[MAX_SECTIONS][];
@@ -84,57 +80,20 @@ public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
 			size += Chunk.BLOCKS.AREA;
 		}
 
-		byte[] uncompressedData = new byte[size];
-
-		Inflater inflater = new Inflater();
-		inflater.setInput(compressedData);
-		inflater.getRemaining();
-		int index = 0;
-		try {
-			while (index < uncompressedData.length) {
-				int uncompressed = inflater.inflate(uncompressedData, index, uncompressedData.length - index);
-				index += uncompressed;
-				if (uncompressed == 0) {
-					break;
-				}
-			}
-			if (index != uncompressedData.length) {
-				throw new IOException("Not all bytes uncompressed.");
-			}
-		} catch (DataFormatException e) {
-			e.printStackTrace();
-			throw new IOException("Bad compressed data.");
-		} finally {
-			inflater.end();
+		byte[] uncompressedData = ChunkCompression.getScratch(size);
+		if (ChunkCompression.inflate(buffer, compressedSize, uncompressedData, size) != size) {
+			throw new IOException("Not all bytes uncompressed.");
 		}
 
-		size = 0;
-		// TODO - fix this total hack
-		size = readSectionData(uncompressedData, size, data, 0, 4096);
-		size = readSectionData(uncompressedData, size, data, 2 * 2048, 2048);
-		size = readSectionData(uncompressedData, size, data, 3 * 2048, 2048);
-		size = readSectionData(uncompressedData, size, data, 4 * 2048, 2048);
-
-		/*size = 0;
-		for (byte[] sectionData : data) {
-			if (sectionData != null && sectionData.length + size < uncompressedData.length) {
-				System.arraycopy(uncompressedData, size, sectionData, 0, sectionData.length);
-				size += sectionData.length;
-			}
-		}*/
 		byte[] biomeData = new byte[Chunk.BLOCKS.AREA];
-
-		if (contiguous) {
-			System.arraycopy(uncompressedData, size, biomeData, 0, biomeData.length);
-			size += biomeData.length;
-		}
+		readColumnData(uncompressedData, 0, data, contiguous ? biomeData : null);
 
 		return new ChunkDataMessage(x, z, contiguous, hasAdditionalData, data, biomeData, null, NullRepositionManager.getInstance());
 	}
 
 	@Override
 	public ChannelBuffer encode(ChunkDataMessage message) throws IOException {
-		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(INITIAL_BUFFER_SIZE);
 
 		buffer.writeInt(message.getX());
 		buffer.writeInt(message.getZ());
@@ -146,96 +105,187 @@ public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
 			buffer.writeBytes(UNLOAD_COMPRESSED);
 			return buffer;
 		}
-		short sectionsSentBitmap = 0;
-		short additionalDataBitMap = 0;
+		short sectionsSentBitmap = getSectionsSentBitmap(message);
+		short additionalDataBitMap = getAdditionalDataBitmap(message);
 
+		buffer.writeShort(sectionsSentBitmap);
+		buffer.writeShort(additionalDataBitMap);
+
+		byte[] compressedData = message.getCompressedData();
+		if (compressedData != null) {
+			buffer.writeInt(compressedData.length);
+			buffer.writeBytes(compressedData);
+			return buffer;
+		}
+
+		int uncompressedSize = getUncompressedSize(message);
+		ChunkNetCache netCache = message.getSession() == null ? null : message.getSession().getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE);
+		byte[] uncompressedData = ChunkCompression.getScratch(uncompressedSize);
+		writeColumnData(message.getData(), message.isContiguous() ? message.getBiomeData() : null, uncompressedData, 0, uncompressedSize);
+
+		if (netCache != null && netCache.isCacheEnabled()) {
+			byte[] encoded = netCache.handle(uncompressedData, uncompressedSize);
+			try {
+				ChunkCompression.writeDeflated(encoded, 0, ChunkNetCache.getEncodedLength(uncompressedSize), buffer);
+			} finally {
+				netCache.release(encoded);
+			}
+			return buffer;
+		}
+
+		writeCompressed(message, sectionsSentBitmap, additionalDataBitMap, uncompressedData, uncompressedSize, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Compresses the column data of a message, so that it can be done ahead of encoding<br>
+	 * The net cache is not applied, so this is only done for sessions which do not use it.
+	 * @param message to compress
+	 * @return the compressed data
+	 * @throws IOException if the data could not be compressed
+	 */
+	public static byte[] compress(ChunkDataMessage message) throws IOException {
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(INITIAL_BUFFER_SIZE);
+		int uncompressedSize = getUncompressedSize(message);
+		byte[] uncompressedData = ChunkCompression.getScratch(uncompressedSize);
+		writeColumnData(message.getData(), message.isContiguous() ? message.getBiomeData() : null, uncompressedData, 0, uncompressedSize);
+		writeCompressed(message, getSectionsSentBitmap(message), getAdditionalDataBitmap(message), uncompressedData, uncompressedSize, buffer);
+		// Skip the length written in front of the data
+		byte[] compressedData = new byte[buffer.readableBytes() - 4];
+		buffer.getBytes(4, compressedData);
+		return compressedData;
+	}
+
+	/**
+	 * Writes the length and the compressed column data, shared with other sessions without a net cache
+	 */
+	private static void writeCompressed(ChunkDataMessage message, short sectionsSentBitmap, short additionalDataBitMap, byte[] uncompressedData, int uncompressedSize, ChannelBuffer buffer) throws IOException {
+		String world = message.getWorld();
+		if (world == null || !EncodedChunkCache.isEnabled()) {
+			ChunkCompression.writeDeflated(uncompressedData, 0, uncompressedSize, buffer);
+			return;
+		}
+		long variant = EncodedChunkCache.getVariant(sectionsSentBitmap, additionalDataBitMap, message.isContiguous());
+		// Hashing the column costs a pass over it, which is only done when the payload can be shared
+		if (!EncodedChunkCache.admit(world, message.getX(), message.getZ(), variant)) {
+			ChunkCompression.writeDeflated(uncompressedData, 0, uncompressedSize, buffer);
+			return;
+		}
+		long hash = EncodedChunkCache.hash(uncompressedData, 0, uncompressedSize);
+		byte[] cached = EncodedChunkCache.get(world, message.getX(), message.getZ(), variant, hash);
+		if (cached != null) {
+			buffer.writeInt(cached.length);
+			buffer.writeBytes(cached);
+		} else {
+			int compressed = ChunkCompression.writeDeflated(uncompressedData, 0, uncompressedSize, buffer);
+			byte[] compressedData = new byte[compressed];
+			buffer.getBytes(buffer.writerIndex() - compressed, compressedData);
+			EncodedChunkCache.put(world, message.getX(), message.getZ(), variant, hash, compressedData);
+		}
+	}
+
+	private static short getSectionsSentBitmap(ChunkDataMessage message) {
 		byte[][] data = message.getData();
+		short bitmap = 0;
+		for (int i = 0; i < MAX_SECTIONS; ++i) {
+			if (data[i] != null) {
+				bitmap |= 1 << i;
+			}
+		}
+		return bitmap;
+	}
 
-		int uncompressedSize = 0;
+	private static short getAdditionalDataBitmap(ChunkDataMessage message) {
+		byte[][] data = message.getData();
+		short bitmap = 0;
 		for (int i = 0; i < MAX_SECTIONS; ++i) {
-			if (data[i] != null) { // This chunk exists! Let's initialize the data for it.
-				sectionsSentBitmap |= 1 << i;
-				if (message.hasAdditionalData()[i]) {
-					additionalDataBitMap |= 1 << i;
-				}
-				uncompressedSize += data[i].length;
+			if (data[i] != null && message.hasAdditionalData()[i]) {
+				bitmap |= 1 << i;
 			}
 		}
+		return bitmap;
+	}
 
+	private static int getUncompressedSize(ChunkDataMessage message) {
+		byte[][] data = message.getData();
+		int size = 0;
+		for (int i = 0; i < MAX_SECTIONS; ++i) {
+			if (data[i] != null) {
+				size += data[i].length;
+			}
+		}
 		if (message.isContiguous()) {
-			uncompressedSize += message.getBiomeData().length;
+			size += message.getBiomeData().length;
 		}
+		return size;
+	}
 
-		buffer.writeShort(sectionsSentBitmap);
-		buffer.writeShort(additionalDataBitMap);
-		byte[] uncompressedData = new byte[uncompressedSize];
-		int index = 0;
-
+	/**
+	 * Writes the sections of a column in the protocol layout, all block ids first, followed by the data and light nibbles<br>
+	 * Bytes of the column which are not written, such as additional data, are zeroed.
+	 * @param data of the sections, null for sections that are not sent
+	 * @param biomeData to append, or null if not contiguous
+	 * @param target to write to
+	 * @param index to start writing at
+	 * @param length of the column in the target
+	 * @return the index after the column
+	 */
+	static int writeColumnData(byte[][] data, byte[] biomeData, byte[] target, int index, int length) {
+		final int end = index + length;
 		// TODO - fix this total hack
-		index = writeSectionData(data, 0, uncompressedData, index, 4096);
-		index = writeSectionData(data, 2 * 2048, uncompressedData, index, 2048);
-		index = writeSectionData(data, 3 * 2048, uncompressedData, index, 2048);
-		index = writeSectionData(data, 4 * 2048, uncompressedData, index, 2048);
-
-		if (message.isContiguous()) {
-			System.arraycopy(message.getBiomeData(), 0, uncompressedData, index, message.getBiomeData().length);
-			index += message.getBiomeData().length;
-		}
-
-		Session session = message.getSession();
-		if (session != null) {
-			uncompressedData = message.getSession().getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE).handle(uncompressedData);
-		}
-
-		byte[] compressedData = new byte[uncompressedSize >> 2];
-
-		Deflater deflater = new Deflater(COMPRESSION_LEVEL);
-		deflater.setInput(uncompressedData);
-		deflater.finish();
-
-		int compressed;
-		try {
-			compressed = deflater.deflate(compressedData);
-			if (compressed == 0) {
-				throw new IOException("No compressed data found");
-			} else if (compressed == compressedData.length) {
-				boolean done = false;
-				while (!done) {
-					byte[] newCompressedData = new byte[1 + compressedData.length + (compressedData.length >> 1)];
-					System.arraycopy(compressedData, 0, newCompressedData, 0, compressedData.length);
-					compressedData = newCompressedData;
-					compressed += deflater.deflate(compressedData, compressed, compressedData.length - compressed);
-					done = compressed < compressedData.length;
-				}
-			}
-		} finally {
-			deflater.end();
+		index = writeSectionData(data, 0, target, index, 4096);
+		index = writeSectionData(data, 2 * 2048, target, index, 2048);
+		index = writeSectionData(data, 3 * 2048, target, index, 2048);
+		index = writeSectionData(data, 4 * 2048, target, index, 2048);
+
+		if (biomeData != null) {
+			System.arraycopy(biomeData, 0, target, index, biomeData.length);
+			index += biomeData.length;
 		}
 
-		buffer.writeInt(compressed);
-		buffer.writeBytes(compressedData, 0, compressed);
+		// Additional data is not written yet, the target may hold stale bytes there
+		Arrays.fill(target, index, end, (byte) 0);
+		return end;
+	}
 
-		return buffer;
+	/**
+	 * Reads the sections of a column in the protocol layout
+	 * @param source to read from
+	 * @param index to start reading at
+	 * @param data of the sections, null for sections that were not sent
+	 * @param biomeData to fill, or null if not contiguous
+	 * @return the index after the last byte read
+	 */
+	static int readColumnData(byte[] source, int index, byte[][] data, byte[] biomeData) {
+		// TODO - fix this total hack
+		index = readSectionData(source, index, data, 0, 4096);
+		index = readSectionData(source, index, data, 2 * 2048, 2048);
+		index = readSectionData(source, index, data, 3 * 2048, 2048);
+		index = readSectionData(source, index, data, 4 * 2048, 2048);
+
+		if (biomeData != null) {
+			System.arraycopy(source, index, biomeData, 0, biomeData.length);
+			index += biomeData.length;
+		}
+		return index;
 	}
 
-	private int readSectionData(byte[] data, int off, byte[][] target, int targetOff, int len) {
+	private static int readSectionData(byte[] data, int off, byte[][] target, int targetOff, int len) {
 		for (byte[] sectionTarget : target) {
 			if (sectionTarget != null) {
-				for (int i = targetOff; i < targetOff + len && i < sectionTarget.length; ++i) {
-					sectionTarget[i] = data[off++];
-				}
+				final int copied = Math.max(0, Math.min(len, sectionTarget.length - targetOff));
+				System.arraycopy(data, off, sectionTarget, targetOff, copied);
+				off += copied;
 			}
 		}
 		return off;
 	}
 
-	private int writeSectionData(byte[][] data, int off, byte[] target, int targetOff, int len) {
+	private static int writeSectionData(byte[][] data, int off, byte[] target, int targetOff, int len) {
 		for (byte[] sectionData : data) {
 			if (sectionData != null) {
-				int j = off;
-				for (int i = 0; i < len; i++) {
-					target[targetOff++] = sectionData[j++];
-				}
+				System.arraycopy(sectionData, off, target, targetOff, len);
+				targetOff += len;
 			}
 		}
 		return targetOff;
@@ -0,0 +1,301 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.codec.world.chunk;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared, size-bounded cache of compressed chunk payloads.<br>
+ * Entries are stored per column and per variant (section mask, additional data mask and contiguous flag).
+ * Every entry remembers the content hash of the uncompressed data it was built from,
+ * which acts as the modification counter: a lookup with a different hash is a miss and replaces the entry.
+ * Explicit invalidation only frees memory early, it is never needed for correctness.
+ * A variant is only hashed and stored once it was sent a second time, as most columns are sent to a single session.
+ * Chunk bulk messages compress all of their columns in one stream and do not use the cache.
+ */
+public final class EncodedChunkCache {
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	private static final int ADMISSION_BITS = 12;
+	private static final long[] admission = new long[1 << ADMISSION_BITS];
+	private static final Map<ColumnKey, TLongObjectMap<Payload>> columns = new LinkedHashMap<ColumnKey, TLongObjectMap<Payload>>(256, 0.75f, true);
+	private static volatile long maxBytes = 32L << 20;
+	private static long bytes = 0;
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	private static final AtomicLong evictions = new AtomicLong();
+	private static final AtomicLong invalidations = new AtomicLong();
+	private static final AtomicLong bypassed = new AtomicLong();
+
+	private EncodedChunkCache() {
+	}
+
+	/**
+	 * Sets the maximum amount of compressed data held by the cache, 0 disables the cache
+	 * @param size in bytes
+	 */
+	public static void setMaxSize(long size) {
+		maxBytes = Math.max(0, size);
+		synchronized (columns) {
+			evict();
+		}
+	}
+
+	/**
+	 * Gets whether the cache is enabled
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled() {
+		return maxBytes > 0;
+	}
+
+	/**
+	 * Computes the content hash used to validate cache entries
+	 * @param data to hash
+	 * @param off of the first byte
+	 * @param len of the data
+	 * @return the hash
+	 */
+	public static long hash(byte[] data, int off, int len) {
+		long h = FNV_OFFSET;
+		final int end = off + len;
+		for (int i = off; i < end; i++) {
+			h ^= data[i] & 0xFF;
+			h *= FNV_PRIME;
+		}
+		return h ^ len;
+	}
+
+	/**
+	 * Gets the variant key of a payload
+	 * @param sectionMask of the sections sent
+	 * @param additionalMask of the sections with additional data
+	 * @param contiguous whether the biome data is included
+	 * @return the variant
+	 */
+	public static long getVariant(short sectionMask, short additionalMask, boolean contiguous) {
+		return (sectionMask & 0xFFFFL) | (additionalMask & 0xFFFFL) << 16 | (contiguous ? 1L << 32 : 0L);
+	}
+
+	/**
+	 * Gets whether a chunk column variant can be served from the cache, so it is worth hashing its data<br>
+	 * A variant is admitted when it is cached already or was seen recently, otherwise it is remembered for the next time.
+	 * @param world name
+	 * @param x of the column, in client coordinates
+	 * @param z of the column, in client coordinates
+	 * @param variant of the payload
+	 * @return true if the data should be hashed and looked up
+	 */
+	public static boolean admit(String world, int x, int z, long variant) {
+		long key = (world.hashCode() * 31L + x) * 31L + z;
+		key = key * FNV_PRIME ^ variant;
+		key ^= key >>> 29;
+		final int slot = (int) key & (admission.length - 1);
+		synchronized (columns) {
+			TLongObjectMap<Payload> column = columns.get(new ColumnKey(world, x, z));
+			if (column != null && column.containsKey(variant)) {
+				return true;
+			}
+			if (admission[slot] == key) {
+				return true;
+			}
+			admission[slot] = key;
+		}
+		bypassed.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Gets the compressed payload for a chunk column variant, if the cached entry was built from the same data
+	 * @param world name
+	 * @param x of the column, in client coordinates
+	 * @param z of the column, in client coordinates
+	 * @param variant of the payload
+	 * @param hash of the uncompressed data
+	 * @return the compressed data, or null on a miss
+	 */
+	public static byte[] get(String world, int x, int z, long variant, long hash) {
+		Payload payload = null;
+		synchronized (columns) {
+			TLongObjectMap<Payload> column = columns.get(new ColumnKey(world, x, z));
+			if (column != null) {
+				payload = column.get(variant);
+			}
+		}
+		if (payload != null && payload.hash == hash) {
+			hits.incrementAndGet();
+			return payload.data;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Stores the compressed payload for a chunk column variant
+	 * @param world name
+	 * @param x of the column, in client coordinates
+	 * @param z of the column, in client coordinates
+	 * @param variant of the payload
+	 * @param hash of the uncompressed data
+	 * @param data compressed, which must not be modified afterwards
+	 */
+	public static void put(String world, int x, int z, long variant, long hash, byte[] data) {
+		if (data.length > maxBytes) {
+			return;
+		}
+		synchronized (columns) {
+			ColumnKey key = new ColumnKey(world, x, z);
+			TLongObjectMap<Payload> column = columns.get(key);
+			if (column == null) {
+				column = new TLongObjectHashMap<Payload>(4);
+				columns.put(key, column);
+			}
+			Payload old = column.put(variant, new Payload(hash, data));
+			if (old != null) {
+				bytes -= old.data.length;
+			}
+			bytes += data.length;
+			evict();
+		}
+	}
+
+	/**
+	 * Removes all payloads of a chunk column
+	 * @param world name
+	 * @param x of the column, in client coordinates
+	 * @param z of the column, in client coordinates
+	 */
+	public static void invalidate(String world, int x, int z) {
+		synchronized (columns) {
+			TLongObjectMap<Payload> column = columns.remove(new ColumnKey(world, x, z));
+			if (column != null) {
+				bytes -= getSize(column);
+				invalidations.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Removes all payloads
+	 */
+	public static void clear() {
+		synchronized (columns) {
+			columns.clear();
+			Arrays.fill(admission, 0L);
+			bytes = 0;
+		}
+	}
+
+	public static long getHits() {
+		return hits.get();
+	}
+
+	public static long getMisses() {
+		return misses.get();
+	}
+
+	public static long getEvictions() {
+		return evictions.get();
+	}
+
+	public static long getInvalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * Gets the number of payloads compressed without hashing, as they were not sent before
+	 * @return the number of payloads
+	 */
+	public static long getBypassed() {
+		return bypassed.get();
+	}
+
+	public static long getSize() {
+		synchronized (columns) {
+			return bytes;
+		}
+	}
+
+	private static void evict() {
+		Iterator<TLongObjectMap<Payload>> iter = columns.values().iterator();
+		while (bytes > maxBytes && iter.hasNext()) {
+			bytes -= getSize(iter.next());
+			iter.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	private static long getSize(TLongObjectMap<Payload> column) {
+		long size = 0;
+		for (Payload payload : column.valueCollection()) {
+			size += payload.data.length;
+		}
+		return size;
+	}
+
+	private static final class Payload {
+		private final long hash;
+		private final byte[] data;
+
+		private Payload(long hash, byte[] data) {
+			this.hash = hash;
+			this.data = data;
+		}
+	}
+
+	private static final class ColumnKey {
+		private final String world;
+		private final int x, z;
+
+		private ColumnKey(String world, int x, int z) {
+			this.world = world;
+			this.x = x;
+			this.z = z;
+		}
+
+		@Override
+		public int hashCode() {
+			return (world.hashCode() * 31 + x) * 31 + z;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ColumnKey)) {
+				return false;
+			}
+			ColumnKey other = (ColumnKey) obj;
+			return x == other.x && z == other.z && world.equals(other.world);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.handler.player.pos;
+
+import java.lang.ref.WeakReference;
+
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.component.entity.living.Human;
+
+/**
+ * Movement state of a single session, used to validate the positions sent by the client<br>
+ * Samples are kept in fixed size ring buffers, so recording a sample allocates nothing.
+ * The state is only accessed by the network thread of its session.
+ */
+public class MovementState {
+	public static final int SAMPLES = 50;
+	//Don't track updates if the last one was > 500 ms ago
+	private static final long MAX_SAMPLE_GAP = 500000000L;
+	private final long[] timeDeltas = new long[SAMPLES];
+	private final double[] distances = new double[SAMPLES];
+	private int next = 0;
+	private int size = 0;
+	private long lastMessage = System.nanoTime();
+	private long airborneSince = -1;
+	// Weak, so a chunk unloaded while the player stands still is not kept alive by the session
+	private WeakReference<Chunk> chunk = null;
+
+	/**
+	 * Adds a movement sample
+	 * @param human moving
+	 * @param prevPoint position before the movement
+	 * @param newPoint position after the movement
+	 * @param created time of the position message, in nanoseconds
+	 */
+	public void addSample(Human human, Point prevPoint, Point newPoint, long created) {
+		if (created - lastMessage > MAX_SAMPLE_GAP) {
+			lastMessage = created;
+			return;
+		}
+		timeDeltas[next] = created - lastMessage;
+		distances[next] = normalizeDistance(human, prevPoint, newPoint);
+		next = (next + 1) % SAMPLES;
+		if (size < SAMPLES) {
+			size++;
+		}
+		lastMessage = created;
+	}
+
+	public boolean isFilled() {
+		return size >= SAMPLES;
+	}
+
+	public double getAvgMovement() {
+		if (size == 0) {
+			return 0;
+		}
+		double total = 0;
+		for (int i = 0; i < size; i++) {
+			total += distances[i];
+		}
+		return total / size;
+	}
+
+	public double getAvgMessageTime() {
+		if (size == 0) {
+			return 0;
+		}
+		long total = 0;
+		for (int i = 0; i < size; i++) {
+			total += timeDeltas[i];
+		}
+		return total / (double) size;
+	}
+
+	/**
+	 * Marks the player as having left the ground
+	 * @param age of the world
+	 */
+	public void leaveGround(long age) {
+		airborneSince = age;
+	}
+
+	/**
+	 * Marks the player as back on the ground
+	 */
+	public void land() {
+		airborneSince = -1;
+	}
+
+	/**
+	 * Stops tracking the time in air until the player leaves the ground again, when the player changed directions or entered water
+	 */
+	public void resetAirborne() {
+		airborneSince = -1;
+	}
+
+	/**
+	 * Gets the world age at which the player left the ground
+	 * @param age of the world, returned if the player is not tracked as in air
+	 * @return the age
+	 */
+	public long getAirborneSince(long age) {
+		return airborneSince < 0 ? age : airborneSince;
+	}
+
+	/**
+	 * Gets the material of a block, reusing the chunk of the previous lookup when the block is in it
+	 * @param world of the block
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the material, air if the chunk is not loaded
+	 */
+	public BlockMaterial getBlockMaterial(World world, int x, int y, int z) {
+		final int cx = x >> Chunk.BLOCKS.BITS;
+		final int cy = y >> Chunk.BLOCKS.BITS;
+		final int cz = z >> Chunk.BLOCKS.BITS;
+		Chunk chunk = this.chunk == null ? null : this.chunk.get();
+		if (chunk != null && !chunk.isLoaded()) {
+			this.chunk = null;
+			chunk = null;
+		}
+		if (chunk == null || chunk.getX() != cx || chunk.getY() != cy || chunk.getZ() != cz || chunk.getWorld() != world) {
+			chunk = world.getChunk(cx, cy, cz, LoadOption.LOAD_ONLY);
+			if (chunk == null) {
+				this.chunk = null;
+				return BlockMaterial.AIR;
+			}
+			this.chunk = new WeakReference<Chunk>(chunk);
+		}
+		return chunk.getBlockMaterial(x, y, z);
+	}
+
+	private static double normalizeDistance(Human human, Point prevPoint, Point newPoint) {
+		final float dx = prevPoint.getX() - newPoint.getX();
+		final float dz = prevPoint.getZ() - newPoint.getZ();
+		final float dist = (float) Math.sqrt(dx * dx + dz * dz);
+		final double tpsModifier = 1D / Math.max(1F, 20F / VanillaPlugin.getInstance().getTPSMonitor().getTPS());
+
+		if (human.isSneaking()) {
+			return (dist / 0.08D) * 0.22D * tpsModifier;
+		}
+		if (human.isSprinting()) {
+			return (dist / 0.32D) * 0.22D * tpsModifier;
+		}
+		return dist * tpsModifier;
+	}
+}
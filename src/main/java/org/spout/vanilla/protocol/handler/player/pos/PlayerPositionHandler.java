@@ -26,33 +26,18 @@
  */
 package org.spout.vanilla.protocol.handler.player.pos;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-
-import gnu.trove.iterator.TDoubleIterator;
-import gnu.trove.iterator.TLongIterator;
-import gnu.trove.list.TDoubleList;
-import gnu.trove.list.TLongList;
-import gnu.trove.list.linked.TDoubleLinkedList;
-import gnu.trove.list.linked.TLongLinkedList;
-
 import org.spout.api.entity.Player;
 import org.spout.api.geo.World;
 import org.spout.api.geo.discrete.Point;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.block.BlockFace;
 import org.spout.api.protocol.MessageHandler;
 import org.spout.api.protocol.Session;
 import org.spout.api.protocol.reposition.RepositionManager;
 
-import org.spout.vanilla.VanillaPlugin;
 import org.spout.vanilla.component.entity.living.Human;
 import org.spout.vanilla.component.entity.player.Ping;
 import org.spout.vanilla.material.VanillaBlockMaterial;
+import org.spout.vanilla.protocol.VanillaProtocol;
 import org.spout.vanilla.protocol.msg.player.pos.PlayerPositionMessage;
 
 public final class PlayerPositionHandler extends MessageHandler<PlayerPositionMessage> {
@@ -61,12 +46,6 @@ public final class PlayerPositionHandler extends MessageHandler<PlayerPositionMe
 	//Player running is 0.27 apart
 	//Player swimming is 0.14-0.11 apart
 	//Player flying is 0.5+
-	private final Cache<Session, PositionTracker> cache = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.SECONDS).build();
-	private final Callable<PositionTracker> loader = new Callable<PositionTracker>() {
-		public PositionTracker call() {
-			return new PositionTracker();
-		}
-	};
 
 	@Override
 	public void handleClient(Session session, PlayerPositionMessage message) {
@@ -118,7 +97,12 @@ public final class PlayerPositionHandler extends MessageHandler<PlayerPositionMe
 				if (yDiff > 0.4) {
 					yDiff -= 0.5F; //half blocks
 				}
-				final BlockMaterial ground = newPosition.getBlock().translate(BlockFace.BOTTOM).getMaterial();
+				MovementState state = session.getDataMap().get(VanillaProtocol.MOVEMENT_STATE);
+				if (state == null) {
+					state = new MovementState();
+					session.getDataMap().put(VanillaProtocol.MOVEMENT_STATE, state);
+				}
+				final BlockMaterial ground = state.getBlockMaterial(holder.getWorld(), newPosition.getBlockX(), newPosition.getBlockY() - 1, newPosition.getBlockZ());
 				final boolean onGround = yDiff < 0.01 && (ground instanceof VanillaBlockMaterial && ground.isSolid());
 				final boolean wasOnGround = human.isOnGround();
 				human.setOnGround(onGround);
@@ -132,34 +116,27 @@ public final class PlayerPositionHandler extends MessageHandler<PlayerPositionMe
 				}
 
 				//Hover tracking
+				final long age = holder.getWorld().getAge();
 				if (wasOnGround && !onGround) {
-					human.getData().put("position_on_ground", livePosition);
-					human.getData().put("time_in_air", holder.getWorld().getAge());
+					state.leaveGround(age);
 				} else if (!wasOnGround && !onGround) {
 					//Changed directions
 					if (wasFalling && !human.isFalling() || human.isInWater()) {
-						human.getData().remove("time_in_air");
+						state.resetAirborne();
 					}
-					float time = human.getData().get("time_in_air", holder.getWorld().getAge());
+					long time = state.getAirborneSince(age);
 					//hovering or still rising
-					if (time + 2000 < holder.getWorld().getAge() && newPosition.getY() - livePosition.getY() >= 0) {
+					if (time + 2000 < age && newPosition.getY() - livePosition.getY() >= 0) {
 						if (!human.canFly()) {
 							holder.sendMessage("Hover cheating?");
 						}
 					}
 				} else if (!wasOnGround && onGround) {
-					human.getData().remove("position_on_ground");
-					human.getData().remove("time_in_air");
+					state.land();
 				}
 
 				//Movement tracking
-				PositionTracker tracker = null;
-				try {
-					tracker = cache.get(session, loader);
-				} catch (ExecutionException e) {
-					throw new RuntimeException(e);
-				}
-				tracker.updateTracker(human, livePosition, newPosition, message.getCreationTimestamp());
+				state.addSample(human, livePosition, newPosition, message.getCreationTimestamp());
 
 				//Debug
 				/*
@@ -175,8 +152,8 @@ public final class PlayerPositionHandler extends MessageHandler<PlayerPositionMe
 				System.out.println("    DZ: " + dz);
 				System.out.println("    Distance: " + livePosition.distance(newPosition));
 				System.out.println("    Time since last packet: " + (System.nanoTime() - last) / 1E6D + " ms");
-				System.out.println("    Avg Distance: " + tracker.getAvgMovement());
-				System.out.println("    Avg packet delta: " + (tracker.getAvgMessageTime() / 1E6D) + " ms");
+				System.out.println("    Avg Distance: " + state.getAvgMovement());
+				System.out.println("    Avg packet delta: " + (state.getAvgMessageTime() / 1E6D) + " ms");
 				System.out.println("    Message On Ground: " + message.isOnGround());
 				System.out.println("    Calculated On Ground: " + onGround);
 				System.out.println("    Sneaking: " + human.isSneaking());
@@ -186,83 +163,17 @@ public final class PlayerPositionHandler extends MessageHandler<PlayerPositionMe
 				last = System.nanoTime();
 				*/
 				//TODO This is way too aggressive, needs to be revised.
-//				if (tracker.isFilled()) {
+//				if (state.isFilled()) {
 //					//Flying?
-//					if (tracker.getAvgMovement() > 0.3D && !human.canFly()) {
-//						holder.sendMessage("Flying? (Speed: " + tracker.getAvgMovement());
+//					if (state.getAvgMovement() > 0.3D && !human.canFly()) {
+//						holder.sendMessage("Flying? (Speed: " + state.getAvgMovement());
 //					}
 //					//Flooding packets?
-//					if (tracker.getAvgMessageTime() < 40F * 1E6F) {
+//					if (state.getAvgMessageTime() < 40F * 1E6F) {
 //						holder.sendMessage("Speed Hacking?");
 //					}
 //				}
 			}
 		}
 	}
-
-	private static class PositionTracker {
-		private final TLongList messageTimeDeltas = new TLongLinkedList();
-		private final TDoubleList distanceDeltas = new TDoubleLinkedList();
-		private long lastMessage = System.nanoTime();
-
-		public boolean isFilled() {
-			return messageTimeDeltas.size() >= 50;
-		}
-
-		public void updateTracker(Human human, Point prevPoint, Point newPoint, long created) {
-			//Don't track updates if the last one was > 500 ms ago
-			if (created - lastMessage > 500 * 1E6) {
-				lastMessage = created;
-			} else {
-				messageTimeDeltas.add(created - lastMessage);
-				distanceDeltas.add(normalizeDistance(human, prevPoint, newPoint));
-				if (messageTimeDeltas.size() > 50) {
-					messageTimeDeltas.removeAt(0);
-				}
-				if (distanceDeltas.size() > 50) {
-					distanceDeltas.removeAt(0);
-				}
-				lastMessage = created;
-			}
-		}
-
-		private double normalizeDistance(Human human, Point prevPoint, Point newPoint) {
-			final float dx = prevPoint.getX() - newPoint.getX();
-			final float dz = prevPoint.getZ() - newPoint.getZ();
-			final float dist = (float) Math.sqrt(dx * dx + dz * dz);
-			final double tpsModifier = 1D / Math.max(1F, 20F / VanillaPlugin.getInstance().getTPSMonitor().getTPS());
-
-			if (human.isSneaking()) {
-				return (dist / 0.08D) * 0.22D * tpsModifier;
-			}
-			if (human.isSprinting()) {
-				return (dist / 0.32D) * 0.22D * tpsModifier;
-			}
-			return dist * tpsModifier;
-		}
-
-		public double getAvgMovement() {
-			if (distanceDeltas.size() == 0) {
-				return 0;
-			}
-			double total = 0;
-			TDoubleIterator i = distanceDeltas.iterator();
-			while (i.hasNext()) {
-				total += i.next();
-			}
-			return total / distanceDeltas.size();
-		}
-
-		public double getAvgMessageTime() {
-			if (messageTimeDeltas.size() == 0) {
-				return 0;
-			}
-			long total = 0;
-			TLongIterator i = messageTimeDeltas.iterator();
-			while (i.hasNext()) {
-				total += i.next();
-			}
-			return total / (double) messageTimeDeltas.size();
-		}
-	}
 }
@@ -28,13 +28,10 @@ package org.spout.vanilla.protocol.handler.world.chunk;
 
 import org.spout.api.entity.Player;
 import org.spout.api.geo.World;
-import org.spout.api.geo.cuboid.Chunk;
-import org.spout.api.material.BlockMaterial;
 import org.spout.api.protocol.MessageHandler;
 import org.spout.api.protocol.Session;
 import org.spout.api.protocol.reposition.RepositionManager;
 
-import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
 
 public class ChunkDataHandler extends MessageHandler<ChunkDataMessage> {
@@ -48,41 +45,11 @@ public class ChunkDataHandler extends MessageHandler<ChunkDataMessage> {
 		World world = player.getEngine().getDefaultWorld();//player.getWorld();
 		RepositionManager rm = player.getNetworkSynchronizer().getRepositionManager();
 
-		int baseX = message.getX() << Chunk.BLOCKS.BITS;
-		int baseZ = message.getZ() << Chunk.BLOCKS.BITS;
-
 		final byte[][] data = message.getData();
 
 		for (int i = 0; i < 16; i++) {
-			int baseY = i << Chunk.BLOCKS.BITS;
-
-			if (data[i] == null) {
-				continue;
-			}
-
-			int index = 0;
-			for (int xx = 0; xx < Chunk.BLOCKS.SIZE; xx++) {
-				for (int yy = 0; yy < Chunk.BLOCKS.SIZE; yy++) {
-					for (int zz = 0; zz < Chunk.BLOCKS.SIZE; zz++) {
-						int x = rm.convertX(xx + baseX);
-						int y = rm.convertY(yy + baseY);
-						int z = rm.convertZ(zz + baseZ);
-
-						short type = data[i][index];
-						byte dat;
-						if (index % 2 == 0) {
-							dat = (byte) (data[i][(index / 2) + 4096] >> 4);
-						} else {
-							dat = (byte) (data[i][(index / 2) + 4096] & 0xF);
-						}
-						index++;
-
-						if (type > 0) {
-							BlockMaterial material = (BlockMaterial) VanillaMaterials.getMaterial(type, dat);
-							world.getChunkFromBlock(x, y, z).getBlock(x, y, z).setMaterial(material);
-						}
-					}
-				}
+			if (data[i] != null) {
+				ChunkSectionLoader.load(world, rm, message.getX(), i, message.getZ(), data[i]);
 			}
 		}
 	}
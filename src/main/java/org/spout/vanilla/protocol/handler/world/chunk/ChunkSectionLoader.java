@@ -0,0 +1,137 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.handler.world.chunk;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.material.Material;
+import org.spout.api.protocol.reposition.RepositionManager;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+/**
+ * Applies the sections received by the client to the world<br>
+ * A section is decoded into a buffer in one pass over its id and data arrays, through a palette from
+ * Minecraft id and data to material, then committed to its chunk in a single operation.
+ */
+public final class ChunkSectionLoader {
+	private static final int PALETTE_SIZE = 256 << 4;
+	// Materials by Minecraft id << 4 | data, filled in as they are met
+	private static final BlockMaterial[] palette = new BlockMaterial[PALETTE_SIZE];
+	private static final AtomicLong sections = new AtomicLong();
+	private static final AtomicLong nanos = new AtomicLong();
+
+	private ChunkSectionLoader() {
+	}
+
+	/**
+	 * Applies the blocks of a section to the world, replacing all blocks of the chunk
+	 * @param world to apply to
+	 * @param rm to convert the protocol coordinates with
+	 * @param x of the section, in protocol chunk coordinates
+	 * @param y of the section, in protocol chunk coordinates
+	 * @param z of the section, in protocol chunk coordinates
+	 * @param data of the section, block ids followed by the data nibbles
+	 */
+	public static void load(World world, RepositionManager rm, int x, int y, int z, byte[] data) {
+		final long start = System.nanoTime();
+		final int baseX = rm.convertX(x << Chunk.BLOCKS.BITS);
+		final int baseY = rm.convertY(y << Chunk.BLOCKS.BITS);
+		final int baseZ = rm.convertZ(z << Chunk.BLOCKS.BITS);
+		if (((baseX | baseY | baseZ) & Chunk.BLOCKS.MASK) != 0) {
+			// The section does not map onto a single chunk
+			loadBlocks(world, rm, x, y, z, data);
+		} else {
+			final CuboidBlockMaterialBuffer buffer = new CuboidBlockMaterialBuffer(baseX, baseY, baseZ, Chunk.BLOCKS.SIZE, Chunk.BLOCKS.SIZE, Chunk.BLOCKS.SIZE);
+			for (int index = 0; index < Chunk.BLOCKS.VOLUME; index++) {
+				final BlockMaterial material = getMaterial(data, index);
+				buffer.set(baseX + (index & Chunk.BLOCKS.MASK), baseY + (index >> 8), baseZ + (index >> 4 & Chunk.BLOCKS.MASK), material.getId(), material.getData());
+			}
+			world.getChunkFromBlock(baseX, baseY, baseZ).setCuboid(buffer, null);
+		}
+		sections.incrementAndGet();
+		nanos.addAndGet(System.nanoTime() - start);
+	}
+
+	private static void loadBlocks(World world, RepositionManager rm, int x, int y, int z, byte[] data) {
+		for (int index = 0; index < Chunk.BLOCKS.VOLUME; index++) {
+			final BlockMaterial material = getMaterial(data, index);
+			final int bx = rm.convertX((x << Chunk.BLOCKS.BITS) + (index & Chunk.BLOCKS.MASK));
+			final int by = rm.convertY((y << Chunk.BLOCKS.BITS) + (index >> 8));
+			final int bz = rm.convertZ((z << Chunk.BLOCKS.BITS) + (index >> 4 & Chunk.BLOCKS.MASK));
+			world.setBlockMaterial(bx, by, bz, material, material.getData(), null);
+		}
+	}
+
+	/**
+	 * Gets the material of a block of a section, blocks are indexed by y << 8 | z << 4 | x
+	 * and the data of even indices is held in the low nibble
+	 * @param data of the section
+	 * @param index of the block
+	 * @return the material, air if unknown
+	 */
+	private static BlockMaterial getMaterial(byte[] data, int index) {
+		final int id = data[index] & 0xFF;
+		final int nibbles = data[Chunk.BLOCKS.VOLUME + (index >> 1)];
+		final int blockData = ((index & 1) == 0 ? nibbles : nibbles >> 4) & 0xF;
+		final int key = id << 4 | blockData;
+		BlockMaterial material = palette[key];
+		if (material == null) {
+			material = VanillaMaterials.AIR;
+			Material base = id == 0 ? null : VanillaMaterials.getMaterial((short) id);
+			if (base != null) {
+				Material sub = base.getSubMaterial((short) blockData);
+				if (sub instanceof BlockMaterial) {
+					material = (BlockMaterial) sub;
+				}
+			}
+			palette[key] = material;
+		}
+		return material;
+	}
+
+	/**
+	 * Gets the number of sections applied to the world
+	 * @return the number of sections
+	 */
+	public static long getSections() {
+		return sections.get();
+	}
+
+	/**
+	 * Gets the number of sections applied per second spent applying sections
+	 * @return the sections per second
+	 */
+	public static double getSectionsPerSecond() {
+		final long time = nanos.get();
+		return time == 0 ? 0 : sections.get() * 1000000000D / time;
+	}
+}
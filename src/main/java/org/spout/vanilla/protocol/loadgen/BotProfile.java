@@ -0,0 +1,116 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.loadgen;
+
+import java.util.Random;
+
+/**
+ * Scripted behaviours of the bots started by a {@link LoadGenerator}<br>
+ * Every tick a spawned bot sends its position, walking if the profile walks, and performs an action
+ * with a probability given by the actions per second, chosen by the weights of the profile.
+ */
+public enum BotProfile {
+	/**
+	 * Stands still, only answering keep alives and sending its position
+	 */
+	IDLE(false, 0, 0, 0, 0, 0),
+	/**
+	 * Walks around the spawn point and chats now and then
+	 */
+	WALKER(true, 0.2, 0, 0, 1, 0),
+	/**
+	 * Stays in place, digging and placing blocks around its feet
+	 */
+	BUILDER(false, 4, 4, 4, 0, 1),
+	/**
+	 * Stays in place and chats
+	 */
+	CHATTER(false, 1, 0, 0, 1, 0),
+	/**
+	 * Walks, digs, places, chats and clicks in its inventory window
+	 */
+	MIXED(true, 2, 3, 3, 1, 2);
+	private final boolean walking;
+	private final double actionsPerSecond;
+	private final int[] weights;
+	private final int totalWeight;
+
+	private BotProfile(boolean walking, double actionsPerSecond, int dig, int place, int chat, int window) {
+		this.walking = walking;
+		this.actionsPerSecond = actionsPerSecond;
+		this.weights = new int[]{dig, place, chat, window};
+		this.totalWeight = dig + place + chat + window;
+	}
+
+	public boolean isWalking() {
+		return walking;
+	}
+
+	public double getActionsPerSecond() {
+		return actionsPerSecond;
+	}
+
+	/**
+	 * Picks the action to perform this tick
+	 * @param random to use
+	 * @return the action, or null if the bot does nothing
+	 */
+	public Action nextAction(Random random) {
+		if (totalWeight == 0 || random.nextDouble() >= actionsPerSecond / 20) {
+			return null;
+		}
+		int pick = random.nextInt(totalWeight);
+		for (int i = 0; i < weights.length; i++) {
+			pick -= weights[i];
+			if (pick < 0) {
+				return Action.values()[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets a profile by name, ignoring case
+	 * @param name of the profile
+	 * @return the profile, or null if unknown
+	 */
+	public static BotProfile get(String name) {
+		for (BotProfile profile : values()) {
+			if (profile.name().equalsIgnoreCase(name)) {
+				return profile;
+			}
+		}
+		return null;
+	}
+
+	public static enum Action {
+		DIG,
+		PLACE,
+		CHAT,
+		WINDOW;
+	}
+}
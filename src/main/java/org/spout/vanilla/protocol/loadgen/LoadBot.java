@@ -0,0 +1,448 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.loadgen;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.crypto.AsymmetricBlockCipher;
+import org.bouncycastle.crypto.BufferedBlockCipher;
+import org.bouncycastle.crypto.encodings.PKCS1Encoding;
+import org.bouncycastle.crypto.engines.AESFastEngine;
+import org.bouncycastle.crypto.engines.RSAEngine;
+import org.bouncycastle.crypto.modes.CFBBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.crypto.util.PublicKeyFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import org.spout.api.material.block.BlockFace;
+import org.spout.api.math.Vector3;
+import org.spout.api.protocol.CodecLookupService;
+import org.spout.api.protocol.Message;
+import org.spout.api.protocol.MessageCodec;
+import org.spout.api.protocol.reposition.NullRepositionManager;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.protocol.msg.auth.EncryptionKeyRequestMessage;
+import org.spout.vanilla.protocol.msg.auth.EncryptionKeyResponseMessage;
+import org.spout.vanilla.protocol.msg.player.PlayerBlockPlacementMessage;
+import org.spout.vanilla.protocol.msg.player.PlayerChatMessage;
+import org.spout.vanilla.protocol.msg.player.PlayerDiggingMessage;
+import org.spout.vanilla.protocol.msg.player.PlayerStatusMessage;
+import org.spout.vanilla.protocol.msg.player.PlayerTimeMessage;
+import org.spout.vanilla.protocol.msg.player.conn.PlayerHandshakeMessage;
+import org.spout.vanilla.protocol.msg.player.conn.PlayerKickMessage;
+import org.spout.vanilla.protocol.msg.player.conn.PlayerPingMessage;
+import org.spout.vanilla.protocol.msg.player.pos.PlayerPositionLookMessage;
+import org.spout.vanilla.protocol.msg.window.WindowClickMessage;
+import org.spout.vanilla.protocol.msg.window.WindowCloseMessage;
+import org.spout.vanilla.protocol.msg.window.WindowTransactionMessage;
+import org.spout.vanilla.protocol.msg.world.block.BlockChangeMessage;
+
+/**
+ * A headless client logging into a server in offline mode over a plain socket, using the Vanilla codecs<br>
+ * The bot answers keep alives and position corrections on its reader thread,
+ * and performs the actions of its {@link BotProfile} each time {@link #tick()} is called.
+ */
+public class LoadBot implements Runnable {
+	private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+	private static final double WALK_SPEED = 0.2;
+	private static final int WALK_RADIUS = 16;
+	private static final int ACTION_RANGE = 2;
+	private static final AtomicInteger chatCounter = new AtomicInteger();
+	private final CodecLookupService codecs;
+	private final LoadStatistics stats;
+	private final String host;
+	private final int port;
+	private final String name;
+	private final BotProfile profile;
+	private final Random random;
+	// Actions waiting for an answer, keyed by block position, window transaction or chat token
+	private final ConcurrentMap<Object, Pending> pending = new ConcurrentHashMap<Object, Pending>();
+	private final Object sendLock = new Object();
+	private final byte[] sharedSecret = new byte[16];
+	private volatile Socket socket = null;
+	private volatile boolean running = true;
+	private volatile boolean spawned = false;
+	private OutputStream out = null;
+	private BufferedBlockCipher encrypt = null;
+	private BufferedBlockCipher decrypt = null;
+	private double x, y, z, stance, originX, originZ;
+	private float yaw, pitch;
+	private long lastAge = -1;
+	private long lastAgeNanos;
+	private int transaction = 0;
+
+	public LoadBot(CodecLookupService codecs, LoadStatistics stats, String host, int port, String name, BotProfile profile, long seed) {
+		this.codecs = codecs;
+		this.stats = stats;
+		this.host = host;
+		this.port = port;
+		this.name = name;
+		this.profile = profile;
+		this.random = new Random(seed);
+		new SecureRandom().nextBytes(sharedSecret);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Connects, logs in and reads messages until the connection is closed
+	 */
+	@Override
+	public void run() {
+		boolean connected = false;
+		try {
+			Socket socket = new Socket();
+			socket.setTcpNoDelay(true);
+			socket.connect(new InetSocketAddress(host, port), 10000);
+			this.socket = socket;
+			synchronized (sendLock) {
+				out = new BufferedOutputStream(socket.getOutputStream());
+			}
+			stats.onConnect();
+			connected = true;
+			send(new PlayerHandshakeMessage((byte) VanillaPlugin.MINECRAFT_PROTOCOL_ID, name, host, port));
+			read(socket.getInputStream());
+		} catch (IOException e) {
+			if (running) {
+				stats.onFailure();
+				System.err.println(name + " disconnected: " + e.getMessage());
+			}
+		} finally {
+			running = false;
+			close();
+			if (connected) {
+				stats.onDisconnect(spawned);
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection, the reader thread exits once the socket is closed
+	 */
+	public void stop() {
+		running = false;
+		close();
+	}
+
+	/**
+	 * Sends the position of the bot and performs the next scripted action, called once per server tick
+	 */
+	public void tick() {
+		if (!running || !spawned) {
+			return;
+		}
+		final long now = System.nanoTime();
+		Iterator<Map.Entry<Object, Pending>> iter = pending.entrySet().iterator();
+		while (iter.hasNext()) {
+			Pending entry = iter.next().getValue();
+			if (now - entry.sent > TIMEOUT) {
+				iter.remove();
+				stats.recordTimeout(entry.action);
+			}
+		}
+		try {
+			move();
+			BotProfile.Action action = profile.nextAction(random);
+			if (action != null) {
+				switch (action) {
+					case DIG:
+						dig();
+						break;
+					case PLACE:
+						place();
+						break;
+					case CHAT:
+						chat();
+						break;
+					case WINDOW:
+						clickWindow();
+						break;
+				}
+			}
+		} catch (IOException e) {
+			System.err.println(name + " failed to send: " + e.getMessage());
+			stop();
+		}
+	}
+
+	private void move() throws IOException {
+		final PlayerPositionLookMessage message;
+		synchronized (this) {
+			if (profile.isWalking()) {
+				if (random.nextInt(40) == 0) {
+					yaw += random.nextFloat() * 90 - 45;
+				}
+				double dx = originX - x;
+				double dz = originZ - z;
+				if (dx * dx + dz * dz > WALK_RADIUS * WALK_RADIUS) {
+					yaw = (float) Math.toDegrees(Math.atan2(-dx, dz));
+				}
+				double radians = Math.toRadians(yaw);
+				x -= Math.sin(radians) * WALK_SPEED;
+				z += Math.cos(radians) * WALK_SPEED;
+			}
+			message = new PlayerPositionLookMessage(x, y, z, stance, yaw, pitch, true, NullRepositionManager.getInstance());
+		}
+		send(message);
+	}
+
+	private void dig() throws IOException {
+		int[] target = getTarget();
+		expect(getKey(target[0], target[1], target[2]), "dig");
+		send(new PlayerDiggingMessage(PlayerDiggingMessage.STATE_START_DIGGING, target[0], target[1], target[2], BlockFace.TOP, NullRepositionManager.getInstance()));
+		send(new PlayerDiggingMessage(PlayerDiggingMessage.STATE_DONE_DIGGING, target[0], target[1], target[2], BlockFace.TOP, NullRepositionManager.getInstance()));
+	}
+
+	private void place() throws IOException {
+		int[] target = getTarget();
+		expect(getKey(target[0], target[1] + 1, target[2]), "place");
+		send(new PlayerBlockPlacementMessage(target[0], target[1], target[2], BlockFace.TOP, new Vector3(0.5f, 1f, 0.5f), NullRepositionManager.getInstance()));
+	}
+
+	private void chat() throws IOException {
+		String token = name + "#" + chatCounter.incrementAndGet();
+		expect(token, "chat");
+		send(new PlayerChatMessage("load test " + token));
+	}
+
+	private void clickWindow() throws IOException {
+		// Picks up an item of the inventory and puts it back, the server confirms every click
+		int slot = 9 + random.nextInt(27);
+		int first = nextTransaction();
+		expect(Integer.valueOf(first), "window");
+		send(new WindowClickMessage(0, slot, (byte) 0, first, (byte) 0));
+		send(new WindowClickMessage(0, slot, (byte) 0, nextTransaction(), (byte) 0));
+		send(new WindowCloseMessage(0));
+	}
+
+	private int nextTransaction() {
+		transaction = (transaction + 1) & 0x7FFF;
+		return transaction;
+	}
+
+	/**
+	 * Gets a random block below the feet of the bot
+	 * @return the block coordinates
+	 */
+	private int[] getTarget() {
+		synchronized (this) {
+			int bx = (int) Math.floor(x) + random.nextInt(ACTION_RANGE * 2 + 1) - ACTION_RANGE;
+			int by = (int) Math.floor(y) - 1;
+			int bz = (int) Math.floor(z) + random.nextInt(ACTION_RANGE * 2 + 1) - ACTION_RANGE;
+			return new int[]{bx, by, bz};
+		}
+	}
+
+	private void expect(Object key, String action) {
+		pending.put(key, new Pending(action, System.nanoTime()));
+	}
+
+	private void answer(Object key) {
+		Pending entry = pending.remove(key);
+		if (entry != null) {
+			stats.recordLatency(entry.action, System.nanoTime() - entry.sent);
+		}
+	}
+
+	private static Long getKey(int x, int y, int z) {
+		return Long.valueOf(((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF));
+	}
+
+	private void read(InputStream in) throws IOException {
+		final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(1 << 16);
+		final byte[] chunk = new byte[1 << 16];
+		int read;
+		while (running && (read = in.read(chunk)) != -1) {
+			if (decrypt != null) {
+				decrypt.processBytes(chunk, 0, read, chunk, 0);
+			}
+			buffer.writeBytes(chunk, 0, read);
+			while (buffer.readable()) {
+				final int start = buffer.readerIndex();
+				final int opcode = buffer.readUnsignedByte();
+				MessageCodec<?> codec = codecs.find(opcode);
+				if (codec == null) {
+					throw new IOException("Unknown opcode 0x" + Integer.toHexString(opcode));
+				}
+				Message message;
+				try {
+					message = codec.decode(false, buffer);
+				} catch (IndexOutOfBoundsException e) {
+					// The message is not complete yet
+					buffer.readerIndex(start);
+					break;
+				}
+				stats.recordIn(opcode, buffer.readerIndex() - start);
+				handle(message, buffer);
+			}
+			buffer.discardReadBytes();
+		}
+	}
+
+	private void handle(Message message, ChannelBuffer buffer) throws IOException {
+		if (message instanceof EncryptionKeyRequestMessage) {
+			EncryptionKeyRequestMessage request = (EncryptionKeyRequestMessage) message;
+			AsymmetricBlockCipher cipher = new PKCS1Encoding(new RSAEngine());
+			cipher.init(true, PublicKeyFactory.createKey(request.getSecretArray()));
+			try {
+				byte[] secret = cipher.processBlock(sharedSecret, 0, sharedSecret.length);
+				byte[] token = cipher.processBlock(request.getVerifyTokenArray(), 0, request.getVerifyTokenArray().length);
+				send(new EncryptionKeyResponseMessage(false, secret, token));
+			} catch (Exception e) {
+				throw new IOException("Unable to encrypt the shared secret", e);
+			}
+			synchronized (sendLock) {
+				encrypt = createCipher(true);
+			}
+		} else if (message instanceof EncryptionKeyResponseMessage) {
+			// Everything after this message is encrypted, including what was already read
+			decrypt = createCipher(false);
+			int remaining = buffer.readableBytes();
+			if (remaining > 0) {
+				byte[] rest = new byte[remaining];
+				buffer.getBytes(buffer.readerIndex(), rest);
+				decrypt.processBytes(rest, 0, remaining, rest, 0);
+				buffer.setBytes(buffer.readerIndex(), rest);
+			}
+			send(new PlayerStatusMessage(PlayerStatusMessage.INITIAL_SPAWN));
+		} else if (message instanceof PlayerPingMessage) {
+			send(new PlayerPingMessage(((PlayerPingMessage) message).getPingId()));
+		} else if (message instanceof PlayerPositionLookMessage) {
+			PlayerPositionLookMessage position = (PlayerPositionLookMessage) message;
+			synchronized (this) {
+				x = position.getX();
+				y = position.getY();
+				z = position.getZ();
+				stance = position.getStance();
+				yaw = position.getYaw();
+				pitch = position.getPitch();
+				if (!spawned) {
+					originX = x;
+					originZ = z;
+				}
+			}
+			send(position);
+			if (!spawned) {
+				spawned = true;
+				stats.onSpawn();
+			}
+		} else if (message instanceof PlayerTimeMessage) {
+			long age = ((PlayerTimeMessage) message).getAge();
+			long now = System.nanoTime();
+			if (lastAge >= 0 && age > lastAge && now > lastAgeNanos) {
+				stats.recordTps((age - lastAge) * 1E9D / (now - lastAgeNanos));
+			}
+			lastAge = age;
+			lastAgeNanos = now;
+		} else if (message instanceof BlockChangeMessage) {
+			BlockChangeMessage change = (BlockChangeMessage) message;
+			answer(getKey(change.getX(), change.getY(), change.getZ()));
+		} else if (message instanceof WindowTransactionMessage) {
+			answer(Integer.valueOf(((WindowTransactionMessage) message).getTransaction()));
+		} else if (message instanceof PlayerChatMessage) {
+			String text = ((PlayerChatMessage) message).getMessage();
+			for (Object key : pending.keySet()) {
+				if (key instanceof String && text.contains((String) key)) {
+					answer(key);
+					break;
+				}
+			}
+		} else if (message instanceof PlayerKickMessage) {
+			stats.onKick();
+			System.err.println(name + " was kicked: " + ((PlayerKickMessage) message).getReason());
+			stop();
+		}
+	}
+
+	private BufferedBlockCipher createCipher(boolean encrypting) {
+		BufferedBlockCipher cipher = new BufferedBlockCipher(new CFBBlockCipher(new AESFastEngine(), 8));
+		cipher.init(encrypting, new ParametersWithIV(new KeyParameter(sharedSecret), sharedSecret));
+		return cipher;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Message> void send(T message) throws IOException {
+		MessageCodec<T> codec = (MessageCodec<T>) codecs.find(message.getClass());
+		ChannelBuffer payload = codec.encode(true, message);
+		byte[] data = new byte[payload.readableBytes() + 1];
+		data[0] = (byte) codec.getOpcode();
+		payload.getBytes(payload.readerIndex(), data, 1, data.length - 1);
+		synchronized (sendLock) {
+			if (out == null) {
+				throw new IOException("Not connected");
+			}
+			if (encrypt != null) {
+				encrypt.processBytes(data, 0, data.length, data, 0);
+			}
+			out.write(data);
+			out.flush();
+		}
+		stats.recordOut(codec.getOpcode(), data.length);
+	}
+
+	private void close() {
+		Socket socket = this.socket;
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	private static final class Pending {
+		private final String action;
+		private final long sent;
+
+		private Pending(String action, long sent) {
+			this.action = action;
+			this.sent = sent;
+		}
+	}
+}
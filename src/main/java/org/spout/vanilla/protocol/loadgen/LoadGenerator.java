@@ -0,0 +1,179 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.spout.vanilla.protocol.VanillaCodecLookupService;
+import org.spout.vanilla.protocol.VanillaProtocol;
+
+/**
+ * Starts a swarm of {@link LoadBot}s against a server, reporting traffic, latencies and the server tick rate<br>
+ * Run it with the server classpath, against a server in offline mode:<br>
+ * <code>java -cp ... org.spout.vanilla.protocol.loadgen.LoadGenerator host[:port] bots [profile] [seconds] [ramp-up ms]</code>
+ */
+public class LoadGenerator {
+	private static final int REPORT_INTERVAL = 10;
+	private final VanillaCodecLookupService codecs = new VanillaCodecLookupService();
+	private final LoadStatistics stats = new LoadStatistics();
+	private final List<LoadBot> bots = new ArrayList<LoadBot>();
+	private final String host;
+	private final int port;
+	private final BotProfile profile;
+	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Load generator #" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private long startTime;
+
+	public LoadGenerator(String host, int port, BotProfile profile) {
+		this.host = host;
+		this.port = port;
+		this.profile = profile;
+	}
+
+	public LoadStatistics getStatistics() {
+		return stats;
+	}
+
+	/**
+	 * Starts the bots, one every rampUp milliseconds, and ticks all spawned bots 20 times per second
+	 * @param count of bots
+	 * @param rampUp delay between two logins in milliseconds
+	 * @throws InterruptedException if interrupted while ramping up
+	 */
+	public void start(int count, long rampUp) throws InterruptedException {
+		startTime = System.nanoTime();
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				LoadBot[] snapshot;
+				synchronized (bots) {
+					snapshot = bots.toArray(new LoadBot[bots.size()]);
+				}
+				for (LoadBot bot : snapshot) {
+					bot.tick();
+				}
+			}
+		}, 50, 50, TimeUnit.MILLISECONDS);
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				report(false);
+			}
+		}, REPORT_INTERVAL, REPORT_INTERVAL, TimeUnit.SECONDS);
+
+		for (int i = 0; i < count; i++) {
+			LoadBot bot = new LoadBot(codecs, stats, host, port, "Bot" + i, profile, i);
+			synchronized (bots) {
+				bots.add(bot);
+			}
+			Thread thread = new Thread(bot, "Load bot " + bot.getName());
+			thread.setDaemon(true);
+			thread.start();
+			if (rampUp > 0) {
+				Thread.sleep(rampUp);
+			}
+		}
+	}
+
+	/**
+	 * Disconnects all bots and prints the final report
+	 */
+	public void stop() {
+		scheduler.shutdownNow();
+		synchronized (bots) {
+			for (LoadBot bot : bots) {
+				bot.stop();
+			}
+		}
+		report(true);
+	}
+
+	private void report(boolean full) {
+		double seconds = Math.max(1E-3, (System.nanoTime() - startTime) / 1E9D);
+		double[] tps = stats.drainTps();
+		int started;
+		synchronized (bots) {
+			started = bots.size();
+		}
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("[%.0fs] %d/%d spawned, in %.1f KiB/s, out %.1f KiB/s", seconds, stats.getSpawned(), started, stats.getBytesIn() / (seconds * 1024), stats.getBytesOut() / (seconds * 1024)));
+		if (tps != null) {
+			builder.append(String.format(", server TPS avg %.2f min %.2f", tps[0], tps[1]));
+		}
+		System.out.println(builder);
+		if (full) {
+			System.out.print(stats.getReport(codecs, seconds));
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 2) {
+			System.out.println("Usage: LoadGenerator <host[:port]> <bots> [idle|walker|builder|chatter|mixed] [seconds] [ramp-up ms]");
+			return;
+		}
+		String host = args[0];
+		int port = VanillaProtocol.DEFAULT_PORT;
+		int colon = host.lastIndexOf(':');
+		if (colon >= 0) {
+			port = Integer.parseInt(host.substring(colon + 1));
+			host = host.substring(0, colon);
+		}
+		int count = Integer.parseInt(args[1]);
+		BotProfile profile = args.length > 2 ? BotProfile.get(args[2]) : BotProfile.MIXED;
+		if (profile == null) {
+			System.out.println("Unknown profile " + args[2]);
+			return;
+		}
+		long seconds = args.length > 3 ? Long.parseLong(args[3]) : 60;
+		long rampUp = args.length > 4 ? Long.parseLong(args[4]) : 100;
+
+		final LoadGenerator generator = new LoadGenerator(host, port, profile);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				generator.stop();
+			}
+		});
+		generator.start(count, rampUp);
+		Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+		System.exit(0);
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.loadgen;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.spout.api.protocol.CodecLookupService;
+import org.spout.api.protocol.MessageCodec;
+
+/**
+ * Counters shared by all bots of a {@link LoadGenerator}<br>
+ * Traffic is counted per opcode and direction, latencies per bot action.
+ */
+public class LoadStatistics {
+	private final AtomicLongArray messagesIn = new AtomicLongArray(256);
+	private final AtomicLongArray bytesIn = new AtomicLongArray(256);
+	private final AtomicLongArray messagesOut = new AtomicLongArray(256);
+	private final AtomicLongArray bytesOut = new AtomicLongArray(256);
+	private final ConcurrentMap<String, Latency> latencies = new ConcurrentHashMap<String, Latency>();
+	private final AtomicInteger connected = new AtomicInteger();
+	private final AtomicInteger spawned = new AtomicInteger();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong kicks = new AtomicLong();
+	private final AtomicLong tpsSamples = new AtomicLong();
+	private final AtomicLong tpsTotal = new AtomicLong();
+	private final AtomicLong tpsMin = new AtomicLong(Long.MAX_VALUE);
+
+	public void recordIn(int opcode, int bytes) {
+		messagesIn.incrementAndGet(opcode);
+		bytesIn.addAndGet(opcode, bytes);
+	}
+
+	public void recordOut(int opcode, int bytes) {
+		messagesOut.incrementAndGet(opcode);
+		bytesOut.addAndGet(opcode, bytes);
+	}
+
+	/**
+	 * Records the time between a bot action and the server message answering it
+	 * @param action name
+	 * @param nanos elapsed
+	 */
+	public void recordLatency(String action, long nanos) {
+		getLatency(action).record(nanos);
+	}
+
+	/**
+	 * Records a bot action the server never answered
+	 * @param action name
+	 */
+	public void recordTimeout(String action) {
+		getLatency(action).timeouts.incrementAndGet();
+	}
+
+	/**
+	 * Records a server tick rate, as measured by a bot from the world age sent by the server
+	 * @param tps measured
+	 */
+	public void recordTps(double tps) {
+		long value = Math.round(tps * 100);
+		tpsSamples.incrementAndGet();
+		tpsTotal.addAndGet(value);
+		long min;
+		while (value < (min = tpsMin.get()) && !tpsMin.compareAndSet(min, value)) {
+		}
+	}
+
+	public void onConnect() {
+		connected.incrementAndGet();
+	}
+
+	public void onSpawn() {
+		spawned.incrementAndGet();
+	}
+
+	public void onDisconnect(boolean wasSpawned) {
+		connected.decrementAndGet();
+		if (wasSpawned) {
+			spawned.decrementAndGet();
+		}
+	}
+
+	public void onFailure() {
+		failures.incrementAndGet();
+	}
+
+	public void onKick() {
+		kicks.incrementAndGet();
+	}
+
+	public int getConnected() {
+		return connected.get();
+	}
+
+	public int getSpawned() {
+		return spawned.get();
+	}
+
+	public long getBytesIn() {
+		return sum(bytesIn);
+	}
+
+	public long getBytesOut() {
+		return sum(bytesOut);
+	}
+
+	/**
+	 * Gets the average and lowest server tick rates measured since the last call, and starts a new measurement
+	 * @return the average and lowest tick rate, or null if no bot measured it
+	 */
+	public double[] drainTps() {
+		long samples = tpsSamples.getAndSet(0);
+		long total = tpsTotal.getAndSet(0);
+		long min = tpsMin.getAndSet(Long.MAX_VALUE);
+		if (samples == 0) {
+			return null;
+		}
+		return new double[]{total / (samples * 100D), min / 100D};
+	}
+
+	/**
+	 * Builds a summary of everything recorded so far
+	 * @param codecs used to name the opcodes
+	 * @param seconds since the bots were started
+	 * @return the report lines
+	 */
+	public String getReport(CodecLookupService codecs, double seconds) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Bots: %d connected, %d spawned, %d failed, %d kicked%n", connected.get(), spawned.get(), failures.get(), kicks.get()));
+		builder.append(String.format("Traffic: in %.1f KiB/s, out %.1f KiB/s%n", getBytesIn() / (seconds * 1024), getBytesOut() / (seconds * 1024)));
+		for (int opcode = 0; opcode < 256; opcode++) {
+			long in = messagesIn.get(opcode);
+			long out = messagesOut.get(opcode);
+			if (in == 0 && out == 0) {
+				continue;
+			}
+			builder.append(String.format("  %-32s in %8d msgs %10d B  out %8d msgs %10d B%n", getName(codecs, opcode), in, bytesIn.get(opcode), out, bytesOut.get(opcode)));
+		}
+		Map<String, Latency> sorted = new TreeMap<String, Latency>(latencies);
+		for (Map.Entry<String, Latency> entry : sorted.entrySet()) {
+			builder.append(String.format("Latency %-8s %s%n", entry.getKey(), entry.getValue()));
+		}
+		return builder.toString();
+	}
+
+	private Latency getLatency(String action) {
+		Latency latency = latencies.get(action);
+		if (latency == null) {
+			latency = new Latency();
+			Latency old = latencies.putIfAbsent(action, latency);
+			if (old != null) {
+				latency = old;
+			}
+		}
+		return latency;
+	}
+
+	private static long sum(AtomicLongArray array) {
+		long sum = 0;
+		for (int i = 0; i < array.length(); i++) {
+			sum += array.get(i);
+		}
+		return sum;
+	}
+
+	private static String getName(CodecLookupService codecs, int opcode) {
+		MessageCodec<?> codec = codecs.find(opcode);
+		String name = codec == null ? "Unknown" : codec.getType().getSimpleName();
+		return String.format("0x%02X %s", opcode, name);
+	}
+
+	/**
+	 * Latency histogram with power of two microsecond buckets
+	 */
+	private static class Latency {
+		private final AtomicLongArray buckets = new AtomicLongArray(40);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong total = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+		private final AtomicLong timeouts = new AtomicLong();
+
+		private void record(long nanos) {
+			long micros = Math.max(0, nanos / 1000);
+			buckets.incrementAndGet(Math.min(buckets.length() - 1, 64 - Long.numberOfLeadingZeros(micros)));
+			count.incrementAndGet();
+			total.addAndGet(nanos);
+			long old;
+			while (nanos > (old = max.get()) && !max.compareAndSet(old, nanos)) {
+			}
+		}
+
+		/**
+		 * Gets the upper bound of the bucket holding the given percentile
+		 * @param percentile between 0 and 1
+		 * @return the latency in milliseconds
+		 */
+		private double getPercentile(double percentile) {
+			long target = (long) Math.ceil(count.get() * percentile);
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen >= target) {
+					return (1L << i) / 1000D;
+				}
+			}
+			return max.get() / 1000000D;
+		}
+
+		@Override
+		public String toString() {
+			long n = count.get();
+			double average = n == 0 ? 0 : total.get() / (n * 1000000D);
+			return String.format("%8d answered, avg %.1f ms, p50 <%.1f ms, p99 <%.1f ms, max %.1f ms, %d timed out", n, average, getPercentile(0.5), getPercentile(0.99), max.get() / 1000000D, timeouts.get());
+		}
+	}
+}
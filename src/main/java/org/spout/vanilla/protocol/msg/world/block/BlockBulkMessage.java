@@ -46,15 +46,20 @@ public final class BlockBulkMessage extends VanillaBlockDataChannelMessage {
 	 * @param coordinates An array of change coordinates. Length should be 3 * types.length, with coordinates in x y z format
 	 * @param types An array of block types
 	 * @param metadata An array of block metadata. No more than a nibble per entry
+	 * @param rm The reposition manager converting the y coordinates
 	 */
 	public BlockBulkMessage(int chunkX, int chunkZ, short[] coordinates, short[] types, byte[] metadata, RepositionManager rm) {
 		if (coordinates.length != (types.length * 3) || types.length != metadata.length) {
 			throw new IllegalArgumentException();
 		}
-		// TODO - this message is broken anyway? - need to add reposition support + fix
 		this.chunkX = rm.convertChunkX(chunkX);
 		this.chunkZ = rm.convertChunkZ(chunkZ);
-		this.coordinates = coordinates;
+		this.coordinates = new short[coordinates.length];
+		for (int i = 0; i < coordinates.length; i += 3) {
+			this.coordinates[i] = coordinates[i];
+			this.coordinates[i + 1] = (short) rm.convertY(coordinates[i + 1]);
+			this.coordinates[i + 2] = coordinates[i + 2];
+		}
 		this.types = types;
 		this.metadata = metadata;
 	}
@@ -41,6 +41,7 @@ public final class ChunkBulkMessage extends VanillaBlockDataChannelMessage {
 	private final boolean[][] addData;
 	private final byte[][][] data;
 	private final byte[][] biomeData;
+	private final byte[] compressedData;
 
 	public ChunkBulkMessage(int[] x, int[] z, boolean[][] hasAdditionalData, byte[][][] data, byte[][] biomeData, RepositionManager rm) {
 		int l = x.length;
@@ -50,12 +51,31 @@ public final class ChunkBulkMessage extends VanillaBlockDataChannelMessage {
 		this.x = Arrays.copyOf(x, x.length);
 		this.z = Arrays.copyOf(z, z.length);
 		for (int i = 0; i < x.length; i++) {
-			x[i] = rm.convertChunkX(x[i]);
-			z[i] = rm.convertChunkZ(z[i]);
+			this.x[i] = rm.convertChunkX(x[i]);
+			this.z[i] = rm.convertChunkZ(z[i]);
 		}
 		this.addData = hasAdditionalData;
 		this.data = data;
 		this.biomeData = biomeData;
+		this.compressedData = null;
+	}
+
+	private ChunkBulkMessage(ChunkBulkMessage message, byte[] compressedData) {
+		this.x = message.x;
+		this.z = message.z;
+		this.addData = message.addData;
+		this.data = message.data;
+		this.biomeData = message.biomeData;
+		this.compressedData = compressedData;
+	}
+
+	/**
+	 * Creates a copy of this message carrying its column data already compressed, which the codec sends as is
+	 * @param compressedData of the columns
+	 * @return the new message
+	 */
+	public ChunkBulkMessage withCompressedData(byte[] compressedData) {
+		return new ChunkBulkMessage(this, compressedData);
 	}
 
 	public int[] getX() {
@@ -78,6 +98,14 @@ public final class ChunkBulkMessage extends VanillaBlockDataChannelMessage {
 		return biomeData;
 	}
 
+	/**
+	 * Gets the column data compressed ahead of encoding
+	 * @return the compressed data, or null if the codec has to compress it
+	 */
+	public byte[] getCompressedData() {
+		return compressedData;
+	}
+
 	@Override
 	public String toString() {
 		return new ToStringBuilder(this, SpoutToStringStyle.INSTANCE)
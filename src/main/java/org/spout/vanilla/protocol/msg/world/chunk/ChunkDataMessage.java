@@ -42,6 +42,8 @@ public final class ChunkDataMessage extends VanillaBlockDataChannelMessage {
 	private final byte[] biomeData;
 	private final boolean unload;
 	private final Session session;
+	private final String world;
+	private final byte[] compressedData;
 
 	public ChunkDataMessage(int x, int z, boolean contiguous, boolean[] hasAdditionalData, byte[][] data, byte[] biomeData, Session session, RepositionManager rm) {
 		this(x, z, contiguous, hasAdditionalData, data, biomeData, false, session, rm);
@@ -59,6 +61,31 @@ public final class ChunkDataMessage extends VanillaBlockDataChannelMessage {
 		this.biomeData = biomeData;
 		this.unload = unload;
 		this.session = session;
+		// Resolved while building, as the message may be compressed on another thread
+		this.world = session == null || session.getPlayer() == null ? null : session.getPlayer().getWorld().getName();
+		this.compressedData = null;
+	}
+
+	private ChunkDataMessage(ChunkDataMessage message, byte[] compressedData) {
+		this.x = message.x;
+		this.z = message.z;
+		this.contiguous = message.contiguous;
+		this.hasAdditionalData = message.hasAdditionalData;
+		this.data = message.data;
+		this.biomeData = message.biomeData;
+		this.unload = message.unload;
+		this.session = message.session;
+		this.world = message.world;
+		this.compressedData = compressedData;
+	}
+
+	/**
+	 * Creates a copy of this message carrying its column data already compressed, which the codec sends as is
+	 * @param compressedData of the column
+	 * @return the new message
+	 */
+	public ChunkDataMessage withCompressedData(byte[] compressedData) {
+		return new ChunkDataMessage(this, compressedData);
 	}
 
 	public int getX() {
@@ -93,6 +120,22 @@ public final class ChunkDataMessage extends VanillaBlockDataChannelMessage {
 		return session;
 	}
 
+	/**
+	 * Gets the name of the world of the player the message is sent to
+	 * @return the world name, or null if not sent to a player
+	 */
+	public String getWorld() {
+		return world;
+	}
+
+	/**
+	 * Gets the column data compressed ahead of encoding
+	 * @return the compressed data, or null if the codec has to compress it
+	 */
+	public byte[] getCompressedData() {
+		return compressedData;
+	}
+
 	@Override
 	public String toString() {
 		return new ToStringBuilder(this, SpoutToStringStyle.INSTANCE)
@@ -30,26 +30,27 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
-import com.google.common.collect.Sets;
-
 import org.spout.vanilla.data.configuration.VanillaConfiguration;
 
 public class ChunkNetCache implements Serializable {
 	private static final long serialVersionUID = 1L;
-	private final AtomicReference<byte[]> partitionCache = new AtomicReference<byte[]>();
-	private final Set<Long> hashSet;
+	private final AtomicReference<byte[]> outputCache = new AtomicReference<byte[]>();
+	private final int capacity;
+	private volatile LongClockSet hashSet = null;
 	private volatile boolean cacheEnabled = false;
 
 	public ChunkNetCache() {
-		this(Sets.newSetFromMap(new ConcurrentHashMap<Long, Boolean>()));
+		this(VanillaConfiguration.CHUNK_CACHE_CAPACITY.getInt());
 	}
 
-	public ChunkNetCache(Set<Long> hashSet) {
-		this.hashSet = hashSet;
+	/**
+	 * Creates a new cache
+	 * @param capacity of the client cache, in partitions
+	 */
+	public ChunkNetCache(int capacity) {
+		this.capacity = capacity;
 	}
 
 	public boolean isCacheEnabled() {
@@ -58,6 +59,11 @@ public class ChunkNetCache implements Serializable {
 
 	public void handleCustomPacket(String channel, byte[] array) {
 		if (VanillaConfiguration.USE_CHUNK_CACHE.getBoolean() && channel.equals("ChkCache:setHash")) {
+			synchronized (this) {
+				if (hashSet == null) {
+					hashSet = new LongClockSet(capacity);
+				}
+			}
 			cacheEnabled = true;
 			if (array != null) {
 				DataInputStream din = new DataInputStream(new ByteArrayInputStream(array));
@@ -72,43 +78,77 @@ public class ChunkNetCache implements Serializable {
 		}
 	}
 
-	public byte[] handle(byte[] inflatedBuffer) {
-
-		byte[] partition = partitionCache.getAndSet(null);
-
-		if (partition == null) {
-			partition = new byte[2048];
+	/**
+	 * Gets the length of the data returned by {@link #handle(byte[], int)}
+	 * @param dataLength of the uncompressed chunk data
+	 * @return the length of the encoded data
+	 */
+	public static int getEncodedLength(int dataLength) {
+		int segments = dataLength >> 11;
+		if ((dataLength & 0x7FF) != 0) {
+			segments++;
 		}
+		return dataLength + (segments << 3) + 8 + 4 + 1;
+	}
 
+	/**
+	 * Replaces the partitions the client already has by their hashes<br>
+	 * The returned array is reused, it should be handed back through {@link #release(byte[])} once compressed.
+	 * @param inflatedBuffer the uncompressed chunk data
+	 * @param dataLength of the uncompressed chunk data
+	 * @return the encoded data, of {@link #getEncodedLength(int)} bytes, or the chunk data if the cache is disabled
+	 */
+	public byte[] handle(byte[] inflatedBuffer, int dataLength) {
 		if (!cacheEnabled) {
 			return inflatedBuffer;
 		}
 
-		int dataLength = inflatedBuffer.length;
 		int segments = dataLength >> 11;
 		if ((dataLength & 0x7FF) != 0) {
 			segments++;
 		}
 
-		int newLength = dataLength + (segments << 3) + 8 + 4 + 1;
+		int newLength = getEncodedLength(dataLength);
 
-		byte[] newBuffer = new byte[newLength];
+		byte[] newBuffer = outputCache.getAndSet(null);
+		if (newBuffer == null || newBuffer.length < newLength) {
+			newBuffer = new byte[newLength];
+		}
 
 		for (int i = 0; i < segments; i++) {
-			PartitionChunk.copyFromChunkData(inflatedBuffer, i, partition, inflatedBuffer.length);
-			long hash = PartitionChunk.hash(partition);
+			long hash = PartitionChunk.hashPartition(inflatedBuffer, i, dataLength);
 			if (hashSet.add(hash)) {
-				PartitionChunk.copyToChunkData(newBuffer, i, partition, dataLength);
+				int off = i << 11;
+				System.arraycopy(inflatedBuffer, off, newBuffer, off, Math.min(2048, dataLength - off));
+				PartitionChunk.setHash(newBuffer, i, 0L, dataLength);
 			} else {
+				PartitionChunk.copyToChunkData(newBuffer, i, null, dataLength);
 				PartitionChunk.setHash(newBuffer, i, hash, dataLength);
 			}
 		}
-		long crc = PartitionChunk.hash(inflatedBuffer);
+		long crc = PartitionChunk.hash(inflatedBuffer, 0, dataLength);
 		PartitionChunk.setHash(newBuffer, 0, crc, newLength - 13);
 		PartitionChunk.setInt(newBuffer, 0, dataLength, newLength - 5);
-
-		partitionCache.set(partition);
+		newBuffer[newLength - 1] = 0;
 
 		return newBuffer;
 	}
+
+	/**
+	 * Hands back an array returned by {@link #handle(byte[], int)} for reuse
+	 * @param buffer to reuse
+	 */
+	public void release(byte[] buffer) {
+		outputCache.set(buffer);
+	}
+
+	/**
+	 * Gets the approximate memory used by this cache
+	 * @return the memory in bytes
+	 */
+	public long getMemoryUsage() {
+		LongClockSet hashSet = this.hashSet;
+		byte[] output = outputCache.get();
+		return (hashSet == null ? 0 : hashSet.getMemoryUsage()) + (output == null ? 0 : output.length);
+	}
 }
@@ -0,0 +1,230 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.netcache;
+
+import java.io.Serializable;
+
+/**
+ * A bounded set of primitive longs, split into independently locked stripes<br>
+ * Once a stripe is full, adding a new value evicts an old one chosen by the CLOCK algorithm,
+ * which approximates least recently used eviction without moving entries on access.
+ */
+public class LongClockSet implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final int STRIPES = 16;
+	private static final int INITIAL_STRIPE_CAPACITY = 32;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	/**
+	 * Creates a new set
+	 * @param capacity the maximum number of values held
+	 */
+	public LongClockSet(int capacity) {
+		int stripeCapacity = Math.max(1, (capacity + STRIPES - 1) / STRIPES);
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(stripeCapacity);
+		}
+	}
+
+	/**
+	 * Adds a value to the set, or marks it as recently used if already present
+	 * @param value to add
+	 * @return true if the value was not in the set
+	 */
+	public boolean add(long value) {
+		long hash = mix(value);
+		Stripe stripe = stripes[getStripe(hash)];
+		synchronized (stripe) {
+			return stripe.add(value, (int) hash);
+		}
+	}
+
+	/**
+	 * Checks if a value is in the set, without marking it as recently used
+	 * @param value to check
+	 * @return true if present
+	 */
+	public boolean contains(long value) {
+		long hash = mix(value);
+		Stripe stripe = stripes[getStripe(hash)];
+		synchronized (stripe) {
+			return stripe.find(value, (int) hash) >= 0;
+		}
+	}
+
+	/**
+	 * Gets the number of values in the set
+	 * @return the size
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the approximate memory used by the set
+	 * @return the memory in bytes
+	 */
+	public long getMemoryUsage() {
+		long memory = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				memory += stripe.table.length * 12L + stripe.ring.length * 9L;
+			}
+		}
+		return memory;
+	}
+
+	/**
+	 * Gets the stripe holding a value
+	 * @param hash of the value
+	 * @return the stripe index
+	 */
+	static int getStripe(long hash) {
+		return (int) (hash >>> 60) & (STRIPES - 1);
+	}
+
+	static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value >>> 33;
+		value *= 0xC4CEB9FE1A85EC53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	private static class Stripe implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+		// Open addressed table from value to ring slot, -1 marks a free bucket
+		private long[] table;
+		private int[] slots;
+		// Values in insertion slots, swept by the clock hand
+		private long[] ring;
+		private boolean[] referenced;
+		private int size = 0;
+		private int hand = 0;
+
+		private Stripe(int capacity) {
+			this.capacity = capacity;
+			allocate(Math.min(capacity, INITIAL_STRIPE_CAPACITY));
+		}
+
+		private void allocate(int ringSize) {
+			long[] oldRing = ring;
+			boolean[] oldReferenced = referenced;
+			ring = new long[ringSize];
+			referenced = new boolean[ringSize];
+			int tableSize = Integer.highestOneBit(ringSize) << 2;
+			table = new long[tableSize];
+			slots = new int[tableSize];
+			for (int i = 0; i < tableSize; i++) {
+				slots[i] = -1;
+			}
+			if (oldRing != null) {
+				System.arraycopy(oldRing, 0, ring, 0, size);
+				System.arraycopy(oldReferenced, 0, referenced, 0, size);
+				for (int i = 0; i < size; i++) {
+					insert(ring[i], (int) mix(ring[i]), i);
+				}
+			}
+		}
+
+		private int find(long value, int hash) {
+			int mask = table.length - 1;
+			for (int i = hash & mask; slots[i] != -1; i = (i + 1) & mask) {
+				if (table[i] == value) {
+					return slots[i];
+				}
+			}
+			return -1;
+		}
+
+		private void insert(long value, int hash, int slot) {
+			int mask = table.length - 1;
+			int i = hash & mask;
+			while (slots[i] != -1) {
+				i = (i + 1) & mask;
+			}
+			table[i] = value;
+			slots[i] = slot;
+		}
+
+		private void remove(long value, int hash) {
+			int mask = table.length - 1;
+			int i = hash & mask;
+			while (table[i] != value || slots[i] == -1) {
+				if (slots[i] == -1) {
+					return;
+				}
+				i = (i + 1) & mask;
+			}
+			// Shift the following entries back so lookups never stop at the freed bucket
+			int free = i;
+			for (int j = (i + 1) & mask; slots[j] != -1; j = (j + 1) & mask) {
+				int home = (int) mix(table[j]) & mask;
+				if (((j - home) & mask) >= ((j - free) & mask)) {
+					table[free] = table[j];
+					slots[free] = slots[j];
+					free = j;
+				}
+			}
+			slots[free] = -1;
+		}
+
+		private boolean add(long value, int hash) {
+			int slot = find(value, hash);
+			if (slot >= 0) {
+				referenced[slot] = true;
+				return false;
+			}
+			if (size < ring.length) {
+				slot = size++;
+			} else if (ring.length < capacity) {
+				allocate(Math.min(capacity, ring.length << 1));
+				slot = size++;
+			} else {
+				while (referenced[hand]) {
+					referenced[hand] = false;
+					hand = (hand + 1) % ring.length;
+				}
+				slot = hand;
+				remove(ring[slot], (int) mix(ring[slot]));
+				hand = (hand + 1) % ring.length;
+			}
+			ring[slot] = value;
+			referenced[slot] = false;
+			insert(value, hash, slot);
+			return true;
+		}
+	}
+}
@@ -26,35 +26,31 @@
  */
 package org.spout.vanilla.protocol.netcache;
 
+import java.util.Arrays;
+
 public class PartitionChunk {
-	static public void copyToChunkData(byte[] chunkData, int blockNum, byte[] partition, int dataLength) {
+	private static final long P1 = 33L;
+	private static final long P2 = P1 * P1;
+	private static final long P3 = P2 * P1;
+	private static final long P4 = P3 * P1;
 
+	static public void copyToChunkData(byte[] chunkData, int blockNum, byte[] partition, int dataLength) {
 		int j = blockNum << 11;
+		int length = Math.max(0, Math.min(2048, dataLength - j));
 
-		boolean clear = partition == null;
-
-		if (clear) {
-			for (int i = 0; i < 2048 && j < dataLength; i++) {
-				chunkData[j++] = 0;
-			}
+		if (partition == null) {
+			Arrays.fill(chunkData, j, j + length, (byte) 0);
 		} else {
-			for (int i = 0; i < 2048 && j < dataLength; i++) {
-				chunkData[j++] = partition[i];
-			}
+			System.arraycopy(partition, 0, chunkData, j, length);
 		}
 	}
 
 	static public void copyFromChunkData(byte[] chunkData, int blockNum, byte[] partition, int dataLength) {
-
 		int j = blockNum << 11;
+		int length = Math.max(0, Math.min(2048, dataLength - j));
 
-		int i = 0;
-		for (i = 0; i < 2048 && j < dataLength; i++) {
-			partition[i] = chunkData[j++];
-		}
-		for (; i < 2048; i++) {
-			partition[i] = 0;
-		}
+		System.arraycopy(chunkData, j, partition, 0, length);
+		Arrays.fill(partition, length, 2048, (byte) 0);
 	}
 
 	static public long getHash(byte[] chunkData, int blockNum, int base) {
@@ -105,11 +101,36 @@ public class PartitionChunk {
 		return hash(a, 0, a.length);
 	}
 
+	/**
+	 * Computes the partition hash, equal to repeating h = 33 * h + a[i] starting from 1<br>
+	 * The loop is unrolled by four so that the multiplications of a step do not depend on each other.
+	 */
 	public static long hash(final byte[] a, final int off, final int len) {
 		long h = 1;
-		int end = off + len;
-		for (int i = off; i < end; i++) {
-			h += (h << 5) + (long) a[i];
+		final int end = off + len;
+		int i = off;
+		for (; i + 3 < end; i += 4) {
+			h = h * P4 + a[i] * P3 + a[i + 1] * P2 + a[i + 2] * P1 + a[i + 3];
+		}
+		for (; i < end; i++) {
+			h = h * P1 + a[i];
+		}
+		return h;
+	}
+
+	/**
+	 * Computes the hash of a partition as if it was padded with zeros up to 2048 bytes
+	 * @param a the chunk data
+	 * @param blockNum of the partition
+	 * @param dataLength of the chunk data
+	 * @return the hash
+	 */
+	public static long hashPartition(final byte[] a, final int blockNum, final int dataLength) {
+		int off = blockNum << 11;
+		int len = Math.max(0, Math.min(2048, dataLength - off));
+		long h = hash(a, off, len);
+		for (int pad = 2048 - len; pad > 0; pad--) {
+			h *= P1;
 		}
 		return h;
 	}
@@ -0,0 +1,256 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.explosion;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.spout.api.entity.Entity;
+import org.spout.api.event.Cause;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.discrete.Point;
+
+import org.spout.vanilla.component.entity.misc.Health;
+import org.spout.vanilla.data.effect.store.GeneralEffects;
+
+/**
+ * Collects the explosions of a tick and detonates overlapping explosions together<br>
+ * The blocks reached by the explosions of a group are destroyed in a single pass, each entity is damaged once
+ * with the damage of all explosions reaching it, and a single explosion effect is played per group.
+ * Blocks are collected before any of them is destroyed, so an explosion is not extended by the holes of the
+ * other explosions of its group.
+ */
+public class ExplosionBatcher implements Runnable {
+	private final ConcurrentLinkedQueue<QueuedExplosion> queue = new ConcurrentLinkedQueue<QueuedExplosion>();
+	private volatile boolean enabled = false;
+	private volatile int maxPerTick = 256;
+
+	/**
+	 * Sets whether explosions are batched, explosions are executed straight away when disabled<br>
+	 * The batcher must be scheduled to run every tick while enabled.
+	 * @param enabled state
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		while (!enabled && !queue.isEmpty()) {
+			run();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets the maximum number of explosions detonated in a tick, the others are delayed to the next ticks
+	 * @param maxPerTick explosions
+	 */
+	public void setMaxExplosionsPerTick(int maxPerTick) {
+		this.maxPerTick = Math.max(1, maxPerTick);
+	}
+
+	/**
+	 * Gets the number of explosions waiting to be detonated
+	 * @return the number of explosions
+	 */
+	public int getQueued() {
+		return queue.size();
+	}
+
+	/**
+	 * Detonates an explosion in the next tick, damaging entities and breaking blocks unless touching water
+	 * @param model of the explosion
+	 * @param position of the explosion
+	 * @param size of the explosion
+	 * @param fire whether the explosion sets fire to air blocks
+	 * @param cause of the explosion
+	 */
+	public void execute(ExplosionModel model, Point position, float size, boolean fire, Cause<?> cause) {
+		if (enabled) {
+			queue.add(new QueuedExplosion(model, position, size, fire, cause));
+		} else {
+			model.execute(position, size, fire, cause);
+		}
+	}
+
+	@Override
+	public void run() {
+		final List<QueuedExplosion> explosions = new ArrayList<QueuedExplosion>();
+		QueuedExplosion explosion;
+		while (explosions.size() < maxPerTick && (explosion = queue.poll()) != null) {
+			explosions.add(explosion);
+		}
+		if (explosions.isEmpty()) {
+			return;
+		}
+
+		// Group the explosions whose damage radius overlap
+		final int count = explosions.size();
+		final int[] groups = new int[count];
+		for (int i = 0; i < count; i++) {
+			groups[i] = i;
+			final QueuedExplosion a = explosions.get(i);
+			for (int j = 0; j < i; j++) {
+				final QueuedExplosion b = explosions.get(j);
+				if (a.overlaps(b)) {
+					final int root = getGroup(groups, j);
+					final int other = getGroup(groups, i);
+					groups[Math.max(root, other)] = Math.min(root, other);
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			if (getGroup(groups, i) != i) {
+				continue;
+			}
+			final List<QueuedExplosion> group = new ArrayList<QueuedExplosion>();
+			for (int j = i; j < count; j++) {
+				if (getGroup(groups, j) == i) {
+					group.add(explosions.get(j));
+				}
+			}
+			detonate(group);
+		}
+	}
+
+	private static int getGroup(int[] groups, int index) {
+		while (groups[index] != index) {
+			groups[index] = groups[groups[index]];
+			index = groups[index];
+		}
+		return index;
+	}
+
+	private void detonate(List<QueuedExplosion> group) {
+		final World world = group.get(0).position.getWorld();
+
+		// Collect the blocks of all explosions, then destroy them in one pass
+		final TLongIntHashMap indices = new TLongIntHashMap();
+		final List<Block> blocks = new ArrayList<Block>();
+		final List<Cause<?>> causes = new ArrayList<Cause<?>>();
+		final BitSet fire = new BitSet();
+		final List<Block> reached = new ArrayList<Block>(100);
+		for (QueuedExplosion explosion : group) {
+			if (ExplosionModel.isTouchingWater(explosion.position)) {
+				continue;
+			}
+			reached.clear();
+			explosion.model.getBlocksToDestroy(explosion.position, explosion.size, reached);
+			for (Block block : reached) {
+				final long key = getKey(block.getX(), block.getY(), block.getZ());
+				int index;
+				if (indices.containsKey(key)) {
+					index = indices.get(key);
+				} else {
+					index = blocks.size();
+					indices.put(key, index);
+					blocks.add(block);
+					causes.add(explosion.cause);
+				}
+				if (explosion.fire) {
+					fire.set(index);
+				}
+			}
+		}
+		for (int i = 0; i < blocks.size(); i++) {
+			ExplosionModel.destroyBlock(blocks.get(i), fire.get(i), causes.get(i));
+		}
+
+		// Damage every entity once, with the damage of all explosions reaching it
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+		float effectSize = 0;
+		for (QueuedExplosion explosion : group) {
+			final Point position = explosion.position;
+			minX = Math.min(minX, position.getX() - explosion.radius);
+			minY = Math.min(minY, position.getY() - explosion.radius);
+			minZ = Math.min(minZ, position.getZ() - explosion.radius);
+			maxX = Math.max(maxX, position.getX() + explosion.radius);
+			maxY = Math.max(maxY, position.getY() + explosion.radius);
+			maxZ = Math.max(maxZ, position.getZ() + explosion.radius);
+			effectSize = Math.max(effectSize, explosion.radius);
+		}
+		final Point center = new Point(world, (float) (minX + maxX) / 2, (float) (minY + maxY) / 2, (float) (minZ + maxZ) / 2);
+		final double range = Math.sqrt((maxX - minX) * (maxX - minX) + (maxY - minY) * (maxY - minY) + (maxZ - minZ) * (maxZ - minZ)) / 2;
+		final List<Entity> entities = new ArrayList<Entity>();
+		ExplosionModel.getNearbyEntities(center, (float) range, entities);
+		for (Entity entity : entities) {
+			final Point position = entity.getScene().getPosition();
+			boolean hit = false;
+			int damage = 0;
+			for (QueuedExplosion explosion : group) {
+				if (position.distance(explosion.position) <= explosion.radius) {
+					hit = true;
+					damage += ExplosionModel.getDamage(explosion.position, position, explosion.radius);
+				}
+			}
+			if (hit) {
+				final Health health = ExplosionModel.getHealthToDamage(entity);
+				if (health != null) {
+					health.damage(damage);
+				}
+			}
+		}
+
+		GeneralEffects.EXPLOSION.playGlobal(group.size() == 1 ? group.get(0).position : center, effectSize);
+	}
+
+	private static long getKey(int x, int y, int z) {
+		return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | (y & 0xFFFL);
+	}
+
+	private static final class QueuedExplosion {
+		private final ExplosionModel model;
+		private final Point position;
+		private final float size;
+		// Entities are damaged within twice the size of the explosion
+		private final float radius;
+		private final boolean fire;
+		private final Cause<?> cause;
+
+		private QueuedExplosion(ExplosionModel model, Point position, float size, boolean fire, Cause<?> cause) {
+			this.model = model;
+			this.position = position;
+			this.size = size;
+			this.radius = size * 2;
+			this.fire = fire;
+			this.cause = cause;
+		}
+
+		private boolean overlaps(QueuedExplosion other) {
+			if (position.getWorld() != other.position.getWorld()) {
+				return false;
+			}
+			return position.distance(other.position) < radius + other.radius;
+		}
+	}
+}
@@ -26,79 +26,71 @@
  */
 package org.spout.vanilla.util.explosion;
 
-import java.util.HashMap;
-import java.util.Map;
+/**
+ * An immutable layer of the explosion rays, at a fixed distance from the center of the explosion<br>
+ * Every slot of the layer refers to a block offset of the model and to the slots of the next layer it spreads damage to.
+ */
+public class ExplosionLayer {
+	private final int index;
+	private final int[] blocks;
+	private final int[][] next;
 
-import org.spout.api.math.GenericMath;
-import org.spout.api.math.Vector3;
+	/**
+	 * Creates a new layer
+	 * @param index of the layer, the distance to the center in units of 0.3 blocks
+	 * @param blocks the block offset index of each slot
+	 * @param next the slots of the next layer each slot spreads damage to, or null if this is the last layer built
+	 */
+	public ExplosionLayer(int index, int[] blocks, int[][] next) {
+		this.index = index;
+		this.blocks = blocks;
+		this.next = next;
+	}
 
-public class ExplosionLayer {
-	public ExplosionLayer(final ExplosionModelSpherical model) {
-		this.model = model;
-		this.index = 0;
-		this.slots = new ExplosionSlot[]{this.createSlot(0.0, 0.0, 0.0)};
+	public int getIndex() {
+		return index;
 	}
 
-	public ExplosionLayer(ExplosionLayer previous) {
-		this(previous, 16);
+	/**
+	 * Gets the number of slots in this layer
+	 * @return the number of slots
+	 */
+	public int getSize() {
+		return blocks.length;
 	}
 
-	public ExplosionLayer(ExplosionLayer previous, final int scale) {
-		this.model = previous.model;
-		this.index = previous.index + 1;
-		final int scaleminone = scale - 1;
-		final double fact = scaleminone / 2.0;
-		int x, y, z;
-		double dx, dy, dz;
-		for (x = 0; x < scale; ++x) {
-			for (y = 0; y < scale; ++y) {
-				for (z = 0; z < scale; ++z) {
-					if (x == 0 || x == scaleminone || y == 0 || y == scaleminone || z == 0 || z == scaleminone) {
-						dx = x / fact - 1.0;
-						dy = y / fact - 1.0;
-						dz = z / fact - 1.0;
-						double d = 0.3 / GenericMath.length(dx, dy, dz);
-						dx *= d;
-						dy *= d;
-						dz *= d;
-						//=============================================
-						previous.createSlot(dx, dy, dz).addNext(this.createSlot(dx, dy, dz));
-					}
-				}
-			}
-		}
-		this.finish();
+	/**
+	 * Gets the block offset index of a slot
+	 * @param slot index
+	 * @return the block offset index
+	 */
+	public int getBlock(int slot) {
+		return blocks[slot];
 	}
 
-	private final int index;
-	public ExplosionSlot[] slots;
-	private final Map<Vector3, ExplosionSlot> tmpSlotMap = new HashMap<Vector3, ExplosionSlot>();
-	private final ExplosionModelSpherical model;
+	/**
+	 * Gets the slots of the next layer a slot spreads damage to
+	 * @param slot index
+	 * @return the slots of the next layer
+	 */
+	public int[] getNext(int slot) {
+		return next[slot];
+	}
 
 	/**
-	 * Transfers all slots previously added to the 'slots' array
+	 * Gets whether the layer after this one is not built yet
+	 * @return true if this is the last layer
 	 */
-	public void finish() {
-		this.slots = this.tmpSlotMap.values().toArray(new ExplosionSlot[0]);
+	public boolean isLast() {
+		return next == null;
 	}
 
 	/**
-	 * Creates a new slot using a given direction
-	 * @param dx is the delta x motion
-	 * @param dy is the delta y motion
-	 * @param dz is the delta z motion
-	 * @return an already stored or new slot
+	 * Creates a copy of this layer leading to the next layer
+	 * @param next the slots of the next layer each slot spreads damage to
+	 * @return the new layer
 	 */
-	public ExplosionSlot createSlot(final double dx, final double dy, final double dz) {
-		int x = GenericMath.floor(dx * this.index + 0.5);
-		int y = GenericMath.floor(dy * this.index + 0.5);
-		int z = GenericMath.floor(dz * this.index + 0.5);
-		Vector3 pos = new Vector3(x, y, z);
-		ExplosionSlot slot = this.tmpSlotMap.get(pos);
-		if (slot == null) {
-			slot = new ExplosionSlot(this.model.getBlock(pos));
-			this.tmpSlotMap.put(pos, slot);
-		}
-		return slot;
+	public ExplosionLayer withNext(int[][] next) {
+		return new ExplosionLayer(index, blocks, next);
 	}
 }
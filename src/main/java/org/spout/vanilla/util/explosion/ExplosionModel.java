@@ -27,9 +27,7 @@
 package org.spout.vanilla.util.explosion;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.spout.api.entity.Entity;
 import org.spout.api.event.Cause;
@@ -39,7 +37,6 @@ import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.math.GenericMath;
-import org.spout.api.math.Vector3;
 import org.spout.api.util.BlockIterator;
 
 import org.spout.vanilla.component.entity.living.Human;
@@ -48,25 +45,20 @@ import org.spout.vanilla.component.entity.substance.Item;
 import org.spout.vanilla.data.effect.store.GeneralEffects;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.world.EntityIndex;
 
+/**
+ * Model of the blocks destroyed by an explosion<br>
+ * Models hold no per-explosion state, so explosions can be executed concurrently.
+ */
 public abstract class ExplosionModel {
-	private final List<ExplosionBlockSlot> blockList = new ArrayList<ExplosionBlockSlot>();
-	private final Map<Vector3, ExplosionBlockSlot> blocks = new HashMap<Vector3, ExplosionBlockSlot>();
-	public final List<Block> blocksToDestroy = new ArrayList<Block>(100);
-
-	public synchronized ExplosionBlockSlot getBlock(Vector3 position) {
-		ExplosionBlockSlot block = this.blocks.get(position);
-		if (block == null) {
-			block = new ExplosionBlockSlot(position);
-			this.blocks.put(position, block);
-			this.blockList.add(block);
-		}
-		return block;
-	}
-
-	public synchronized List<ExplosionBlockSlot> getBlocks() {
-		return this.blockList;
-	}
+	/**
+	 * Collects the blocks destroyed by an explosion, without changing them
+	 * @param position of the explosion
+	 * @param size of the explosion
+	 * @param blocks to add the destroyed blocks to
+	 */
+	public abstract void getBlocksToDestroy(Point position, float size, List<Block> blocks);
 
 	/**
 	 * Calculated with the following:
@@ -88,7 +80,7 @@ public abstract class ExplosionModel {
 	 * @param s
 	 * @return
 	 */
-	private int getDamage(Point o, Point p, double s) {
+	static int getDamage(Point o, Point p, double s) {
 		double di = p.distance(o);
 		int amt = 0, solid = 0;
 		BlockIterator iterator = new BlockIterator(o, p);
@@ -109,70 +101,105 @@ public abstract class ExplosionModel {
 		return (int) ((i * i + i) / 2 * 8 * s + 1);
 	}
 
-	public synchronized void execute(Point position, float size, boolean fire, boolean damage, boolean ignoreWater, Cause<?> cause) {
-		//reset all blocks for the next explosion
-		for (ExplosionBlockSlot block : this.blockList) {
-			block.isSet = false;
+	/**
+	 * Checks if an explosion touches water, in which case it does not break blocks
+	 * @param position of the explosion
+	 * @return true if touching water
+	 */
+	static boolean isTouchingWater(Point position) {
+		Block block = position.getBlock();
+		for (BlockFace face : BlockFaces.NESWBT) {
+			if (block.translate(face).isMaterial(VanillaMaterials.WATER)) {
+				return true;
+			}
 		}
+		return false;
+	}
 
-		//TODO: Block Event?
-
-		// See if it's touching water
-		boolean breakBlocks = true;
-		if (!ignoreWater) {
-			Block block = position.getBlock();
-			for (BlockFace face : BlockFaces.NESWBT) {
-				if (block.translate(face).isMaterial(VanillaMaterials.WATER)) {
-					breakBlocks = false;
-					break;
+	/**
+	 * Destroys a block reached by an explosion, or sets fire to it if it is air
+	 * @param block to destroy
+	 * @param fire whether the explosion sets fire to air blocks
+	 * @param cause of the explosion
+	 */
+	static void destroyBlock(Block block, boolean fire, Cause<?> cause) {
+		BlockMaterial material = block.getMaterial();
+		if (material == VanillaMaterials.AIR) {
+			if (fire) {
+				BlockMaterial below = block.translate(BlockFace.BOTTOM).getMaterial();
+				if (below.isSolid() && GenericMath.getRandom().nextInt(3) == 0) {
+					block.setMaterial(VanillaMaterials.FIRE);
 				}
 			}
+		} else if (material != VanillaMaterials.FIRE) {
+			//TODO: Item dropping yield?
+			if (material instanceof VanillaBlockMaterial) {
+				((VanillaBlockMaterial) material).onIgnite(block, cause);
+			} else {
+				material.destroy(block, cause);
+			}
+			block.setMaterial(VanillaMaterials.AIR);
 		}
+	}
 
-		// perform block changes
-		if (breakBlocks) {
-			BlockMaterial material;
-			for (Block block : this.blocksToDestroy) {
-				material = block.getMaterial();
-
-				if (material == VanillaMaterials.AIR) {
-					if (fire) {
-						BlockMaterial below = block.translate(BlockFace.BOTTOM).getMaterial();
-						if (below.isSolid() && GenericMath.getRandom().nextInt(3) == 0) {
-							block.setMaterial(VanillaMaterials.FIRE);
-						}
-					}
-				} else if (material != VanillaMaterials.FIRE) {
-					//TODO: Item dropping yield?
-					if (material instanceof VanillaBlockMaterial) {
-						((VanillaBlockMaterial) material).onIgnite(block, cause);
-					} else {
-						material.destroy(block, cause);
-					}
-					block.setMaterial(VanillaMaterials.AIR);
-				}
+	/**
+	 * Adds the entities an explosion affects within a radius, which are the items and the entities with health
+	 * @param position of the explosion
+	 * @param radius to search in
+	 * @param entities to add to
+	 */
+	static void getNearbyEntities(Point position, float radius, List<Entity> entities) {
+		final EntityIndex index = EntityIndex.get(position.getWorld());
+		index.getNearby(Item.class, position, radius, null, entities);
+		index.getNearby(Health.class, position, radius, null, entities);
+	}
+
+	/**
+	 * Gets the health of an entity hit by an explosion<br>
+	 * Items are removed by explosions, so they are removed here and have no health to damage.
+	 * @param entity hit
+	 * @return the health to damage, or null if the entity can not be damaged
+	 */
+	static Health getHealthToDamage(Entity entity) {
+		if (entity.get(Item.class) != null) {
+			entity.remove();
+			return null;
+		}
+
+		// Check if entity can be damaged
+		Health health = entity.get(Health.class);
+		if (health == null) {
+			return null;
+		}
+		Human human = entity.get(Human.class);
+		if (human != null && human.isCreative()) {
+			return null;
+		}
+		return health;
+	}
+
+	public void execute(Point position, float size, boolean fire, boolean damage, boolean ignoreWater, Cause<?> cause) {
+		//TODO: Block Event?
+
+		// perform block changes, unless touching water
+		if (ignoreWater || !isTouchingWater(position)) {
+			final List<Block> blocksToDestroy = new ArrayList<Block>(100);
+			getBlocksToDestroy(position, size, blocksToDestroy);
+			for (Block block : blocksToDestroy) {
+				destroyBlock(block, fire, cause);
 			}
 		}
 
 		// Damage entities within radius
 		if (damage) {
 			size *= 2;
-			for (Entity entity : position.getWorld().getNearbyEntities(position, (int) size)) {
-				if (entity.get(Item.class) != null) {
-					entity.remove();
-					continue;
-				}
-
-				// Check if entity can be damaged
-				Health health = entity.get(Health.class);
-				if (health == null) {
-					continue;
-				}
-				Human human = entity.get(Human.class);
-				if (human != null && human.isCreative()) {
-					continue;
+			final List<Entity> entities = new ArrayList<Entity>();
+			getNearbyEntities(position, (int) size, entities);
+			for (Entity entity : entities) {
+				Health health = getHealthToDamage(entity);
+				if (health != null) {
+					health.damage(getDamage(position, entity.getScene().getPosition(), size));
 				}
-				health.damage(getDamage(position, entity.getScene().getPosition(), size));
 			}
 		}
 
@@ -180,15 +207,15 @@ public abstract class ExplosionModel {
 		GeneralEffects.EXPLOSION.playGlobal(position, size);
 	}
 
-	public synchronized void execute(Point pos, float size, boolean fire, boolean damage, Cause<?> cause) {
+	public void execute(Point pos, float size, boolean fire, boolean damage, Cause<?> cause) {
 		execute(pos, size, fire, damage, false, cause);
 	}
 
-	public synchronized void execute(Point pos, float size, boolean fire, Cause<?> cause) {
+	public void execute(Point pos, float size, boolean fire, Cause<?> cause) {
 		execute(pos, size, fire, true, cause);
 	}
 
-	public synchronized void execute(Point pos, float size, Cause<?> cause) {
+	public void execute(Point pos, float size, Cause<?> cause) {
 		execute(pos, size, false, cause);
 	}
 }
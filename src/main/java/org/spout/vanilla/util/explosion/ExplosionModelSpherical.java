@@ -27,109 +27,333 @@
 package org.spout.vanilla.util.explosion;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
-import org.spout.api.event.Cause;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.math.GenericMath;
+import org.spout.api.math.Vector3;
 
+import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 
+/**
+ * Explosion model casting rays in all directions from the center, losing damage for every block they pass<br>
+ * The rays are stored as immutable layers of increasing distance, built once and extended when an explosion
+ * reaches the last layer. The damage of a single explosion is tracked in scratch arrays owned by the executing thread.
+ */
 public class ExplosionModelSpherical extends ExplosionModel {
+	// Rays are cast through the outer cells of a 16x16x16 cube
+	private static final int RAY_SCALE = 16;
+	private static final float LAYER_DAMAGE = 0.225f;
+	// Number of layers reached by an explosion of size 4, the size of TNT
+	private static final int PRECOMPUTED_LAYERS = 24;
+	private static final double[] RAYS = createRays();
+	private final Object buildLock = new Object();
+	private final Map<Vector3, Integer> blockIndices = new HashMap<Vector3, Integer>();
+	private Map<Vector3, Integer> lastSlots = new HashMap<Vector3, Integer>();
+	private volatile Rays rays;
+	private final ThreadLocal<ExplosionState> states = new ThreadLocal<ExplosionState>() {
+		@Override
+		protected ExplosionState initialValue() {
+			return new ExplosionState();
+		}
+	};
+
 	public ExplosionModelSpherical() {
-		this.layers.add(new ExplosionLayer(this));
-		this.root = this.layers.get(0).slots[0];
+		final int block = getBlockIndex(Vector3.ZERO);
+		lastSlots.put(Vector3.ZERO, 0);
+		rays = new Rays(new ExplosionLayer[]{new ExplosionLayer(0, new int[]{block}, null)}, new int[3]);
+		while (rays.layers.length < PRECOMPUTED_LAYERS) {
+			extend(rays.layers.length - 1);
+		}
 	}
 
-	private final List<ExplosionLayer> layers = new ArrayList<ExplosionLayer>();
-	private final ExplosionSlot root;
-
-	public synchronized ExplosionLayer getLastLayer() {
-		return this.layers.get(this.layers.size() - 1);
+	public void execute(Point position, float size) {
+		this.execute(position, size, VanillaMaterials.TNT.toCause(position));
 	}
 
-	public synchronized ExplosionLayer getLayer(int index) {
-		return this.layers.get(index);
+	public void execute(Point position, boolean fire, float size) {
+		this.execute(position, size, fire, VanillaMaterials.TNT.toCause(position));
 	}
 
-	public synchronized void execute(Point position, float size) {
-		this.execute(position, size, VanillaMaterials.TNT.toCause(position));
+	/**
+	 * Gets the number of layers built so far
+	 * @return the number of layers
+	 */
+	public int getLayerCount() {
+		return rays.layers.length;
 	}
 
-	public synchronized void execute(Point position, float size, Cause<?> cause) {
-		this.execute(position, size, false, cause);
+	/**
+	 * Gets a layer of the rays
+	 * @param index of the layer
+	 * @return the layer
+	 */
+	public ExplosionLayer getLayer(int index) {
+		return rays.layers[index];
 	}
 
-	public synchronized void execute(Point position, boolean fire, float size) {
-		this.execute(position, size, fire, VanillaMaterials.TNT.toCause(position));
+	@Override
+	public void getBlocksToDestroy(Point position, float size, List<Block> blocks) {
+		ExplosionState state = states.get();
+		if (state.inUse) {
+			// An explosion caused by another one on the same thread
+			state = new ExplosionState();
+		}
+		state.inUse = true;
+		boolean completed = false;
+		try {
+			traverse(position, size, state, blocks);
+			completed = true;
+		} finally {
+			state.inUse = false;
+			if (!completed) {
+				// The damage arrays may not be cleared, so start with new ones
+				states.remove();
+			}
+		}
 	}
 
-	public synchronized void execute(Point position, float size, boolean fire, Cause<?> cause) {
-		int xoff = position.getBlockX();
-		int yoff = position.getBlockY();
-		int zoff = position.getBlockZ();
-		World world = position.getWorld();
+	private void traverse(Point position, float size, ExplosionState state, List<Block> blocks) {
+		final int xoff = position.getBlockX();
+		final int yoff = position.getBlockY();
+		final int zoff = position.getBlockZ();
+		final World world = position.getWorld();
+		final Random random = GenericMath.getRandom();
 
-		this.blocksToDestroy.clear();
-		this.root.sourcedamage = size * (0.7F + (float) Math.random() * 0.6F);
+		Rays rays = this.rays;
+		state.begin(rays);
+		state.getSourceDamage(0, 1)[0] = size * (0.7F + (float) Math.random() * 0.6F);
 
-		//recursively operate on all blocks
+		//operate on all layers until the damage runs out
 		float damageFactor;
 		boolean hasDamage = true;
-		ExplosionLayer layer;
-		for (int i = 0; i < this.layers.size() && hasDamage; i++) {
+		for (int i = 0; i < rays.layers.length && hasDamage; i++) {
 			hasDamage = false;
-			layer = this.layers.get(i);
-			for (ExplosionSlot slot : layer.slots) {
+			ExplosionLayer layer = rays.layers[i];
+			final float[] sourceDamage = state.getSourceDamage(i, layer.getSize());
+			for (int slot = 0; slot < layer.getSize(); slot++) {
 				//prepare the block information
-				if (!slot.block.isSet) {
-					slot.block.prepare(world, xoff, yoff, zoff, GenericMath.getRandom());
+				final int block = layer.getBlock(slot);
+				if (state.prepared[block] != state.stamp) {
+					state.prepare(block, world, rays.offsets, xoff, yoff, zoff, random);
 				}
 
 				//subtract damage factor
-				damageFactor = slot.sourcedamage - slot.block.damageFactor;
-				slot.sourcedamage = 0f;
+				damageFactor = sourceDamage[slot] - state.damageFactors[block];
+				sourceDamage[slot] = 0f;
 				if (damageFactor <= 0f) {
 					continue;
 				}
 
 				//this block has been destroyed
-				if (!slot.block.destroy) {
-					slot.block.destroy = true;
-					Block block = world.getBlock(slot.block.realx, slot.block.realy, slot.block.realz);
-					blocksToDestroy.add(block);
+				if (state.destroyed[block] != state.stamp) {
+					state.destroyed[block] = state.stamp;
+					blocks.add(world.getBlock(rays.offsets[block * 3] + xoff, rays.offsets[block * 3 + 1] + yoff, rays.offsets[block * 3 + 2] + zoff));
 				}
 
 				//one block layer further...
-				if ((damageFactor -= 0.225f) <= 0.0f) {
+				if ((damageFactor -= LAYER_DAMAGE) <= 0.0f) {
 					continue;
 				}
 
-				//create a new layer if needed
-				if (slot.next == null) {
-					//create a new layer
-					ExplosionLayer nextLayer = new ExplosionLayer(layer);
-					//finalize the 'next' of the current layer to lead to the new layer
-					for (ExplosionSlot slot2 : layer.slots) {
-						slot2.finish();
-					}
-					this.layers.add(nextLayer);
+				//build the next layer if needed
+				if (layer.isLast()) {
+					rays = extend(i);
+					layer = rays.layers[i];
+					state.resize(rays);
 				}
 
 				//set source damage of next slots
-				for (ExplosionSlot slot2 : slot.next) {
-					if (damageFactor > slot2.sourcedamage) {
-						slot2.sourcedamage = damageFactor;
+				final float[] nextDamage = state.getSourceDamage(i + 1, rays.layers[i + 1].getSize());
+				for (int next : layer.getNext(slot)) {
+					if (damageFactor > nextDamage[next]) {
+						nextDamage[next] = damageFactor;
 					}
 				}
 
 				hasDamage = true;
 			}
 		}
+	}
 
-		//perform the final block changes, entity damage and explosion messages
-		super.execute(position, size, fire, cause);
+	private int getBlockIndex(Vector3 offset) {
+		Integer index = blockIndices.get(offset);
+		if (index == null) {
+			index = blockIndices.size();
+			blockIndices.put(offset, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Builds the layer after the one given, if not already built
+	 * @param index of the last layer
+	 * @return the rays containing the new layer
+	 */
+	private Rays extend(int index) {
+		synchronized (buildLock) {
+			final Rays current = rays;
+			if (current.layers.length > index + 1) {
+				return current;
+			}
+			final ExplosionLayer previous = current.layers[index];
+			final int layerIndex = index + 1;
+			final Map<Vector3, Integer> slots = new HashMap<Vector3, Integer>();
+			final List<Integer> blocks = new ArrayList<Integer>();
+			final List<Set<Integer>> next = new ArrayList<Set<Integer>>(previous.getSize());
+			for (int i = 0; i < previous.getSize(); i++) {
+				next.add(new LinkedHashSet<Integer>());
+			}
+			for (int i = 0; i < RAYS.length; i += 3) {
+				final Integer previousSlot = lastSlots.get(getOffset(RAYS[i], RAYS[i + 1], RAYS[i + 2], index));
+				final Vector3 offset = getOffset(RAYS[i], RAYS[i + 1], RAYS[i + 2], layerIndex);
+				Integer slot = slots.get(offset);
+				if (slot == null) {
+					slot = blocks.size();
+					slots.put(offset, slot);
+					blocks.add(getBlockIndex(offset));
+				}
+				if (previousSlot != null) {
+					next.get(previousSlot).add(slot);
+				}
+			}
+
+			final int[][] nextSlots = new int[previous.getSize()][];
+			for (int i = 0; i < nextSlots.length; i++) {
+				nextSlots[i] = toArray(next.get(i));
+			}
+			final ExplosionLayer[] layers = Arrays.copyOf(current.layers, layerIndex + 1);
+			layers[index] = previous.withNext(nextSlots);
+			layers[layerIndex] = new ExplosionLayer(layerIndex, toArray(blocks), null);
+			final int[] offsets = new int[blockIndices.size() * 3];
+			for (Map.Entry<Vector3, Integer> entry : blockIndices.entrySet()) {
+				offsets[entry.getValue() * 3] = entry.getKey().getFloorX();
+				offsets[entry.getValue() * 3 + 1] = entry.getKey().getFloorY();
+				offsets[entry.getValue() * 3 + 2] = entry.getKey().getFloorZ();
+			}
+			lastSlots = slots;
+			rays = new Rays(layers, offsets);
+			return rays;
+		}
+	}
+
+	private static Vector3 getOffset(double dx, double dy, double dz, int index) {
+		return new Vector3(GenericMath.floor(dx * index + 0.5), GenericMath.floor(dy * index + 0.5), GenericMath.floor(dz * index + 0.5));
+	}
+
+	private static int[] toArray(Iterable<Integer> values) {
+		final List<Integer> list = new ArrayList<Integer>();
+		for (Integer value : values) {
+			list.add(value);
+		}
+		final int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	private static double[] createRays() {
+		final int scaleminone = RAY_SCALE - 1;
+		final double fact = scaleminone / 2.0;
+		final double[] rays = new double[(RAY_SCALE * RAY_SCALE * RAY_SCALE - (RAY_SCALE - 2) * (RAY_SCALE - 2) * (RAY_SCALE - 2)) * 3];
+		int count = 0;
+		for (int x = 0; x < RAY_SCALE; ++x) {
+			for (int y = 0; y < RAY_SCALE; ++y) {
+				for (int z = 0; z < RAY_SCALE; ++z) {
+					if (x == 0 || x == scaleminone || y == 0 || y == scaleminone || z == 0 || z == scaleminone) {
+						double dx = x / fact - 1.0;
+						double dy = y / fact - 1.0;
+						double dz = z / fact - 1.0;
+						double d = 0.3 / GenericMath.length(dx, dy, dz);
+						rays[count++] = dx * d;
+						rays[count++] = dy * d;
+						rays[count++] = dz * d;
+					}
+				}
+			}
+		}
+		return rays;
+	}
+
+	/**
+	 * Immutable snapshot of the layers built so far and the offsets of the blocks they refer to
+	 */
+	private static final class Rays {
+		private final ExplosionLayer[] layers;
+		// x, y and z offset of every block index
+		private final int[] offsets;
+
+		private Rays(ExplosionLayer[] layers, int[] offsets) {
+			this.layers = layers;
+			this.offsets = offsets;
+		}
+	}
+
+	/**
+	 * Damage of the explosion being executed by a thread<br>
+	 * Blocks are prepared and destroyed once per explosion, tracked by stamping them with the explosion counter.
+	 * Source damage is reset to zero while it is consumed, so the arrays are clean once an explosion completes.
+	 */
+	private static final class ExplosionState {
+		private float[][] sourceDamage = new float[0][];
+		private float[] damageFactors = new float[0];
+		private int[] prepared = new int[0];
+		private int[] destroyed = new int[0];
+		private int stamp = 0;
+		private boolean inUse = false;
+
+		private void begin(Rays rays) {
+			resize(rays);
+			if (++stamp == 0) {
+				Arrays.fill(prepared, 0);
+				Arrays.fill(destroyed, 0);
+				stamp = 1;
+			}
+		}
+
+		private void resize(Rays rays) {
+			final int blocks = rays.offsets.length / 3;
+			if (prepared.length < blocks) {
+				damageFactors = Arrays.copyOf(damageFactors, blocks);
+				prepared = Arrays.copyOf(prepared, blocks);
+				destroyed = Arrays.copyOf(destroyed, blocks);
+			}
+		}
+
+		private float[] getSourceDamage(int layer, int size) {
+			if (layer >= sourceDamage.length) {
+				sourceDamage = Arrays.copyOf(sourceDamage, layer + 1);
+			}
+			float[] damage = sourceDamage[layer];
+			if (damage == null || damage.length < size) {
+				damage = new float[size];
+				sourceDamage[layer] = damage;
+			}
+			return damage;
+		}
+
+		private void prepare(int block, World world, int[] offsets, int x, int y, int z, Random random) {
+			final BlockMaterial material = world.getBlockMaterial(offsets[block * 3] + x, offsets[block * 3 + 1] + y, offsets[block * 3 + 2] + z);
+			float damageFactor;
+			if (material != VanillaMaterials.AIR && material instanceof VanillaBlockMaterial) {
+				damageFactor = (((VanillaBlockMaterial) material).getResistance() + 0.3f) * 0.3f;
+				damageFactor *= (2.0f + random.nextFloat()) / 3.0f;
+			} else {
+				damageFactor = 0f;
+			}
+			damageFactors[block] = damageFactor;
+			prepared[block] = stamp;
+		}
 	}
 }
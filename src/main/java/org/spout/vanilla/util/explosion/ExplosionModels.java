@@ -28,4 +28,5 @@ package org.spout.vanilla.util.explosion;
 
 public class ExplosionModels {
 	public static final ExplosionModelSpherical SPHERICAL = new ExplosionModelSpherical();
+	public static final ExplosionBatcher BATCHER = new ExplosionBatcher();
 }
@@ -0,0 +1,474 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.thread;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.spout.api.Spout;
+import org.spout.api.exception.ConfigurationException;
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.util.config.yaml.YamlConfiguration;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.command.AdministrationCommands.TPSMonitor;
+
+/**
+ * Generates a square area of chunk columns around a central chunk using multiple threads<br>
+ * Progress is written to a checkpoint file, so a pre-generation stopped by a restart resumes where it left off.
+ * Workers pause while the server ticks slower than the minimum TPS.
+ */
+public class RegionPregenerator {
+	/**
+	 * Largest radius accepted, in chunks, which keeps the column list at about 8 MiB
+	 */
+	public static final int MAX_RADIUS = 512;
+	// Same height as the spawn area loaded by the SpawnLoader
+	private static final int HEIGHT = 16;
+	private static final int REGION_BITS = 5;
+	private static final long REPORT_INTERVAL = 10000;
+	private static final long CHECKPOINT_INTERVAL = 30000;
+	private static final long THROTTLE_SLEEP = 250;
+	private static final long SHUTDOWN_TIMEOUT = 30000;
+	private static final ConcurrentMap<String, RegionPregenerator> running = new ConcurrentHashMap<String, RegionPregenerator>();
+	private final World world;
+	private final int cx, cz, radius;
+	private final Order order;
+	private final File checkpoint;
+	private final int[] columns;
+	private final BitSet completed = new BitSet();
+	private final AtomicInteger next = new AtomicInteger();
+	private final AtomicInteger generated = new AtomicInteger();
+	private final AtomicLong throttledMillis = new AtomicLong();
+	private volatile boolean cancelled = false;
+	private volatile boolean throttled = false;
+	private int resumed = 0;
+	private int watermark = 0;
+	private volatile long startTime;
+	private Thread[] workers;
+	private Thread monitor;
+
+	/**
+	 * Creates a new pre-generator, which resumes from the checkpoint when started if it was written for the same area and order
+	 * @param world to generate
+	 * @param cx of the central chunk
+	 * @param cz of the central chunk
+	 * @param radius of the area, in chunks
+	 * @param order to generate the columns in
+	 * @param checkpoint file to keep the progress in
+	 * @throws IllegalArgumentException if the radius is not between 1 and {@link #MAX_RADIUS}
+	 */
+	public RegionPregenerator(World world, int cx, int cz, int radius, Order order, File checkpoint) {
+		if (radius <= 0 || radius > MAX_RADIUS) {
+			throw new IllegalArgumentException("Radius must be between 1 and " + MAX_RADIUS + ", got " + radius);
+		}
+		this.world = world;
+		this.cx = cx;
+		this.cz = cz;
+		this.radius = radius;
+		this.order = order;
+		this.checkpoint = checkpoint;
+		this.columns = order.getColumns(cx, cz, radius);
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	public Order getOrder() {
+		return order;
+	}
+
+	/**
+	 * Gets the number of columns in the area
+	 * @return the number of columns
+	 */
+	public int getTotal() {
+		return columns.length / 2;
+	}
+
+	/**
+	 * Gets the number of columns generated, including the ones generated before resuming
+	 * @return the number of columns
+	 */
+	public int getCompleted() {
+		return resumed + generated.get();
+	}
+
+	/**
+	 * Gets the number of chunks generated per second since the pre-generator started
+	 * @return the chunks per second
+	 */
+	public double getRate() {
+		if (startTime == 0) {
+			return 0;
+		}
+		final long elapsed = System.currentTimeMillis() - startTime;
+		return elapsed <= 0 ? 0 : generated.get() * HEIGHT * 1000D / elapsed;
+	}
+
+	/**
+	 * Gets the estimated time left at the current rate
+	 * @return the time in seconds, or -1 if unknown
+	 */
+	public long getEta() {
+		final double rate = getRate();
+		if (rate <= 0) {
+			return -1;
+		}
+		return (long) ((getTotal() - getCompleted()) * HEIGHT / rate);
+	}
+
+	/**
+	 * Gets whether the workers are paused because the server is ticking too slowly
+	 * @return true if throttled
+	 */
+	public boolean isThrottled() {
+		return throttled;
+	}
+
+	public boolean isRunning() {
+		return running.get(world.getName()) == this;
+	}
+
+	/**
+	 * Gets a one line report of the progress
+	 * @return the report
+	 */
+	public String getStatus() {
+		final Runtime runtime = Runtime.getRuntime();
+		final long used = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+		final int total = getTotal();
+		final int completed = getCompleted();
+		final long eta = getEta();
+		return "Pre-generating [" + world.getName() + "] " + order.name().toLowerCase() + " radius " + radius + ": " + completed + "/" + total + " columns ("
+				+ (total == 0 ? 100 : completed * 100L / total) + "%), " + String.format("%.1f chunks/s", getRate()) + ", " + used + "/" + (runtime.maxMemory() >> 20)
+				+ " MiB, ETA " + (eta < 0 ? "unknown" : String.format("%d:%02d:%02d", eta / 3600, (eta / 60) % 60, eta % 60))
+				+ ", " + (throttledMillis.get() / 1000) + " s throttled" + (throttled ? ", throttling now" : "");
+	}
+
+	/**
+	 * Starts the workers, stopping any pre-generator already running in the world<br>
+	 * The workers are started by the monitor once the previous pre-generator saved its progress, so the caller is never blocked.
+	 * @param threads to generate with
+	 * @param minTps below which the workers pause, 0 to never pause
+	 */
+	public synchronized void start(final int threads, final float minTps) {
+		final RegionPregenerator previous = running.put(world.getName(), this);
+		if (previous != null) {
+			previous.stop();
+		}
+		monitor = new Thread("Vanilla pre-generator [" + world.getName() + "] monitor") {
+			@Override
+			public void run() {
+				if (previous != null) {
+					// The previous monitor writes its last checkpoint once its workers finished, which must happen before reading it
+					previous.join(0);
+				}
+				launch(threads, minTps);
+				monitor();
+			}
+		};
+		monitor.setDaemon(true);
+		monitor.start();
+	}
+
+	private void launch(int threads, final float minTps) {
+		readCheckpoint();
+		startTime = System.currentTimeMillis();
+		workers = new Thread[Math.max(1, threads)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread("Vanilla pre-generator [" + world.getName() + "] #" + (i + 1)) {
+				@Override
+				public void run() {
+					generate(minTps);
+				}
+			};
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		Spout.getLogger().info(getStatus());
+	}
+
+	/**
+	 * Stops the workers, the columns being generated are finished and the progress is saved
+	 */
+	public void stop() {
+		cancelled = true;
+		running.remove(world.getName(), this);
+	}
+
+	/**
+	 * Waits until the workers stopped and the progress is saved
+	 * @param timeout in milliseconds, 0 to wait forever
+	 * @return true if the progress is saved, false if the timeout elapsed first
+	 */
+	public boolean join(long timeout) {
+		final Thread monitor;
+		synchronized (this) {
+			monitor = this.monitor;
+		}
+		if (monitor == null) {
+			return true;
+		}
+		try {
+			monitor.join(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return !monitor.isAlive();
+	}
+
+	/**
+	 * Gets the pre-generator running in a world
+	 * @param world to get the pre-generator of
+	 * @return the pre-generator, or null if none is running
+	 */
+	public static RegionPregenerator get(World world) {
+		return running.get(world.getName());
+	}
+
+	/**
+	 * Stops all running pre-generators and waits a bounded time for their progress to be saved, as their threads do not keep the server alive
+	 */
+	public static void stopAll() {
+		final List<RegionPregenerator> pregenerators = new ArrayList<RegionPregenerator>(running.values());
+		for (RegionPregenerator pregenerator : pregenerators) {
+			pregenerator.stop();
+		}
+		final long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT;
+		for (RegionPregenerator pregenerator : pregenerators) {
+			final long timeout = deadline - System.currentTimeMillis();
+			if (timeout <= 0 || !pregenerator.join(timeout)) {
+				Spout.getLogger().warning("Pre-generation of [" + pregenerator.getWorld().getName() + "] did not save its progress in time, the last checkpoint is used when resuming");
+			}
+		}
+	}
+
+	private void generate(float minTps) {
+		final TPSMonitor tps = VanillaPlugin.getInstance() == null ? null : VanillaPlugin.getInstance().getTPSMonitor();
+		final int total = getTotal();
+		while (!cancelled) {
+			if (tps != null && minTps > 0 && tps.getTPS() < minTps) {
+				throttled = true;
+				try {
+					Thread.sleep(THROTTLE_SLEEP);
+				} catch (InterruptedException e) {
+					break;
+				}
+				continue;
+			}
+			throttled = false;
+			final int index = next.getAndIncrement();
+			if (index >= total) {
+				break;
+			}
+			final int x = columns[index << 1];
+			final int z = columns[(index << 1) + 1];
+			for (int y = 0; y < HEIGHT; y++) {
+				world.getChunk(x, y, z, LoadOption.LOAD_GEN);
+			}
+			generated.incrementAndGet();
+			synchronized (completed) {
+				completed.set(index);
+			}
+		}
+	}
+
+	private void monitor() {
+		long lastTime = System.currentTimeMillis();
+		long lastReport = lastTime;
+		long lastCheckpoint = lastTime;
+		for (Thread worker : workers) {
+			while (worker.isAlive()) {
+				try {
+					worker.join(1000);
+				} catch (InterruptedException e) {
+					cancelled = true;
+				}
+				final long time = System.currentTimeMillis();
+				if (throttled) {
+					throttledMillis.addAndGet(time - lastTime);
+				}
+				lastTime = time;
+				if (time - lastReport >= REPORT_INTERVAL) {
+					Spout.getLogger().info(getStatus());
+					lastReport = time;
+				}
+				if (time - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+					writeCheckpoint();
+					lastCheckpoint = time;
+				}
+			}
+		}
+		running.remove(world.getName(), this);
+		if (getCompleted() >= getTotal()) {
+			if (checkpoint.exists() && !checkpoint.delete()) {
+				Spout.getLogger().warning("Unable to delete the pre-generation checkpoint " + checkpoint.getPath());
+			}
+			Spout.getLogger().info(getStatus());
+			Spout.getLogger().info("Pre-generation of [" + world.getName() + "] complete");
+		} else {
+			writeCheckpoint();
+			Spout.getLogger().info(getStatus());
+			Spout.getLogger().info("Pre-generation of [" + world.getName() + "] stopped, it resumes from column " + watermark + " when started again with the same radius and order");
+		}
+	}
+
+	private void readCheckpoint() {
+		if (!checkpoint.exists()) {
+			return;
+		}
+		final YamlConfiguration config = new YamlConfiguration(checkpoint);
+		try {
+			config.load();
+		} catch (ConfigurationException e) {
+			Spout.getLogger().log(Level.WARNING, "Unable to read the pre-generation checkpoint " + checkpoint.getPath(), e);
+			return;
+		}
+		if (config.getNode("center", "x").getInt() != cx || config.getNode("center", "z").getInt() != cz || config.getNode("radius").getInt() != radius
+				|| !order.name().equalsIgnoreCase(config.getNode("order").getString())) {
+			return;
+		}
+		// Columns are handed out in order, so everything below the checkpoint was generated
+		watermark = Math.max(0, Math.min(getTotal(), config.getNode("completed").getInt()));
+		resumed = watermark;
+		next.set(watermark);
+		completed.set(0, watermark);
+	}
+
+	private void writeCheckpoint() {
+		synchronized (completed) {
+			watermark = completed.nextClearBit(0);
+		}
+		final File folder = checkpoint.getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs()) {
+			Spout.getLogger().warning("Unable to create the pre-generation checkpoint folder " + folder.getPath());
+			return;
+		}
+		final YamlConfiguration config = new YamlConfiguration(checkpoint);
+		config.getNode("world").setValue(world.getName());
+		config.getNode("center", "x").setValue(cx);
+		config.getNode("center", "z").setValue(cz);
+		config.getNode("radius").setValue(radius);
+		config.getNode("order").setValue(order.name().toLowerCase());
+		config.getNode("completed").setValue(watermark);
+		config.getNode("total").setValue(getTotal());
+		try {
+			config.save();
+		} catch (ConfigurationException e) {
+			Spout.getLogger().log(Level.WARNING, "Unable to write the pre-generation checkpoint " + checkpoint.getPath(), e);
+		}
+	}
+
+	public static enum Order {
+		/**
+		 * Columns in rings of increasing distance to the center
+		 */
+		SPIRAL,
+		/**
+		 * Columns grouped by 32x32 region, the regions in rings of increasing distance to the center,
+		 * so each region file is finished before the next one is started
+		 */
+		REGION;
+
+		/**
+		 * Gets the order with the given name, ignoring case
+		 * @param name of the order
+		 * @return the order, or null if not found
+		 */
+		public static Order get(String name) {
+			for (Order order : values()) {
+				if (order.name().equalsIgnoreCase(name)) {
+					return order;
+				}
+			}
+			return null;
+		}
+
+		private int[] getColumns(int cx, int cz, int radius) {
+			final int side = 2 * radius + 1;
+			final int[] columns = new int[side * side * 2];
+			if (this == SPIRAL) {
+				spiral(cx, cz, radius, columns);
+				return columns;
+			}
+			final int rcx = cx >> REGION_BITS;
+			final int rcz = cz >> REGION_BITS;
+			final int regionRadiusX = Math.max(rcx - ((cx - radius) >> REGION_BITS), ((cx + radius) >> REGION_BITS) - rcx);
+			final int regionRadiusZ = Math.max(rcz - ((cz - radius) >> REGION_BITS), ((cz + radius) >> REGION_BITS) - rcz);
+			final int regionRadius = Math.max(regionRadiusX, regionRadiusZ);
+			final int regionSide = 2 * regionRadius + 1;
+			final int[] regions = new int[regionSide * regionSide * 2];
+			spiral(rcx, rcz, regionRadius, regions);
+			int count = 0;
+			for (int i = 0; i < regions.length; i += 2) {
+				final int minX = Math.max(cx - radius, regions[i] << REGION_BITS);
+				final int maxX = Math.min(cx + radius, ((regions[i] + 1) << REGION_BITS) - 1);
+				final int minZ = Math.max(cz - radius, regions[i + 1] << REGION_BITS);
+				final int maxZ = Math.min(cz + radius, ((regions[i + 1] + 1) << REGION_BITS) - 1);
+				for (int z = minZ; z <= maxZ; z++) {
+					for (int x = minX; x <= maxX; x++) {
+						columns[count++] = x;
+						columns[count++] = z;
+					}
+				}
+			}
+			return columns;
+		}
+
+		private static void spiral(int cx, int cz, int radius, int[] out) {
+			int count = 0;
+			out[count++] = cx;
+			out[count++] = cz;
+			for (int d = 1; d <= radius; d++) {
+				for (int i = -d; i < d; i++) {
+					out[count++] = cx + i;
+					out[count++] = cz - d;
+					out[count++] = cx + d;
+					out[count++] = cz + i;
+					out[count++] = cx - i;
+					out[count++] = cz + d;
+					out[count++] = cx - d;
+					out[count++] = cz - i;
+				}
+			}
+		}
+	}
+}
@@ -42,6 +42,7 @@ public class SpawnLoader extends MultiTasker<IntVector3> {
 	private String loadingName;
 	private int startAmount;
 	private int step;
+	private long startTime;
 	private World world;
 
 	public SpawnLoader(int threadCount) {
@@ -51,7 +52,9 @@ public class SpawnLoader extends MultiTasker<IntVector3> {
 	@Override
 	protected void handle(IntVector3 task, int remaining) {
 		if (remaining % this.step == 0) {
-			Spout.getLogger().info(this.loadingName + " [" + this.world.getName() + "], " + (((this.startAmount - remaining) * 100) / this.startAmount) + "% complete");
+			final long elapsed = Math.max(1, System.currentTimeMillis() - this.startTime);
+			Spout.getLogger().info(this.loadingName + " [" + this.world.getName() + "], " + (((this.startAmount - remaining) * 100) / this.startAmount) + "% complete, "
+					+ ((this.startAmount - remaining) * 1000L / elapsed) + " chunks/s");
 		}
 		this.world.getChunk(task.getX(), task.getY(), task.getZ(), LoadOption.LOAD_GEN);
 	}
@@ -64,7 +67,8 @@ public class SpawnLoader extends MultiTasker<IntVector3> {
 			addTask(this.iter.next());
 		}
 		this.startAmount = this.getRemaining();
-		this.step = this.startAmount / 10;
+		this.step = Math.max(1, this.startAmount / 10);
+		this.startTime = System.currentTimeMillis();
 		start();
 		finish();
 		try {
@@ -0,0 +1,325 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.spout.api.component.type.EntityComponent;
+import org.spout.api.entity.Entity;
+import org.spout.api.geo.World;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.math.GenericMath;
+
+import org.spout.vanilla.component.entity.living.Human;
+import org.spout.vanilla.component.entity.misc.EntityIndexer;
+import org.spout.vanilla.component.entity.misc.Health;
+import org.spout.vanilla.component.entity.substance.Item;
+import org.spout.vanilla.component.world.VanillaWorldComponent;
+
+/**
+ * Spatial hash of the entities of a world, bucketed by component type<br>
+ * Entities are added and moved by their {@link EntityIndexer} as they tick, so positions are those of the last tick.
+ * Queries fill a list given by the caller and only visit the 16x16x16 cells overlapping the queried area.
+ * The index is attached to its world as a component, so it is released together with the world.
+ */
+public class EntityIndex extends VanillaWorldComponent {
+	private static final int CELL_BITS = 4;
+	private static final Class<?>[] TYPES = {Health.class, Item.class, Human.class};
+	private static final Object ATTACH_LOCK = new Object();
+	private final Bucket[] buckets = new Bucket[TYPES.length];
+
+	public EntityIndex() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new Bucket();
+		}
+	}
+
+	/**
+	 * Gets the index of a world
+	 * @param world to get the index of
+	 * @return the index
+	 */
+	public static EntityIndex get(World world) {
+		final EntityIndex index = world.get(EntityIndex.class);
+		if (index != null) {
+			return index;
+		}
+		// Entities of a world tick in parallel, only one of them may attach the index
+		synchronized (ATTACH_LOCK) {
+			return world.add(EntityIndex.class);
+		}
+	}
+
+	/**
+	 * Gets whether entities with the given component are indexed
+	 * @param type of component
+	 * @return true if indexed
+	 */
+	public static boolean isIndexed(Class<? extends EntityComponent> type) {
+		return getBucketIndex(type) >= 0;
+	}
+
+	/**
+	 * Gets the buckets an entity belongs in
+	 * @param entity to check
+	 * @return the bucket mask
+	 */
+	public static int getBuckets(Entity entity) {
+		int mask = 0;
+		for (int i = 0; i < TYPES.length; i++) {
+			if (entity.get(TYPES[i].asSubclass(EntityComponent.class)) != null) {
+				mask |= 1 << i;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Gets the cell containing a position
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @param z coordinate
+	 * @return the cell key
+	 */
+	public static long getCell(float x, float y, float z) {
+		return getKey(GenericMath.floor(x) >> CELL_BITS, GenericMath.floor(y) >> CELL_BITS, GenericMath.floor(z) >> CELL_BITS);
+	}
+
+	/**
+	 * Adds an entity to the buckets and cell given
+	 * @param indexer of the entity
+	 * @param cell to add to
+	 * @param mask of the buckets to add to
+	 */
+	public void add(EntityIndexer indexer, long cell, int mask) {
+		for (int i = 0; i < buckets.length; i++) {
+			if ((mask & (1 << i)) != 0) {
+				buckets[i].add(indexer, cell);
+			}
+		}
+	}
+
+	/**
+	 * Removes an entity from the buckets and cell given
+	 * @param indexer of the entity
+	 * @param cell to remove from
+	 * @param mask of the buckets to remove from
+	 */
+	public void remove(EntityIndexer indexer, long cell, int mask) {
+		for (int i = 0; i < buckets.length; i++) {
+			if ((mask & (1 << i)) != 0) {
+				buckets[i].remove(indexer, cell);
+			}
+		}
+	}
+
+	/**
+	 * Adds the entities with a component within a radius to the list
+	 * @param type of component the entities have, which must be indexed
+	 * @param position of the center
+	 * @param radius to search in
+	 * @param ignore entity not added, can be null
+	 * @param entities to add to
+	 */
+	public void getNearby(Class<? extends EntityComponent> type, Point position, float radius, Entity ignore, List<Entity> entities) {
+		final float x = position.getX();
+		final float y = position.getY();
+		final float z = position.getZ();
+		getBucket(type).query(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, x, y, z, radius * radius, ignore, entities);
+	}
+
+	/**
+	 * Adds the entities with a component within a box to the list
+	 * @param type of component the entities have, which must be indexed
+	 * @param minX of the box
+	 * @param minY of the box
+	 * @param minZ of the box
+	 * @param maxX of the box
+	 * @param maxY of the box
+	 * @param maxZ of the box
+	 * @param ignore entity not added, can be null
+	 * @param entities to add to
+	 */
+	public void getInBox(Class<? extends EntityComponent> type, float minX, float minY, float minZ, float maxX, float maxY, float maxZ, Entity ignore, List<Entity> entities) {
+		getBucket(type).query(minX, minY, minZ, maxX, maxY, maxZ, 0, 0, 0, -1, ignore, entities);
+	}
+
+	private Bucket getBucket(Class<? extends EntityComponent> type) {
+		final int index = getBucketIndex(type);
+		if (index < 0) {
+			throw new IllegalArgumentException("Entities with " + type.getSimpleName() + " are not indexed");
+		}
+		return buckets[index];
+	}
+
+	private static int getBucketIndex(Class<? extends EntityComponent> type) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i] == type) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static long getKey(int x, int y, int z) {
+		return ((long) x & 0x1FFFFFL) << 42 | ((long) y & 0x1FFFFFL) << 21 | ((long) z & 0x1FFFFFL);
+	}
+
+	private static class Bucket {
+		private final TLongObjectHashMap<Cell> cells = new TLongObjectHashMap<Cell>();
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		private void add(EntityIndexer indexer, long key) {
+			lock.writeLock().lock();
+			try {
+				Cell cell = cells.get(key);
+				if (cell == null) {
+					cell = new Cell();
+					cells.put(key, cell);
+				}
+				cell.add(indexer);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void remove(EntityIndexer indexer, long key) {
+			lock.writeLock().lock();
+			try {
+				Cell cell = cells.get(key);
+				if (cell != null && cell.remove(indexer) && cell.size == 0) {
+					cells.remove(key);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float x, float y, float z, float radiusSquared, Entity ignore, List<Entity> entities) {
+			final int minCellX = GenericMath.floor(minX) >> CELL_BITS;
+			final int minCellY = GenericMath.floor(minY) >> CELL_BITS;
+			final int minCellZ = GenericMath.floor(minZ) >> CELL_BITS;
+			final int maxCellX = GenericMath.floor(maxX) >> CELL_BITS;
+			final int maxCellY = GenericMath.floor(maxY) >> CELL_BITS;
+			final int maxCellZ = GenericMath.floor(maxZ) >> CELL_BITS;
+			boolean stale = false;
+			lock.readLock().lock();
+			try {
+				for (int cx = minCellX; cx <= maxCellX; cx++) {
+					for (int cy = minCellY; cy <= maxCellY; cy++) {
+						for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+							final Cell cell = cells.get(getKey(cx, cy, cz));
+							if (cell == null) {
+								continue;
+							}
+							for (int i = 0; i < cell.size; i++) {
+								final EntityIndexer indexer = cell.entries[i];
+								final float ex = indexer.getX();
+								final float ey = indexer.getY();
+								final float ez = indexer.getZ();
+								if (ex < minX || ex > maxX || ey < minY || ey > maxY || ez < minZ || ez > maxZ) {
+									continue;
+								}
+								if (radiusSquared >= 0) {
+									final float dx = ex - x, dy = ey - y, dz = ez - z;
+									if (dx * dx + dy * dy + dz * dz > radiusSquared) {
+										continue;
+									}
+								}
+								final Entity entity = indexer.getOwner();
+								if (entity.isRemoved()) {
+									stale = true;
+								} else if (entity != ignore) {
+									entities.add(entity);
+								}
+							}
+						}
+					}
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			if (stale) {
+				purge();
+			}
+		}
+
+		/**
+		 * Removes the entities removed from the world without detaching their indexer
+		 */
+		private void purge() {
+			lock.writeLock().lock();
+			try {
+				final TLongObjectIterator<Cell> iter = cells.iterator();
+				while (iter.hasNext()) {
+					iter.advance();
+					final Cell cell = iter.value();
+					for (int i = cell.size - 1; i >= 0; i--) {
+						if (cell.entries[i].getOwner().isRemoved()) {
+							cell.remove(cell.entries[i]);
+						}
+					}
+					if (cell.size == 0) {
+						iter.remove();
+					}
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	private static class Cell {
+		private EntityIndexer[] entries = new EntityIndexer[4];
+		private int size = 0;
+
+		private void add(EntityIndexer indexer) {
+			if (size == entries.length) {
+				final EntityIndexer[] grown = new EntityIndexer[size << 1];
+				System.arraycopy(entries, 0, grown, 0, size);
+				entries = grown;
+			}
+			entries[size++] = indexer;
+		}
+
+		private boolean remove(EntityIndexer indexer) {
+			for (int i = 0; i < size; i++) {
+				if (entries[i] == indexer) {
+					entries[i] = entries[--size];
+					entries[size] = null;
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
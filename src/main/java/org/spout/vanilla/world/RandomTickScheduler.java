@@ -0,0 +1,314 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spout.api.entity.Player;
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.cuboid.Region;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.math.GenericMath;
+import org.spout.api.scheduler.TaskPriority;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.material.RandomTickable;
+import org.spout.vanilla.protocol.VanillaNetworkSynchronizer;
+
+/**
+ * Picks random blocks in the sections near players every tick, and updates the ones with a {@link RandomTickable} material<br>
+ * A section is a loaded 16x16x16 {@link Chunk}. Sections are scanned every so often to find out whether they contain
+ * a random tickable material at all, sections without any are skipped until the next scan.
+ * The blocks of a region are ticked by a task of that region.
+ */
+public class RandomTickScheduler implements Runnable {
+	private static final int SECTION_VOLUME = Chunk.BLOCKS.SIZE * Chunk.BLOCKS.SIZE * Chunk.BLOCKS.SIZE;
+	private static final int SECTION_MASK = Chunk.BLOCKS.SIZE - 1;
+	private static final byte UNKNOWN = 0, TICKABLE = 1, NOT_TICKABLE = 2;
+	// Whether the materials of each id are random tickable, filled in as ids are found
+	private static final byte[] tickableIds = new byte[1 << 16];
+	// Only accessed by the scheduler task
+	private final Map<World, TLongObjectHashMap<Section>> worlds = new HashMap<World, TLongObjectHashMap<Section>>();
+	private long ticks = 0;
+	private final AtomicLong sectionsTicked = new AtomicLong();
+	private final AtomicLong sectionsSkipped = new AtomicLong();
+	private final AtomicLong blocksTicked = new AtomicLong();
+	private final AtomicLong scans = new AtomicLong();
+	private volatile boolean enabled = false;
+	private volatile int radius = 7;
+	private volatile int blocksPerSection = 3;
+	private volatile int rescanInterval = 200;
+
+	/**
+	 * Sets whether blocks are randomly ticked<br>
+	 * The scheduler must be scheduled to run every tick while enabled, random tickable materials do not change otherwise.
+	 * @param enabled state
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets the distance to the players within which sections are ticked
+	 * @param radius in sections
+	 */
+	public void setRadius(int radius) {
+		this.radius = Math.max(0, radius);
+	}
+
+	/**
+	 * Sets the number of random blocks picked in each section every tick
+	 * @param blocks per section
+	 */
+	public void setBlocksPerSection(int blocks) {
+		this.blocksPerSection = Math.max(0, blocks);
+	}
+
+	/**
+	 * Sets the average time between the scans of a section for random tickable materials<br>
+	 * Random tickable materials placed in a section that had none are ticked after the next scan.
+	 * @param ticks between scans
+	 */
+	public void setRescanInterval(int ticks) {
+		this.rescanInterval = Math.max(1, ticks);
+	}
+
+	/**
+	 * Gets the number of sections ticked
+	 * @return the number of sections
+	 */
+	public long getSectionsTicked() {
+		return sectionsTicked.get();
+	}
+
+	/**
+	 * Gets the number of sections skipped because they contained no random tickable material
+	 * @return the number of sections
+	 */
+	public long getSectionsSkipped() {
+		return sectionsSkipped.get();
+	}
+
+	/**
+	 * Gets the number of blocks ticked
+	 * @return the number of blocks
+	 */
+	public long getBlocksTicked() {
+		return blocksTicked.get();
+	}
+
+	/**
+	 * Gets the number of sections scanned for random tickable materials
+	 * @return the number of scans
+	 */
+	public long getScans() {
+		return scans.get();
+	}
+
+	@Override
+	public void run() {
+		if (!enabled) {
+			worlds.clear();
+			return;
+		}
+		final long tick = ++ticks;
+		final int radius = this.radius;
+		final int height = VanillaNetworkSynchronizer.WORLD_HEIGHT >> Chunk.BLOCKS.BITS;
+		final Map<Region, List<Section>> regions = new HashMap<Region, List<Section>>();
+		final Map<World, TLongObjectHashMap<Section>> previous = new HashMap<World, TLongObjectHashMap<Section>>(worlds);
+		worlds.clear();
+		for (World world : VanillaPlugin.getInstance().getEngine().getWorlds()) {
+			final TLongObjectHashMap<Section> old = previous.get(world);
+			final TLongObjectHashMap<Section> sections = new TLongObjectHashMap<Section>();
+			for (Player player : world.getPlayers()) {
+				if (!player.isOnline()) {
+					continue;
+				}
+				final Point position = player.getScene().getPosition();
+				final int playerX = position.getChunkX();
+				final int playerZ = position.getChunkZ();
+				for (int x = playerX - radius; x <= playerX + radius; x++) {
+					for (int z = playerZ - radius; z <= playerZ + radius; z++) {
+						for (int y = 0; y < height; y++) {
+							final long key = getKey(x, y, z);
+							if (sections.containsKey(key)) {
+								continue;
+							}
+							// Keep the scan results of sections ticked last tick
+							Section section = old == null ? null : old.get(key);
+							if (section == null || !section.chunk.isLoaded()) {
+								final Chunk chunk = world.getChunk(x, y, z, LoadOption.NO_LOAD);
+								if (chunk == null || !chunk.isLoaded()) {
+									continue;
+								}
+								section = new Section(chunk);
+							}
+							sections.put(key, section);
+							final Region region = section.chunk.getRegion();
+							List<Section> regionSections = regions.get(region);
+							if (regionSections == null) {
+								regionSections = new ArrayList<Section>();
+								regions.put(region, regionSections);
+							}
+							regionSections.add(section);
+						}
+					}
+				}
+			}
+			if (!sections.isEmpty()) {
+				worlds.put(world, sections);
+			}
+		}
+		for (Map.Entry<Region, List<Section>> entry : regions.entrySet()) {
+			entry.getKey().getTaskManager().scheduleSyncDelayedTask(VanillaPlugin.getInstance(), new RegionTick(entry.getValue(), tick), TaskPriority.LOWEST);
+		}
+	}
+
+	private static long getKey(int x, int y, int z) {
+		return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | (y & 0xFFFL);
+	}
+
+	/**
+	 * Counts the blocks of a section with a random tickable material
+	 * @param chunk of the section to scan
+	 * @return the number of blocks
+	 */
+	private static int scan(Chunk chunk) {
+		final CuboidBlockMaterialBuffer buffer = chunk.getCuboid(false);
+		final int baseX = chunk.getBlockX();
+		final int baseY = chunk.getBlockY();
+		final int baseZ = chunk.getBlockZ();
+		int count = 0;
+		short lastId = -1;
+		boolean lastTickable = false;
+		for (int x = baseX; x < baseX + Chunk.BLOCKS.SIZE; x++) {
+			for (int y = baseY; y < baseY + Chunk.BLOCKS.SIZE; y++) {
+				for (int z = baseZ; z < baseZ + Chunk.BLOCKS.SIZE; z++) {
+					final short id = buffer.getId(x, y, z);
+					if (id != lastId) {
+						lastId = id;
+						lastTickable = isTickable(id);
+					}
+					if (lastTickable) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private static boolean isTickable(short id) {
+		final int index = id & 0xFFFF;
+		byte state = tickableIds[index];
+		if (state == UNKNOWN) {
+			// Racing threads compute the same value, so the table needs no locking
+			state = BlockMaterial.get(id, (short) 0) instanceof RandomTickable ? TICKABLE : NOT_TICKABLE;
+			tickableIds[index] = state;
+		}
+		return state == TICKABLE;
+	}
+
+	private static final class Section {
+		private final Chunk chunk;
+		// Number of random tickable blocks found by the last scan
+		private int tickable = 0;
+		private long nextScan = 0;
+
+		private Section(Chunk chunk) {
+			this.chunk = chunk;
+		}
+	}
+
+	private final class RegionTick implements Runnable {
+		private final List<Section> sections;
+		private final long tick;
+
+		private RegionTick(List<Section> sections, long tick) {
+			this.sections = sections;
+			this.tick = tick;
+		}
+
+		@Override
+		public void run() {
+			final Random rand = GenericMath.getRandom();
+			final int blocks = blocksPerSection;
+			final int interval = rescanInterval;
+			int ticked = 0, skipped = 0, updated = 0, scanned = 0;
+			for (Section section : sections) {
+				final Chunk chunk = section.chunk;
+				if (!chunk.isLoaded()) {
+					continue;
+				}
+				if (tick >= section.nextScan) {
+					section.tickable = scan(chunk);
+					// Spread the scans of the sections over the interval
+					section.nextScan = tick + interval / 2 + rand.nextInt(interval);
+					scanned++;
+				}
+				if (section.tickable == 0) {
+					skipped++;
+					continue;
+				}
+				ticked++;
+				final int baseX = chunk.getBlockX();
+				final int baseY = chunk.getBlockY();
+				final int baseZ = chunk.getBlockZ();
+				for (int i = 0; i < blocks; i++) {
+					final int index = rand.nextInt(SECTION_VOLUME);
+					final int x = baseX + (index & SECTION_MASK);
+					final int y = baseY + (index >> Chunk.BLOCKS.BITS & SECTION_MASK);
+					final int z = baseZ + (index >> (Chunk.BLOCKS.BITS << 1) & SECTION_MASK);
+					final BlockMaterial material = chunk.getBlockMaterial(x, y, z);
+					if (material instanceof RandomTickable) {
+						((RandomTickable) material).onRandomTick(chunk.getBlock(x, y, z));
+						updated++;
+					}
+				}
+			}
+			sectionsTicked.addAndGet(ticked);
+			sectionsSkipped.addAndGet(skipped);
+			blocksTicked.addAndGet(updated);
+			scans.addAndGet(scanned);
+		}
+	}
+}
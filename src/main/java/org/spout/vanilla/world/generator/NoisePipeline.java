@@ -0,0 +1,85 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+/**
+ * Per-thread cache of seeded noise module chains<br>
+ * jlibnoise modules hold their seed as mutable state, so a chain shared between worlds has to be
+ * reseeded before every use, which races as soon as two threads generate at once.
+ * A pipeline instead builds and seeds a separate chain for every thread and seed, which is never modified afterwards.
+ * Each thread keeps the chains of its most recently used seeds, so a thread working on several worlds does not rebuild them.
+ * @param <T> the type of the noise chain
+ */
+public abstract class NoisePipeline<T> {
+	private static final int SEEDS_PER_THREAD = 4;
+	private final ThreadLocal<Cache> caches = new ThreadLocal<Cache>() {
+		@Override
+		protected Cache initialValue() {
+			return new Cache();
+		}
+	};
+
+	/**
+	 * Gets the noise chain of the current thread for a seed, building it on first use
+	 * @param seed of the chain
+	 * @return the noise chain, which must not be modified
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(long seed) {
+		final Cache cache = caches.get();
+		for (int i = 0; i < cache.size; i++) {
+			if (cache.seeds[i] == seed) {
+				return (T) cache.chains[i];
+			}
+		}
+		final T chain = create(seed);
+		final int slot;
+		if (cache.size < SEEDS_PER_THREAD) {
+			slot = cache.size++;
+		} else {
+			slot = cache.next;
+			cache.next = (cache.next + 1) % SEEDS_PER_THREAD;
+		}
+		cache.seeds[slot] = seed;
+		cache.chains[slot] = chain;
+		return chain;
+	}
+
+	/**
+	 * Builds a new noise chain for a seed
+	 * @param seed of the chain
+	 * @return the seeded noise chain
+	 */
+	protected abstract T create(long seed);
+
+	private static class Cache {
+		private final long[] seeds = new long[SEEDS_PER_THREAD];
+		private final Object[] chains = new Object[SEEDS_PER_THREAD];
+		private int size = 0;
+		private int next = 0;
+	}
+}
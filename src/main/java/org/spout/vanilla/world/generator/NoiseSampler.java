@@ -0,0 +1,154 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import net.royawesome.jlibnoise.module.Module;
+
+/**
+ * Samples noise modules on a coarse lattice and interpolates the values in between into flat arrays<br>
+ * The module is evaluated at the same lattice points as {@link org.spout.api.generator.WorldGeneratorUtils#fastNoise},
+ * but the result is written to an array reused by the calling thread, in column order so that
+ * the innermost loop of both the interpolation and the generators runs over y.
+ */
+public final class NoiseSampler {
+	private static final ThreadLocal<double[][]> SLABS = new ThreadLocal<double[][]>() {
+		@Override
+		protected double[][] initialValue() {
+			return new double[6][];
+		}
+	};
+
+	private NoiseSampler() {
+	}
+
+	/**
+	 * Gets the index of a position in the arrays returned by {@link #sample(Module, int, int, int, int, int, int, int)}
+	 * @param xx of the position, relative to the sampled area
+	 * @param yy of the position, relative to the sampled area
+	 * @param zz of the position, relative to the sampled area
+	 * @param sizeY of the sampled area
+	 * @param sizeZ of the sampled area
+	 * @return the index
+	 */
+	public static int getIndex(int xx, int yy, int zz, int sizeY, int sizeZ) {
+		return (xx * sizeZ + zz) * sizeY + yy;
+	}
+
+	/**
+	 * Samples a noise module over an area<br>
+	 * The returned array belongs to the calling thread and is overwritten by its next call.
+	 * It may be longer than the area, see {@link #getIndex(int, int, int, int, int)} for its layout.
+	 * @param module to sample
+	 * @param sizeX of the area, a multiple of the sampling rate
+	 * @param sizeY of the area, a multiple of the sampling rate
+	 * @param sizeZ of the area, a multiple of the sampling rate
+	 * @param samplingRate distance between the positions at which the module is evaluated
+	 * @param x of the area
+	 * @param y of the area
+	 * @param z of the area
+	 * @return the noise values
+	 */
+	public static double[] sample(Module module, int sizeX, int sizeY, int sizeZ, int samplingRate, int x, int y, int z) {
+		if (samplingRate <= 0 || sizeX % samplingRate != 0 || sizeY % samplingRate != 0 || sizeZ % samplingRate != 0) {
+			throw new IllegalArgumentException("The sizes must be multiples of the sampling rate");
+		}
+		final int latticeX = sizeX / samplingRate + 1;
+		final int latticeY = sizeY / samplingRate + 1;
+		final int latticeZ = sizeZ / samplingRate + 1;
+
+		final double[][] slabs = SLABS.get();
+		final double[] lattice = getSlab(slabs, 0, latticeX * latticeY * latticeZ);
+		final double[] output = getSlab(slabs, 1, sizeX * sizeY * sizeZ);
+
+		int index = 0;
+		for (int i = 0; i < latticeX; i++) {
+			for (int k = 0; k < latticeZ; k++) {
+				for (int j = 0; j < latticeY; j++) {
+					lattice[index++] = module.GetValue(x + i * samplingRate, y + j * samplingRate, z + k * samplingRate);
+				}
+			}
+		}
+
+		// Same weights and lerp order as the GenericMath.triLerp calls of fastNoise, so the values are identical
+		final double[] weight0 = getSlab(slabs, 2, samplingRate);
+		final double[] weight1 = getSlab(slabs, 3, samplingRate);
+		for (int d = 0; d < samplingRate; d++) {
+			weight0[d] = (double) (samplingRate - d) / samplingRate;
+			weight1[d] = (double) d / samplingRate;
+		}
+		final int strideZ = latticeY;
+		final int strideX = latticeY * latticeZ;
+		// Lattice columns at the lower and upper z interpolated along x, which are then interpolated along y and z
+		final double[] lower = getSlab(slabs, 4, latticeY);
+		final double[] upper = getSlab(slabs, 5, latticeY);
+		for (int i = 0; i < latticeX - 1; i++) {
+			for (int dx = 0; dx < samplingRate; dx++) {
+				final double wx0 = weight0[dx];
+				final double wx1 = weight1[dx];
+				final int xx = i * samplingRate + dx;
+				for (int k = 0; k < latticeZ - 1; k++) {
+					final int c00 = i * strideX + k * strideZ;
+					final int c01 = c00 + strideZ;
+					final int c10 = c00 + strideX;
+					final int c11 = c10 + strideZ;
+					for (int j = 0; j < latticeY; j++) {
+						lower[j] = wx0 * lattice[c00 + j] + wx1 * lattice[c10 + j];
+						upper[j] = wx0 * lattice[c01 + j] + wx1 * lattice[c11 + j];
+					}
+					for (int dz = 0; dz < samplingRate; dz++) {
+						final double wz0 = weight0[dz];
+						final double wz1 = weight1[dz];
+						final int offset = (xx * sizeZ + k * samplingRate + dz) * sizeY;
+						for (int j = 0; j < latticeY - 1; j++) {
+							final int start = offset + j * samplingRate;
+							for (int dy = 0; dy < samplingRate; dy++) {
+								if (dx == 0 && dy == 0 && dz == 0) {
+									// fastNoise keeps the lattice values as they are
+									output[start] = lattice[c00 + j];
+									continue;
+								}
+								final double q0 = weight0[dy] * lower[j] + weight1[dy] * lower[j + 1];
+								final double q1 = weight0[dy] * upper[j] + weight1[dy] * upper[j + 1];
+								output[start + dy] = wz0 * q0 + wz1 * q1;
+							}
+						}
+					}
+				}
+			}
+		}
+		return output;
+	}
+
+	private static double[] getSlab(double[][] slabs, int slot, int size) {
+		double[] slab = slabs[slot];
+		if (slab == null || slab.length < size) {
+			slab = new double[size];
+			slabs[slot] = slab;
+		}
+		return slab;
+	}
+}
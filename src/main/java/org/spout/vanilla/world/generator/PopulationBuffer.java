@@ -0,0 +1,215 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+
+import org.spout.api.event.Cause;
+import org.spout.api.generator.biome.Biome;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.math.Vector3;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+/**
+ * Local copy of the blocks around a populated chunk, used by populators and generator objects in place of the world<br>
+ * Each chunk touched is copied once, reads and writes are then served from the copy, and {@link #commit()} writes
+ * the changed blocks back one chunk at a time. The blocks given by {@link #getBlock(int, int, int)} write straight to
+ * the world, so pending changes are committed first and the block is read from the world from then on. These blocks
+ * must only be used to change themselves.
+ */
+public class PopulationBuffer {
+	private final World world;
+	private final TLongObjectHashMap<Section> sections = new TLongObjectHashMap<Section>();
+	private final TLongHashSet passthrough = new TLongHashSet();
+	private Section last = null;
+
+	public PopulationBuffer(World world) {
+		this.world = world;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public BlockMaterial getBlockMaterial(int x, int y, int z) {
+		final Section section = getSection(x, y, z);
+		if (section == null) {
+			return world.getBlockMaterial(x, y, z);
+		}
+		return section.blocks.get(x, y, z);
+	}
+
+	public short getBlockData(int x, int y, int z) {
+		final Section section = getSection(x, y, z);
+		if (section == null) {
+			return world.getBlockData(x, y, z);
+		}
+		return section.blocks.getData(x, y, z);
+	}
+
+	/**
+	 * Sets the material of a block, the change is only made to the world on {@link #commit()}
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @param material to set
+	 * @param data to set
+	 * @param cause of the change
+	 */
+	public void setBlockMaterial(int x, int y, int z, BlockMaterial material, short data, Cause<?> cause) {
+		final Section section = getSection(x, y, z);
+		if (section == null) {
+			world.setBlockMaterial(x, y, z, material, data, cause);
+			return;
+		}
+		section.blocks.set(x, y, z, material.getId(), data);
+		section.markDirty(x, y, z);
+	}
+
+	/**
+	 * Gets a block of the world, after committing all changes made so far
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the block
+	 */
+	public Block getBlock(int x, int y, int z) {
+		commit();
+		passthrough.add(key(x, y, z));
+		return world.getBlock(x, y, z);
+	}
+
+	public Block getBlock(Vector3 position) {
+		return getBlock(position.getFloorX(), position.getFloorY(), position.getFloorZ());
+	}
+
+	public Biome getBiome(int x, int y, int z) {
+		return world.getBiome(x, y, z);
+	}
+
+	public int getSurfaceHeight(int x, int z) {
+		return world.getSurfaceHeight(x, z);
+	}
+
+	/**
+	 * Writes the changed blocks to the world
+	 */
+	public void commit() {
+		for (Section section : sections.valueCollection()) {
+			section.commit();
+		}
+	}
+
+	/**
+	 * Writes the changed blocks to the world and forgets the copied chunks, so the next reads see changes made
+	 * directly to the world in the meantime
+	 */
+	public void flush() {
+		commit();
+		sections.clear();
+		passthrough.clear();
+		last = null;
+	}
+
+	private Section getSection(int x, int y, int z) {
+		final int cx = x >> Chunk.BLOCKS.BITS;
+		final int cy = y >> Chunk.BLOCKS.BITS;
+		final int cz = z >> Chunk.BLOCKS.BITS;
+		Section section = last;
+		if (section == null || section.x != cx || section.y != cy || section.z != cz) {
+			final long key = key(cx, cy, cz);
+			section = sections.get(key);
+			if (section == null) {
+				final Chunk chunk = world.getChunk(cx, cy, cz);
+				if (chunk == null) {
+					return null;
+				}
+				section = new Section(chunk);
+				sections.put(key, section);
+			}
+			last = section;
+		}
+		if (!passthrough.isEmpty() && passthrough.contains(key(x, y, z))) {
+			return null;
+		}
+		return section;
+	}
+
+	private static long key(int x, int y, int z) {
+		return ((long) x & 0x1FFFFF) << 42 | ((long) y & 0x1FFFFF) << 21 | (long) z & 0x1FFFFF;
+	}
+
+	private static class Section {
+		private final Chunk chunk;
+		private final int x, y, z;
+		private final CuboidBlockMaterialBuffer blocks;
+		private final boolean[] dirty = new boolean[Chunk.BLOCKS.VOLUME];
+		private int[] changes = new int[64];
+		private int changeCount = 0;
+
+		private Section(Chunk chunk) {
+			this.chunk = chunk;
+			x = chunk.getX();
+			y = chunk.getY();
+			z = chunk.getZ();
+			blocks = chunk.getCuboid(false);
+		}
+
+		private void markDirty(int bx, int by, int bz) {
+			final int index = (bx & Chunk.BLOCKS.MASK) << (Chunk.BLOCKS.BITS << 1) | (by & Chunk.BLOCKS.MASK) << Chunk.BLOCKS.BITS | bz & Chunk.BLOCKS.MASK;
+			if (dirty[index]) {
+				return;
+			}
+			dirty[index] = true;
+			if (changeCount == changes.length) {
+				final int[] grown = new int[changeCount << 1];
+				System.arraycopy(changes, 0, grown, 0, changeCount);
+				changes = grown;
+			}
+			changes[changeCount++] = index;
+		}
+
+		private void commit() {
+			final int baseX = chunk.getBlockX();
+			final int baseY = chunk.getBlockY();
+			final int baseZ = chunk.getBlockZ();
+			for (int i = 0; i < changeCount; i++) {
+				final int index = changes[i];
+				dirty[index] = false;
+				final int bx = baseX + (index >> (Chunk.BLOCKS.BITS << 1));
+				final int by = baseY + (index >> Chunk.BLOCKS.BITS & Chunk.BLOCKS.MASK);
+				final int bz = baseZ + (index & Chunk.BLOCKS.MASK);
+				chunk.setBlockMaterial(bx, by, bz, blocks.get(bx, by, bz), blocks.getData(bx, by, bz), null);
+			}
+			changeCount = 0;
+		}
+	}
+}
@@ -41,31 +41,45 @@ import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.SolidMoving;
 import org.spout.vanilla.util.MathHelper;
+import org.spout.vanilla.world.generator.NoisePipeline;
 import org.spout.vanilla.world.generator.nether.NetherGenerator;
 
 public class BlockPatchPopulator implements GeneratorPopulator {
-	private final Perlin elevation = new Perlin();
-	private final Perlin shapeBase = new Perlin();
-	private final Turbulence shape = new Turbulence();
+	private final NoisePipeline<Perlin> elevation = new NoisePipeline<Perlin>() {
+		@Override
+		protected Perlin create(long seed) {
+			final Perlin elevation = new Perlin();
+			elevation.setFrequency(0.01);
+			elevation.setLacunarity(1);
+			elevation.setNoiseQuality(NoiseQuality.STANDARD);
+			elevation.setPersistence(0.7);
+			elevation.setOctaveCount(1);
+			elevation.setSeed((int) (seed * 101));
+			return elevation;
+		}
+	};
+	private final NoisePipeline<Turbulence> shape = new NoisePipeline<Turbulence>() {
+		@Override
+		protected Turbulence create(long seed) {
+			final Perlin shapeBase = new Perlin();
+			shapeBase.setFrequency(0.03);
+			shapeBase.setNoiseQuality(NoiseQuality.STANDARD);
+			shapeBase.setOctaveCount(1);
+			shapeBase.setSeed((int) (seed * 313));
+
+			final Turbulence shape = new Turbulence();
+			shape.SetSourceModule(0, shapeBase);
+			shape.setFrequency(0.03);
+			shape.setPower(8);
+			shape.setRoughness(2);
+			shape.setSeed((int) (seed * 661));
+			return shape;
+		}
+	};
 	private final BlockMaterial material;
 
 	public BlockPatchPopulator(BlockMaterial material) {
 		this.material = material;
-
-		elevation.setFrequency(0.01);
-		elevation.setLacunarity(1);
-		elevation.setNoiseQuality(NoiseQuality.STANDARD);
-		elevation.setPersistence(0.7);
-		elevation.setOctaveCount(1);
-
-		shapeBase.setFrequency(0.03);
-		shapeBase.setNoiseQuality(NoiseQuality.STANDARD);
-		shapeBase.setOctaveCount(1);
-
-		shape.SetSourceModule(0, shapeBase);
-		shape.setFrequency(0.03);
-		shape.setPower(8);
-		shape.setRoughness(2);
 	}
 
 	@Override
@@ -74,16 +88,13 @@ public class BlockPatchPopulator implements GeneratorPopulator {
 			return;
 		}
 		seed = WorldGeneratorUtils.getSeed(seed, 4324337, 234571, 76537, material.getId());
-		elevation.setSeed((int) (seed * 101));
-		shapeBase.setSeed((int) (seed * 313));
-		shape.setSeed((int) (seed * 661));
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = GenericMath.clamp(size.getFloorY(), 0, NetherGenerator.HEIGHT);
 		final int sizeZ = size.getFloorZ();
 		final int scale = sizeY / 2;
-		final double[][] displacements = WorldGeneratorUtils.fastNoise(elevation, sizeX, sizeZ, 4, x, 0, z);
-		final double[][] values = WorldGeneratorUtils.fastNoise(shape, sizeX, sizeZ, 4, x, 0, z);
+		final double[][] displacements = WorldGeneratorUtils.fastNoise(elevation.get(seed), sizeX, sizeZ, 4, x, 0, z);
+		final double[][] values = WorldGeneratorUtils.fastNoise(shape.get(seed), sizeX, sizeZ, 4, x, 0, z);
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
 				if (values[xx][zz] > 0.6) {
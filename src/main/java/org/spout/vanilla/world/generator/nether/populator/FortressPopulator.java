@@ -32,6 +32,7 @@ import org.spout.api.generator.Populator;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.nether.structure.fortress.Fortress;
 
 public class FortressPopulator extends Populator {
@@ -59,7 +60,9 @@ public class FortressPopulator extends Populator {
 			final int y = random.nextInt(RAND_Y + 1) + BASE_Y;
 			final int z = blockZ + random.nextInt(VARIATION * 2 + 1) - VARIATION;
 			if (fortress.canPlaceObject(world, x, y, z)) {
-				fortress.placeObject(world, x, y, z);
+				final PopulationBuffer buffer = new PopulationBuffer(world);
+				fortress.placeObject(buffer, x, y, z);
+				buffer.commit();
 			}
 		}
 	}
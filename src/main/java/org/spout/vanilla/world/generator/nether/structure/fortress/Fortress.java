@@ -27,21 +27,19 @@
 package org.spout.vanilla.world.generator.nether.structure.fortress;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Random;
-import java.util.Set;
 
 import org.spout.api.geo.World;
 import org.spout.api.geo.discrete.Point;
 import org.spout.api.math.Quaternion;
 
+import org.spout.vanilla.world.generator.structure.BoundingBoxIndex;
 import org.spout.vanilla.world.generator.structure.Structure;
 import org.spout.vanilla.world.generator.structure.StructurePiece;
 import org.spout.vanilla.world.generator.structure.StructurePiece.BoundingBox;
@@ -64,7 +62,7 @@ public class Fortress extends Structure {
 
 	@Override
 	public void placeObject(World w, int x, int y, int z) {
-		final Set<BoundingBox> placed = new HashSet<BoundingBox>();
+		final BoundingBoxIndex placed = new BoundingBoxIndex();
 		final Queue<StructurePiece> activeBranches = new LinkedList<StructurePiece>();
 		final Map<StructurePiece, BoundingBox> lastBoxes = new HashMap<StructurePiece, BoundingBox>();
 		final FortressCorridor corridor = new FortressCorridor(this);
@@ -78,7 +76,7 @@ public class Fortress extends Structure {
 		while (!activeBranches.isEmpty()) {
 			final StructurePiece active = activeBranches.poll();
 			final BoundingBox activeBox = active.getBoundingBox();
-			if (!collides(activeBox, lastBoxes.remove(active), placed) && active.canPlace()
+			if (!placed.collides(activeBox, lastBoxes.remove(active)) && active.canPlace()
 					&& active.getPosition().getY() >= 10) {
 				active.place();
 				if (++count > size) {
@@ -103,13 +101,4 @@ public class Fortress extends Structure {
 			}
 		}
 	}
-
-	private boolean collides(BoundingBox box, BoundingBox last, Collection<BoundingBox> boxes) {
-		for (BoundingBox other : boxes) {
-			if (!other.equals(last) && other.intersects(box)) {
-				return true;
-			}
-		}
-		return false;
-	}
 }
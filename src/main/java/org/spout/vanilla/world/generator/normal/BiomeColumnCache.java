@@ -0,0 +1,217 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.normal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spout.vanilla.world.generator.normal.biome.NormalBiome;
+
+/**
+ * Bounded cache of the biome and the smoothed elevation of block columns, shared by all threads generating a world<br>
+ * Columns are keyed by world seed and position, so one cache can serve several worlds using the same generator.
+ * The cache is direct mapped and split into independently locked stripes, a column replaces whichever column used its slot.
+ */
+public class BiomeColumnCache {
+	private static final int STRIPES = 16;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final AtomicLong biomeHits = new AtomicLong();
+	private final AtomicLong biomeMisses = new AtomicLong();
+	private final AtomicLong elevationHits = new AtomicLong();
+	private final AtomicLong elevationMisses = new AtomicLong();
+
+	/**
+	 * Creates a new cache
+	 * @param capacity the maximum number of columns held, rounded up to a power of two per stripe
+	 */
+	public BiomeColumnCache(int capacity) {
+		int stripeCapacity = Integer.highestOneBit(Math.max(1, (capacity + STRIPES - 1) / STRIPES - 1)) << 1;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(stripeCapacity);
+		}
+	}
+
+	/**
+	 * Gets the biome of a column
+	 * @param seed of the world
+	 * @param x of the column
+	 * @param z of the column
+	 * @return the biome, or null if not cached
+	 */
+	public NormalBiome getBiome(long seed, int x, int z) {
+		final int hash = hash(seed, x, z);
+		final Stripe stripe = stripes[hash & (STRIPES - 1)];
+		NormalBiome biome = null;
+		synchronized (stripe) {
+			final int slot = (hash >>> 4) & stripe.mask;
+			if (stripe.matches(slot, seed, x, z)) {
+				biome = stripe.biomes[slot];
+			}
+		}
+		(biome != null ? biomeHits : biomeMisses).incrementAndGet();
+		return biome;
+	}
+
+	/**
+	 * Stores the biome of a column
+	 * @param seed of the world
+	 * @param x of the column
+	 * @param z of the column
+	 * @param biome of the column
+	 */
+	public void putBiome(long seed, int x, int z, NormalBiome biome) {
+		final int hash = hash(seed, x, z);
+		final Stripe stripe = stripes[hash & (STRIPES - 1)];
+		synchronized (stripe) {
+			final int slot = stripe.claim((hash >>> 4) & stripe.mask, seed, x, z);
+			stripe.biomes[slot] = biome;
+		}
+	}
+
+	/**
+	 * Gets the smoothed elevation of a column
+	 * @param seed of the world
+	 * @param x of the column
+	 * @param z of the column
+	 * @param elevation to write the minimum elevation and the smoothed height to, at indexes 0 and 1
+	 * @return true if cached, false if the array was left unchanged
+	 */
+	public boolean getElevation(long seed, int x, int z, double[] elevation) {
+		final int hash = hash(seed, x, z);
+		final Stripe stripe = stripes[hash & (STRIPES - 1)];
+		boolean found = false;
+		synchronized (stripe) {
+			final int slot = (hash >>> 4) & stripe.mask;
+			if (stripe.matches(slot, seed, x, z) && stripe.hasElevation[slot]) {
+				elevation[0] = stripe.minElevations[slot];
+				elevation[1] = stripe.smoothHeights[slot];
+				found = true;
+			}
+		}
+		(found ? elevationHits : elevationMisses).incrementAndGet();
+		return found;
+	}
+
+	/**
+	 * Stores the smoothed elevation of a column
+	 * @param seed of the world
+	 * @param x of the column
+	 * @param z of the column
+	 * @param minElevation of the column
+	 * @param smoothHeight of the column
+	 */
+	public void putElevation(long seed, int x, int z, double minElevation, double smoothHeight) {
+		final int hash = hash(seed, x, z);
+		final Stripe stripe = stripes[hash & (STRIPES - 1)];
+		synchronized (stripe) {
+			final int slot = stripe.claim((hash >>> 4) & stripe.mask, seed, x, z);
+			stripe.minElevations[slot] = minElevation;
+			stripe.smoothHeights[slot] = smoothHeight;
+			stripe.hasElevation[slot] = true;
+		}
+	}
+
+	/**
+	 * Removes all columns, which is needed when the biome elevations change
+	 */
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	public long getBiomeHits() {
+		return biomeHits.get();
+	}
+
+	public long getBiomeMisses() {
+		return biomeMisses.get();
+	}
+
+	public long getElevationHits() {
+		return elevationHits.get();
+	}
+
+	public long getElevationMisses() {
+		return elevationMisses.get();
+	}
+
+	private static int hash(long seed, int x, int z) {
+		long h = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (z * 0xC2B2AE3D27D4EB4FL);
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	private static class Stripe {
+		private final int mask;
+		private final long[] seeds;
+		private final int[] xs, zs;
+		private final boolean[] used;
+		private final NormalBiome[] biomes;
+		private final boolean[] hasElevation;
+		private final double[] minElevations, smoothHeights;
+
+		private Stripe(int capacity) {
+			mask = capacity - 1;
+			seeds = new long[capacity];
+			xs = new int[capacity];
+			zs = new int[capacity];
+			used = new boolean[capacity];
+			biomes = new NormalBiome[capacity];
+			hasElevation = new boolean[capacity];
+			minElevations = new double[capacity];
+			smoothHeights = new double[capacity];
+		}
+
+		private boolean matches(int slot, long seed, int x, int z) {
+			return used[slot] && xs[slot] == x && zs[slot] == z && seeds[slot] == seed;
+		}
+
+		private int claim(int slot, long seed, int x, int z) {
+			if (!matches(slot, seed, x, z)) {
+				used[slot] = true;
+				seeds[slot] = seed;
+				xs[slot] = x;
+				zs[slot] = z;
+				biomes[slot] = null;
+				hasElevation[slot] = false;
+			}
+			return slot;
+		}
+
+		private void clear() {
+			for (int i = 0; i <= mask; i++) {
+				used[i] = false;
+				biomes[i] = null;
+				hasElevation[i] = false;
+			}
+		}
+	}
+}
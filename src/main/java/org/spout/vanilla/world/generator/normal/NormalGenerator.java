@@ -33,7 +33,7 @@ import net.royawesome.jlibnoise.module.modifier.Exponent;
 import net.royawesome.jlibnoise.module.modifier.ScalePoint;
 import net.royawesome.jlibnoise.module.source.Perlin;
 
-import org.spout.api.generator.WorldGeneratorUtils;
+import org.spout.api.generator.WorldGenerator;
 import org.spout.api.generator.biome.Biome;
 import org.spout.api.generator.biome.BiomeManager;
 import org.spout.api.generator.biome.BiomePopulator;
@@ -49,11 +49,12 @@ import org.spout.api.math.GenericMath;
 import org.spout.api.math.Vector3;
 import org.spout.api.util.LogicUtil;
 import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
-import org.spout.api.util.map.TIntPairObjectHashMap;
 
 import org.spout.vanilla.data.Climate;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.world.generator.NoisePipeline;
+import org.spout.vanilla.world.generator.NoiseSampler;
 import org.spout.vanilla.world.generator.biome.VanillaBiomeGenerator;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.generator.normal.biome.NormalBiome;
@@ -79,28 +80,37 @@ public class NormalGenerator extends VanillaBiomeGenerator {
 	public static final int SEA_LEVEL = 62;
 	private static final byte BEDROCK_DEPTH = 5;
 	// noise for generation
-	private static final Perlin PERLIN = new Perlin();
-	private static final Exponent CONTRAST = new Exponent();
-	private static final ScalePoint NOISE = new ScalePoint();
+	private static final NoisePipeline<ScalePoint> NOISE = new NoisePipeline<ScalePoint>() {
+		@Override
+		protected ScalePoint create(long seed) {
+			final Perlin perlin = new Perlin();
+			perlin.setFrequency(0.012);
+			perlin.setLacunarity(2);
+			perlin.setNoiseQuality(NoiseQuality.BEST);
+			perlin.setPersistence(0.5);
+			perlin.setOctaveCount(16);
+			perlin.setSeed((int) seed);
+
+			final Exponent contrast = new Exponent();
+			contrast.SetSourceModule(0, perlin);
+			contrast.setExponent(2.5);
+
+			final ScalePoint noise = new ScalePoint();
+			noise.SetSourceModule(0, contrast);
+			noise.setxScale(1);
+			noise.setyScale(1);
+			noise.setzScale(1);
+			return noise;
+		}
+	};
+	// biomes and smoothed elevations of the columns
+	private static final int COLUMN_CACHE_SIZE = 1 << 16;
+	private final BiomeColumnCache columns = new BiomeColumnCache(COLUMN_CACHE_SIZE);
 	// smoothing stuff
 	private static final int SMOOTH_SIZE = 2;
 	private static final double[][] GAUSSIAN_KERNEL;
 
 	static {
-		PERLIN.setFrequency(0.012);
-		PERLIN.setLacunarity(2);
-		PERLIN.setNoiseQuality(NoiseQuality.BEST);
-		PERLIN.setPersistence(0.5);
-		PERLIN.setOctaveCount(16);
-
-		CONTRAST.SetSourceModule(0, PERLIN);
-		CONTRAST.setExponent(2.5);
-
-		NOISE.SetSourceModule(0, CONTRAST);
-		NOISE.setxScale(1);
-		NOISE.setyScale(1);
-		NOISE.setzScale(1);
-
 		final int kernelSize = SMOOTH_SIZE * 2 + 1;
 		GAUSSIAN_KERNEL = new double[kernelSize][kernelSize];
 		final double bellSize = 1d / SMOOTH_SIZE;
@@ -177,43 +187,22 @@ public class NormalGenerator extends VanillaBiomeGenerator {
 
 	@Override
 	protected void generateTerrain(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomes, long seed) {
-		PERLIN.setSeed((int) seed);
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = size.getFloorY();
 		final int sizeZ = size.getFloorZ();
-		final double[][][] noise = WorldGeneratorUtils.fastNoise(NOISE, sizeX, sizeY, sizeZ, 4, x, y, z);
-		final BiomeSelector selector = getSelector();
-		final TIntPairObjectHashMap<NormalBiome> biomeCache = new TIntPairObjectHashMap<NormalBiome>();
+		final double[] noise = NoiseSampler.sample(NOISE.get(seed), sizeX, sizeY, sizeZ, 4, x, y, z);
+		final double[] elevation = new double[2];
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
-				double maxSum = 0;
-				double minSum = 0;
-				double weightSum = 0;
-				for (int sx = -SMOOTH_SIZE; sx <= SMOOTH_SIZE; sx++) {
-					for (int sz = -SMOOTH_SIZE; sz <= SMOOTH_SIZE; sz++) {
-						final NormalBiome adjacent;
-						if (xx + sx < 0 || zz + sz < 0
-								|| xx + sx >= sizeX || zz + sz >= sizeZ) {
-							if (biomeCache.containsKey(x + xx + sx, z + zz + sz)) {
-								adjacent = biomeCache.get(x + xx + sx, z + zz + sz);
-							} else {
-								adjacent = (NormalBiome) selector.pickBiome(x + xx + sx, y, z + zz + sz, seed);
-								biomeCache.put(x + xx + sx, z + zz + sz, adjacent);
-							}
-						} else {
-							adjacent = (NormalBiome) biomes.getBiome(xx + sx, y, zz + sz);
-						}
-						final double weight = GAUSSIAN_KERNEL[sx + SMOOTH_SIZE][sz + SMOOTH_SIZE];
-						minSum += adjacent.getMinElevation() * weight;
-						maxSum += adjacent.getMaxElevation() * weight;
-						weightSum += weight;
-					}
+				if (!columns.getElevation(seed, x + xx, z + zz, elevation)) {
+					computeElevation(x + xx, z + zz, seed, elevation);
+					columns.putElevation(seed, x + xx, z + zz, elevation[0], elevation[1]);
 				}
-				final double minElevation = minSum / weightSum;
-				final double smoothHeight = (maxSum / weightSum - minElevation) / 2;
+				final double minElevation = elevation[0];
+				final double smoothHeight = elevation[1];
 				for (int yy = 0; yy < sizeY; yy++) {
-					final double noiseValue = noise[xx][yy][zz] - 1 / smoothHeight * (y + yy - smoothHeight - minElevation);
+					final double noiseValue = noise[NoiseSampler.getIndex(xx, yy, zz, sizeY, sizeZ)] - 1 / smoothHeight * (y + yy - smoothHeight - minElevation);
 					if (noiseValue >= 0) {
 						blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.STONE);
 					} else {
@@ -232,6 +221,72 @@ public class NormalGenerator extends VanillaBiomeGenerator {
 		}
 	}
 
+	/**
+	 * Computes the elevation range of a column, smoothed over the biomes of the surrounding columns
+	 * @param x of the column
+	 * @param z of the column
+	 * @param seed of the world
+	 * @param elevation to write the minimum elevation and half of the smoothed height range to
+	 */
+	private void computeElevation(int x, int z, long seed, double[] elevation) {
+		double maxSum = 0;
+		double minSum = 0;
+		double weightSum = 0;
+		for (int sx = -SMOOTH_SIZE; sx <= SMOOTH_SIZE; sx++) {
+			for (int sz = -SMOOTH_SIZE; sz <= SMOOTH_SIZE; sz++) {
+				final NormalBiome adjacent = getColumnBiome(x + sx, z + sz, seed);
+				final double weight = GAUSSIAN_KERNEL[sx + SMOOTH_SIZE][sz + SMOOTH_SIZE];
+				minSum += adjacent.getMinElevation() * weight;
+				maxSum += adjacent.getMaxElevation() * weight;
+				weightSum += weight;
+			}
+		}
+		final double minElevation = minSum / weightSum;
+		elevation[0] = minElevation;
+		elevation[1] = (maxSum / weightSum - minElevation) / 2;
+	}
+
+	/**
+	 * Gets the biome of a column through the shared column cache
+	 * @param x of the column
+	 * @param z of the column
+	 * @param seed of the world
+	 * @return the biome
+	 */
+	private NormalBiome getColumnBiome(int x, int z, long seed) {
+		NormalBiome biome = columns.getBiome(seed, x, z);
+		if (biome == null) {
+			biome = (NormalBiome) getSelector().pickBiome(x, z, seed);
+			columns.putBiome(seed, x, z, biome);
+		}
+		return biome;
+	}
+
+	/**
+	 * Gets the biome of a column for the populators and decorators<br>
+	 * Worlds using this generator read it from the column cache, other worlds from the world itself.
+	 * @param world to get the biome in
+	 * @param x of the column
+	 * @param y of the block, only used by other generators
+	 * @param z of the column
+	 * @return the biome
+	 */
+	public static Biome getBiome(World world, int x, int y, int z) {
+		final WorldGenerator generator = world.getGenerator();
+		if (generator instanceof NormalGenerator) {
+			return ((NormalGenerator) generator).getColumnBiome(x, z, world.getSeed());
+		}
+		return world.getBiome(x, y, z);
+	}
+
+	/**
+	 * Gets the cache of column biomes and elevations shared by the worlds using this generator
+	 * @return the column cache
+	 */
+	public BiomeColumnCache getColumnCache() {
+		return columns;
+	}
+
 	@Override
 	public Point getSafeSpawn(World world) {
 		short shift = 0;
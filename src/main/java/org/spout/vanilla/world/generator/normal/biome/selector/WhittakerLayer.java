@@ -40,42 +40,51 @@ import org.spout.api.generator.biome.selector.BiomeSelectorLayer;
 import org.spout.api.generator.biome.selector.LayeredBiomeSelectorElement;
 import org.spout.api.math.Vector2;
 
+import org.spout.vanilla.world.generator.NoisePipeline;
+
 public class WhittakerLayer implements BiomeSelectorLayer {
-	private final Perlin temperaturePerlin = new Perlin();
-	private final ScaleBias temperature = new ScaleBias();
-	private final Perlin humidityPerlin = new Perlin();
-	private final ScaleBias humidity = new ScaleBias();
 	private double minTemperature = -20;
 	private double maxTemperature = 30;
 	private double minHumidity = 0;
 	private double maxHumidity = 400;
 	private final int uniquenessValue;
 	private final List<WhittakerElement> elements = new ArrayList<WhittakerElement>();
+	private final PerlinSettings temperatureSettings = new PerlinSettings();
+	private final PerlinSettings humiditySettings = new PerlinSettings();
+	private final NoisePipeline<ScaleBias[]> noise = new NoisePipeline<ScaleBias[]>() {
+		@Override
+		protected ScaleBias[] create(long seed) {
+			return new ScaleBias[] {
+				createClimateNoise(temperatureSettings, (int) seed * uniquenessValue * uniquenessValue),
+				createClimateNoise(humiditySettings, (int) seed * uniquenessValue)
+			};
+		}
+	};
 
 	public WhittakerLayer(int uniquenessValue) {
 		this.uniquenessValue = uniquenessValue;
-		Clamp temperatureClamp = new Clamp();
-		temperatureClamp.SetSourceModule(0, temperaturePerlin);
-		temperatureClamp.setLowerBound(-1);
-		temperatureClamp.setUpperBound(1);
-		temperature.SetSourceModule(0, temperatureClamp);
-		temperature.setScale(0.5);
-		temperature.setBias(0.5);
-		Clamp humidityClamp = new Clamp();
-		humidityClamp.SetSourceModule(0, humidityPerlin);
-		humidityClamp.setLowerBound(-1);
-		humidityClamp.setUpperBound(1);
-		humidity.SetSourceModule(0, humidityClamp);
-		humidity.setScale(0.5);
-		humidity.setBias(0.5);
+	}
+
+	private static ScaleBias createClimateNoise(PerlinSettings settings, int seed) {
+		final Perlin perlin = new Perlin();
+		settings.apply(perlin);
+		perlin.setSeed(seed);
+		final Clamp clamp = new Clamp();
+		clamp.SetSourceModule(0, perlin);
+		clamp.setLowerBound(-1);
+		clamp.setUpperBound(1);
+		final ScaleBias scaleBias = new ScaleBias();
+		scaleBias.SetSourceModule(0, clamp);
+		scaleBias.setScale(0.5);
+		scaleBias.setBias(0.5);
+		return scaleBias;
 	}
 
 	@Override
 	public LayeredBiomeSelectorElement pick(int x, int y, int z, long seed) {
-		temperaturePerlin.setSeed((int) seed * uniquenessValue * uniquenessValue);
-		humidityPerlin.setSeed((int) seed * uniquenessValue);
-		final double temperatureValue = temperature.GetValue(x, y, z);
-		final double humidityValue = humidity.GetValue(x, y, z);
+		final ScaleBias[] climate = noise.get(seed);
+		final double temperatureValue = climate[0].GetValue(x, y, z);
+		final double humidityValue = climate[1].GetValue(x, y, z);
 		return findClosest(humidityValue * temperatureValue * (minTemperature - maxTemperature) + maxTemperature,
 				(1 - humidityValue) * (maxHumidity - minHumidity) + minHumidity);
 	}
@@ -118,52 +127,52 @@ public class WhittakerLayer implements BiomeSelectorLayer {
 	}
 
 	public WhittakerLayer setTemperatureFrequency(double frequency) {
-		temperaturePerlin.setFrequency(frequency);
+		temperatureSettings.frequency = frequency;
 		return this;
 	}
 
 	public WhittakerLayer setTemperatureLacunarity(double lacunarity) {
-		temperaturePerlin.setLacunarity(lacunarity);
+		temperatureSettings.lacunarity = lacunarity;
 		return this;
 	}
 
 	public WhittakerLayer setTemperatureNoiseQuality(NoiseQuality quality) {
-		temperaturePerlin.setNoiseQuality(quality);
+		temperatureSettings.quality = quality;
 		return this;
 	}
 
 	public WhittakerLayer setTemperatureOctaveCount(int octaveCount) {
-		temperaturePerlin.setOctaveCount(octaveCount);
+		temperatureSettings.octaveCount = octaveCount;
 		return this;
 	}
 
 	public WhittakerLayer setTemperaturePersistence(double persistence) {
-		temperaturePerlin.setPersistence(persistence);
+		temperatureSettings.persistence = persistence;
 		return this;
 	}
 
 	public WhittakerLayer setHumidityFrequency(double frequency) {
-		humidityPerlin.setFrequency(frequency);
+		humiditySettings.frequency = frequency;
 		return this;
 	}
 
 	public WhittakerLayer setHumidityLacunarity(double lacunarity) {
-		humidityPerlin.setLacunarity(lacunarity);
+		humiditySettings.lacunarity = lacunarity;
 		return this;
 	}
 
 	public WhittakerLayer setHumidityNoiseQuality(NoiseQuality quality) {
-		humidityPerlin.setNoiseQuality(quality);
+		humiditySettings.quality = quality;
 		return this;
 	}
 
 	public WhittakerLayer setHumidityOctaveCount(int octaveCount) {
-		humidityPerlin.setOctaveCount(octaveCount);
+		humiditySettings.octaveCount = octaveCount;
 		return this;
 	}
 
 	public WhittakerLayer setHumidityPersistence(double persistence) {
-		humidityPerlin.setPersistence(persistence);
+		humiditySettings.persistence = persistence;
 		return this;
 	}
 
@@ -187,6 +196,34 @@ public class WhittakerLayer implements BiomeSelectorLayer {
 		return this;
 	}
 
+	/**
+	 * Perlin parameters set on the layer, applied to the noise of every thread and seed<br>
+	 * Parameters left null keep the Perlin default. Changes only apply to the noise built afterwards.
+	 */
+	private static class PerlinSettings {
+		private volatile Double frequency, lacunarity, persistence;
+		private volatile Integer octaveCount;
+		private volatile NoiseQuality quality;
+
+		private void apply(Perlin perlin) {
+			if (frequency != null) {
+				perlin.setFrequency(frequency);
+			}
+			if (lacunarity != null) {
+				perlin.setLacunarity(lacunarity);
+			}
+			if (quality != null) {
+				perlin.setNoiseQuality(quality);
+			}
+			if (octaveCount != null) {
+				perlin.setOctaveCount(octaveCount);
+			}
+			if (persistence != null) {
+				perlin.setPersistence(persistence);
+			}
+		}
+	}
+
 	public static class WhittakerElement {
 		private final LayeredBiomeSelectorElement element;
 		private float temperature;
@@ -34,6 +34,7 @@ import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
 import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.normal.NormalGenerator;
 import org.spout.vanilla.world.generator.normal.object.tree.TreeObject;
 
@@ -46,6 +47,7 @@ public class TreeDecorator extends Decorator {
 			return;
 		}
 		final World world = chunk.getWorld();
+		final PopulationBuffer buffer = new PopulationBuffer(world);
 		final Biome decorating = chunk.getBiome(7, 7, 7);
 		final byte amount = factory.amount(random);
 		for (byte count = 0; count < amount; count++) {
@@ -54,20 +56,21 @@ public class TreeDecorator extends Decorator {
 			tree.randomize();
 			final int x = chunk.getBlockX(random);
 			final int z = chunk.getBlockZ(random);
-			if (decorating != world.getBiome(x, 64, z)) {
+			if (decorating != NormalGenerator.getBiome(world, x, 64, z)) {
 				continue;
 			}
-			final int y = getHighestWorkableBlock(world, x, z);
+			final int y = getHighestWorkableBlock(buffer, x, z);
 			if (y == -1) {
 				continue;
 			}
-			if (tree.canPlaceObject(world, x, y, z)) {
-				tree.placeObject(world, x, y, z);
+			if (tree.canPlaceObject(buffer, x, y, z)) {
+				tree.placeObject(buffer, x, y, z);
 			}
 		}
+		buffer.commit();
 	}
 
-	private int getHighestWorkableBlock(World w, int x, int z) {
+	private int getHighestWorkableBlock(PopulationBuffer w, int x, int z) {
 		int y = w.getSurfaceHeight(x, z);
 		while (!w.getBlockMaterial(x, y, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS)) {
 			if (--y <= 0) {
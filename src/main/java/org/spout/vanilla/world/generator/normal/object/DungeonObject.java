@@ -36,6 +36,7 @@ import org.spout.api.material.block.BlockFaces;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.item.misc.Dye;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.object.RandomObject;
 import org.spout.vanilla.world.generator.object.RandomizableObject;
 
@@ -82,6 +83,18 @@ public class DungeonObject extends RandomObject implements RandomizableObject {
 
 	@Override
 	public boolean canPlaceObject(World w, int x, int y, int z) {
+		return canPlaceObject(new PopulationBuffer(w), x, y, z);
+	}
+
+	@Override
+	public void placeObject(World w, int x, int y, int z) {
+		final PopulationBuffer buffer = new PopulationBuffer(w);
+		placeObject(buffer, x, y, z);
+		buffer.commit();
+	}
+
+	@Override
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		byte missingWallBlocks = 0;
 		for (byte yy = -1; yy < height + 2; yy++) {
 			for (byte xx = (byte) (-radiusX - 1); xx < radiusX + 2; xx++) {
@@ -104,7 +117,7 @@ public class DungeonObject extends RandomObject implements RandomizableObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	public void placeObject(PopulationBuffer w, int x, int y, int z) {
 		for (int yy = height; yy > -2; yy--) {
 			for (byte xx = (byte) (-radiusX - 1); xx < radiusX + 2; xx++) {
 				for (byte zz = (byte) (-radiusZ - 1); zz < radiusZ + 2; zz++) {
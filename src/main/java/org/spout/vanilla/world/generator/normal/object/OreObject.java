@@ -35,6 +35,7 @@ import org.spout.api.math.Vector2;
 import org.spout.api.math.VectorMath;
 
 import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.object.RandomObject;
 
 public class OreObject extends RandomObject {
@@ -55,6 +56,18 @@ public class OreObject extends RandomObject {
 
 	@Override
 	public boolean canPlaceObject(World w, int x, int y, int z) {
+		return canPlaceObject(new PopulationBuffer(w), x, y, z);
+	}
+
+	@Override
+	public void placeObject(World w, int x, int y, int z) {
+		final PopulationBuffer buffer = new PopulationBuffer(w);
+		placeObject(buffer, x, y, z);
+		buffer.commit();
+	}
+
+	@Override
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		return true;
 	}
 
@@ -66,7 +79,7 @@ public class OreObject extends RandomObject {
 	 * @param originZ of the cluster
 	 */
 	@Override
-	public void placeObject(World world, int originX, int originY, int originZ) {
+	public void placeObject(PopulationBuffer world, int originX, int originY, int originZ) {
 		final int clusterSize = type.clusterSize;
 		final float angle = random.nextFloat() * (float) Math.PI;
 		final Vector2 offset = VectorMath.getDirection2D(angle).multiply(clusterSize).divide(8);
@@ -30,12 +30,12 @@ import java.util.Random;
 
 import org.spout.api.generator.biome.Biome;
 import org.spout.api.geo.World;
-import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.Solid;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.normal.biome.grassy.GrassyBiome;
 import org.spout.vanilla.world.generator.normal.biome.sandy.SandyBiome;
 import org.spout.vanilla.world.generator.normal.biome.snowy.SnowyBiome;
@@ -70,7 +70,19 @@ public class PondObject extends RandomObject implements RandomizableObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World world, int x, int y, int z) {
+	public boolean canPlaceObject(World w, int x, int y, int z) {
+		return canPlaceObject(new PopulationBuffer(w), x, y, z);
+	}
+
+	@Override
+	public void placeObject(World w, int x, int y, int z) {
+		final PopulationBuffer buffer = new PopulationBuffer(w);
+		placeObject(buffer, x, y, z);
+		buffer.commit();
+	}
+
+	@Override
+	public boolean canPlaceObject(PopulationBuffer world, int x, int y, int z) {
 		x -= 8;
 		z -= 8;
 		for (byte px = 0; px < 16; px++) {
@@ -93,7 +105,7 @@ public class PondObject extends RandomObject implements RandomizableObject {
 	}
 
 	@Override
-	public void placeObject(World world, int x, int y, int z) {
+	public void placeObject(PopulationBuffer world, int x, int y, int z) {
 		x -= 8;
 		z -= 8;
 		final boolean sandy = world.getBiome(x, y, z) instanceof SandyBiome;
@@ -117,9 +129,8 @@ public class PondObject extends RandomObject implements RandomizableObject {
 				if (stonyTop) {
 					for (byte py = 1; py < 5; py++) {
 						if (isWallBlock(px, py, pz, topHeightMap)) {
-							final Block block = world.getBlock(px + x, py + y - 1, pz + z);
-							if (random.nextBoolean() && block.getMaterial().isOpaque()) {
-								block.setMaterial(VanillaMaterials.STONE);
+							if (random.nextBoolean() && world.getBlockMaterial(px + x, py + y - 1, pz + z).isOpaque()) {
+								world.setBlockMaterial(px + x, py + y - 1, pz + z, VanillaMaterials.STONE, (short) 0, null);
 							}
 						}
 					}
@@ -137,27 +148,30 @@ public class PondObject extends RandomObject implements RandomizableObject {
 		}
 	}
 
-	private void finalizeSurface(World world, int x, int y, int z) {
+	private void finalizeSurface(PopulationBuffer world, int x, int y, int z) {
+		// Commit once so the surface heights of the world include the pond
+		world.commit();
 		for (byte px = 0; px < 16; px++) {
 			for (byte pz = 0; pz < 16; pz++) {
+				final int surface = world.getSurfaceHeight(x + px, z + pz);
 				for (byte py = -1; py < 4; py++) {
-					final Block block = world.getBlock(x + px, y + py, z + pz);
-					if (block.isAtSurface()) {
-						final BlockMaterial material = block.getMaterial();
-						if (material == VanillaMaterials.DIRT) {
-							final BlockMaterial top;
-							final Biome biome = block.getBiomeType();
-							if (biome instanceof GrassyBiome) {
-								top = ((GrassyBiome) biome).getGroundCover()[0].getMaterial(true);
-							} else {
-								top = VanillaMaterials.GRASS;
-							}
-							block.setMaterial(top);
-						} else if (material == VanillaMaterials.STATIONARY_WATER
-								&& block.translate(0, 1, 0).isMaterial(VanillaMaterials.AIR)) {
-							if (block.getBiomeType() instanceof SnowyBiome) {
-								block.setMaterial(VanillaMaterials.ICE);
-							}
+					if (y + py < surface) {
+						continue;
+					}
+					final BlockMaterial material = world.getBlockMaterial(x + px, y + py, z + pz);
+					if (material == VanillaMaterials.DIRT) {
+						final BlockMaterial top;
+						final Biome biome = world.getBiome(x + px, y + py, z + pz);
+						if (biome instanceof GrassyBiome) {
+							top = ((GrassyBiome) biome).getGroundCover()[0].getMaterial(true);
+						} else {
+							top = VanillaMaterials.GRASS;
+						}
+						world.setBlockMaterial(x + px, y + py, z + pz, top, (short) 0, null);
+					} else if (material == VanillaMaterials.STATIONARY_WATER
+							&& world.getBlockMaterial(x + px, y + py + 1, z + pz).isMaterial(VanillaMaterials.AIR)) {
+						if (world.getBiome(x + px, y + py, z + pz) instanceof SnowyBiome) {
+							world.setBlockMaterial(x + px, y + py, z + pz, VanillaMaterials.ICE, (short) 0, null);
 						}
 					}
 				}
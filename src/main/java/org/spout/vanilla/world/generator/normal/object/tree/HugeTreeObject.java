@@ -28,7 +28,6 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
@@ -41,6 +40,7 @@ import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.Solid;
 import org.spout.vanilla.material.block.plant.Sapling;
 import org.spout.vanilla.util.MathHelper;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 
 public class HugeTreeObject extends TreeObject {
 	// size control
@@ -67,7 +67,7 @@ public class HugeTreeObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		if (!super.canPlaceObject(w, x, y, z)) {
 			return false;
 		}
@@ -88,7 +88,7 @@ public class HugeTreeObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	public void placeObject(PopulationBuffer w, int x, int y, int z) {
 		generateLeaves(w, x, y + totalHeight, z, (byte) 2);
 		final byte leavesEnd = (byte) (totalHeight - 2 - random.nextInt(4));
 		for (byte yy = (byte) (totalHeight / 2); yy < leavesEnd; yy += random.nextInt(4) + 2) {
@@ -121,7 +121,7 @@ public class HugeTreeObject extends TreeObject {
 		w.setBlockMaterial(x, y + totalHeight - 1, z, VanillaMaterials.LOG, logMetadata, null);
 	}
 
-	private void generateLeaves(World world, int x, int y, int z, byte sizeIncrease) {
+	private void generateLeaves(PopulationBuffer world, int x, int y, int z, byte sizeIncrease) {
 		for (byte yy = (byte) -leavesGroupHeight; yy < 1; yy++) {
 			final byte radius = (byte) (sizeIncrease - yy + 1);
 			for (byte xx = (byte) -radius; xx < radius + 1; xx++) {
@@ -139,7 +139,7 @@ public class HugeTreeObject extends TreeObject {
 		}
 	}
 
-	private void placeVines(World w, int x, int y, int z, byte faceOdd) {
+	private void placeVines(PopulationBuffer w, int x, int y, int z, byte faceOdd) {
 		if (w.getBlockMaterial(x + 1, y, z).isInvisible() && random.nextInt(faceOdd) != 0) {
 			w.setBlockMaterial(x + 1, y, z, VanillaMaterials.VINES, (short) 2, null);
 		}
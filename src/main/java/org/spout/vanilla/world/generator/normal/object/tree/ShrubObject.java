@@ -28,12 +28,12 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
 import org.spout.api.material.BlockMaterial;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.Solid;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 
 public class ShrubObject extends TreeObject {
 	// size control
@@ -50,7 +50,7 @@ public class ShrubObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		if (!super.canPlaceObject(w, x, y, z)) {
 			return false;
 		}
@@ -59,7 +59,7 @@ public class ShrubObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	public void placeObject(PopulationBuffer w, int x, int y, int z) {
 		w.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0, null);
 		for (byte yy = 0; yy < totalHeight; yy++) {
 			w.setBlockMaterial(x, y + yy, z, VanillaMaterials.LOG, logMetadata, null);
@@ -28,8 +28,6 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
-import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
@@ -39,6 +37,7 @@ import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.Solid;
 import org.spout.vanilla.material.block.plant.Sapling;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 
 public class SmallTreeObject extends TreeObject {
 	protected byte radiusIncrease = 0;
@@ -61,7 +60,7 @@ public class SmallTreeObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		if (!super.canPlaceObject(w, x, y, z)) {
 			return false;
 		}
@@ -82,7 +81,7 @@ public class SmallTreeObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	public void placeObject(PopulationBuffer w, int x, int y, int z) {
 		w.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0, null);
 		byte leavesHeight = 3;
 		for (byte yy = (byte) (totalHeight - leavesHeight); yy < totalHeight + 1; yy++) {
@@ -127,28 +126,29 @@ public class SmallTreeObject extends TreeObject {
 						if (random.nextInt(odd) != 0) {
 							continue;
 						}
-						final Block block = w.getBlock(position.add(face.getOffset()));
-						block.setMaterial(VanillaMaterials.COCOA_PLANT);
-						VanillaMaterials.COCOA_PLANT.setAttachedFace(block, face.getOpposite(), null);
-						VanillaMaterials.COCOA_PLANT.setGrowthStage(block, random.nextInt(3));
+						final Vector3 plant = position.add(face.getOffset());
+						short data = VanillaMaterials.COCOA_PLANT.getFacingData(VanillaMaterials.COCOA_PLANT.getData(), face.getOpposite());
+						data = VanillaMaterials.COCOA_PLANT.getGrowthStageData(data, random.nextInt(3));
+						w.setBlockMaterial(plant.getFloorX(), plant.getFloorY(), plant.getFloorZ(), VanillaMaterials.COCOA_PLANT, data, null);
 					}
 				}
 			}
 		}
 	}
 
-	private void placeVines(World w, int x, int y, int z, byte faceOdd, boolean grow) {
+	private void placeVines(PopulationBuffer w, int x, int y, int z, byte faceOdd, boolean grow) {
 		final byte lenght = (byte) (grow ? 5 : 1);
 		for (BlockFace face : BlockFaces.NSEW) {
 			if (random.nextInt(faceOdd) != 0) {
 				continue;
 			}
-			final BlockFace facing = face.getOpposite();
+			final short data = VanillaMaterials.VINES.getFaceAttachedData(VanillaMaterials.VINES.getData(), face.getOpposite(), true);
+			final Vector3 offset = face.getOffset();
+			final int bx = x + offset.getFloorX();
+			final int bz = z + offset.getFloorZ();
 			for (byte yy = 0; yy < lenght; yy++) {
-				final Block block = w.getBlock(face.getOffset().add(x, y - yy, z));
-				if (block.isMaterial(VanillaMaterials.AIR)) {
-					block.setMaterial(VanillaMaterials.VINES);
-					VanillaMaterials.VINES.setFaceAttached(block, facing, true);
+				if (w.getBlockMaterial(bx, y - yy, bz).isMaterial(VanillaMaterials.AIR)) {
+					w.setBlockMaterial(bx, y - yy, bz, VanillaMaterials.VINES, data, null);
 				} else {
 					break;
 				}
@@ -28,10 +28,9 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
-
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.plant.Sapling;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 
 public class SpruceTreeObject extends TreeObject {
 	private byte leavesBottomY = -1;
@@ -49,7 +48,7 @@ public class SpruceTreeObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		if (!super.canPlaceObject(w, x, y, z)) {
 			return false;
 		}
@@ -71,7 +70,7 @@ public class SpruceTreeObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	public void placeObject(PopulationBuffer w, int x, int y, int z) {
 		if (leavesBottomY == -1 || leavesMaxRadius == -1) {
 			findRandomLeavesSize();
 		}
@@ -28,11 +28,11 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
 import org.spout.api.material.BlockMaterial;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.liquid.Water;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 
 public class SwampTreeObject extends SmallTreeObject {
 	public SwampTreeObject(Random random) {
@@ -46,7 +46,7 @@ public class SwampTreeObject extends SmallTreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		if (!w.getBlockMaterial(x, y - 1, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS)) {
 			return false;
 		}
@@ -36,6 +36,7 @@ import org.spout.api.material.BlockMaterial;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.plant.Sapling;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.object.VariableHeightObject;
 
 public abstract class TreeObject extends VariableHeightObject {
@@ -79,6 +80,29 @@ public abstract class TreeObject extends VariableHeightObject {
 
 	@Override
 	public boolean canPlaceObject(World w, int x, int y, int z) {
+		return canPlaceObject(new PopulationBuffer(w), x, y, z);
+	}
+
+	@Override
+	public void placeObject(World w, int x, int y, int z) {
+		final PopulationBuffer buffer = new PopulationBuffer(w);
+		placeObject(buffer, x, y, z);
+		buffer.commit();
+	}
+
+	/**
+	 * Places the tree, writing into the buffer<br>
+	 * Trees always work on buffers, {@link #placeObject(World, int, int, int)} places them through this method.
+	 * @param w buffer to write to
+	 * @param x coordinate of the tree
+	 * @param y coordinate of the tree
+	 * @param z coordinate of the tree
+	 */
+	@Override
+	public abstract void placeObject(PopulationBuffer w, int x, int y, int z);
+
+	@Override
+	public boolean canPlaceObject(PopulationBuffer w, int x, int y, int z) {
 		return w.getBlockMaterial(x, y - 1, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS);
 	}
 
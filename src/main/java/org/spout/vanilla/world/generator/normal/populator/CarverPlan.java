@@ -0,0 +1,163 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.normal.populator;
+
+import java.util.Arrays;
+
+import org.spout.api.math.Vector3;
+
+/**
+ * The tunnel nodes simulated for one origin chunk by a {@link CarverPopulator}<br>
+ * Nodes are stored in the order they were simulated. Each node belongs to a branch, and branches started
+ * from another branch remember their parent, so that a replay can stop a branch and everything it would have
+ * started, the same way the simulation stops when a tunnel can no longer reach the chunk being carved.
+ * A plan is not modified once built and can be shared between threads.
+ */
+public final class CarverPlan {
+	private int nodes = 0;
+	private Vector3[] targets = new Vector3[16];
+	private double[] horizontalSizes = new double[16];
+	private double[] verticalSizes = new double[16];
+	private double[] nodesLeft = new double[16];
+	private double[] offsetScales = new double[16];
+	private int[] nodeBranches = new int[16];
+	private int branches = 0;
+	private int[] parents = new int[4];
+	private boolean[] lastNodes = new boolean[4];
+	private Object[] branchData = new Object[4];
+	// Range of chunk middles for which at least one node may be within reach
+	private double minMiddleX = Double.POSITIVE_INFINITY;
+	private double maxMiddleX = Double.NEGATIVE_INFINITY;
+	private double minMiddleZ = Double.POSITIVE_INFINITY;
+	private double maxMiddleZ = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Starts a new branch
+	 * @param parent branch which started this one, or -1
+	 * @param lastNode true if the branch stops at its first node within reach
+	 * @param data given back when carving the nodes of the branch
+	 * @return the branch
+	 */
+	public int addBranch(int parent, boolean lastNode, Object data) {
+		if (branches == parents.length) {
+			parents = Arrays.copyOf(parents, branches << 1);
+			lastNodes = Arrays.copyOf(lastNodes, branches << 1);
+			branchData = Arrays.copyOf(branchData, branches << 1);
+		}
+		parents[branches] = parent;
+		lastNodes[branches] = lastNode;
+		branchData[branches] = data;
+		return branches++;
+	}
+
+	/**
+	 * Adds a node to a branch
+	 * @param branch of the node
+	 * @param target position of the node
+	 * @param horizontalSize radius of the node
+	 * @param verticalSize radius of the node
+	 * @param nodesLeft in the branch after this node
+	 * @param offsetScale distance past which the branch stops, on top of the nodes left
+	 */
+	public void addNode(int branch, Vector3 target, double horizontalSize, double verticalSize, double nodesLeft, double offsetScale) {
+		if (nodes == targets.length) {
+			final int length = nodes << 1;
+			targets = Arrays.copyOf(targets, length);
+			horizontalSizes = Arrays.copyOf(horizontalSizes, length);
+			verticalSizes = Arrays.copyOf(verticalSizes, length);
+			this.nodesLeft = Arrays.copyOf(this.nodesLeft, length);
+			offsetScales = Arrays.copyOf(offsetScales, length);
+			nodeBranches = Arrays.copyOf(nodeBranches, length);
+		}
+		targets[nodes] = target;
+		horizontalSizes[nodes] = horizontalSize;
+		verticalSizes[nodes] = verticalSize;
+		this.nodesLeft[nodes] = nodesLeft;
+		offsetScales[nodes] = offsetScale;
+		nodeBranches[nodes] = branch;
+		nodes++;
+		final double reach = 16 + horizontalSize * 2 + 1;
+		minMiddleX = Math.min(minMiddleX, target.getX() - reach);
+		maxMiddleX = Math.max(maxMiddleX, target.getX() + reach);
+		minMiddleZ = Math.min(minMiddleZ, target.getZ() - reach);
+		maxMiddleZ = Math.max(maxMiddleZ, target.getZ() + reach);
+	}
+
+	/**
+	 * Checks if any node may carve the chunk with the given middle
+	 * @param middleX of the chunk
+	 * @param middleZ of the chunk
+	 * @return false if no node can reach the chunk
+	 */
+	public boolean mayReach(double middleX, double middleZ) {
+		return middleX >= minMiddleX && middleX <= maxMiddleX && middleZ >= minMiddleZ && middleZ <= maxMiddleZ;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	public int getBranches() {
+		return branches;
+	}
+
+	public Vector3 getTarget(int node) {
+		return targets[node];
+	}
+
+	public double getHorizontalSize(int node) {
+		return horizontalSizes[node];
+	}
+
+	public double getVerticalSize(int node) {
+		return verticalSizes[node];
+	}
+
+	public double getNodesLeft(int node) {
+		return nodesLeft[node];
+	}
+
+	public double getOffsetScale(int node) {
+		return offsetScales[node];
+	}
+
+	public int getBranch(int node) {
+		return nodeBranches[node];
+	}
+
+	public int getParent(int branch) {
+		return parents[branch];
+	}
+
+	public boolean isLastNode(int branch) {
+		return lastNodes[branch];
+	}
+
+	public Object getData(int branch) {
+		return branchData[branch];
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.normal.populator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spout.api.generator.biome.BiomeManager;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.math.Vector3;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+/**
+ * Overlapping populator which simulates the tunnels started in each chunk only once<br>
+ * The nodes of a chunk do not depend on the chunk being carved, so they are recorded in a {@link CarverPlan},
+ * kept in a bounded cache, and replayed against every chunk they may reach. Chunks out of reach of a plan are
+ * skipped without looking at its nodes.
+ */
+public abstract class CarverPopulator extends OverlapingPopulator {
+	private static final int CACHED_PLANS = 4096;
+	private static final CarverPlan EMPTY_PLAN = new CarverPlan();
+	private static final AtomicLong simulated = new AtomicLong();
+	private static final AtomicLong reused = new AtomicLong();
+	private static final AtomicLong replayed = new AtomicLong();
+	private static final AtomicLong skipped = new AtomicLong();
+	private final Map<PlanKey, CarverPlan> plans = new LinkedHashMap<PlanKey, CarverPlan>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<PlanKey, CarverPlan> eldest) {
+			return size() > CACHED_PLANS;
+		}
+	};
+
+	@Override
+	public void populate(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomes, long seed) {
+		if (y < 0 || y >= 120) {
+			return;
+		}
+		final int cx = x >> Chunk.BLOCKS.BITS;
+		final int cz = z >> Chunk.BLOCKS.BITS;
+		final Vector3 size = blockData.getSize();
+		final int sizeX = size.getFloorX() >> Chunk.BLOCKS.BITS;
+		final int sizeZ = size.getFloorZ() >> Chunk.BLOCKS.BITS;
+		final Random worldRandom = new Random(seed);
+		final long firstSeed = worldRandom.nextLong();
+		final long secondSeed = worldRandom.nextLong();
+		for (int cxx = 0; cxx < sizeX; cxx++) {
+			for (int czz = 0; czz < sizeZ; czz++) {
+				int dcx = cx + cxx;
+				int dcz = cz + czz;
+				final Vector3 chunk = new Vector3(dcx << Chunk.BLOCKS.BITS, y, dcz << Chunk.BLOCKS.BITS);
+				final Vector3 middle = new Vector3(chunk.getX() + 8, 0, chunk.getZ() + 8);
+				for (int cxxx = -OVERLAP; cxxx <= OVERLAP; cxxx++) {
+					for (int czzz = -OVERLAP; czzz <= OVERLAP; czzz++) {
+						final CarverPlan plan = getPlan(dcx + cxxx, dcz + czzz, firstSeed, secondSeed, seed);
+						if (plan.mayReach(middle.getX(), middle.getZ())) {
+							replay(blockData, chunk, middle, plan);
+						} else if (plan.getNodes() > 0) {
+							skipped.incrementAndGet();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Simulates and carves the tunnels of a single chunk, without using the cache
+	 */
+	@Override
+	protected void populate(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 originChunk, Random random) {
+		if (chunk.getFloorY() < 0 || chunk.getFloorY() >= 120) {
+			return;
+		}
+		final CarverPlan plan = new CarverPlan();
+		simulate(chunk, random, plan);
+		replay(blockData, originChunk, new Vector3(originChunk.getX() + 8, 0, originChunk.getZ() + 8), plan);
+	}
+
+	/**
+	 * Records the nodes of the tunnels started in a chunk
+	 * @param chunk position of the chunk
+	 * @param random seeded for the chunk
+	 * @param plan to record into
+	 */
+	protected abstract void simulate(Vector3 chunk, Random random, CarverPlan plan);
+
+	/**
+	 * Carves a node into a chunk
+	 * @param blockData to carve into
+	 * @param chunk position of the chunk being carved
+	 * @param target position of the node
+	 * @param horizontalSize radius of the node
+	 * @param verticalSize radius of the node
+	 * @param data of the branch of the node
+	 */
+	protected abstract void carve(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 target, double horizontalSize, double verticalSize, Object data);
+
+	private CarverPlan getPlan(int cx, int cz, long firstSeed, long secondSeed, long seed) {
+		final PlanKey key = new PlanKey(seed, cx, cz);
+		CarverPlan plan;
+		synchronized (plans) {
+			plan = plans.get(key);
+		}
+		if (plan != null) {
+			reused.incrementAndGet();
+			return plan;
+		}
+		plan = new CarverPlan();
+		simulate(new Vector3(cx << Chunk.BLOCKS.BITS, 0, cz << Chunk.BLOCKS.BITS), new Random((cx * firstSeed) ^ (cz * secondSeed) ^ seed), plan);
+		if (plan.getNodes() == 0) {
+			plan = EMPTY_PLAN;
+		}
+		simulated.incrementAndGet();
+		synchronized (plans) {
+			plans.put(key, plan);
+		}
+		return plan;
+	}
+
+	private void replay(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 middle, CarverPlan plan) {
+		final int nodes = plan.getNodes();
+		if (nodes == 0) {
+			return;
+		}
+		replayed.incrementAndGet();
+		// A branch which stopped before its end never started the branches following it
+		final boolean[] stopped = new boolean[plan.getBranches()];
+		int resolved = 0;
+		for (int i = 0; i < nodes; i++) {
+			final int branch = plan.getBranch(i);
+			for (; resolved <= branch; resolved++) {
+				final int parent = plan.getParent(resolved);
+				stopped[resolved] = parent >= 0 && stopped[parent];
+			}
+			if (stopped[branch]) {
+				continue;
+			}
+			final Vector3 target = plan.getTarget(i);
+			final double horizontalSize = plan.getHorizontalSize(i);
+			final double xOffset = target.getX() - middle.getX();
+			final double zOffset = target.getZ() - middle.getZ();
+			final double nodesLeft = plan.getNodesLeft(i);
+			final double offsetHorizontalScale = plan.getOffsetScale(i);
+
+			if ((xOffset * xOffset + zOffset * zOffset) - nodesLeft * nodesLeft > offsetHorizontalScale * offsetHorizontalScale) {
+				stopped[branch] = true;
+				continue;
+			}
+
+			if (target.getX() < middle.getX() - 16 - horizontalSize * 2
+					|| target.getZ() < middle.getZ() - 16 - horizontalSize * 2
+					|| target.getX() > middle.getX() + 16 + horizontalSize * 2
+					|| target.getZ() > middle.getZ() + 16 + horizontalSize * 2) {
+				continue;
+			}
+
+			carve(blockData, chunk, target, horizontalSize, plan.getVerticalSize(i), plan.getData(branch));
+
+			if (plan.isLastNode(branch)) {
+				stopped[branch] = true;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of chunk plans simulated, by all carvers
+	 * @return the count
+	 */
+	public static long getSimulated() {
+		return simulated.get();
+	}
+
+	/**
+	 * Gets the number of chunk plans taken from the cache, by all carvers
+	 * @return the count
+	 */
+	public static long getReused() {
+		return reused.get();
+	}
+
+	/**
+	 * Gets the number of plans replayed against a chunk, by all carvers
+	 * @return the count
+	 */
+	public static long getReplayed() {
+		return replayed.get();
+	}
+
+	/**
+	 * Gets the number of non empty plans skipped as out of reach of a chunk, by all carvers
+	 * @return the count
+	 */
+	public static long getSkipped() {
+		return skipped.get();
+	}
+
+	private static final class PlanKey {
+		private final long seed;
+		private final int x, z;
+
+		private PlanKey(long seed, int x, int z) {
+			this.seed = seed;
+			this.x = x;
+			this.z = z;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((int) (seed ^ seed >>> 32) * 31 + x) * 31 + z;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PlanKey)) {
+				return false;
+			}
+			PlanKey other = (PlanKey) obj;
+			return x == other.x && z == other.z && seed == other.seed;
+		}
+	}
+}
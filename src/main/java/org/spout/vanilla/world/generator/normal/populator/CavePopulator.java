@@ -38,13 +38,9 @@ import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.liquid.Water;
 
-public class CavePopulator extends OverlapingPopulator {
+public class CavePopulator extends CarverPopulator {
 	@Override
-	protected void populate(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 originChunk, Random random) {
-		if (chunk.getFloorY() < 0 || chunk.getFloorY() >= 120) {
-			return;
-		}
-
+	protected void simulate(Vector3 chunk, Random random, CarverPlan plan) {
 		if (random.nextInt(15) != 0) {
 			return;
 		}
@@ -57,7 +53,7 @@ public class CavePopulator extends OverlapingPopulator {
 			int numberOfSmallCaves = 1;
 
 			if (random.nextInt(4) == 0) {
-				generateLargeCaveBranch(blockData, originChunk, target, new Random(random.nextLong()));
+				simulateLargeCaveBranch(plan, target, new Random(random.nextLong()));
 				numberOfSmallCaves += random.nextInt(4);
 			}
 
@@ -70,15 +66,27 @@ public class CavePopulator extends OverlapingPopulator {
 					horizontalScale *= random.nextDouble() * random.nextDouble() * 3 + 1;
 				}
 
-				generateCaveBranch(blockData, originChunk, target, horizontalScale, 1, randomHorizontalAngle, randomVerticalAngle, 0, 0, new Random(random.nextLong()));
+				simulateCaveBranch(plan, -1, target, horizontalScale, 1, randomHorizontalAngle, randomVerticalAngle, 0, 0, new Random(random.nextLong()));
 			}
 		}
 	}
 
-	private void generateCaveBranch(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 target, double horizontalScale, double verticalScale,
+	@Override
+	protected void carve(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 target, double horizontalSize, double verticalSize, Object data) {
+		final Vector3 start = new Vector3(GenericMath.floor(target.getX() - horizontalSize) - chunk.getFloorX() - 1,
+				GenericMath.floor(target.getY() - verticalSize) - 1, GenericMath.floor(target.getZ() - horizontalSize) - chunk.getFloorZ() - 1);
+		final Vector3 end = new Vector3(GenericMath.floor(target.getX() + horizontalSize) - chunk.getFloorX() + 1,
+				GenericMath.floor(target.getY() + verticalSize) + 1, GenericMath.floor(target.getZ() + horizontalSize) - chunk.getFloorZ() + 1);
+		final CaveNode node = new CaveNode(blockData, chunk, start, end, target, verticalSize, horizontalSize);
+
+		if (node.canPlace()) {
+			node.place();
+		}
+	}
+
+	private void simulateCaveBranch(CarverPlan plan, int parent, Vector3 target, double horizontalScale, double verticalScale,
 									double horizontalAngle, double verticalAngle, int startingNode, int nodeAmount, Random random) {
 
-		final Vector3 middle = new Vector3(chunk.getX() + 8, 0, chunk.getZ() + 8);
 		double horizontalOffset = 0;
 		double verticalOffset = 0;
 
@@ -98,6 +106,8 @@ public class CavePopulator extends OverlapingPopulator {
 			lastNode = false;
 		}
 
+		final int branch = plan.addBranch(parent, lastNode, null);
+
 		for (; startingNode < nodeAmount; startingNode++) {
 			final double horizontalSize = 1.5 + TrigMath.sin((float) (startingNode * Math.PI / nodeAmount)) * horizontalScale;
 			final double verticalSize = horizontalSize * verticalScale;
@@ -119,8 +129,8 @@ public class CavePopulator extends OverlapingPopulator {
 			if (!lastNode) {
 
 				if (startingNode == intersectionNode && horizontalScale > 1 && nodeAmount > 0) {
-					generateCaveBranch(blockData, chunk, target, random.nextDouble() * 0.5 + 0.5, 1, horizontalAngle - Math.PI / 2, verticalAngle / 3, startingNode, nodeAmount, new Random(random.nextLong()));
-					generateCaveBranch(blockData, chunk, target, random.nextDouble() * 0.5 + 0.5, 1, horizontalAngle + Math.PI / 2, verticalAngle / 3, startingNode, nodeAmount, new Random(random.nextLong()));
+					simulateCaveBranch(plan, branch, target, random.nextDouble() * 0.5 + 0.5, 1, horizontalAngle - Math.PI / 2, verticalAngle / 3, startingNode, nodeAmount, new Random(random.nextLong()));
+					simulateCaveBranch(plan, branch, target, random.nextDouble() * 0.5 + 0.5, 1, horizontalAngle + Math.PI / 2, verticalAngle / 3, startingNode, nodeAmount, new Random(random.nextLong()));
 					return;
 				}
 
@@ -129,40 +139,13 @@ public class CavePopulator extends OverlapingPopulator {
 				}
 			}
 
-			final double xOffset = target.getX() - middle.getX();
-			final double zOffset = target.getZ() - middle.getZ();
-			final double nodesLeft = nodeAmount - startingNode;
-			final double offsetHorizontalScale = horizontalScale + 18;
-
-			if ((xOffset * xOffset + zOffset * zOffset) - nodesLeft * nodesLeft > offsetHorizontalScale * offsetHorizontalScale) {
-				return;
-			}
-
-			if (target.getX() < middle.getX() - 16 - horizontalSize * 2
-					|| target.getZ() < middle.getZ() - 16 - horizontalSize * 2
-					|| target.getX() > middle.getX() + 16 + horizontalSize * 2
-					|| target.getZ() > middle.getZ() + 16 + horizontalSize * 2) {
-				continue;
-			}
-
-			final Vector3 start = new Vector3(GenericMath.floor(target.getX() - horizontalSize) - chunk.getFloorX() - 1,
-					GenericMath.floor(target.getY() - verticalSize) - 1, GenericMath.floor(target.getZ() - horizontalSize) - chunk.getFloorZ() - 1);
-			final Vector3 end = new Vector3(GenericMath.floor(target.getX() + horizontalSize) - chunk.getFloorX() + 1,
-					GenericMath.floor(target.getY() + verticalSize) + 1, GenericMath.floor(target.getZ() + horizontalSize) - chunk.getFloorZ() + 1);
-			final CaveNode node = new CaveNode(blockData, chunk, start, end, target, verticalSize, horizontalSize);
-
-			if (node.canPlace()) {
-				node.place();
-			}
-
-			if (lastNode) {
-				break;
-			}
+			// Whether the branch reaches a chunk is decided when the plan is replayed
+			plan.addNode(branch, target, horizontalSize, verticalSize, nodeAmount - startingNode, horizontalScale + 18);
 		}
 	}
 
-	private void generateLargeCaveBranch(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 target, Random random) {
-		generateCaveBranch(blockData, chunk, target, random.nextDouble() * 6 + 1, 0.5, 0, 0, -1, -1, random);
+	private void simulateLargeCaveBranch(CarverPlan plan, Vector3 target, Random random) {
+		simulateCaveBranch(plan, -1, target, random.nextDouble() * 6 + 1, 0.5, 0, 0, -1, -1, random);
 	}
 
 	private static class CaveNode {
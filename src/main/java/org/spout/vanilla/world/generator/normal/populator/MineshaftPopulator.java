@@ -32,6 +32,7 @@ import org.spout.api.generator.Populator;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.normal.structure.mineshaft.Mineshaft;
 
 public class MineshaftPopulator extends Populator {
@@ -59,7 +60,9 @@ public class MineshaftPopulator extends Populator {
 			final int y = random.nextInt(RAND_Y) + BASE_Y;
 			final int z = blockZ + random.nextInt(VARIATION * 2 + 1) - VARIATION;
 			if (mineshaft.canPlaceObject(world, x, y, z)) {
-				mineshaft.placeObject(world, x, y, z);
+				final PopulationBuffer buffer = new PopulationBuffer(world);
+				mineshaft.placeObject(buffer, x, y, z);
+				buffer.commit();
 			}
 		}
 	}
@@ -32,9 +32,9 @@ import java.util.List;
 import java.util.Random;
 
 import org.spout.api.generator.Populator;
-import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.normal.object.OreObject;
 import org.spout.vanilla.world.generator.normal.object.OreObject.OreType;
 
@@ -46,7 +46,7 @@ public class OrePopulator extends Populator {
 		if (chunk.getY() != 4) {
 			return;
 		}
-		final World world = chunk.getWorld();
+		final PopulationBuffer buffer = new PopulationBuffer(chunk.getWorld());
 		for (OreType oreType : oreTypes) {
 			final OreObject ore = new OreObject(oreType);
 			ore.setRandom(random);
@@ -55,11 +55,12 @@ public class OrePopulator extends Populator {
 				final int y = random.nextInt(oreType.getMaxHeight() - oreType.getMinHeight())
 						+ oreType.getMinHeight();
 				final int z = chunk.getBlockZ(random);
-				if (ore.canPlaceObject(world, x, y, z)) {
-					ore.placeObject(world, x, y, z);
+				if (ore.canPlaceObject(buffer, x, y, z)) {
+					ore.placeObject(buffer, x, y, z);
 				}
 			}
 		}
+		buffer.commit();
 	}
 
 	public void clearOreTypes() {
@@ -33,7 +33,9 @@ import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.util.LogicUtil;
 
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
+import org.spout.vanilla.world.generator.normal.NormalGenerator;
 import org.spout.vanilla.world.generator.normal.object.PondObject;
 
 public class PondPopulator extends Populator {
@@ -47,14 +49,15 @@ public class PondPopulator extends Populator {
 			return;
 		}
 		final World world = chunk.getWorld();
+		final PopulationBuffer buffer = new PopulationBuffer(world);
 		if (random.nextInt(waterOdd) == 0) {
 			final int x = chunk.getBlockX(random);
 			final int z = chunk.getBlockZ(random);
 			final int y = random.nextInt(128);
-			if (!LogicUtil.equalsAny(world.getBiome(x, y, z), VanillaBiomes.DESERT, VanillaBiomes.DESERT_HILLS)) {
+			if (!LogicUtil.equalsAny(NormalGenerator.getBiome(world, x, y, z), VanillaBiomes.DESERT, VanillaBiomes.DESERT_HILLS)) {
 				final PondObject pond = new PondObject(random, PondObject.PondType.WATER);
-				if (pond.canPlaceObject(world, x, y, z)) {
-					pond.placeObject(world, x, y, z);
+				if (pond.canPlaceObject(buffer, x, y, z)) {
+					pond.placeObject(buffer, x, y, z);
 				}
 			}
 		}
@@ -63,13 +66,15 @@ public class PondPopulator extends Populator {
 			final int z = chunk.getBlockZ(random);
 			final int y = random.nextInt(120) + 8;
 			if (y >= 63 && random.nextInt(lavaSurfaceOdd) != 0) {
+				buffer.commit();
 				return;
 			}
 			final PondObject pond = new PondObject(random, PondObject.PondType.LAVA);
-			if (pond.canPlaceObject(world, x, y, z)) {
-				pond.placeObject(world, x, y, z);
+			if (pond.canPlaceObject(buffer, x, y, z)) {
+				pond.placeObject(buffer, x, y, z);
 			}
 		}
+		buffer.commit();
 	}
 
 	public void setWaterOdd(int waterOdd) {
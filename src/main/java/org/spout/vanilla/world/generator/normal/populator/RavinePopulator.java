@@ -38,13 +38,9 @@ import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.liquid.Water;
 
-public class RavinePopulator extends OverlapingPopulator {
+public class RavinePopulator extends CarverPopulator {
 	@Override
-	protected void populate(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 originChunk, Random random) {
-		if (chunk.getFloorY() < 0 || chunk.getFloorY() >= 120) {
-			return;
-		}
-
+	protected void simulate(Vector3 chunk, Random random, CarverPlan plan) {
 		if (random.nextInt(50) != 0) {
 			return;
 		}
@@ -54,13 +50,25 @@ public class RavinePopulator extends OverlapingPopulator {
 		final double randomHorizontalAngle = random.nextDouble() * Math.PI * 2;
 		final double randomVerticalAngle = ((random.nextDouble() - 0.5) * 2) / 8;
 		final double horizontalScale = (random.nextDouble() * 2 + random.nextDouble()) * 2;
-		generateRavineNodes(blockData, originChunk, target, horizontalScale, 3, randomHorizontalAngle, randomVerticalAngle, 0, 0, random);
+		simulateRavineNodes(plan, target, horizontalScale, 3, randomHorizontalAngle, randomVerticalAngle, 0, 0, random);
 	}
 
-	private void generateRavineNodes(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 target, double horizontalScale, double verticalScale,
+	@Override
+	protected void carve(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 target, double horizontalSize, double verticalSize, Object data) {
+		final Vector3 start = new Vector3(GenericMath.floor(target.getX() - horizontalSize) - chunk.getFloorX() - 1,
+				GenericMath.floor(target.getY() - verticalSize) - 1, GenericMath.floor(target.getZ() - horizontalSize) - chunk.getFloorZ() - 1);
+		final Vector3 end = new Vector3(GenericMath.floor(target.getX() + horizontalSize) - chunk.getFloorX() + 1,
+				GenericMath.floor(target.getY() + verticalSize) + 1, GenericMath.floor(target.getZ() + horizontalSize) - chunk.getFloorZ() + 1);
+		final RavineNode node = new RavineNode(blockData, chunk, start, end, target, verticalSize, horizontalSize, (double[]) data);
+
+		if (node.canPlace()) {
+			node.place();
+		}
+	}
+
+	private void simulateRavineNodes(CarverPlan plan, Vector3 target, double horizontalScale, double verticalScale,
 									 double horizontalAngle, double verticalAngle, int startingNode, int nodeAmount, Random random) {
 
-		final Vector3 middle = new Vector3(chunk.getX() + 8, 0, chunk.getZ() + 8);
 		double horizontalOffset = 0;
 		double verticalOffset = 0;
 
@@ -85,6 +93,8 @@ public class RavinePopulator extends OverlapingPopulator {
 			horizontalScales[y] = xzScale * xzScale;
 		}
 
+		final int branch = plan.addBranch(-1, lastNode, horizontalScales);
+
 		for (; startingNode < nodeAmount; startingNode++) {
 			double horizontalSize = 1.5 + TrigMath.sin((float) (startingNode * Math.PI / nodeAmount)) * horizontalScale;
 			double verticalSize = horizontalSize * verticalScale;
@@ -105,35 +115,8 @@ public class RavinePopulator extends OverlapingPopulator {
 				continue;
 			}
 
-			final double xOffset = target.getX() - middle.getX();
-			final double zOffset = target.getZ() - middle.getZ();
-			final double nodesLeft = nodeAmount - startingNode;
-			final double offsetHorizontalScale = horizontalScale + 18;
-
-			if ((xOffset * xOffset + zOffset * zOffset) - nodesLeft * nodesLeft > offsetHorizontalScale * offsetHorizontalScale) {
-				return;
-			}
-
-			if (target.getX() < middle.getX() - 16 - horizontalSize * 2
-					|| target.getZ() < middle.getZ() - 16 - horizontalSize * 2
-					|| target.getX() > middle.getX() + 16 + horizontalSize * 2
-					|| target.getZ() > middle.getZ() + 16 + horizontalSize * 2) {
-				continue;
-			}
-
-			final Vector3 start = new Vector3(GenericMath.floor(target.getX() - horizontalSize) - chunk.getFloorX() - 1,
-					GenericMath.floor(target.getY() - verticalSize) - 1, GenericMath.floor(target.getZ() - horizontalSize) - chunk.getFloorZ() - 1);
-			final Vector3 end = new Vector3(GenericMath.floor(target.getX() + horizontalSize) - chunk.getFloorX() + 1,
-					GenericMath.floor(target.getY() + verticalSize) + 1, GenericMath.floor(target.getZ() + horizontalSize) - chunk.getFloorZ() + 1);
-			final RavineNode node = new RavineNode(blockData, chunk, start, end, target, verticalSize, horizontalSize, horizontalScales);
-
-			if (node.canPlace()) {
-				node.place();
-			}
-
-			if (lastNode) {
-				break;
-			}
+			// Whether the ravine reaches a chunk is decided when the plan is replayed
+			plan.addNode(branch, target, horizontalSize, verticalSize, nodeAmount - startingNode, horizontalScale + 18);
 		}
 	}
 
@@ -39,22 +39,28 @@ import org.spout.api.math.Vector3;
 import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.world.generator.NoisePipeline;
 import org.spout.vanilla.world.generator.normal.NormalGenerator;
 
 public class RockyShieldPopulator implements GeneratorPopulator {
-	private static final Perlin SHIELD_BASE = new Perlin();
-	private static final Turbulence SHIELD = new Turbulence();
+	private static final NoisePipeline<Turbulence> SHIELD = new NoisePipeline<Turbulence>() {
+		@Override
+		protected Turbulence create(long seed) {
+			final Perlin shieldBase = new Perlin();
+			shieldBase.setFrequency(0.01);
+			shieldBase.setNoiseQuality(NoiseQuality.STANDARD);
+			shieldBase.setOctaveCount(1);
+			shieldBase.setSeed((int) seed * 73);
 
-	static {
-		SHIELD_BASE.setFrequency(0.01);
-		SHIELD_BASE.setNoiseQuality(NoiseQuality.STANDARD);
-		SHIELD_BASE.setOctaveCount(1);
-
-		SHIELD.SetSourceModule(0, SHIELD_BASE);
-		SHIELD.setFrequency(0.05);
-		SHIELD.setPower(10);
-		SHIELD.setRoughness(3);
-	}
+			final Turbulence shield = new Turbulence();
+			shield.SetSourceModule(0, shieldBase);
+			shield.setFrequency(0.05);
+			shield.setPower(10);
+			shield.setRoughness(3);
+			shield.setSeed((int) seed * 79);
+			return shield;
+		}
+	};
 
 	@Override
 	public void populate(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomes, long seed) {
@@ -65,9 +71,7 @@ public class RockyShieldPopulator implements GeneratorPopulator {
 		final int sizeX = size.getFloorX();
 		final int sizeY = GenericMath.clamp(size.getFloorY(), 0, NormalGenerator.HEIGHT);
 		final int sizeZ = size.getFloorZ();
-		SHIELD_BASE.setSeed((int) seed * 73);
-		SHIELD.setSeed((int) seed * 79);
-		final double[][] noise = WorldGeneratorUtils.fastNoise(SHIELD, sizeX, sizeZ, 4, x, 63, z);
+		final double[][] noise = WorldGeneratorUtils.fastNoise(SHIELD.get(seed), sizeX, sizeZ, 4, x, 63, z);
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
 				if (noise[xx][zz] > 0.92) {
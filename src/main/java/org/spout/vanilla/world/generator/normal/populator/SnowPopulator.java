@@ -42,21 +42,27 @@ import org.spout.api.math.GenericMath;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.misc.Snow;
+import org.spout.vanilla.world.generator.NoisePipeline;
 import org.spout.vanilla.world.generator.biome.VanillaBiome;
+import org.spout.vanilla.world.generator.normal.NormalGenerator;
 
 public class SnowPopulator extends Populator {
-	private static final Perlin HEIGHTS = new Perlin();
-	private static final Clamp SNOW_HEIGHTS = new Clamp();
+	private static final NoisePipeline<Clamp> SNOW_HEIGHTS = new NoisePipeline<Clamp>() {
+		@Override
+		protected Clamp create(long seed) {
+			final Perlin heights = new Perlin();
+			heights.setFrequency(0.1);
+			heights.setNoiseQuality(NoiseQuality.BEST);
+			heights.setOctaveCount(2);
+			heights.setSeed((int) seed * 51);
 
-	static {
-		HEIGHTS.setFrequency(0.1);
-		HEIGHTS.setNoiseQuality(NoiseQuality.BEST);
-		HEIGHTS.setOctaveCount(2);
-
-		SNOW_HEIGHTS.SetSourceModule(0, HEIGHTS);
-		SNOW_HEIGHTS.setLowerBound(-1);
-		SNOW_HEIGHTS.setUpperBound(1);
-	}
+			final Clamp snowHeights = new Clamp();
+			snowHeights.SetSourceModule(0, heights);
+			snowHeights.setLowerBound(-1);
+			snowHeights.setUpperBound(1);
+			return snowHeights;
+		}
+	};
 
 	@Override
 	public void populate(Chunk chunk, Random random) {
@@ -64,13 +70,12 @@ public class SnowPopulator extends Populator {
 			return;
 		}
 		final World world = chunk.getWorld();
-		HEIGHTS.setSeed((int) world.getSeed() * 51);
 		final int x = chunk.getBlockX();
 		final int z = chunk.getBlockZ();
-		final double[][] heights = WorldGeneratorUtils.fastNoise(SNOW_HEIGHTS, 16, 16, 4, x, 0, z);
+		final double[][] heights = WorldGeneratorUtils.fastNoise(SNOW_HEIGHTS.get(world.getSeed()), 16, 16, 4, x, 0, z);
 		for (byte xx = 0; xx < 16; xx++) {
 			for (byte zz = 0; zz < 16; zz++) {
-				if (((VanillaBiome) world.getBiome(x + xx, 63, z + zz)).getClimate().hasSnowfall()) {
+				if (((VanillaBiome) NormalGenerator.getBiome(world, x + xx, 63, z + zz)).getClimate().hasSnowfall()) {
 					final int y = getHighestWorkableBlock(world, x + xx, z + zz);
 					if (y != -1 && ((VanillaBlockMaterial) world.getBlockMaterial(x + xx, y - 1, z + zz)).
 							canSupport(VanillaMaterials.SNOW, BlockFace.TOP)) {
@@ -36,6 +36,7 @@ import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
 import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.normal.structure.stronghold.Stronghold;
 
 public class StrongholdPopulator extends Populator {
@@ -90,7 +91,9 @@ public class StrongholdPopulator extends Populator {
 		final int y = random.nextInt(randomElevation) + baseElevation;
 		final int z = blockZ + random.nextInt(2 * variation + 1) - variation;
 		if (stronghold.canPlaceObject(world, x, y, z)) {
-			stronghold.placeObject(world, x, y, z);
+			final PopulationBuffer buffer = new PopulationBuffer(world);
+			stronghold.placeObject(buffer, x, y, z);
+			buffer.commit();
 			if (VanillaPlugin.getInstance().getEngine().debugMode()) {
 				Spout.getLogger().log(Level.INFO, "Placed stronghold at: (" + x + ", " + y + ", " + z + ")");
 			}
@@ -32,6 +32,7 @@ import org.spout.api.generator.Populator;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.normal.structure.temple.Temple;
 
 public class TemplePopulator extends Populator {
@@ -51,7 +52,9 @@ public class TemplePopulator extends Populator {
 		final int x = chunk.getBlockX(random);
 		final int z = chunk.getBlockZ(random);
 		if (temple.canPlaceObject(world, x, 0, z)) {
-			temple.placeObject(world, x, 0, z);
+			final PopulationBuffer buffer = new PopulationBuffer(world);
+			temple.placeObject(buffer, x, 0, z);
+			buffer.commit();
 		}
 	}
 
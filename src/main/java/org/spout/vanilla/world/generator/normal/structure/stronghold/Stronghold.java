@@ -26,20 +26,18 @@
  */
 package org.spout.vanilla.world.generator.normal.structure.stronghold;
 
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Random;
-import java.util.Set;
 
 import org.spout.api.geo.World;
 import org.spout.api.geo.discrete.Point;
 import org.spout.api.math.Quaternion;
 
+import org.spout.vanilla.world.generator.structure.BoundingBoxIndex;
 import org.spout.vanilla.world.generator.structure.Structure;
 import org.spout.vanilla.world.generator.structure.StructurePiece;
 import org.spout.vanilla.world.generator.structure.StructurePiece.BoundingBox;
@@ -62,7 +60,7 @@ public class Stronghold extends Structure {
 
 	@Override
 	public void placeObject(World w, int x, int y, int z) {
-		final Set<BoundingBox> placed = new HashSet<BoundingBox>();
+		final BoundingBoxIndex placed = new BoundingBoxIndex();
 		final Queue<StructurePiece> activeBranches = new LinkedList<StructurePiece>();
 		final Map<StructurePiece, BoundingBox> lastBoxes = new HashMap<StructurePiece, BoundingBox>();
 		final StrongholdCorridor corridor = new StrongholdCorridor(this);
@@ -76,7 +74,7 @@ public class Stronghold extends Structure {
 		while (!activeBranches.isEmpty()) {
 			final StructurePiece active = activeBranches.poll();
 			final BoundingBox activeBox = active.getBoundingBox();
-			if (!collides(activeBox, lastBoxes.remove(active), placed) && active.canPlace()
+			if (!placed.collides(activeBox, lastBoxes.remove(active)) && active.canPlace()
 					&& active.getPosition().getY() >= 10) {
 				active.place();
 				if (++count > size) {
@@ -91,13 +89,4 @@ public class Stronghold extends Structure {
 			}
 		}
 	}
-
-	private boolean collides(BoundingBox box, BoundingBox last, Collection<BoundingBox> boxes) {
-		for (BoundingBox other : boxes) {
-			if (!other.equals(last) && other.intersects(box)) {
-				return true;
-			}
-		}
-		return false;
-	}
 }
@@ -30,6 +30,8 @@ import java.util.Random;
 
 import org.spout.api.generator.WorldGeneratorObject;
 
+import org.spout.vanilla.world.generator.PopulationBuffer;
+
 public abstract class RandomObject extends WorldGeneratorObject {
 	protected Random random;
 
@@ -48,4 +50,31 @@ public abstract class RandomObject extends WorldGeneratorObject {
 	public Random getRandom() {
 		return random;
 	}
+
+	/**
+	 * Checks if the object can be placed, reading from the buffer<br>
+	 * Objects which do not work on buffers are checked against the world, after flushing the buffer.
+	 * @param buffer to read from
+	 * @param x coordinate of the object
+	 * @param y coordinate of the object
+	 * @param z coordinate of the object
+	 * @return true if the object can be placed
+	 */
+	public boolean canPlaceObject(PopulationBuffer buffer, int x, int y, int z) {
+		buffer.flush();
+		return canPlaceObject(buffer.getWorld(), x, y, z);
+	}
+
+	/**
+	 * Places the object, writing into the buffer<br>
+	 * Objects which do not work on buffers are placed in the world, after flushing the buffer.
+	 * @param buffer to write to
+	 * @param x coordinate of the object
+	 * @param y coordinate of the object
+	 * @param z coordinate of the object
+	 */
+	public void placeObject(PopulationBuffer buffer, int x, int y, int z) {
+		buffer.flush();
+		placeObject(buffer.getWorld(), x, y, z);
+	}
 }
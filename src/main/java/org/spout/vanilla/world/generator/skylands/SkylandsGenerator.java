@@ -32,7 +32,6 @@ import net.royawesome.jlibnoise.NoiseQuality;
 import net.royawesome.jlibnoise.module.modifier.ScalePoint;
 import net.royawesome.jlibnoise.module.source.Perlin;
 
-import org.spout.api.generator.WorldGeneratorUtils;
 import org.spout.api.generator.biome.BiomeManager;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
@@ -42,6 +41,8 @@ import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.world.generator.NoisePipeline;
+import org.spout.vanilla.world.generator.NoiseSampler;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.generator.biome.VanillaSingleBiomeGenerator;
 import org.spout.vanilla.world.generator.normal.object.OreObject.OreType;
@@ -56,21 +57,25 @@ public class SkylandsGenerator extends VanillaSingleBiomeGenerator {
 	public static final int MINIMUM = ELEVATION - LOWER_SIZE;
 	public static final int HEIGHT = ELEVATION + UPPER_SIZE;
 	// noise for generation
-	private static final Perlin PERLIN = new Perlin();
-	private static final ScalePoint NOISE = new ScalePoint();
+	private static final NoisePipeline<ScalePoint> NOISE = new NoisePipeline<ScalePoint>() {
+		@Override
+		protected ScalePoint create(long seed) {
+			final Perlin perlin = new Perlin();
+			perlin.setFrequency(0.04);
+			perlin.setLacunarity(2);
+			perlin.setNoiseQuality(NoiseQuality.BEST);
+			perlin.setPersistence(0.5);
+			perlin.setOctaveCount(4);
+			perlin.setSeed((int) seed * 31);
 
-	static {
-		PERLIN.setFrequency(0.04);
-		PERLIN.setLacunarity(2);
-		PERLIN.setNoiseQuality(NoiseQuality.BEST);
-		PERLIN.setPersistence(0.5);
-		PERLIN.setOctaveCount(4);
-
-		NOISE.SetSourceModule(0, PERLIN);
-		NOISE.setxScale(0.5);
-		NOISE.setyScale(1);
-		NOISE.setzScale(0.5);
-	}
+			final ScalePoint noise = new ScalePoint();
+			noise.SetSourceModule(0, perlin);
+			noise.setxScale(0.5);
+			noise.setyScale(1);
+			noise.setzScale(0.5);
+			return noise;
+		}
+	};
 
 	public SkylandsGenerator() {
 		super(VanillaBiomes.SKYLANDS);
@@ -100,16 +105,15 @@ public class SkylandsGenerator extends VanillaSingleBiomeGenerator {
 
 	@Override
 	protected void generateTerrain(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager manager, long seed) {
-		PERLIN.setSeed((int) seed * 31);
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = size.getFloorY();
 		final int sizeZ = size.getFloorZ();
-		final double[][][] noise = WorldGeneratorUtils.fastNoise(NOISE, sizeX, sizeY, sizeZ, 4, x, y, z);
+		final double[] noise = NoiseSampler.sample(NOISE.get(seed), sizeX, sizeY, sizeZ, 4, x, y, z);
 		for (int xx = 0; xx < sizeX; xx++) {
-			for (int yy = 0; yy < sizeY; yy++) {
-				for (int zz = 0; zz < sizeZ; zz++) {
-					double density = noise[xx][yy][zz];
+			for (int zz = 0; zz < sizeZ; zz++) {
+				for (int yy = 0; yy < sizeY; yy++) {
+					double density = noise[NoiseSampler.getIndex(xx, yy, zz, sizeY, sizeZ)];
 					if (y + yy < ELEVATION) {
 						density -= square(1d / LOWER_SIZE * (y + yy - ELEVATION));
 					} else if (y + yy >= ELEVATION) {
@@ -0,0 +1,99 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.structure;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.spout.api.math.GenericMath;
+import org.spout.api.math.Vector3;
+
+import org.spout.vanilla.world.generator.structure.StructurePiece.BoundingBox;
+
+/**
+ * Index of the bounding boxes of the pieces placed by a structure, used to check new pieces for collisions<br>
+ * Boxes are stored in every horizontal cell they overlap, so a check only looks at the boxes sharing a cell.
+ */
+public class BoundingBoxIndex {
+	private static final int CELL_BITS = 4;
+	private final TLongObjectHashMap<List<BoundingBox>> cells = new TLongObjectHashMap<List<BoundingBox>>();
+
+	/**
+	 * Adds a box to the index
+	 * @param box to add
+	 */
+	public void add(BoundingBox box) {
+		final Vector3 min = box.getMin();
+		final Vector3 max = box.getMax();
+		final int maxX = GenericMath.floor(max.getX()) >> CELL_BITS;
+		final int maxZ = GenericMath.floor(max.getZ()) >> CELL_BITS;
+		for (int x = GenericMath.floor(min.getX()) >> CELL_BITS; x <= maxX; x++) {
+			for (int z = GenericMath.floor(min.getZ()) >> CELL_BITS; z <= maxZ; z++) {
+				final long key = key(x, z);
+				List<BoundingBox> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<BoundingBox>(4);
+					cells.put(key, cell);
+				}
+				cell.add(box);
+			}
+		}
+	}
+
+	/**
+	 * Checks if a box intersects any box of the index
+	 * @param box to check
+	 * @param ignored box not counted as a collision, usually the box of the piece the checked one is attached to
+	 * @return true if the box intersects a box other than the ignored one
+	 */
+	public boolean collides(BoundingBox box, BoundingBox ignored) {
+		final Vector3 min = box.getMin();
+		final Vector3 max = box.getMax();
+		final int maxX = GenericMath.floor(max.getX()) >> CELL_BITS;
+		final int maxZ = GenericMath.floor(max.getZ()) >> CELL_BITS;
+		for (int x = GenericMath.floor(min.getX()) >> CELL_BITS; x <= maxX; x++) {
+			for (int z = GenericMath.floor(min.getZ()) >> CELL_BITS; z <= maxZ; z++) {
+				final List<BoundingBox> cell = cells.get(key(x, z));
+				if (cell == null) {
+					continue;
+				}
+				for (BoundingBox other : cell) {
+					if (!other.equals(ignored) && other.intersects(box)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static long key(int x, int z) {
+		return (long) x << 32 | z & 0xFFFFFFFFL;
+	}
+}
@@ -28,13 +28,42 @@ package org.spout.vanilla.world.generator.structure;
 
 import java.util.Random;
 
+import org.spout.vanilla.world.generator.PopulationBuffer;
 import org.spout.vanilla.world.generator.object.RandomObject;
 
 public abstract class Structure extends RandomObject {
+	private PopulationBuffer buffer = null;
+
 	public Structure() {
 	}
 
 	public Structure(Random random) {
 		super(random);
 	}
+
+	/**
+	 * Gets the buffer the pieces are placed in
+	 * @return the buffer, or null if the pieces are placed straight into the world
+	 */
+	public PopulationBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Places the structure, its pieces reading and writing through the buffer<br>
+	 * The changes are only in the world once the buffer is committed.
+	 * @param buffer to place in
+	 * @param x coordinate of the structure
+	 * @param y coordinate of the structure
+	 * @param z coordinate of the structure
+	 */
+	@Override
+	public void placeObject(PopulationBuffer buffer, int x, int y, int z) {
+		this.buffer = buffer;
+		try {
+			placeObject(buffer.getWorld(), x, y, z);
+		} finally {
+			this.buffer = null;
+		}
+	}
 }
@@ -42,14 +42,24 @@ import org.spout.api.math.VectorMath;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Directional;
 import org.spout.vanilla.material.block.DoorBlock;
+import org.spout.vanilla.material.block.FacingData;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.attachable.Attachable;
+import org.spout.vanilla.material.block.misc.Torch;
+import org.spout.vanilla.world.generator.PopulationBuffer;
+import org.spout.vanilla.world.generator.object.RandomObject;
 
 public abstract class StructurePiece {
 	protected final Structure parent;
 	protected Point position = Point.invalid;
 	protected Quaternion rotation = Quaternion.IDENTITY;
 	protected Vector3 rotationPoint = Vector3.ZERO;
+	// Integer form of the transform for axis aligned rotations, rebuilt when the position, rotation or rotation point change
+	private Point transformPosition = null;
+	private Quaternion transformRotation = null;
+	private Vector3 transformRotationPoint = null;
+	private int[] transformMatrix = null;
+	private final int[] transformed = new int[3];
 
 	public StructurePiece(Structure parent) {
 		this.parent = parent;
@@ -64,12 +74,13 @@ public abstract class StructurePiece {
 	}
 
 	public Block getBlock(int xx, int yy, int zz) {
-		return position.getWorld().getBlock(transform(xx, yy, zz));
+		transform(xx, yy, zz, transformed);
+		return getWorldBlock(transformed[0], transformed[1], transformed[2]);
 	}
 
 	public BlockMaterial getBlockMaterial(int xx, int yy, int zz) {
-		final Vector3 transformed = transform(xx, yy, zz);
-		return position.getWorld().getBlockMaterial(transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ());
+		transform(xx, yy, zz, transformed);
+		return getWorldBlockMaterial(transformed[0], transformed[1], transformed[2]);
 	}
 
 	public void setBlockMaterial(int xx, int yy, int zz, BlockMaterial material) {
@@ -77,25 +88,38 @@ public abstract class StructurePiece {
 	}
 
 	public void setBlockMaterial(int xx, int yy, int zz, BlockMaterial material, short data) {
-		final Vector3 transformed = transform(xx, yy, zz);
-		position.getWorld().setBlockMaterial(transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ(),
-				material, data, null);
-		if (material instanceof Directional) {
+		transform(xx, yy, zz, transformed);
+		final int x = transformed[0];
+		final int y = transformed[1];
+		final int z = transformed[2];
+		if (material instanceof FacingData) {
+			// Turned in the data, so the block is written to the buffer like any other
+			final FacingData facing = (FacingData) material;
+			final BlockFace face = facing.getFacing(data);
+			if (face != BlockFace.BOTTOM && face != BlockFace.TOP) {
+				data = facing.getFacingData(data, BlockFace.fromYaw(face.getDirection().getYaw() + rotation.getYaw()));
+			}
+			setWorldBlockMaterial(x, y, z, material, data);
+		} else if (material instanceof Directional) {
+			setWorldBlockMaterial(x, y, z, material, data);
 			final Directional directional = (Directional) material;
-			final Block block = position.getWorld().getBlock(transformed);
+			final Block block = getWorldBlock(x, y, z);
 			final BlockFace face = directional.getFacing(block);
 			if (face != BlockFace.BOTTOM && face != BlockFace.TOP) {
 				directional.setFacing(block, BlockFace.fromYaw(face.getDirection().getYaw()
 						+ rotation.getYaw()));
 			}
 		} else if (material instanceof Attachable) {
+			setWorldBlockMaterial(x, y, z, material, data);
 			final Attachable attachable = (Attachable) material;
-			final Block block = position.getWorld().getBlock(transformed);
+			final Block block = getWorldBlock(x, y, z);
 			final BlockFace face = attachable.getAttachedFace(block);
 			if (face != BlockFace.BOTTOM && face != BlockFace.TOP) {
 				attachable.setAttachedFace(block, BlockFace.fromYaw(face.getDirection().getYaw()
 						+ rotation.getYaw()), null);
 			}
+		} else {
+			setWorldBlockMaterial(x, y, z, material, data);
 		}
 	}
 
@@ -116,6 +140,10 @@ public abstract class StructurePiece {
 	}
 
 	public void attachMaterial(int xx, int yy, int zz, Attachable attachable) {
+		if (attachable instanceof Torch) {
+			attachTorch(xx, yy, zz, (Torch) attachable);
+			return;
+		}
 		final Block block = getBlock(xx, yy, zz);
 		for (BlockFace face : BlockFaces.BTNSWE) {
 			final Block adjacent = block.translate(face);
@@ -126,6 +154,25 @@ public abstract class StructurePiece {
 		}
 	}
 
+	private void attachTorch(int xx, int yy, int zz, Torch torch) {
+		transform(xx, yy, zz, transformed);
+		final int x = transformed[0];
+		final int y = transformed[1];
+		final int z = transformed[2];
+		// The last face the torch can attach to wins, like when attaching through the block
+		BlockFace attached = null;
+		for (BlockFace face : BlockFaces.BTNSWE) {
+			final Vector3 offset = face.getOffset();
+			final BlockMaterial adjacent = getWorldBlockMaterial(x + offset.getFloorX(), y + offset.getFloorY(), z + offset.getFloorZ());
+			if (torch.canAttachTo(adjacent, face.getOpposite())) {
+				attached = face;
+			}
+		}
+		if (attached != null) {
+			setWorldBlockMaterial(x, y, z, torch, torch.getFacingData(torch.getData(), attached));
+		}
+	}
+
 	public void fillDownwards(int xx, int yy, int zz, int limit, BlockMaterial material) {
 		fillDownwards(xx, yy, zz, limit, material, material.getData());
 	}
@@ -141,20 +188,132 @@ public abstract class StructurePiece {
 	}
 
 	public void placeObject(int xx, int yy, int zz, WorldGeneratorObject object) {
-		final Vector3 transformed = transform(xx, yy, zz);
-		if (object.canPlaceObject(position.getWorld(), transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ())) {
-			object.placeObject(position.getWorld(), transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ());
+		transform(xx, yy, zz, transformed);
+		final int x = transformed[0];
+		final int y = transformed[1];
+		final int z = transformed[2];
+		final PopulationBuffer buffer = parent.getBuffer();
+		if (buffer != null && object instanceof RandomObject) {
+			final RandomObject randomObject = (RandomObject) object;
+			if (randomObject.canPlaceObject(buffer, x, y, z)) {
+				randomObject.placeObject(buffer, x, y, z);
+			}
+			return;
+		}
+		if (buffer != null) {
+			buffer.flush();
+		}
+		if (object.canPlaceObject(position.getWorld(), x, y, z)) {
+			object.placeObject(position.getWorld(), x, y, z);
 		}
 	}
 
 	public void placeDoor(int xx, int yy, int zz, DoorBlock door, BlockFace facing) {
-		final Block bottom = getBlock(xx, yy, zz);
-		door.create(getBlock(xx, yy, zz), bottom.translate(BlockFace.TOP),
-				BlockFace.fromYaw(facing.getDirection().getYaw() + rotation.getYaw()), false, false);
+		transform(xx, yy, zz, transformed);
+		final int x = transformed[0];
+		final int y = transformed[1];
+		final int z = transformed[2];
+		setWorldBlockMaterial(x, y + 1, z, door, door.getTopData(false));
+		setWorldBlockMaterial(x, y, z, door, door.getBottomData(BlockFace.fromYaw(facing.getDirection().getYaw() + rotation.getYaw()), false));
+	}
+
+	private BlockMaterial getWorldBlockMaterial(int x, int y, int z) {
+		final PopulationBuffer buffer = parent.getBuffer();
+		if (buffer != null) {
+			return buffer.getBlockMaterial(x, y, z);
+		}
+		return position.getWorld().getBlockMaterial(x, y, z);
+	}
+
+	private void setWorldBlockMaterial(int x, int y, int z, BlockMaterial material, short data) {
+		final PopulationBuffer buffer = parent.getBuffer();
+		if (buffer != null) {
+			buffer.setBlockMaterial(x, y, z, material, data, null);
+		} else {
+			position.getWorld().setBlockMaterial(x, y, z, material, data, null);
+		}
+	}
+
+	private Block getWorldBlock(int x, int y, int z) {
+		final PopulationBuffer buffer = parent.getBuffer();
+		if (buffer != null) {
+			return buffer.getBlock(x, y, z);
+		}
+		return position.getWorld().getBlock(x, y, z);
 	}
 
 	protected Vector3 transform(int x, int y, int z) {
-		return rotate(x, y, z).add(position).round();
+		final int[] matrix = getTransformMatrix();
+		if (matrix == null) {
+			return rotate(x, y, z).add(position).round();
+		}
+		transform(matrix, x, y, z, transformed);
+		return new Vector3(transformed[0], transformed[1], transformed[2]);
+	}
+
+	private void transform(int x, int y, int z, int[] out) {
+		final int[] matrix = getTransformMatrix();
+		if (matrix == null) {
+			final Vector3 vector = rotate(x, y, z).add(position).round();
+			out[0] = vector.getFloorX();
+			out[1] = vector.getFloorY();
+			out[2] = vector.getFloorZ();
+		} else {
+			transform(matrix, x, y, z, out);
+		}
+	}
+
+	private static void transform(int[] matrix, int x, int y, int z, int[] out) {
+		out[0] = matrix[0] * x + matrix[1] * y + matrix[2] * z + matrix[9];
+		out[1] = matrix[3] * x + matrix[4] * y + matrix[5] * z + matrix[10];
+		out[2] = matrix[6] * x + matrix[7] * y + matrix[8] * z + matrix[11];
+	}
+
+	/**
+	 * Gets the transform as a 3x3 integer matrix followed by the translation, if the rotation is a multiple of
+	 * 90 degrees around the axes and the position and rotation point are whole blocks
+	 * @return the transform, or null if it must be computed with the quaternion
+	 */
+	private int[] getTransformMatrix() {
+		if (position == transformPosition && rotation == transformRotation && rotationPoint == transformRotationPoint) {
+			return transformMatrix;
+		}
+		transformPosition = position;
+		transformRotation = rotation;
+		transformRotationPoint = rotationPoint;
+		transformMatrix = null;
+		if (!isWholeBlock(position) || !isWholeBlock(rotationPoint)) {
+			return null;
+		}
+		final int[] matrix = new int[12];
+		final Vector3[] axes = {new Vector3(1, 0, 0), new Vector3(0, 1, 0), new Vector3(0, 0, 1)};
+		for (int column = 0; column < 3; column++) {
+			final Vector3 axis = VectorMath.transform(axes[column], rotation);
+			final float[] components = {axis.getX(), axis.getY(), axis.getZ()};
+			for (int row = 0; row < 3; row++) {
+				final int rounded = Math.round(components[row]);
+				if (Math.abs(components[row] - rounded) > 1e-3f) {
+					return null;
+				}
+				matrix[row * 3 + column] = rounded;
+			}
+		}
+		final int rx = rotationPoint.getFloorX();
+		final int ry = rotationPoint.getFloorY();
+		final int rz = rotationPoint.getFloorZ();
+		matrix[9] = rx - (matrix[0] * rx + matrix[1] * ry + matrix[2] * rz) + position.getFloorX();
+		matrix[10] = ry - (matrix[3] * rx + matrix[4] * ry + matrix[5] * rz) + position.getFloorY();
+		matrix[11] = rz - (matrix[6] * rx + matrix[7] * ry + matrix[8] * rz) + position.getFloorZ();
+		transformMatrix = matrix;
+		return matrix;
+	}
+
+	private static boolean isWholeBlock(Vector3 vector) {
+		// Beyond this, float positions no longer hold every whole block and the quaternion path rounds differently
+		final float limit = 1 << 22;
+		return vector.getX() == Math.floor(vector.getX()) && Math.abs(vector.getX()) < limit
+				&& vector.getY() == Math.floor(vector.getY()) && Math.abs(vector.getY()) < limit
+				&& vector.getZ() == Math.floor(vector.getZ()) && Math.abs(vector.getZ()) < limit;
 	}
 
 	protected Vector3 rotate(int x, int y, int z) {
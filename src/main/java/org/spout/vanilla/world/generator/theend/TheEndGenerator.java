@@ -32,7 +32,6 @@ import net.royawesome.jlibnoise.NoiseQuality;
 import net.royawesome.jlibnoise.module.modifier.ScalePoint;
 import net.royawesome.jlibnoise.module.source.Perlin;
 
-import org.spout.api.generator.WorldGeneratorUtils;
 import org.spout.api.generator.biome.BiomeManager;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
@@ -42,6 +41,8 @@ import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.world.generator.NoisePipeline;
+import org.spout.vanilla.world.generator.NoiseSampler;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.generator.biome.VanillaSingleBiomeGenerator;
 
@@ -53,21 +54,25 @@ public class TheEndGenerator extends VanillaSingleBiomeGenerator {
 	public static final int MINIMUM = ELEVATION - LOWER_SIZE;
 	public static final int HEIGHT = ELEVATION + UPPER_SIZE;
 	// noise for generation
-	private static final Perlin PERLIN = new Perlin();
-	private static final ScalePoint NOISE = new ScalePoint();
+	private static final NoisePipeline<ScalePoint> NOISE = new NoisePipeline<ScalePoint>() {
+		@Override
+		protected ScalePoint create(long seed) {
+			final Perlin perlin = new Perlin();
+			perlin.setFrequency(0.01);
+			perlin.setLacunarity(2);
+			perlin.setNoiseQuality(NoiseQuality.BEST);
+			perlin.setPersistence(0.5);
+			perlin.setOctaveCount(16);
+			perlin.setSeed((int) seed * 23);
 
-	static {
-		PERLIN.setFrequency(0.01);
-		PERLIN.setLacunarity(2);
-		PERLIN.setNoiseQuality(NoiseQuality.BEST);
-		PERLIN.setPersistence(0.5);
-		PERLIN.setOctaveCount(16);
-
-		NOISE.SetSourceModule(0, PERLIN);
-		NOISE.setxScale(1);
-		NOISE.setyScale(1);
-		NOISE.setzScale(1);
-	}
+			final ScalePoint noise = new ScalePoint();
+			noise.SetSourceModule(0, perlin);
+			noise.setxScale(1);
+			noise.setyScale(1);
+			noise.setzScale(1);
+			return noise;
+		}
+	};
 
 	public TheEndGenerator() {
 		super(VanillaBiomes.ENDSTONE);
@@ -86,19 +91,18 @@ public class TheEndGenerator extends VanillaSingleBiomeGenerator {
 
 	@Override
 	protected void generateTerrain(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomes, long seed) {
-		PERLIN.setSeed((int) seed * 23);
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = size.getFloorY();
 		final int sizeZ = size.getFloorZ();
-		final double[][][] noise = WorldGeneratorUtils.fastNoise(NOISE, sizeX, sizeY, sizeZ, 4, x, y, z);
+		final double[] noise = NoiseSampler.sample(NOISE.get(seed), sizeX, sizeY, sizeZ, 4, x, y, z);
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
 				final int totalX = x + xx;
 				final int totalZ = z + zz;
 				final double distance = Math.sqrt(totalX * totalX + totalZ * totalZ);
 				for (int yy = 0; yy < sizeY; yy++) {
-					double density = noise[xx][yy][zz] * 0.5 + 0.5;
+					double density = noise[NoiseSampler.getIndex(xx, yy, zz, sizeY, sizeZ)] * 0.5 + 0.5;
 					if (y + yy < ELEVATION) {
 						density += 1d / LOWER_SIZE * (y + yy - ELEVATION);
 					} else if (y + yy >= ELEVATION) {
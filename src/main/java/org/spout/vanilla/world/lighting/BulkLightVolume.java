@@ -0,0 +1,232 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import java.util.Arrays;
+
+/**
+ * Flat light volume used while initializing the light of newly generated chunks<br>
+ * Levels are stored as nibbles, chunk by chunk, so the cells of two chunks never share a byte
+ * and each chunk can be written by a different thread.
+ * Coordinates are relative to the base of the volume.
+ */
+public final class BulkLightVolume {
+	private static final int CHUNK_BITS = 4;
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+	private static final int CELL_BITS = CHUNK_BITS * 3;
+	private static final ThreadLocal<byte[][]> SCRATCH = new ThreadLocal<byte[][]>() {
+		@Override
+		protected byte[][] initialValue() {
+			return new byte[1][];
+		}
+	};
+	private final int baseX, baseY, baseZ;
+	private final int sizeX, sizeY, sizeZ;
+	private final int chunksX, chunksY, chunksZ;
+	private final byte[] data;
+
+	/**
+	 * Creates a new volume with its own storage
+	 * @param baseX of the volume, in blocks
+	 * @param baseY of the volume, in blocks
+	 * @param baseZ of the volume, in blocks
+	 * @param sizeX of the volume, a multiple of the chunk size
+	 * @param sizeY of the volume, a multiple of the chunk size
+	 * @param sizeZ of the volume, a multiple of the chunk size
+	 */
+	public BulkLightVolume(int baseX, int baseY, int baseZ, int sizeX, int sizeY, int sizeZ) {
+		this(baseX, baseY, baseZ, sizeX, sizeY, sizeZ, new byte[(sizeX * sizeY * sizeZ) >> 1]);
+	}
+
+	private BulkLightVolume(int baseX, int baseY, int baseZ, int sizeX, int sizeY, int sizeZ, byte[] data) {
+		if (((sizeX | sizeY | sizeZ) & CHUNK_MASK) != 0) {
+			throw new IllegalArgumentException("Volume size must be a multiple of the chunk size");
+		}
+		this.baseX = baseX;
+		this.baseY = baseY;
+		this.baseZ = baseZ;
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.chunksX = sizeX >> CHUNK_BITS;
+		this.chunksY = sizeY >> CHUNK_BITS;
+		this.chunksZ = sizeZ >> CHUNK_BITS;
+		this.data = data;
+	}
+
+	/**
+	 * Gets a cleared volume backed by the storage of the current thread<br>
+	 * The volume is only valid until the next call on the same thread.
+	 * @param baseX of the volume, in blocks
+	 * @param baseY of the volume, in blocks
+	 * @param baseZ of the volume, in blocks
+	 * @param sizeX of the volume, a multiple of the chunk size
+	 * @param sizeY of the volume, a multiple of the chunk size
+	 * @param sizeZ of the volume, a multiple of the chunk size
+	 * @return the volume
+	 */
+	public static BulkLightVolume getScratch(int baseX, int baseY, int baseZ, int sizeX, int sizeY, int sizeZ) {
+		int length = (sizeX * sizeY * sizeZ) >> 1;
+		byte[][] holder = SCRATCH.get();
+		byte[] data = holder[0];
+		if (data == null || data.length < length) {
+			data = new byte[length];
+			holder[0] = data;
+		} else {
+			Arrays.fill(data, 0, length, (byte) 0);
+		}
+		return new BulkLightVolume(baseX, baseY, baseZ, sizeX, sizeY, sizeZ, data);
+	}
+
+	public int getBaseX() {
+		return baseX;
+	}
+
+	public int getBaseY() {
+		return baseY;
+	}
+
+	public int getBaseZ() {
+		return baseZ;
+	}
+
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	public int getSizeZ() {
+		return sizeZ;
+	}
+
+	public int getChunksX() {
+		return chunksX;
+	}
+
+	public int getChunksY() {
+		return chunksY;
+	}
+
+	public int getChunksZ() {
+		return chunksZ;
+	}
+
+	/**
+	 * Gets the index of a chunk of the volume
+	 * @param cx of the chunk, relative to the volume
+	 * @param cy of the chunk, relative to the volume
+	 * @param cz of the chunk, relative to the volume
+	 * @return the index
+	 */
+	public int getChunkIndex(int cx, int cy, int cz) {
+		return (cx * chunksY + cy) * chunksZ + cz;
+	}
+
+	/**
+	 * Checks if a block is inside the volume
+	 * @param x of the block, relative to the volume
+	 * @param y of the block, relative to the volume
+	 * @param z of the block, relative to the volume
+	 * @return true if inside
+	 */
+	public boolean contains(int x, int y, int z) {
+		return x >= 0 && x < sizeX && y >= 0 && y < sizeY && z >= 0 && z < sizeZ;
+	}
+
+	/**
+	 * Gets the index of a block, unique over the whole volume
+	 * @param x of the block, relative to the volume
+	 * @param y of the block, relative to the volume
+	 * @param z of the block, relative to the volume
+	 * @return the index
+	 */
+	public int getIndex(int x, int y, int z) {
+		int chunk = getChunkIndex(x >> CHUNK_BITS, y >> CHUNK_BITS, z >> CHUNK_BITS);
+		return chunk << CELL_BITS | (y & CHUNK_MASK) << (CHUNK_BITS << 1) | (z & CHUNK_MASK) << CHUNK_BITS | (x & CHUNK_MASK);
+	}
+
+	public int getX(int index) {
+		return (index >> CELL_BITS) / (chunksY * chunksZ) << CHUNK_BITS | (index & CHUNK_MASK);
+	}
+
+	public int getY(int index) {
+		return (index >> CELL_BITS) / chunksZ % chunksY << CHUNK_BITS | (index >> (CHUNK_BITS << 1) & CHUNK_MASK);
+	}
+
+	public int getZ(int index) {
+		return (index >> CELL_BITS) % chunksZ << CHUNK_BITS | (index >> CHUNK_BITS & CHUNK_MASK);
+	}
+
+	public int get(int x, int y, int z) {
+		return get(getIndex(x, y, z));
+	}
+
+	public void set(int x, int y, int z, int level) {
+		set(getIndex(x, y, z), level);
+	}
+
+	/**
+	 * Gets the light level at an index given by {@link #getIndex(int, int, int)}
+	 * @param index of the block
+	 * @return the light level
+	 */
+	public int get(int index) {
+		return (data[index >> 1] >> ((index & 1) << 2)) & 0xF;
+	}
+
+	/**
+	 * Sets the light level at an index given by {@link #getIndex(int, int, int)}
+	 * @param index of the block
+	 * @param level of light
+	 */
+	public void set(int index, int level) {
+		int shift = (index & 1) << 2;
+		int i = index >> 1;
+		data[i] = (byte) ((data[i] & ~(0xF << shift)) | (level & 0xF) << shift);
+	}
+
+	/**
+	 * Checks if two volumes hold the same light levels
+	 * @param other volume
+	 * @return the index of the first difference, or -1 if equal
+	 */
+	public int mismatch(BulkLightVolume other) {
+		if (other.sizeX != sizeX || other.sizeY != sizeY || other.sizeZ != sizeZ) {
+			return 0;
+		}
+		int length = (sizeX * sizeY * sizeZ) >> 1;
+		for (int i = 0; i < length; i++) {
+			if (data[i] != other.data[i]) {
+				return get(i << 1) != other.get(i << 1) ? i << 1 : (i << 1) + 1;
+			}
+		}
+		return -1;
+	}
+}
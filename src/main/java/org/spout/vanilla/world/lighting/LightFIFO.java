@@ -0,0 +1,141 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+/**
+ * Growable ring buffer of light updates, each packed into a single long<br>
+ * An entry holds a light level and a block position relative to the base set by {@link #reset(int, int, int)},
+ * which must be within 2^19 blocks of the base on each axis.
+ */
+public final class LightFIFO {
+	private static final int COORD_BITS = 20;
+	private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+	private long[] ring;
+	private int head = 0;
+	private int size = 0;
+	private int reads = 0;
+	private int highWater = 0;
+	private int baseX, baseY, baseZ;
+
+	/**
+	 * Creates a new FIFO
+	 * @param capacity initially allocated, a power of two
+	 */
+	public LightFIFO(int capacity) {
+		if (Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		ring = new long[capacity];
+	}
+
+	/**
+	 * Empties the FIFO and sets the base of the positions written to it
+	 * @param baseX of the positions
+	 * @param baseY of the positions
+	 * @param baseZ of the positions
+	 */
+	public void reset(int baseX, int baseY, int baseZ) {
+		this.baseX = baseX;
+		this.baseY = baseY;
+		this.baseZ = baseZ;
+		head = 0;
+		size = 0;
+		reads = 0;
+		highWater = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of entries read since the last reset
+	 * @return the number of entries
+	 */
+	public int getReads() {
+		return reads;
+	}
+
+	/**
+	 * Gets the largest number of entries held at once since the last reset
+	 * @return the high-water mark
+	 */
+	public int getHighWater() {
+		return highWater;
+	}
+
+	public void write(int w, int x, int y, int z) {
+		if (size == ring.length) {
+			grow();
+		}
+		ring[(head + size) & (ring.length - 1)] = (long) w << (COORD_BITS * 3) | ((x - baseX) & COORD_MASK) << (COORD_BITS * 2) | ((y - baseY) & COORD_MASK) << COORD_BITS | ((z - baseZ) & COORD_MASK);
+		if (++size > highWater) {
+			highWater = size;
+		}
+	}
+
+	/**
+	 * Removes the oldest entry, the FIFO must not be empty
+	 * @return the packed entry
+	 */
+	public long read() {
+		long entry = ring[head];
+		head = (head + 1) & (ring.length - 1);
+		size--;
+		reads++;
+		return entry;
+	}
+
+	public static int getW(long entry) {
+		return (int) (entry >>> (COORD_BITS * 3));
+	}
+
+	public int getX(long entry) {
+		return baseX + (int) (entry << (64 - COORD_BITS * 3) >> (64 - COORD_BITS));
+	}
+
+	public int getY(long entry) {
+		return baseY + (int) (entry << (64 - COORD_BITS * 2) >> (64 - COORD_BITS));
+	}
+
+	public int getZ(long entry) {
+		return baseZ + (int) (entry << (64 - COORD_BITS) >> (64 - COORD_BITS));
+	}
+
+	private void grow() {
+		long[] newRing = new long[ring.length << 1];
+		int first = Math.min(size, ring.length - head);
+		System.arraycopy(ring, head, newRing, 0, first);
+		System.arraycopy(ring, 0, newRing, first, size - first);
+		ring = newRing;
+		head = 0;
+	}
+}
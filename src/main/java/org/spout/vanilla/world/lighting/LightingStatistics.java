@@ -0,0 +1,214 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.spout.api.util.config.ConfigurationNode;
+
+/**
+ * Counters and latency histograms of a lighting manager<br>
+ * Recording is disabled by default, in which case the lighting managers only read a volatile flag per call.
+ */
+public final class LightingStatistics {
+	private static final int BUCKETS = 24;
+	private static volatile boolean enabled = false;
+	private final Counter incremental = new Counter();
+	private final Counter bulk = new Counter();
+	private final AtomicLong fifoHighWater = new AtomicLong();
+
+	/**
+	 * Gets whether statistics are recorded
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets whether statistics are recorded
+	 * @param enabled state
+	 */
+	public static void setEnabled(boolean enabled) {
+		LightingStatistics.enabled = enabled;
+	}
+
+	/**
+	 * Records an incremental resolve
+	 * @param nanos spent resolving
+	 * @param blocks visited while propagating
+	 * @param highWater of the work queues
+	 */
+	public void recordIncremental(long nanos, long blocks, int highWater) {
+		incremental.record(nanos, blocks);
+		long max;
+		while (highWater > (max = fifoHighWater.get()) && !fifoHighWater.compareAndSet(max, highWater)) {
+		}
+	}
+
+	/**
+	 * Records a bulk initialization
+	 * @param nanos spent lighting
+	 * @param blocks lit
+	 */
+	public void recordBulk(long nanos, long blocks) {
+		bulk.record(nanos, blocks);
+	}
+
+	public Counter getIncremental() {
+		return incremental;
+	}
+
+	public Counter getBulk() {
+		return bulk;
+	}
+
+	/**
+	 * Gets the largest number of entries held by the work queues of a single incremental resolve
+	 * @return the high-water mark
+	 */
+	public long getFifoHighWater() {
+		return fifoHighWater.get();
+	}
+
+	/**
+	 * Clears all counters
+	 */
+	public void reset() {
+		incremental.reset();
+		bulk.reset();
+		fifoHighWater.set(0);
+	}
+
+	/**
+	 * Writes the statistics to a configuration node
+	 * @param node to write to
+	 */
+	public void write(ConfigurationNode node) {
+		incremental.write(node.getNode("incremental"));
+		node.getNode("incremental", "fifo-high-water").setValue(getFifoHighWater());
+		bulk.write(node.getNode("bulk"));
+	}
+
+	/**
+	 * Call count, blocks and latency histogram of one kind of lighting work<br>
+	 * Bucket i of the histogram counts the calls which took less than 2^i microseconds.
+	 */
+	public static final class Counter {
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLong blocks = new AtomicLong();
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		private void record(long time, long visited) {
+			calls.incrementAndGet();
+			nanos.addAndGet(time);
+			blocks.addAndGet(visited);
+			long max;
+			while (time > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, time)) {
+			}
+			long micros = time / 1000;
+			int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+			histogram.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+		}
+
+		private void reset() {
+			calls.set(0);
+			nanos.set(0);
+			maxNanos.set(0);
+			blocks.set(0);
+			for (int i = 0; i < BUCKETS; i++) {
+				histogram.set(i, 0);
+			}
+		}
+
+		public long getCalls() {
+			return calls.get();
+		}
+
+		public long getBlocks() {
+			return blocks.get();
+		}
+
+		/**
+		 * Gets the total time spent
+		 * @return the time in milliseconds
+		 */
+		public double getTotalTime() {
+			return nanos.get() / 1000000D;
+		}
+
+		/**
+		 * Gets the longest call
+		 * @return the time in milliseconds
+		 */
+		public double getMaxTime() {
+			return maxNanos.get() / 1000000D;
+		}
+
+		/**
+		 * Gets an upper bound of the time within which the given fraction of the calls completed
+		 * @param fraction of the calls, between 0 and 1
+		 * @return the time in milliseconds
+		 */
+		public double getPercentile(double fraction) {
+			long total = 0;
+			long[] counts = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = histogram.get(i);
+				total += counts[i];
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long target = (long) Math.ceil(total * fraction);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS - 1; i++) {
+				seen += counts[i];
+				if (seen >= target) {
+					return (1L << i) / 1000D;
+				}
+			}
+			return getMaxTime();
+		}
+
+		private void write(ConfigurationNode node) {
+			node.getNode("calls").setValue(getCalls());
+			node.getNode("blocks").setValue(getBlocks());
+			node.getNode("total-ms").setValue(getTotalTime());
+			node.getNode("max-ms").setValue(getMaxTime());
+			for (int i = 0; i < BUCKETS; i++) {
+				long count = histogram.get(i);
+				if (count > 0) {
+					node.getNode("histogram-us", "under-" + (1L << i)).setValue(count);
+				}
+			}
+		}
+	}
+}
@@ -41,6 +41,7 @@ import org.spout.api.math.IntVector3;
 import org.spout.api.math.Vector3;
 import org.spout.api.util.bytebit.ByteBitSet;
 import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
 
 public class LightingVerification {
 	
@@ -194,6 +195,31 @@ public class LightingVerification {
 		return heights;
 	}
 	
+	/**
+	 * Checks that the bulk initialization of a buffer gives the same light as flooding the whole buffer from a single queue
+	 * @param manager to check
+	 * @param buffer to light
+	 * @param height of the columns of the buffer
+	 * @return true if the light differs
+	 */
+	public static boolean checkBulkInitialize(VanillaLightingManager manager, ImmutableCuboidBlockMaterialBuffer buffer, int[][] height) {
+		Vector3 base = buffer.getBase();
+		Vector3 size = buffer.getSize();
+		BulkLightVolume parallel = new BulkLightVolume(base.getFloorX(), base.getFloorY(), base.getFloorZ(), size.getFloorX(), size.getFloorY(), size.getFloorZ());
+		BulkLightVolume sequential = new BulkLightVolume(base.getFloorX(), base.getFloorY(), base.getFloorZ(), size.getFloorX(), size.getFloorY(), size.getFloorZ());
+		manager.bulkLight(buffer, parallel, height);
+		manager.bulkLightSequential(buffer, sequential, height);
+		int index = parallel.mismatch(sequential);
+		if (index < 0) {
+			return false;
+		}
+		int x = parallel.getX(index);
+		int y = parallel.getY(index);
+		int z = parallel.getZ(index);
+		Spout.getLogger().info("Bulk light mismatch at " + (x + base.getFloorX()) + ", " + (y + base.getFloorY()) + ", " + (z + base.getFloorZ()) + ": " + parallel.get(index) + " != " + sequential.get(index));
+		return true;
+	}
+	
 	public static boolean testLight(int x, int y, int z, CuboidBlockMaterialBuffer[][][] materialBuffers, VanillaCuboidLightBuffer[][][] lightBuffers, LightGenerator lightSource) {
 		int emitted = lightSource.getEmittedLight(x, y, z);
 		BlockMaterial[][][] materials = getNeighborMaterials(x, y, z, materialBuffers);
@@ -79,7 +79,7 @@ public class VanillaBlocklightLightingManager extends VanillaLightingManager {
 	}
 	
 	@Override
-	public void bulkEmittingInitialize(ImmutableCuboidBlockMaterialBuffer buffer, final int[][][] light, int[][] height) {
+	public void bulkEmittingInitialize(ImmutableCuboidBlockMaterialBuffer buffer, final BulkLightVolume light, int[][] height) {
 		Vector3 base = buffer.getBase();
 		
 		final int baseX = base.getFloorX();
@@ -89,14 +89,11 @@ public class VanillaBlocklightLightingManager extends VanillaLightingManager {
 		buffer.forEach(new CuboidBlockMaterialProcedure() {
 			@Override
 			public boolean execute(int x, int y, int z, short id, short data) {
-				x -= baseX;
-				z -= baseZ;
-
 				BlockMaterial m = BlockMaterial.get(id, data);
 				
 				int lightLevel = m.getLightLevel(m.getData());
 				if (lightLevel > 0) {
-					light[x + 1][y + 1][z + 1] = lightLevel;
+					light.set(x - baseX, y - baseY, z - baseZ, lightLevel);
 				}
 				return true;
 			}
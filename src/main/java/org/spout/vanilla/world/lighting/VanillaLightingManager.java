@@ -28,9 +28,12 @@ package org.spout.vanilla.world.lighting;
 
 import gnu.trove.iterator.hash.TObjectHashIterator;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.spout.api.Spout;
 import org.spout.api.geo.cuboid.Chunk;
@@ -40,7 +43,6 @@ import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.math.IntVector3;
-import org.spout.api.math.IntVector4;
 import org.spout.api.math.Vector3;
 import org.spout.api.util.IntVector3Array;
 import org.spout.api.util.bytebit.ByteBitSet;
@@ -48,17 +50,39 @@ import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
 import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
 import org.spout.api.util.cuboid.ImmutableHeightMapBuffer;
 import org.spout.api.util.hashing.Int10TripleHashed;
-import org.spout.api.util.list.IntVector3FIFO;
-import org.spout.api.util.list.IntVector4ExpandableFIFO;
 import org.spout.api.util.set.TInt10TripleSet;
 
 public abstract class VanillaLightingManager extends LightingManager<VanillaCuboidLightBuffer> {
 	private final static BlockFace[] allFaces = BlockFaces.NESWBT.toArray();
+	private final static BlockFace[] oppositeFaces = new BlockFace[allFaces.length];
+	private final static int[] faceX = new int[allFaces.length];
+	private final static int[] faceY = new int[allFaces.length];
+	private final static int[] faceZ = new int[allFaces.length];
+
+	static {
+		for (int i = 0; i < allFaces.length; i++) {
+			IntVector3 offset = allFaces[i].getIntOffset();
+			oppositeFaces[i] = allFaces[i].getOpposite();
+			faceX[i] = offset.getX();
+			faceY[i] = offset.getY();
+			faceZ[i] = offset.getZ();
+		}
+	}
+
+	private final LightingStatistics statistics = new LightingStatistics();
 
 	public VanillaLightingManager(String name) {
 		super(name);
 	}
 
+	/**
+	 * Gets the statistics recorded for this manager, while {@link LightingStatistics#isEnabled()}
+	 * @return the statistics
+	 */
+	public LightingStatistics getStatistics() {
+		return statistics;
+	}
+
 	@Override
 	public VanillaCuboidLightBuffer deserialize(Modifiable holder, int baseX, int baseY, int baseZ, int sizeX, int sizeY, int sizeZ, byte[] data) {
 		return new VanillaCuboidLightBuffer(holder, getId(), baseX, baseY, baseZ, sizeX, sizeY, sizeZ, data);
@@ -77,19 +101,69 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 		
 		// Spout.getLogger().info("Processing for " + getClass().getSimpleName());
 		
-		IntVector4ExpandableFIFO fifo = new IntVector4ExpandableFIFO(256);
+		final long start = LightingStatistics.isEnabled() ? System.nanoTime() : 0L;
+		ResolveScratch scratch = ResolveScratch.get();
+		Vector3 base = material.getBase();
+
+		LightFIFO fifo = scratch.fifo;
+		fifo.reset(base.getFloorX(), base.getFloorY(), base.getFloorZ());
 
-		IntVector4ExpandableFIFO regen = new IntVector4ExpandableFIFO(256);
+		LightFIFO regen = scratch.regen;
+		regen.reset(base.getFloorX(), base.getFloorY(), base.getFloorZ());
 	
 		if (!init) {
 			processLower(coords, fifo, regen, light, material, height);
-
-			fifo = null;
 		}
 		
 		processHigher(coords, regen, light, material, height, init);
+
+		if (start != 0L) {
+			recordResolve(start, fifo, regen);
+		}
 	}
 	
+	/**
+	 * Resolves the light of the given blocks, after raising a set of blocks straight to a known light level<br>
+	 * The raised blocks are not checked for lower light and their light is not computed from their neighbours,
+	 * they only spread their light outwards.
+	 * @param light buffers
+	 * @param material of the blocks
+	 * @param height of the columns
+	 * @param coords of the blocks to resolve
+	 * @param raised blocks, which must not have a higher light level than the level given
+	 * @param raisedLevel of the raised blocks
+	 */
+	protected void resolve(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, ImmutableHeightMapBuffer height, Iterable<IntVector3> coords, Iterable<IntVector3> raised, int raisedLevel) {
+		final long start = LightingStatistics.isEnabled() ? System.nanoTime() : 0L;
+		ResolveScratch scratch = ResolveScratch.get();
+		Vector3 base = material.getBase();
+
+		LightFIFO fifo = scratch.fifo;
+		fifo.reset(base.getFloorX(), base.getFloorY(), base.getFloorZ());
+
+		LightFIFO regen = scratch.regen;
+		regen.reset(base.getFloorX(), base.getFloorY(), base.getFloorZ());
+
+		processLower(coords, fifo, regen, light, material, height);
+
+		for (IntVector3 v : raised) {
+			if (getLightLevel(light, v.getX(), v.getY(), v.getZ()) < raisedLevel) {
+				setLightLevel(light, v.getX(), v.getY(), v.getZ(), raisedLevel);
+				regen.write(raisedLevel, v.getX(), v.getY(), v.getZ());
+			}
+		}
+
+		processHigher(coords, regen, light, material, height, false);
+
+		if (start != 0L) {
+			recordResolve(start, fifo, regen);
+		}
+	}
+
+	private void recordResolve(long start, LightFIFO fifo, LightFIFO regen) {
+		statistics.recordIncremental(System.nanoTime() - start, fifo.getReads() + regen.getReads(), Math.max(fifo.getHighWater(), regen.getHighWater()));
+	}
+
 	private final void log(String message, IntVector3 v) {
 		log(message, v.getX(), v.getY(), v.getZ());
 	}
@@ -106,7 +180,7 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 		//Spout.getLogger().info(getClass().getSimpleName() + ": " + message + " at " + x + ", " + y + ", " + z);
 	}
 	
-	public void processHigher(Iterable<IntVector3> coords, IntVector4ExpandableFIFO fifo, ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, ImmutableHeightMapBuffer height, boolean init) {
+	public void processHigher(Iterable<IntVector3> coords, LightFIFO fifo, ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, ImmutableHeightMapBuffer height, boolean init) {
 		
 		Iterator<IntVector3> itr = coords.iterator();
 		
@@ -139,38 +213,40 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 		int topY = top.getFloorY();
 		int topZ = top.getFloorZ();
 		
-		IntVector4 v;
-		while ((v = fifo.read()) != null) {
-			int center = getLightLevel(light, v.getX(), v.getY(), v.getZ());
+		while (!fifo.isEmpty()) {
+			long entry = fifo.read();
+			int x = fifo.getX(entry);
+			int y = fifo.getY(entry);
+			int z = fifo.getZ(entry);
+			int center = getLightLevel(light, x, y, z);
 			
-			log("(Higher) checking center (W = " + v.getW() + ")", v, center);
+			log("(Higher) checking center", x, y, z, center);
 			
-			if (center <= 1 || v.getW() != center) {
+			if (center <= 1 || LightFIFO.getW(entry) != center) {
 				continue;
 			}
 
-			BlockMaterial m = material.get(v.getX(), v.getY(), v.getZ());
+			BlockMaterial m = material.get(x, y, z);
 			
 			if (m == BlockMaterial.UNGENERATED) {
 				continue;
 			}
 			
-			final boolean boundary = v.getX() == baseX || v.getX() == (topX - 1) || v.getY() == baseY || v.getY() == topY - 1 || v.getZ() == baseZ || v.getZ() == topZ - 1;
+			final boolean boundary = x == baseX || x == (topX - 1) || y == baseY || y == topY - 1 || z == baseZ || z == topZ - 1;
 			
-			for (BlockFace face : allFaces) {
-				IntVector3 off = face.getIntOffset();
-				int nx = v.getX() + off.getX();
-				int ny = v.getY() + off.getY();
-				int nz = v.getZ() + off.getZ();
+			for (int f = 0; f < allFaces.length; f++) {
+				int nx = x + faceX[f];
+				int ny = y + faceY[f];
+				int nz = z + faceZ[f];
 				if (boundary && (nx < baseX || nx >= topX || ny <= baseY || ny >= topY || nz < baseZ || nz >= topZ)) {
 					continue;
 				}
 				
 				BlockMaterial other = material.get(nx, ny, nz);
 				
-				log("(Higher) checking neighbor: material=" + other, nx, ny, nz);
+				log("(Higher) checking neighbor", nx, ny, nz);
 				
-				if (other.isOpaque() || other.getOcclusion(other.getData()).get(face.getOpposite())) {
+				if (other.isOpaque() || other.getOcclusion(other.getData()).get(oppositeFaces[f])) {
 					continue;
 				}
 				
@@ -197,7 +273,7 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 		}
 	}
 	
-	public void processLower(Iterable<IntVector3> coords, IntVector4ExpandableFIFO fifo, IntVector4ExpandableFIFO regen, ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, ImmutableHeightMapBuffer height) {
+	public void processLower(Iterable<IntVector3> coords, LightFIFO fifo, LightFIFO regen, ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, ImmutableHeightMapBuffer height) {
 		Iterator<IntVector3> itr = coords.iterator();
 		
 		while (itr.hasNext()) {
@@ -230,26 +306,27 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 		int topY = top.getFloorY();
 		int topZ = top.getFloorZ();
 		
-		IntVector4 v;
-		while ((v = fifo.read()) != null) {
-			int center = v.getW();
+		while (!fifo.isEmpty()) {
+			long entry = fifo.read();
+			int x = fifo.getX(entry);
+			int y = fifo.getY(entry);
+			int z = fifo.getZ(entry);
+			int center = LightFIFO.getW(entry);
 			
-			log("(Lower) checking center (W = " + v.getW() + ")", v, center);
+			log("(Lower) checking center", x, y, z, center);
 			
-			BlockMaterial m = material.get(v.getX(), v.getY(), v.getZ());
+			BlockMaterial m = material.get(x, y, z);
 			
 			if (m == BlockMaterial.UNGENERATED) {
 				continue;
 			}
 			
-			final boolean boundary = v.getX() == baseX || v.getX() == (topX - 1) || v.getY() == baseY || v.getY() == topY - 1 || v.getZ() == baseZ || v.getZ() == topZ - 1;
+			final boolean boundary = x == baseX || x == (topX - 1) || y == baseY || y == topY - 1 || z == baseZ || z == topZ - 1;
 			
-			for (BlockFace face : allFaces) {
-
-				IntVector3 off = face.getIntOffset();
-				int nx = v.getX() + off.getX();
-				int ny = v.getY() + off.getY();
-				int nz = v.getZ() + off.getZ();
+			for (int f = 0; f < allFaces.length; f++) {
+				int nx = x + faceX[f];
+				int ny = y + faceY[f];
+				int nz = z + faceZ[f];
 				if (boundary && (nx < baseX || nx >= topX || ny <= baseY || ny >= topY || nz < baseZ || nz >= topZ)) {
 					continue;
 				}
@@ -259,7 +336,7 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 					continue;
 				}
 				
-				log("(Lower) checking neighbor: material=" + other, nx, ny, nz);
+				log("(Lower) checking neighbor", nx, ny, nz);
 
 				int oldLevel = getLightLevel(light, nx, ny, nz);
 				
@@ -310,8 +387,7 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 		int opacity = m.getOpacity() + 1;
 
 		for (int i = 0; i < 6; i++) {
-			BlockFace face = allFaces[i];
-			int faceLight = getIncomingLight(light, material, x, y, z, occlusionSet, face) - opacity;
+			int faceLight = getIncomingLight(light, material, x, y, z, occlusionSet, i) - opacity;
 			neighborLight = Math.max(neighborLight, faceLight);
 		}
 
@@ -319,13 +395,21 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 	}
 
 	public int getIncomingLight(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, int x, int y, int z, ByteBitSet occlusionSet, BlockFace face) {
-		if (occlusionSet.get(face)) {
+		for (int i = 0; i < allFaces.length; i++) {
+			if (allFaces[i] == face) {
+				return getIncomingLight(light, material, x, y, z, occlusionSet, i);
+			}
+		}
+		throw new IllegalArgumentException("Light can not come from " + face);
+	}
+
+	private int getIncomingLight(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, int x, int y, int z, ByteBitSet occlusionSet, int face) {
+		if (occlusionSet.get(allFaces[face])) {
 			return 0;
 		}
-		IntVector3 nOffset = face.getIntOffset();
-		int nx = x + nOffset.getX();
-		int ny = y + nOffset.getY();
-		int nz = z + nOffset.getZ();
+		int nx = x + faceX[face];
+		int ny = y + faceY[face];
+		int nz = z + faceZ[face];
 		short id = material.getId(nx, ny, nz);
 		if (id == BlockMaterial.UNGENERATED.getId()) {
 			return 0;
@@ -335,7 +419,7 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 		BlockMaterial m = BlockMaterial.get(id, data);
 		
 		ByteBitSet neighborOcclusionSet = m.getOcclusion(data);
-		if (neighborOcclusionSet.get(face.getOpposite())) {
+		if (neighborOcclusionSet.get(oppositeFaces[face])) {
 			return 0;
 		}
 
@@ -720,152 +804,412 @@ public abstract class VanillaLightingManager extends LightingManager<VanillaCubo
 	}
 
 	
-	public abstract void bulkEmittingInitialize(ImmutableCuboidBlockMaterialBuffer buffer, int[][][] light, int[][] height);
-	
+	/**
+	 * Sets the light emitted by each block of the buffer in the light volume
+	 * @param buffer of the blocks
+	 * @param light volume to write to, matching the buffer
+	 * @param height of the columns of the buffer
+	 */
+	public abstract void bulkEmittingInitialize(ImmutableCuboidBlockMaterialBuffer buffer, BulkLightVolume light, int[][] height);
+
 	@Override
 	public VanillaCuboidLightBuffer[][][] bulkInitialize(ImmutableCuboidBlockMaterialBuffer buffer, int[][] height) {
-		Vector3 size = buffer.getSize();
-		
-		final int sizeX = size.getFloorX();
-		final int sizeY = size.getFloorY();
-		final int sizeZ = size.getFloorZ();
-		
+		final long start = LightingStatistics.isEnabled() ? System.nanoTime() : 0L;
 		Vector3 base = buffer.getBase();
-		
-		final int baseX = base.getFloorX();
-		final int baseY = base.getFloorY();
-		final int baseZ = base.getFloorZ();
-		
-		Vector3 top = buffer.getTop();
-		
-		final int topX = top.getFloorX();
-		final int topY = top.getFloorY();
-		final int topZ = top.getFloorZ();
-		
-		// TODO - this should be passed as a input parameter
-		//        It still needs to scan the new buffer, since it hasn't been added to the column
-		
-		final boolean[][][] dirty = new boolean[sizeX + 2][sizeY + 2][sizeZ + 2];
-		final int[][][] newLight = new int[sizeX + 2][sizeY + 2][sizeZ + 2];
-		final IntVector3FIFO fifo = new IntVector3FIFO((sizeX + 2) * (sizeY + 2) * (sizeZ + 2));
-		
-		bulkEmittingInitialize(buffer, newLight, height); 
-		
-		// Mark the edges as dirty so they don't get added to the FIFO
-		
-		for (int x = 0; x <= sizeX + 1; x++) {
-			for (int y = 0; y <= sizeY + 1; y++) {
-				dirty[x][y][0] = true;
-				dirty[x][y][sizeZ + 1] = true;
-			}
+		Vector3 size = buffer.getSize();
+		final BulkLightVolume volume = BulkLightVolume.getScratch(base.getFloorX(), base.getFloorY(), base.getFloorZ(), size.getFloorX(), size.getFloorY(), size.getFloorZ());
+
+		bulkLight(buffer, volume, height);
+
+		final int cx = volume.getChunksX();
+		final int cy = volume.getChunksY();
+		final int cz = volume.getChunksZ();
+		final VanillaCuboidLightBuffer[][][] lightBufferArray = new VanillaCuboidLightBuffer[cx][cy][cz];
+
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(cx);
+		for (int x = 0; x < cx; x++) {
+			final int chunkX = x;
+			tasks.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					for (int y = 0; y < cy; y++) {
+						for (int z = 0; z < cz; z++) {
+							lightBufferArray[chunkX][y][z] = copyLightBuffer(volume, chunkX, y, z);
+						}
+					}
+					return true;
+				}
+			});
 		}
-		
-		for (int x = 0; x <= sizeX + 1; x++) {
-			for (int z = 0; z <= sizeZ + 1; z++) {
-				dirty[x][0][z] = true;
-				dirty[x][sizeY + 1][z] = true;
-			}
+		BulkLightingPool.invokeAll(tasks);
+
+		if (start != 0L) {
+			statistics.recordBulk(System.nanoTime() - start, (long) volume.getSizeX() * volume.getSizeY() * volume.getSizeZ());
 		}
-		
-		for (int y = 0; y <= sizeY + 1; y++) {
-			for (int z = 0; z <= sizeZ + 1; z++) {
-				dirty[0][y][z] = true;
-				dirty[sizeX + 1][y][z] = true;
+
+		return lightBufferArray;
+	}
+
+	private VanillaCuboidLightBuffer copyLightBuffer(BulkLightVolume volume, int cx, int cy, int cz) {
+		final int shift = Chunk.BLOCKS.BITS;
+		final int chunkSize = Chunk.BLOCKS.SIZE;
+
+		final int x = cx << shift;
+		final int y = cy << shift;
+		final int z = cz << shift;
+
+		VanillaCuboidLightBuffer light = newLightBuffer(null, volume.getBaseX() + x, volume.getBaseY() + y, volume.getBaseZ() + z, chunkSize, chunkSize, chunkSize);
+
+		final int[] row = BulkScratch.get().row;
+		for (int bx = 0; bx < chunkSize; bx++) {
+			for (int by = 0; by < chunkSize; by++) {
+				for (int bz = 0; bz < chunkSize; bz++) {
+					row[bz] = volume.get(x + bx, y + by, z + bz);
+				}
+				light.copyZRow(volume.getBaseX() + x + bx, volume.getBaseY() + y + by, volume.getBaseZ() + z, 0, chunkSize, row);
 			}
 		}
-		
-		for (int x = 1; x <= sizeX; x++) {
-			for (int y = 1; y <= sizeY; y++) {
-				for (int z = 1; z <= sizeZ; z++) {
-					if (newLight[x][y][z] > 0) {
-						fifo.write(x, y, z);
-						dirty[x][y][z] = true;
+		return light;
+	}
+
+	/**
+	 * Computes the light of a buffer, chunk by chunk on the bulk lighting pool<br>
+	 * Each chunk is first flooded on its own. Light crossing chunk borders is then reconciled in rounds,
+	 * where every chunk next to a chunk that changed pulls the light of its neighbours across its faces
+	 * and floods it inwards, until a round changes nothing.
+	 * Light levels only ever rise, so the result is the same as flooding the whole buffer at once.
+	 * @param buffer of the blocks
+	 * @param volume to write the light to
+	 * @param height of the columns of the buffer
+	 */
+	protected void bulkLight(final ImmutableCuboidBlockMaterialBuffer buffer, final BulkLightVolume volume, int[][] height) {
+		bulkEmittingInitialize(buffer, volume, height);
+
+		final int cx = volume.getChunksX();
+		final int cy = volume.getChunksY();
+		final int cz = volume.getChunksZ();
+
+		boolean[] active = new boolean[cx * cy * cz];
+		Arrays.fill(active, true);
+		boolean[] changed = new boolean[active.length];
+		boolean first = true;
+		boolean running = true;
+
+		while (running) {
+			List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+			final List<Integer> indexes = new ArrayList<Integer>();
+			for (int x = 0; x < cx; x++) {
+				for (int y = 0; y < cy; y++) {
+					for (int z = 0; z < cz; z++) {
+						final int index = volume.getChunkIndex(x, y, z);
+						if (!active[index]) {
+							continue;
+						}
+						final int chunkX = x;
+						final int chunkY = y;
+						final int chunkZ = z;
+						final boolean seed = first;
+						indexes.add(index);
+						tasks.add(new Callable<Boolean>() {
+							@Override
+							public Boolean call() {
+								return lightChunk(buffer, volume, chunkX, chunkY, chunkZ, seed);
+							}
+						});
+					}
+				}
+			}
+
+			Arrays.fill(changed, false);
+			List<Boolean> results = BulkLightingPool.invokeAll(tasks);
+			for (int i = 0; i < results.size(); i++) {
+				changed[indexes.get(i)] = results.get(i);
+			}
+
+			running = false;
+			Arrays.fill(active, false);
+			for (int x = 0; x < cx; x++) {
+				for (int y = 0; y < cy; y++) {
+					for (int z = 0; z < cz; z++) {
+						if (!changed[volume.getChunkIndex(x, y, z)]) {
+							continue;
+						}
+						for (int f = 0; f < allFaces.length; f++) {
+							int nx = x + faceX[f];
+							int ny = y + faceY[f];
+							int nz = z + faceZ[f];
+							if (nx >= 0 && nx < cx && ny >= 0 && ny < cy && nz >= 0 && nz < cz) {
+								active[volume.getChunkIndex(nx, ny, nz)] = true;
+								running = true;
+							}
+						}
 					}
 				}
 			}
+			first = false;
 		}
-		
-		IntVector3 v;
-		
-		while ((v = fifo.read()) != null) {
-			
-			int x = v.getX();
-			int y = v.getY();
-			int z = v.getZ();
-			
-			BlockMaterial m = buffer.get(x + baseX - 1, y + baseY - 1, z + baseZ - 1);
-			
-			ByteBitSet occulusion = m.getOcclusion(m.getData());
-			
-			int center = newLight[x][y][z];
+	}
 
-			for (BlockFace face : allFaces) {
-				if (occulusion.get(face)) {
+	/**
+	 * Floods the light of a single chunk of the volume, without writing outside of the chunk
+	 * @param buffer of the blocks
+	 * @param volume of light
+	 * @param cx of the chunk, relative to the volume
+	 * @param cy of the chunk, relative to the volume
+	 * @param cz of the chunk, relative to the volume
+	 * @param seed true to flood from every lit block, false to pull the light of the neighbouring chunks first
+	 * @return true if the chunk holds light that neighbouring chunks may need to pull
+	 */
+	private boolean lightChunk(ImmutableCuboidBlockMaterialBuffer buffer, BulkLightVolume volume, int cx, int cy, int cz, boolean seed) {
+		final int size = Chunk.BLOCKS.SIZE;
+		final int mask = Chunk.BLOCKS.MASK;
+		final int bits = Chunk.BLOCKS.BITS;
+		final int x0 = cx << bits;
+		final int y0 = cy << bits;
+		final int z0 = cz << bits;
+		final int wx = volume.getBaseX() + x0;
+		final int wy = volume.getBaseY() + y0;
+		final int wz = volume.getBaseZ() + z0;
+
+		final BulkScratch scratch = BulkScratch.get();
+		final int[] queue = scratch.queue;
+		final boolean[] queued = scratch.queued;
+		final int capacity = queue.length;
+		int head = 0;
+		int tail = 0;
+		boolean changed = false;
+		boolean empty = true;
+
+		if (seed) {
+			// Light only spreads to neighbours at least two levels darker, so blocks surrounded by light,
+			// like the open sky above the surface, are not queued and only the band around them is flooded
+			for (int cell = 0; cell < capacity; cell++) {
+				int x = cell & mask;
+				int z = (cell >> bits) & mask;
+				int y = cell >> (bits << 1);
+				int level = volume.get(x0 + x, y0 + y, z0 + z);
+				if (level == 0) {
 					continue;
 				}
-				IntVector3 off = face.getIntOffset();
-				int nx = x + off.getX();
-				int ny = y + off.getY();
-				int nz = z + off.getZ();
-				if (nx <= 0 || nx > sizeX || ny <= 0 || ny > sizeY || nz <= 0 || nz > sizeZ) {
-					continue;
+				changed = true;
+				for (int f = 0; f < allFaces.length; f++) {
+					int nx = x + faceX[f];
+					int ny = y + faceY[f];
+					int nz = z + faceZ[f];
+					if (((nx | ny | nz) & ~mask) == 0 && volume.get(x0 + nx, y0 + ny, z0 + nz) < level - 1) {
+						queue[tail++] = cell;
+						queued[cell] = true;
+						empty = false;
+						break;
+					}
 				}
-				BlockMaterial other = buffer.get(nx + baseX - 1, ny + baseY - 1, nz + baseZ - 1);
+			}
+			tail &= capacity - 1;
+		} else {
+			for (int x = 0; x < size; x++) {
+				for (int y = 0; y < size; y++) {
+					final boolean edge = x == 0 || x == mask || y == 0 || y == mask;
+					for (int z = 0; z < size; z += edge ? 1 : mask) {
+						int index = volume.getIndex(x0 + x, y0 + y, z0 + z);
+						int current = volume.get(index);
+						BlockMaterial m = null;
+						ByteBitSet occlusion = null;
+						for (int f = 0; f < allFaces.length; f++) {
+							int lx = x + faceX[f];
+							int ly = y + faceY[f];
+							int lz = z + faceZ[f];
+							if (((lx | ly | lz) & ~mask) == 0 || !volume.contains(x0 + lx, y0 + ly, z0 + lz)) {
+								continue;
+							}
+							int neighbor = volume.get(x0 + lx, y0 + ly, z0 + lz);
+							if (neighbor <= current + 1) {
+								continue;
+							}
+							if (m == null) {
+								m = buffer.get(wx + x, wy + y, wz + z);
+								occlusion = m.getOcclusion(m.getData());
+							}
+							int newLevel = neighbor - m.getOpacity() - 1;
+							if (newLevel <= current || occlusion.get(allFaces[f])) {
+								continue;
+							}
+							BlockMaterial other = buffer.get(wx + lx, wy + ly, wz + lz);
+							if (other.getOcclusion(other.getData()).get(oppositeFaces[f])) {
+								continue;
+							}
+							volume.set(index, newLevel);
+							current = newLevel;
+							changed = true;
+							int cell = y << (bits << 1) | z << bits | x;
+							if (!queued[cell]) {
+								queued[cell] = true;
+								queue[tail] = cell;
+								tail = (tail + 1) & (capacity - 1);
+							}
+						}
+					}
+				}
+			}
+			if (!changed) {
+				return false;
+			}
+			empty = false;
+		}
 
-				int opacity = other.getOpacity() + 1;
+		while (!empty) {
+			final int cell = queue[head];
+			head = (head + 1) & (capacity - 1);
+			empty = head == tail;
+			queued[cell] = false;
 
-				int newLevel = center - opacity;
+			final int x = cell & mask;
+			final int z = (cell >> bits) & mask;
+			final int y = cell >> (bits << 1);
+
+			BlockMaterial m = buffer.get(wx + x, wy + y, wz + z);
+			ByteBitSet occlusion = m.getOcclusion(m.getData());
 
-				if (newLevel > newLight[nx][ny][nz] && !other.getOcclusion(other.getData()).get(face.getOpposite())) {
-					newLight[nx][ny][nz] = newLevel;
-					if (!dirty[nx][ny][nz]) {
-						dirty[nx][ny][nz] = true;
-						fifo.write(nx, ny, nz);
+			int center = volume.get(x0 + x, y0 + y, z0 + z);
+
+			for (int f = 0; f < allFaces.length; f++) {
+				if (occlusion.get(allFaces[f])) {
+					continue;
+				}
+				int nx = x + faceX[f];
+				int ny = y + faceY[f];
+				int nz = z + faceZ[f];
+				if (((nx | ny | nz) & ~mask) != 0) {
+					continue;
+				}
+				BlockMaterial other = buffer.get(wx + nx, wy + ny, wz + nz);
+
+				int newLevel = center - other.getOpacity() - 1;
+
+				int index = volume.getIndex(x0 + nx, y0 + ny, z0 + nz);
+				if (newLevel > volume.get(index) && !other.getOcclusion(other.getData()).get(oppositeFaces[f])) {
+					volume.set(index, newLevel);
+					int neighborCell = ny << (bits << 1) | nz << bits | nx;
+					if (!queued[neighborCell]) {
+						queued[neighborCell] = true;
+						queue[tail] = neighborCell;
+						tail = (tail + 1) & (capacity - 1);
+						empty = false;
 					}
 				}
 			}
-			dirty[x][y][z] = false;
 		}
-		
-		int cx = sizeX >> Chunk.BLOCKS.BITS;
-		int cy = sizeY >> Chunk.BLOCKS.BITS;
-		int cz = sizeZ >> Chunk.BLOCKS.BITS;
-		
-		VanillaCuboidLightBuffer[][][] lightBufferArray = new VanillaCuboidLightBuffer[cx][cy][cz];
-		
-		for (int x = 0; x < cx; x++) {
-			for (int y = 0; y < cy; y++) {
-				for (int z = 0; z < cz; z++) {
-					
-					int shift = Chunk.BLOCKS.BITS;
-					int chunkSize = Chunk.BLOCKS.SIZE;
-					
-					VanillaCuboidLightBuffer light = newLightBuffer(null, baseX + (cx << shift), baseY + (cy << shift), baseZ + (cz << shift), chunkSize, chunkSize, chunkSize);
-					
-					Vector3 lightBase = light.getBase();
-					
-					int lightBaseX = lightBase.getFloorX();
-					int lightBaseY = lightBase.getFloorY();
-					int lightBaseZ = lightBase.getFloorZ();
-					
-					int arrayStart = 1 + (z << shift);
-					int arrayEnd = arrayStart + chunkSize;
-					
-					int xOff = 1 + (x << shift);
-					int yOff = 1 + (y << shift);
-					
-					for (int bx = 0; bx < chunkSize; bx++) {
-						for (int by = 0; by < chunkSize; by++) {
-							light.copyZRow(lightBaseX + bx, lightBaseY + by, lightBaseZ, arrayStart, arrayEnd, newLight[xOff + bx][yOff + by]);
-						}
+		return changed;
+	}
+
+	/**
+	 * Computes the light of a buffer by flooding the whole buffer from a single queue on the calling thread<br>
+	 * This is the reference for {@link #bulkLight(ImmutableCuboidBlockMaterialBuffer, BulkLightVolume, int[][])}.
+	 * @param buffer of the blocks
+	 * @param volume to write the light to
+	 * @param height of the columns of the buffer
+	 */
+	protected void bulkLightSequential(ImmutableCuboidBlockMaterialBuffer buffer, BulkLightVolume volume, int[][] height) {
+		bulkEmittingInitialize(buffer, volume, height);
+
+		final int sizeX = volume.getSizeX();
+		final int sizeY = volume.getSizeY();
+		final int sizeZ = volume.getSizeZ();
+
+		final int baseX = volume.getBaseX();
+		final int baseY = volume.getBaseY();
+		final int baseZ = volume.getBaseZ();
+
+		final int volumeSize = sizeX * sizeY * sizeZ;
+		final boolean[] dirty = new boolean[volumeSize];
+		final int[] fifo = new int[volumeSize];
+		int head = 0;
+		int count = 0;
+
+		for (int index = 0; index < volumeSize; index++) {
+			if (volume.get(index) > 0) {
+				fifo[count++] = index;
+				dirty[index] = true;
+			}
+		}
+
+		while (count > 0) {
+			final int index = fifo[head];
+			head = head + 1 == volumeSize ? 0 : head + 1;
+			count--;
+
+			final int x = volume.getX(index);
+			final int y = volume.getY(index);
+			final int z = volume.getZ(index);
+
+			BlockMaterial m = buffer.get(x + baseX, y + baseY, z + baseZ);
+
+			ByteBitSet occulusion = m.getOcclusion(m.getData());
+
+			int center = volume.get(index);
+
+			for (int f = 0; f < allFaces.length; f++) {
+				if (occulusion.get(allFaces[f])) {
+					continue;
+				}
+				int nx = x + faceX[f];
+				int ny = y + faceY[f];
+				int nz = z + faceZ[f];
+				if (!volume.contains(nx, ny, nz)) {
+					continue;
+				}
+				BlockMaterial other = buffer.get(nx + baseX, ny + baseY, nz + baseZ);
+
+				int newLevel = center - other.getOpacity() - 1;
+
+				int neighbor = volume.getIndex(nx, ny, nz);
+				if (newLevel > volume.get(neighbor) && !other.getOcclusion(other.getData()).get(oppositeFaces[f])) {
+					volume.set(neighbor, newLevel);
+					if (!dirty[neighbor]) {
+						dirty[neighbor] = true;
+						int tail = head + count;
+						fifo[tail >= volumeSize ? tail - volumeSize : tail] = neighbor;
+						count++;
 					}
-					
-					lightBufferArray[x][y][z] = light;
 				}
 			}
+			dirty[index] = false;
 		}
+	}
 
-		return lightBufferArray;
+	/**
+	 * Work queues of incremental relighting, kept per thread so that relighting does not allocate
+	 */
+	private static final class ResolveScratch {
+		private static final ThreadLocal<ResolveScratch> SCRATCH = new ThreadLocal<ResolveScratch>() {
+			@Override
+			protected ResolveScratch initialValue() {
+				return new ResolveScratch();
+			}
+		};
+		private final LightFIFO fifo = new LightFIFO(256);
+		private final LightFIFO regen = new LightFIFO(256);
+
+		private static ResolveScratch get() {
+			return SCRATCH.get();
+		}
 	}
 
+	/**
+	 * Scratch state of the bulk lighting tasks, kept per thread
+	 */
+	private static final class BulkScratch {
+		private static final ThreadLocal<BulkScratch> SCRATCH = new ThreadLocal<BulkScratch>() {
+			@Override
+			protected BulkScratch initialValue() {
+				return new BulkScratch();
+			}
+		};
+		private final int[] queue = new int[Chunk.BLOCKS.VOLUME];
+		private final boolean[] queued = new boolean[Chunk.BLOCKS.VOLUME];
+		private final int[] row = new int[Chunk.BLOCKS.SIZE];
+
+		private static BulkScratch get() {
+			return SCRATCH.get();
+		}
+	}
 }
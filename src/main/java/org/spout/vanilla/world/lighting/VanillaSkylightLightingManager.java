@@ -30,6 +30,7 @@ import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.math.IntVector3;
 import org.spout.api.math.Vector3;
+import org.spout.api.util.IntVector3Array;
 import org.spout.api.util.IntVector3CuboidArray;
 import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
 import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
@@ -43,8 +44,47 @@ public class VanillaSkylightLightingManager extends VanillaBlocklightLightingMan
 
 	@Override
 	public void resolveColumns(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, ImmutableHeightMapBuffer height, int[] hx, int[] hz, int[] oldHy, int[] newHy, int changedColumns) {
-		Iterable<IntVector3> coords = new IntVector3CuboidArray(hx, oldHy, hz, newHy, changedColumns, true);
-		super.resolve(light, material, height, coords, false);
+		// Columns where the surface rose lose sky light and go through the full resolve
+		int[] risenX = new int[changedColumns];
+		int[] risenZ = new int[changedColumns];
+		int[] risenOldY = new int[changedColumns];
+		int[] risenNewY = new int[changedColumns];
+		int risen = 0;
+
+		// Blocks uncovered by a falling surface are under open sky, so they are set to full light directly
+		int minY = material.getBase().getFloorY();
+		int maxY = material.getTop().getFloorY() - 1;
+		int exposed = 0;
+		for (int i = 0; i < changedColumns; i++) {
+			if (newHy[i] < oldHy[i]) {
+				exposed += Math.max(0, Math.min(oldHy[i], maxY) - Math.max(newHy[i] + 1, minY) + 1);
+			}
+		}
+		int[] exposedX = new int[exposed];
+		int[] exposedY = new int[exposed];
+		int[] exposedZ = new int[exposed];
+		exposed = 0;
+
+		for (int i = 0; i < changedColumns; i++) {
+			if (newHy[i] < oldHy[i]) {
+				int top = Math.min(oldHy[i], maxY);
+				for (int y = Math.max(newHy[i] + 1, minY); y <= top; y++) {
+					exposedX[exposed] = hx[i];
+					exposedY[exposed] = y;
+					exposedZ[exposed] = hz[i];
+					exposed++;
+				}
+			} else {
+				risenX[risen] = hx[i];
+				risenZ[risen] = hz[i];
+				risenOldY[risen] = oldHy[i];
+				risenNewY[risen] = newHy[i];
+				risen++;
+			}
+		}
+
+		Iterable<IntVector3> coords = new IntVector3CuboidArray(risenX, risenOldY, risenZ, risenNewY, risen, true);
+		super.resolve(light, material, height, coords, new IntVector3Array(exposedX, exposedY, exposedZ, exposed), 15);
 	}
 
 	@Override
@@ -73,7 +113,7 @@ public class VanillaSkylightLightingManager extends VanillaBlocklightLightingMan
 	}
 	
 	@Override
-	public void bulkEmittingInitialize(ImmutableCuboidBlockMaterialBuffer buffer, int[][][] light, int[][] genHeight) {
+	public void bulkEmittingInitialize(ImmutableCuboidBlockMaterialBuffer buffer, BulkLightVolume light, int[][] genHeight) {
 		
 		Vector3 size = buffer.getSize();
 		
@@ -87,8 +127,6 @@ public class VanillaSkylightLightingManager extends VanillaBlocklightLightingMan
 		final int baseY = base.getFloorY();
 		final int baseZ = base.getFloorZ();
 		
-		final int topY = buffer.getTop().getFloorY();
-		
 		final int[][] height = new int[sizeX][sizeZ];
 		
 		for (int x = 0; x < sizeX; x++) {
@@ -111,12 +149,11 @@ public class VanillaSkylightLightingManager extends VanillaBlocklightLightingMan
 			}
 		});
 		
-		for (int x = 1; x <= sizeX; x++) {
-			for (int z = 1; z <= sizeZ; z++) {
-				int h = height[x - 1][z - 1];
-				h -= baseY;
-				for (int y = Math.max(1, 2 + h); y <= sizeY ; y++) {
-					light[x][y][z] = 15;
+		for (int x = 0; x < sizeX; x++) {
+			for (int z = 0; z < sizeZ; z++) {
+				int h = height[x][z] - baseY;
+				for (int y = Math.max(0, h + 1); y < sizeY; y++) {
+					light.set(x, y, z, 15);
 				}
 			}
 		}
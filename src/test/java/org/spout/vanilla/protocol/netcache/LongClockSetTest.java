@@ -0,0 +1,116 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.netcache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongClockSetTest {
+	// Two values per stripe, so the clock of a single stripe decides what is evicted
+	private static final int CAPACITY = 32;
+
+	/**
+	 * Gets values which all land in the same stripe
+	 */
+	private static long[] getSameStripe(int count) {
+		long[] values = new long[count];
+		int stripe = LongClockSet.getStripe(LongClockSet.mix(0));
+		values[0] = 0;
+		int found = 1;
+		for (long value = 1; found < count; value++) {
+			if (LongClockSet.getStripe(LongClockSet.mix(value)) == stripe) {
+				values[found++] = value;
+			}
+		}
+		return values;
+	}
+
+	@Test
+	public void testAdd() {
+		LongClockSet set = new LongClockSet(64);
+		for (long i = 0; i < 1000; i++) {
+			assertTrue(set.add(i * 31));
+			assertFalse(set.add(i * 31));
+			assertTrue(set.contains(i * 31));
+		}
+		assertTrue(set.size() <= 64);
+	}
+
+	@Test
+	public void testEvictsUnreferenced() {
+		long[] values = getSameStripe(3);
+		LongClockSet set = new LongClockSet(CAPACITY);
+		assertTrue(set.add(values[0]));
+		assertTrue(set.add(values[1]));
+		assertTrue(set.add(values[2]));
+		assertFalse(set.contains(values[0]));
+		assertTrue(set.contains(values[1]));
+		assertTrue(set.contains(values[2]));
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	public void testReferencedGetsSecondChance() {
+		long[] values = getSameStripe(3);
+		LongClockSet set = new LongClockSet(CAPACITY);
+		set.add(values[0]);
+		set.add(values[1]);
+		// Adding again marks the value as recently used
+		assertFalse(set.add(values[0]));
+		assertTrue(set.add(values[2]));
+		assertTrue(set.contains(values[0]));
+		assertFalse(set.contains(values[1]));
+		assertTrue(set.contains(values[2]));
+	}
+
+	@Test
+	public void testContainsDoesNotReference() {
+		long[] values = getSameStripe(3);
+		LongClockSet set = new LongClockSet(CAPACITY);
+		set.add(values[0]);
+		set.add(values[1]);
+		assertTrue(set.contains(values[0]));
+		set.add(values[2]);
+		assertFalse(set.contains(values[0]));
+		assertTrue(set.contains(values[1]));
+	}
+
+	@Test
+	public void testStripeStaysWithinCapacity() {
+		long[] values = getSameStripe(50);
+		LongClockSet set = new LongClockSet(CAPACITY);
+		for (long value : values) {
+			set.add(value);
+		}
+		assertEquals(2, set.size());
+		assertTrue(set.contains(values[48]));
+		assertTrue(set.contains(values[49]));
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.netcache;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PartitionChunkTest {
+	private static long referenceHash(byte[] a) {
+		long h = 1;
+		for (byte b : a) {
+			h += (h << 5) + (long) b;
+		}
+		return h;
+	}
+
+	@Test
+	public void testHash() {
+		Random random = new Random(1);
+		for (int length = 0; length < 16; length++) {
+			byte[] data = new byte[length];
+			random.nextBytes(data);
+			assertEquals(referenceHash(data), PartitionChunk.hash(data));
+		}
+	}
+
+	@Test
+	public void testHashPartition() {
+		byte[] data = new byte[2048 * 2 + 100];
+		new Random(2).nextBytes(data);
+		byte[] partition = new byte[2048];
+		for (int i = 0; i < 3; i++) {
+			PartitionChunk.copyFromChunkData(data, i, partition, data.length);
+			assertEquals(referenceHash(partition), PartitionChunk.hashPartition(data, i, data.length));
+		}
+	}
+}
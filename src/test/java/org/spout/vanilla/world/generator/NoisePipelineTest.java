@@ -0,0 +1,76 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class NoisePipelineTest {
+	private final AtomicInteger built = new AtomicInteger();
+	private final NoisePipeline<long[]> pipeline = new NoisePipeline<long[]>() {
+		@Override
+		protected long[] create(long seed) {
+			built.incrementAndGet();
+			return new long[] {seed};
+		}
+	};
+
+	@Test
+	public void testSeeds() {
+		long[] first = pipeline.get(1);
+		assertSame(first, pipeline.get(1));
+		assertEquals(2, pipeline.get(2)[0]);
+		assertSame(first, pipeline.get(1));
+		assertEquals(2, built.get());
+		for (int seed = 3; seed < 8; seed++) {
+			pipeline.get(seed);
+		}
+		assertNotSame(first, pipeline.get(1));
+	}
+
+	@Test
+	public void testThreads() throws InterruptedException {
+		final long[] local = pipeline.get(5);
+		final AtomicReference<long[]> other = new AtomicReference<long[]>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				other.set(pipeline.get(5));
+			}
+		};
+		thread.start();
+		thread.join();
+		assertEquals(5, other.get()[0]);
+		assertNotSame(local, other.get());
+	}
+}
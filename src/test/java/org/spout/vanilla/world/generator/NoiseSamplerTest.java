@@ -0,0 +1,58 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import net.royawesome.jlibnoise.NoiseQuality;
+import net.royawesome.jlibnoise.module.source.Perlin;
+
+import org.junit.Test;
+
+import org.spout.api.generator.WorldGeneratorUtils;
+
+import static org.junit.Assert.assertEquals;
+
+public class NoiseSamplerTest {
+	@Test
+	public void testSameAsFastNoise() {
+		Perlin perlin = new Perlin();
+		perlin.setFrequency(0.012);
+		perlin.setNoiseQuality(NoiseQuality.BEST);
+		perlin.setOctaveCount(4);
+		perlin.setSeed(1234);
+		int sizeX = 16, sizeY = 32, sizeZ = 8;
+		int x = -48, y = 64, z = 160;
+		double[][][] expected = WorldGeneratorUtils.fastNoise(perlin, sizeX, sizeY, sizeZ, 4, x, y, z);
+		double[] actual = NoiseSampler.sample(perlin, sizeX, sizeY, sizeZ, 4, x, y, z);
+		for (int xx = 0; xx < sizeX; xx++) {
+			for (int yy = 0; yy < sizeY; yy++) {
+				for (int zz = 0; zz < sizeZ; zz++) {
+					assertEquals(expected[xx][yy][zz], actual[NoiseSampler.getIndex(xx, yy, zz, sizeY, sizeZ)], 0d);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BulkLightVolumeTest {
+	@Test
+	public void testIndex() {
+		BulkLightVolume volume = new BulkLightVolume(-16, 32, 48, 32, 48, 16);
+		for (int x = 0; x < volume.getSizeX(); x++) {
+			for (int y = 0; y < volume.getSizeY(); y++) {
+				for (int z = 0; z < volume.getSizeZ(); z++) {
+					int index = volume.getIndex(x, y, z);
+					assertEquals(x, volume.getX(index));
+					assertEquals(y, volume.getY(index));
+					assertEquals(z, volume.getZ(index));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLevels() {
+		BulkLightVolume volume = new BulkLightVolume(0, 0, 0, 16, 16, 32);
+		BulkLightVolume other = new BulkLightVolume(0, 0, 0, 16, 16, 32);
+		volume.set(3, 4, 5, 15);
+		volume.set(4, 4, 5, 7);
+		assertEquals(15, volume.get(3, 4, 5));
+		assertEquals(7, volume.get(4, 4, 5));
+		volume.set(3, 4, 5, 2);
+		assertEquals(2, volume.get(3, 4, 5));
+		assertEquals(7, volume.get(4, 4, 5));
+		assertEquals(volume.getIndex(3, 4, 5), volume.mismatch(other));
+		other.set(3, 4, 5, 2);
+		other.set(4, 4, 5, 7);
+		assertEquals(-1, volume.mismatch(other));
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LightFIFOTest {
+	@Test
+	public void testPacking() {
+		LightFIFO fifo = new LightFIFO(4);
+		fifo.reset(-1000, 64, 300000);
+		fifo.write(15, -1001, 63, 299990);
+		fifo.write(0, 5000, 255, 310000);
+		long entry = fifo.read();
+		assertEquals(15, LightFIFO.getW(entry));
+		assertEquals(-1001, fifo.getX(entry));
+		assertEquals(63, fifo.getY(entry));
+		assertEquals(299990, fifo.getZ(entry));
+		entry = fifo.read();
+		assertEquals(0, LightFIFO.getW(entry));
+		assertEquals(5000, fifo.getX(entry));
+		assertEquals(255, fifo.getY(entry));
+		assertEquals(310000, fifo.getZ(entry));
+		assertTrue(fifo.isEmpty());
+	}
+
+	@Test
+	public void testGrowth() {
+		LightFIFO fifo = new LightFIFO(4);
+		fifo.reset(0, 0, 0);
+		int read = 0;
+		for (int i = 0; i < 100; i++) {
+			fifo.write(i & 15, i, i, i);
+			if ((i % 3) == 0) {
+				assertEquals(read, fifo.getX(fifo.read()));
+				read++;
+			}
+		}
+		assertEquals(100 - read, fifo.size());
+		while (!fifo.isEmpty()) {
+			long entry = fifo.read();
+			assertEquals(read & 15, LightFIFO.getW(entry));
+			assertEquals(read, fifo.getZ(entry));
+			read++;
+		}
+		assertEquals(100, read);
+	}
+}